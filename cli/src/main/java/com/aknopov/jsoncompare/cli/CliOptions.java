@@ -0,0 +1,120 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.ComparisonOptions;
+
+/**
+ * Parsed command line arguments
+ *
+ * @param expected directory with expected documents
+ * @param actual directory with actual documents
+ * @param threads number of files compared in parallel
+ * @param json if true, results are written as JSON
+ * @param verbose if true, equal files are listed too
+ * @param comparisonOptions options of comparison of each pair of files
+ */
+record CliOptions(Path expected, Path actual, int threads, boolean json, boolean verbose,
+        ComparisonOptions comparisonOptions)
+{
+    static final String USAGE = """
+Usage: json-compare [options] <expected-dir> <actual-dir>
+Compares documents in two directories paired by relative paths.
+Files with .smile, .cbor and .msgpack extensions are read in binary formats, others - as JSON.
+
+Options:
+  --threads <n>        number of files compared in parallel (default: number of processors)
+  --format text|json   output format (default: text)
+  --verbose            list equal files too
+  --stop-on-first      report only the first difference of each file
+  --max-diffs <n>      maximal number of differences reported per file
+  --ignore <regex>     known discrepancy to ignore; can be repeated
+  --help               print this message
+
+Exit code is 0 when all documents are equal, 1 when some differ, are missing or can't be read,
+2 on usage errors and 3 when directories can't be listed or results can't be written.""";
+
+    /**
+     * Parses arguments
+     *
+     * @param args command line arguments
+     * @return options or null if help was requested
+     * @throws IllegalArgumentException if arguments are invalid
+     */
+    @Nullable
+    static CliOptions parse(String[] args)
+    {
+        List<String> directories = new ArrayList<>();
+        List<String> ignored = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        boolean verbose = false;
+        ComparisonOptions.Builder builder = ComparisonOptions.builder();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--help" ->
+                {
+                    return null;
+                }
+                case "--threads" -> threads = positive(args, ++i);
+                case "--format" -> json = switch (value(args, ++i))
+                {
+                    case "text" -> false;
+                    case "json" -> true;
+                    default -> throw new IllegalArgumentException("Unknown output format: " + args[i]);
+                };
+                case "--verbose" -> verbose = true;
+                case "--stop-on-first" -> builder.stopOnFirst(true);
+                case "--max-diffs" -> builder.maxDiffs(positive(args, ++i));
+                case "--ignore" -> ignored.add(value(args, ++i));
+                default ->
+                {
+                    if (args[i].startsWith("--"))
+                    {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    directories.add(args[i]);
+                }
+            }
+        }
+        if (directories.size() != 2)
+        {
+            throw new IllegalArgumentException("Expected and actual directories should be given");
+        }
+        return new CliOptions(Path.of(directories.get(0)), Path.of(directories.get(1)), threads, json, verbose,
+                builder.knownDiscrepancies(ignored).build());
+    }
+
+    private static String value(String[] args, int i)
+    {
+        if (i >= args.length)
+        {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static int positive(String[] args, int i)
+    {
+        String value = value(args, i);
+        try
+        {
+            int number = Integer.parseInt(value);
+            if (number > 0)
+            {
+                return number;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // reported below
+        }
+        throw new IllegalArgumentException("Value of " + args[i - 1] + " should be a positive number: " + value);
+    }
+}
@@ -0,0 +1,84 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Command line tool comparing directories of documents, e.g. expected and actual test fixtures. Files are paired
+ * by relative paths and compared in parallel; results are printed as text or JSON followed by a summary with
+ * throughput. Exit code can be used as a CI gate.
+ */
+public final class CompareCli
+{
+    /**
+     * Exit code when all documents are equal
+     */
+    public final static int EXIT_EQUAL = 0;
+    /**
+     * Exit code when some documents differ, are missing or can't be read
+     */
+    public final static int EXIT_DIFFERENT = 1;
+    /**
+     * Exit code on usage errors
+     */
+    public final static int EXIT_USAGE = 2;
+    /**
+     * Exit code when directories can't be listed or results can't be written
+     */
+    public final static int EXIT_ERROR = 3;
+
+    private CompareCli()
+    {
+    }
+
+    /**
+     * Entry point
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args)
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs comparison
+     *
+     * @param args command line arguments
+     * @param out output of results
+     * @param err output of errors
+     * @return exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+    {
+        CliOptions options;
+        try
+        {
+            options = CliOptions.parse(args);
+        }
+        catch (IllegalArgumentException e)
+        {
+            err.println(e.getMessage());
+            err.println(CliOptions.USAGE);
+            return EXIT_USAGE;
+        }
+        if (options == null)
+        {
+            out.println(CliOptions.USAGE);
+            return EXIT_EQUAL;
+        }
+
+        try (ResultWriter writer = options.json()
+                ? new JsonResultWriter(out, options.verbose())
+                : new TextResultWriter(out, options.verbose()))
+        {
+            CorpusSummary summary = new CorpusComparator(options).compare(writer);
+            return summary.passed() ? EXIT_EQUAL : EXIT_DIFFERENT;
+        }
+        catch (IOException e)
+        {
+            err.println("Comparison failed: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.Difference;
+import com.aknopov.jsoncompare.DifferenceType;
+import com.aknopov.jsoncompare.Fingerprint;
+import com.aknopov.jsoncompare.Fingerprinter;
+import com.aknopov.jsoncompare.InputFormat;
+import com.aknopov.jsoncompare.JsonComparator;
+import com.aknopov.jsoncompare.cli.FileResult.Status;
+
+/**
+ * Compares files of two directories paired by relative paths on a fixed pool of threads. Files are memory-mapped,
+ * pairs with identical bytes or equal fingerprints are skipped without building trees. Results are passed
+ * to a writer in order of paths while at most a few tasks per thread are in flight.
+ */
+final class CorpusComparator
+{
+    // Number of submitted tasks per thread
+    private final static int TASKS_PER_THREAD = 4;
+
+    private final CliOptions options;
+
+    CorpusComparator(CliOptions options)
+    {
+        this.options = options;
+    }
+
+    /**
+     * Compares directories
+     *
+     * @param writer receiver of results
+     * @return summary of comparison
+     * @throws IOException if directories can't be listed or results can't be written
+     */
+    CorpusSummary compare(ResultWriter writer) throws IOException
+    {
+        long start = System.nanoTime();
+        Set<String> paths = new TreeSet<>(list(options.expected()));
+        paths.addAll(list(options.actual()));
+
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        long bytes = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads());
+        try
+        {
+            ArrayDeque<Future<FileResult>> inFlight = new ArrayDeque<>();
+            for (String path : paths)
+            {
+                inFlight.addLast(pool.submit(() -> compareFiles(path)));
+                if (inFlight.size() >= options.threads() * TASKS_PER_THREAD)
+                {
+                    bytes += accept(inFlight.removeFirst(), writer, counts);
+                }
+            }
+            while (!inFlight.isEmpty())
+            {
+                bytes += accept(inFlight.removeFirst(), writer, counts);
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        CorpusSummary summary = new CorpusSummary(counts, bytes, System.nanoTime() - start);
+        writer.writeSummary(summary);
+        return summary;
+    }
+
+    /**
+     * Compares a pair of files
+     *
+     * @param path path of files relative to compared directories
+     * @return result of comparison
+     */
+    FileResult compareFiles(String path)
+    {
+        Path expected = options.expected().resolve(path);
+        Path actual = options.actual().resolve(path);
+        if (!Files.exists(actual))
+        {
+            return new FileResult(path, Status.MISSING, 0);
+        }
+        if (!Files.exists(expected))
+        {
+            return new FileResult(path, Status.UNEXPECTED, 0);
+        }
+
+        long bytes = 0;
+        try (FileChannel channel1 = FileChannel.open(expected, StandardOpenOption.READ);
+                FileChannel channel2 = FileChannel.open(actual, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer1 = channel1.map(FileChannel.MapMode.READ_ONLY, 0, channel1.size());
+            MappedByteBuffer buffer2 = channel2.map(FileChannel.MapMode.READ_ONLY, 0, channel2.size());
+            bytes = channel1.size() + channel2.size();
+            if (buffer1.equals(buffer2))
+            {
+                return new FileResult(path, Status.IDENTICAL, bytes);
+            }
+
+            InputFormat format = formatOf(path);
+            Fingerprint fingerprint1 = fingerprint(buffer1, format);
+            if (fingerprint1 != null && fingerprint1.equals(fingerprint(buffer2, format)))
+            {
+                return new FileResult(path, Status.EQUAL, bytes);
+            }
+
+            List<Difference> differences = new ArrayList<>();
+            JsonComparator.compareDocuments(toArray(buffer1), format, toArray(buffer2), format,
+                    options.comparisonOptions(), differences::add);
+            if (differences.isEmpty())
+            {
+                return new FileResult(path, Status.EQUAL, bytes);
+            }
+            DifferenceType firstType = differences.get(0).type();
+            if (firstType == DifferenceType.INPUT || firstType == DifferenceType.LIMIT)
+            {
+                return new FileResult(path, Status.ERROR, differences, bytes, differences.get(0).message());
+            }
+            return new FileResult(path, Status.DIFFERENT, differences, bytes, null);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            return new FileResult(path, Status.ERROR, List.of(), bytes, e.toString());
+        }
+    }
+
+    private static long accept(Future<FileResult> future, ResultWriter writer, Map<Status, Integer> counts)
+            throws IOException
+    {
+        FileResult result;
+        try
+        {
+            result = future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Comparison was interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Comparison failed", e.getCause());
+        }
+        counts.merge(result.status(), 1, Integer::sum);
+        writer.writeFile(result);
+        return result.bytes();
+    }
+
+    private static List<String> list(Path directory) throws IOException
+    {
+        if (!Files.isDirectory(directory))
+        {
+            throw new IOException("Not a directory: " + directory);
+        }
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            return files.filter(Files::isRegularFile)
+                    .map(p -> directory.relativize(p).toString().replace(File.separatorChar, '/'))
+                    .toList();
+        }
+    }
+
+    private static InputFormat formatOf(String path)
+    {
+        String name = path.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".smile"))
+        {
+            return InputFormat.SMILE;
+        }
+        if (name.endsWith(".cbor"))
+        {
+            return InputFormat.CBOR;
+        }
+        if (name.endsWith(".msgpack"))
+        {
+            return InputFormat.MESSAGE_PACK;
+        }
+        return InputFormat.JSON;
+    }
+
+    // Documents that can't be fingerprinted are compared to get proper error messages
+    @Nullable
+    private static Fingerprint fingerprint(ByteBuffer buffer, InputFormat format)
+    {
+        try
+        {
+            return Fingerprinter.DEFAULT.fingerprint(new ByteBufferInputStream(buffer), format);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.util.Map;
+
+import com.aknopov.jsoncompare.cli.FileResult.Status;
+
+/**
+ * Summary of comparison of directories
+ *
+ * @param counts numbers of files by comparison outcome
+ * @param bytes total size of compared files
+ * @param nanos duration of comparison
+ */
+record CorpusSummary(Map<Status, Integer> counts, long bytes, long nanos)
+{
+    /**
+     * @return number of compared pairs of files
+     */
+    int files()
+    {
+        return counts.values().stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /**
+     * @param status outcome of comparison
+     * @return number of files with the outcome
+     */
+    int count(Status status)
+    {
+        return counts.getOrDefault(status, 0);
+    }
+
+    /**
+     * @return true if all documents are equal
+     */
+    boolean passed()
+    {
+        return count(Status.IDENTICAL) + count(Status.EQUAL) == files();
+    }
+
+    /**
+     * @return throughput in files per second
+     */
+    double filesPerSecond()
+    {
+        return files() * 1e9 / Math.max(nanos, 1);
+    }
+
+    /**
+     * @return throughput in megabytes per second
+     */
+    double megabytesPerSecond()
+    {
+        return bytes * 1e9 / (1 << 20) / Math.max(nanos, 1);
+    }
+}
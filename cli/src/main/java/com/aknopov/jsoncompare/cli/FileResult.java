@@ -0,0 +1,63 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.Difference;
+
+/**
+ * Result of comparison of a pair of files
+ *
+ * @param path path of files relative to compared directories
+ * @param status outcome of comparison
+ * @param differences differences of documents
+ * @param bytes total size of both files
+ * @param error reason of failure for {@link Status#ERROR}
+ */
+record FileResult(String path, Status status, List<Difference> differences, long bytes, @Nullable String error)
+{
+    /**
+     * Outcome of comparison
+     */
+    enum Status
+    {
+        /**
+         * Files have the same bytes
+         */
+        IDENTICAL,
+        /**
+         * Documents are equal
+         */
+        EQUAL,
+        /**
+         * Documents differ
+         */
+        DIFFERENT,
+        /**
+         * Expected file has no actual counterpart
+         */
+        MISSING,
+        /**
+         * Actual file has no expected counterpart
+         */
+        UNEXPECTED,
+        /**
+         * Files can't be read or parsed
+         */
+        ERROR
+    }
+
+    FileResult(String path, Status status, long bytes)
+    {
+        this(path, status, List.of(), bytes, null);
+    }
+
+    /**
+     * @return true if documents are considered equal
+     */
+    boolean passed()
+    {
+        return status == Status.IDENTICAL || status == Status.EQUAL;
+    }
+}
@@ -0,0 +1,82 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import com.aknopov.jsoncompare.Difference;
+import com.aknopov.jsoncompare.cli.FileResult.Status;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes results as a JSON object with "files" array and "summary", streaming files as they are compared
+ */
+final class JsonResultWriter implements ResultWriter
+{
+    private final JsonGenerator generator;
+    private final boolean verbose;
+
+    JsonResultWriter(OutputStream out, boolean verbose) throws IOException
+    {
+        this.generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.verbose = verbose;
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("files");
+    }
+
+    @Override
+    public void writeFile(FileResult result) throws IOException
+    {
+        if (result.passed() && !verbose)
+        {
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeStringField("path", result.path());
+        generator.writeStringField("status", result.status().name());
+        if (result.error() != null)
+        {
+            generator.writeStringField("error", result.error());
+        }
+        if (!result.differences().isEmpty())
+        {
+            generator.writeArrayFieldStart("differences");
+            for (Difference difference : result.differences())
+            {
+                generator.writeStartObject();
+                generator.writeStringField("type", difference.type().name());
+                generator.writeStringField("path", difference.path());
+                generator.writeStringField("message", difference.message());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void writeSummary(CorpusSummary summary) throws IOException
+    {
+        generator.writeEndArray();
+        generator.writeObjectFieldStart("summary");
+        generator.writeNumberField("files", summary.files());
+        for (Status status : Status.values())
+        {
+            generator.writeNumberField(status.name().toLowerCase(Locale.ROOT), summary.count(status));
+        }
+        generator.writeNumberField("bytes", summary.bytes());
+        generator.writeNumberField("filesPerSecond", summary.filesPerSecond());
+        generator.writeNumberField("megabytesPerSecond", summary.megabytesPerSecond());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        generator.close();
+    }
+}
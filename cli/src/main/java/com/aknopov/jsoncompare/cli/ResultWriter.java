@@ -0,0 +1,26 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Output of results of comparison of directories
+ */
+interface ResultWriter extends Closeable
+{
+    /**
+     * Writes result of comparison of a pair of files
+     *
+     * @param result the result
+     * @throws IOException if output fails
+     */
+    void writeFile(FileResult result) throws IOException;
+
+    /**
+     * Writes summary after all files
+     *
+     * @param summary the summary
+     * @throws IOException if output fails
+     */
+    void writeSummary(CorpusSummary summary) throws IOException;
+}
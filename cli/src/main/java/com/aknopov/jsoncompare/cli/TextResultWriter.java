@@ -0,0 +1,57 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+import com.aknopov.jsoncompare.Difference;
+import com.aknopov.jsoncompare.cli.FileResult.Status;
+
+/**
+ * Writes results as plain text - a line per file followed by indented differences, and the summary
+ */
+final class TextResultWriter implements ResultWriter
+{
+    private final PrintStream out;
+    private final boolean verbose;
+
+    TextResultWriter(PrintStream out, boolean verbose)
+    {
+        this.out = out;
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void writeFile(FileResult result)
+    {
+        if (result.passed() && !verbose)
+        {
+            return;
+        }
+        out.println(result.status() + " " + result.path());
+        if (result.error() != null && result.differences().isEmpty())
+        {
+            out.println("    " + result.error());
+        }
+        for (Difference difference : result.differences())
+        {
+            out.println("    " + difference.message());
+        }
+    }
+
+    @Override
+    public void writeSummary(CorpusSummary summary)
+    {
+        out.printf(Locale.ROOT, "Files: %d (identical %d, equal %d, different %d, missing %d, unexpected %d, "
+                        + "errors %d)%n", summary.files(), summary.count(Status.IDENTICAL), summary.count(Status.EQUAL),
+                summary.count(Status.DIFFERENT), summary.count(Status.MISSING), summary.count(Status.UNEXPECTED),
+                summary.count(Status.ERROR));
+        out.printf(Locale.ROOT, "Throughput: %.1f files/s, %.1f MB/s%n", summary.filesPerSecond(),
+                summary.megabytesPerSecond());
+    }
+
+    @Override
+    public void close()
+    {
+        out.flush();
+    }
+}
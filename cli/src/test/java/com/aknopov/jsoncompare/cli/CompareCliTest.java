@@ -0,0 +1,137 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompareCliTest
+{
+    private final static String SAMPLE_1 = "{\"a\": {\"b\": \"foo\", \"c\": 5}, \"d\": [1, 2]}";
+    private final static String SAMPLE_2 = "{\"a\": {\"b\": \"bar\", \"c\": 5}, \"d\": [1, 2]}";
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void testEqualDirectories() throws IOException
+    {
+        write("expected/x.json", SAMPLE_1);
+        write("actual/x.json", SAMPLE_1);
+        write("expected/sub/y.json", SAMPLE_2);
+        write("actual/sub/y.json", SAMPLE_2.replace(" ", "\n"));
+
+        assertEquals(CompareCli.EXIT_EQUAL, run("--verbose"));
+        String output = output();
+        assertTrue(output.contains("IDENTICAL x.json"));
+        assertTrue(output.contains("EQUAL sub/y.json"));
+        assertTrue(output.contains("Files: 2 (identical 1, equal 1, different 0, missing 0, unexpected 0, errors 0)"));
+        assertTrue(output.contains("files/s"));
+    }
+
+    @Test
+    void testDifferentDirectories() throws IOException
+    {
+        write("expected/x.json", SAMPLE_1);
+        write("actual/x.json", SAMPLE_2);
+        write("expected/missing.json", SAMPLE_1);
+        write("actual/unexpected.json", SAMPLE_1);
+        write("expected/invalid.json", SAMPLE_1);
+        write("actual/invalid.json", "{\"a\": ");
+
+        assertEquals(CompareCli.EXIT_DIFFERENT, run("--threads", "2"));
+        String output = output();
+        assertTrue(output.contains("DIFFERENT x.json\n    Nodes values differ: 'foo' vs 'bar', path='/a[0]/b[0]'"),
+                output);
+        assertTrue(output.contains("MISSING missing.json"));
+        assertTrue(output.contains("UNEXPECTED unexpected.json"));
+        assertTrue(output.contains("ERROR invalid.json"));
+        assertTrue(output.contains("Files: 4 (identical 0, equal 0, different 1, missing 1, unexpected 1, errors 1)"));
+    }
+
+    @Test
+    void testJsonOutput() throws IOException
+    {
+        write("expected/x.json", SAMPLE_1);
+        write("actual/x.json", SAMPLE_2);
+        write("expected/y.json", SAMPLE_1);
+        write("actual/y.json", SAMPLE_1);
+
+        assertEquals(CompareCli.EXIT_DIFFERENT, run("--format", "json", "--ignore", "'foo' vs 'baz'"));
+        JsonNode report = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(1, report.get("files").size());
+        JsonNode file = report.get("files").get(0);
+        assertEquals("x.json", file.get("path").asText());
+        assertEquals("DIFFERENT", file.get("status").asText());
+        assertEquals("VALUE", file.get("differences").get(0).get("type").asText());
+        assertEquals(2, report.get("summary").get("files").asInt());
+        assertEquals(1, report.get("summary").get("identical").asInt());
+        assertTrue(report.get("summary").has("megabytesPerSecond"));
+    }
+
+    @Test
+    void testKnownDiscrepancies() throws IOException
+    {
+        write("expected/x.json", SAMPLE_1);
+        write("actual/x.json", SAMPLE_2);
+
+        assertEquals(CompareCli.EXIT_EQUAL, run("--ignore", "'foo' vs 'bar'"));
+    }
+
+    @Test
+    void testUsageErrors()
+    {
+        assertEquals(CompareCli.EXIT_USAGE, CompareCli.run(new String[] {"one"}, print(out), print(err)));
+        assertEquals(CompareCli.EXIT_USAGE,
+                CompareCli.run(new String[] {"a", "b", "--threads", "0"}, print(out), print(err)));
+        assertEquals(CompareCli.EXIT_USAGE, CompareCli.run(new String[] {"a", "b", "--colour"}, print(out), print(err)));
+        assertEquals(CompareCli.EXIT_EQUAL, CompareCli.run(new String[] {"--help"}, print(out), print(err)));
+    }
+
+    @Test
+    void testMissingDirectories()
+    {
+        assertEquals(CompareCli.EXIT_ERROR, run());
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Comparison failed: Not a directory: "));
+    }
+
+    private int run(String... options)
+    {
+        String[] args = new String[options.length + 2];
+        System.arraycopy(options, 0, args, 0, options.length);
+        args[options.length] = directory.resolve("expected").toString();
+        args[options.length + 1] = directory.resolve("actual").toString();
+        return CompareCli.run(args, print(out), print(err));
+    }
+
+    private void write(String path, String content) throws IOException
+    {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private String output()
+    {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static PrintStream print(ByteArrayOutputStream stream)
+    {
+        return new PrintStream(stream, true, StandardCharsets.UTF_8);
+    }
+}
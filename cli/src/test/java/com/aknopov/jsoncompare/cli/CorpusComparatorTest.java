@@ -0,0 +1,99 @@
+package com.aknopov.jsoncompare.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aknopov.jsoncompare.ComparisonOptions;
+import com.aknopov.jsoncompare.cli.FileResult.Status;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CorpusComparatorTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void testResultsInOrder() throws IOException
+    {
+        int count = 50;
+        for (int i = 0; i < count; i++)
+        {
+            String name = String.format("file%03d.json", i);
+            write("expected/" + name, "{\"id\": " + i + ", \"items\": [1, 2, 3]}");
+            write("actual/" + name, i % 10 == 0 ? "{\"id\": " + i + ", \"items\": [1, 3]}" : "{\"id\":" + i
+                    + ",\"items\":[1,2,3]}");
+        }
+        List<FileResult> results = new ArrayList<>();
+
+        CorpusSummary summary = new CorpusComparator(options(3)).compare(new ResultWriter()
+        {
+            @Override
+            public void writeFile(FileResult result)
+            {
+                results.add(result);
+            }
+
+            @Override
+            public void writeSummary(CorpusSummary summary)
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+
+        assertEquals(count, results.size());
+        for (int i = 0; i < count; i++)
+        {
+            assertEquals(String.format("file%03d.json", i), results.get(i).path());
+            assertEquals(i % 10 == 0 ? Status.DIFFERENT : Status.EQUAL, results.get(i).status());
+        }
+        assertEquals(count, summary.files());
+        assertEquals(5, summary.count(Status.DIFFERENT));
+        assertFalse(summary.passed());
+    }
+
+    @Test
+    void testIdenticalBytes() throws IOException
+    {
+        write("expected/x.json", "{\"a\": null}");
+        write("actual/x.json", "{\"a\": null}");
+        write("expected/y.json", "{\"a\": null}");
+        write("actual/y.json", "{\"a\" : null}");
+        CorpusComparator comparator = new CorpusComparator(options(1));
+
+        assertEquals(Status.IDENTICAL, comparator.compareFiles("x.json").status());
+        assertEquals(Status.EQUAL, comparator.compareFiles("y.json").status());
+    }
+
+    @Test
+    void testMissingDirectory()
+    {
+        assertThrows(IOException.class, () -> new CorpusComparator(options(1)).compare(new TextResultWriter(
+                System.out, false)));
+    }
+
+    private CliOptions options(int threads)
+    {
+        return new CliOptions(directory.resolve("expected"), directory.resolve("actual"), threads, false, false,
+                ComparisonOptions.DEFAULT);
+    }
+
+    private void write(String path, String content) throws IOException
+    {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
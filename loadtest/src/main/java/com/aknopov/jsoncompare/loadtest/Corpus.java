@@ -0,0 +1,178 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Pairs of documents grouped by payload kinds, loaded into memory so replaying doesn't touch disk. Kinds are
+ * subdirectories of the corpus directory with "expected" and "actual" directories paired by relative paths.
+ * Pairs are picked at random with probabilities proportional to weights of their kinds.
+ */
+final class Corpus
+{
+    private final static String EXPECTED = "expected";
+    private final static String ACTUAL = "actual";
+
+    /**
+     * Pair of documents, kept both as bytes and as decoded strings, so that neither entry point of the comparator
+     * pays for conversion while replaying
+     *
+     * @param kind payload kind
+     * @param path path of documents relative to the kind directories
+     * @param expected expected document
+     * @param actual actual document
+     * @param expectedText expected document decoded from UTF-8
+     * @param actualText actual document decoded from UTF-8
+     */
+    record Pair(String kind, String path, byte[] expected, byte[] actual, String expectedText, String actualText)
+    {
+    }
+
+    private final List<String> kinds;
+    private final List<List<Pair>> pairs;
+    // Cumulative weights of kinds
+    private final long[] bounds;
+
+    private Corpus(List<String> kinds, List<List<Pair>> pairs, long[] bounds)
+    {
+        this.kinds = kinds;
+        this.pairs = pairs;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Loads corpus
+     *
+     * @param directory corpus directory
+     * @param mix weights of kinds; if empty, all kinds have weight 1
+     * @return corpus
+     * @throws IOException if files can't be read
+     * @throws IllegalArgumentException if the mix refers to unknown kinds or the corpus has nothing to replay
+     */
+    static Corpus load(Path directory, Map<String, Integer> mix) throws IOException
+    {
+        if (!Files.isDirectory(directory))
+        {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Map<String, List<Pair>> byKind = new TreeMap<>();
+        try (Stream<Path> entries = Files.list(directory))
+        {
+            for (Path kind : entries.filter(Files::isDirectory).toList())
+            {
+                List<Pair> kindPairs = loadKind(kind);
+                if (!kindPairs.isEmpty())
+                {
+                    byKind.put(kind.getFileName().toString(), kindPairs);
+                }
+            }
+        }
+        for (String kind : mix.keySet())
+        {
+            if (!byKind.containsKey(kind))
+            {
+                throw new IllegalArgumentException("Unknown payload kind: " + kind);
+            }
+        }
+
+        List<String> kinds = new ArrayList<>();
+        List<List<Pair>> pairs = new ArrayList<>();
+        List<Long> bounds = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, List<Pair>> entry : byKind.entrySet())
+        {
+            int weight = mix.isEmpty() ? 1 : mix.getOrDefault(entry.getKey(), 0);
+            if (weight > 0)
+            {
+                total += weight;
+                kinds.add(entry.getKey());
+                pairs.add(entry.getValue());
+                bounds.add(total);
+            }
+        }
+        if (total == 0)
+        {
+            throw new IllegalArgumentException("Corpus has no pairs of documents to replay: " + directory);
+        }
+        return new Corpus(List.copyOf(kinds), List.copyOf(pairs),
+                bounds.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Gets replayed kinds
+     *
+     * @return names of kinds with non-zero weights
+     */
+    List<String> kinds()
+    {
+        return kinds;
+    }
+
+    /**
+     * Gets pairs of a kind
+     *
+     * @param kind name of a replayed kind
+     * @return pairs of documents
+     */
+    List<Pair> pairs(String kind)
+    {
+        int i = kinds.indexOf(kind);
+        return i < 0 ? List.of() : pairs.get(i);
+    }
+
+    /**
+     * Picks a random pair according to the mix
+     *
+     * @return pair of documents
+     */
+    Pair next()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long point = random.nextLong(bounds[bounds.length - 1]);
+        int kind = 0;
+        while (bounds[kind] <= point)
+        {
+            kind++;
+        }
+        List<Pair> kindPairs = pairs.get(kind);
+        return kindPairs.get(random.nextInt(kindPairs.size()));
+    }
+
+    private static List<Pair> loadKind(Path kind) throws IOException
+    {
+        Path expected = kind.resolve(EXPECTED);
+        Path actual = kind.resolve(ACTUAL);
+        if (!Files.isDirectory(expected) || !Files.isDirectory(actual))
+        {
+            return List.of();
+        }
+        String name = kind.getFileName().toString();
+        List<Pair> pairs = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(expected))
+        {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList())
+            {
+                String path = expected.relativize(file).toString().replace(File.separatorChar, '/');
+                Path other = actual.resolve(path);
+                if (Files.isRegularFile(other))
+                {
+                    byte[] expectedBytes = Files.readAllBytes(file);
+                    byte[] actualBytes = Files.readAllBytes(other);
+                    pairs.add(new Pair(name, path, expectedBytes, actualBytes,
+                            new String(expectedBytes, StandardCharsets.UTF_8),
+                            new String(actualBytes, StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,106 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.annotation.Nullable;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Collects GC statistics from notifications of garbage collector beans while open. Collectors running concurrently
+ * with the application (e.g. "G1 Concurrent GC", "ZGC Cycles") are counted separately from stop-the-world pauses.
+ */
+final class GcMonitor implements AutoCloseable
+{
+    /**
+     * GC statistics
+     *
+     * @param pauses number of stop-the-world collections
+     * @param totalPauseMs total duration of pauses in milliseconds
+     * @param maxPauseMs longest pause in milliseconds
+     * @param concurrentCycles number of concurrent collection cycles
+     */
+    record Stats(long pauses, long totalPauseMs, long maxPauseMs, long concurrentCycles)
+    {
+    }
+
+    private final AtomicLong pauses = new AtomicLong();
+    private final AtomicLong totalPauseMs = new AtomicLong();
+    private final LongAccumulator maxPauseMs = new LongAccumulator(Math::max, 0);
+    private final AtomicLong concurrentCycles = new AtomicLong();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handle;
+
+    GcMonitor()
+    {
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (bean instanceof NotificationEmitter emitter)
+            {
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    /**
+     * Gets statistics collected so far
+     *
+     * @return GC statistics
+     */
+    Stats stats()
+    {
+        return new Stats(pauses.get(), totalPauseMs.get(), maxPauseMs.get(), concurrentCycles.get());
+    }
+
+    @Override
+    public void close()
+    {
+        for (NotificationEmitter emitter : emitters)
+        {
+            try
+            {
+                emitter.removeNotificationListener(listener);
+            }
+            catch (ListenerNotFoundException e)
+            {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    private void handle(Notification notification, @Nullable Object handback)
+    {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+        {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+        if (isConcurrent(info.getGcName()))
+        {
+            concurrentCycles.incrementAndGet();
+            return;
+        }
+        long duration = info.getGcInfo().getDuration();
+        pauses.incrementAndGet();
+        totalPauseMs.addAndGet(duration);
+        maxPauseMs.accumulate(duration);
+    }
+
+    private static boolean isConcurrent(String gcName)
+    {
+        return gcName.contains("Concurrent") || gcName.endsWith("Cycles");
+    }
+}
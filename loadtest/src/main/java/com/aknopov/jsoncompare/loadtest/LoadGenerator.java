@@ -0,0 +1,199 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aknopov.jsoncompare.DiffSink;
+import com.aknopov.jsoncompare.DifferenceType;
+import com.aknopov.jsoncompare.InputFormat;
+import com.aknopov.jsoncompare.JsonComparator;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Replays corpus in one of two modes:
+ * <ul>
+ * <li>fixed concurrency - a number of workers run comparisons back to back, latency is the service time;</li>
+ * <li>fixed rate - comparisons are issued on a schedule regardless of completions, latency is measured from
+ * the scheduled start, so queueing behind slow comparisons is counted rather than omitted.</li>
+ * </ul>
+ * Comparisons started during warmup are not recorded. Comparisons started before the end of the measurement
+ * are awaited and included.
+ */
+final class LoadGenerator
+{
+    // Precision of recorded latencies
+    private final static int SIGNIFICANT_DIGITS = 3;
+    private final static long NANOS_PER_MICRO = 1_000;
+    // Time allowed to complete comparisons issued before the end of the measurement
+    private final static long DRAIN_SECONDS = 60;
+
+    private final LoadOptions options;
+    private final Corpus corpus;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private long measurementStart;
+
+    LoadGenerator(LoadOptions options, Corpus corpus)
+    {
+        this.options = options;
+        this.corpus = corpus;
+    }
+
+    /**
+     * Runs warmup and measurement
+     *
+     * @return report of the measurement
+     * @throws InterruptedException if the run is interrupted
+     * @throws IllegalArgumentException if virtual threads are requested but not supported by the runtime
+     */
+    LoadReport run() throws InterruptedException
+    {
+        long start = System.nanoTime();
+        measurementStart = start + options.warmup().toNanos();
+        long end = measurementStart + options.duration().toNanos();
+
+        ExecutorService executor = options.virtualThreads()
+                ? virtualThreadExecutor()
+                : Executors.newFixedThreadPool(options.concurrency());
+        GcMonitor gcMonitor = null;
+        try
+        {
+            if (options.rate() > 0)
+            {
+                long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+                for (long i = 0; start + i * interval < end; i++)
+                {
+                    long scheduled = start + i * interval;
+                    if (gcMonitor == null && scheduled >= measurementStart)
+                    {
+                        gcMonitor = new GcMonitor();
+                    }
+                    parkUntil(scheduled);
+                    executor.execute(() -> compare(scheduled));
+                }
+            }
+            else
+            {
+                for (int i = 0; i < options.concurrency(); i++)
+                {
+                    executor.execute(this::work);
+                }
+                parkUntil(measurementStart);
+                gcMonitor = new GcMonitor();
+                parkUntil(end);
+            }
+            if (gcMonitor == null)
+            {
+                gcMonitor = new GcMonitor();
+            }
+            stopped.set(true);
+            executor.shutdown();
+            if (!executor.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS))
+            {
+                throw new IllegalStateException("Comparisons didn't complete in " + DRAIN_SECONDS + " seconds");
+            }
+            Histogram histogram = recorder.getIntervalHistogram();
+            return LoadReport.of(options, kinds(), histogram, System.nanoTime() - measurementStart, errors.sum(),
+                    gcMonitor.stats());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if (gcMonitor != null)
+            {
+                gcMonitor.close();
+            }
+        }
+    }
+
+    private void work()
+    {
+        while (!stopped.get())
+        {
+            compare(System.nanoTime());
+        }
+    }
+
+    private void compare(long scheduled)
+    {
+        Corpus.Pair pair = corpus.next();
+        boolean failed;
+        try
+        {
+            boolean[] inputError = new boolean[1];
+            DiffSink sink = d -> inputError[0] |= d.type() == DifferenceType.INPUT || d.type() == DifferenceType.LIMIT;
+            if (options.bytesInput())
+            {
+                JsonComparator.compareDocuments(pair.expected(), InputFormat.JSON, pair.actual(), InputFormat.JSON,
+                        options.comparisonOptions(), sink);
+            }
+            else
+            {
+                JsonComparator.compareJsonStrings(pair.expectedText(), pair.actualText(), options.comparisonOptions(),
+                        sink);
+            }
+            failed = inputError[0];
+        }
+        catch (RuntimeException e)
+        {
+            failed = true;
+        }
+        if (scheduled < measurementStart)
+        {
+            return;
+        }
+        recorder.recordValue((System.nanoTime() - scheduled) / NANOS_PER_MICRO);
+        if (failed)
+        {
+            errors.increment();
+        }
+    }
+
+    private Map<String, Integer> kinds()
+    {
+        Map<String, Integer> kinds = new LinkedHashMap<>();
+        for (String kind : corpus.kinds())
+        {
+            kinds.put(kind, options.mix().getOrDefault(kind, 1));
+        }
+        return kinds;
+    }
+
+    private static void parkUntil(long deadline) throws InterruptedException
+    {
+        for (long delay = deadline - System.nanoTime(); delay > 0; delay = deadline - System.nanoTime())
+        {
+            LockSupport.parkNanos(delay);
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    // Virtual threads are final in Java 21 while the project targets Java 17
+    private static ExecutorService virtualThreadExecutor()
+    {
+        try
+        {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new IllegalArgumentException("Virtual threads need Java 21 or later, running on "
+                    + Runtime.version(), e);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can't create executor of virtual threads", e);
+        }
+    }
+}
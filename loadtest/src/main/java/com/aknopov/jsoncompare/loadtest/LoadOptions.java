@@ -0,0 +1,239 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.ComparisonOptions;
+
+/**
+ * Parsed command line arguments
+ *
+ * @param corpus directory with payload kinds
+ * @param mix weights of payload kinds; empty if all kinds have the same weight
+ * @param concurrency number of concurrent workers, or size of the pool of platform threads in fixed rate mode
+ * @param rate requests per second in fixed rate mode, or 0 in fixed concurrency mode
+ * @param virtualThreads if true, comparisons run on virtual threads
+ * @param warmup duration of the warmup which is not measured
+ * @param duration duration of the measurement
+ * @param json if true, the report is written as JSON
+ * @param bytesInput if true, documents are compared as UTF-8 bytes, otherwise as strings
+ * @param slo maximal latencies in milliseconds by percentile name (p50, p90, p99, p99.9, max)
+ * @param comparisonOptions options of comparison of each pair of documents
+ */
+record LoadOptions(Path corpus, Map<String, Integer> mix, int concurrency, int rate, boolean virtualThreads,
+        Duration warmup, Duration duration, boolean json, boolean bytesInput, Map<String, Double> slo,
+        ComparisonOptions comparisonOptions)
+{
+    // Requests are scheduled with intervals in whole nanoseconds
+    static final int MAX_RATE = 1_000_000_000;
+    static final String USAGE = """
+Usage: json-compare-load [options] <corpus-dir>
+Replays pairs of JSON documents from the corpus through JsonComparator concurrently and reports latency
+percentiles, throughput and GC statistics.
+Each subdirectory of the corpus is a payload kind with "expected" and "actual" directories paired by relative paths.
+
+Options:
+  --mix <kind=weight,...>     weights of payload kinds (default: equal weights)
+  --concurrency <n>           number of concurrent workers, or pool size with --rate (default: 64)
+  --rate <n>                  issue n (up to 10^9) requests per second instead of running workers back to back
+  --threads platform|virtual  kind of threads running comparisons (default: platform); virtual needs Java 21
+  --warmup <seconds>          duration of the warmup (default: 5)
+  --duration <seconds>        duration of the measurement (default: 30)
+  --format text|json          report format (default: text)
+  --input strings|bytes       compare documents as strings or as UTF-8 bytes (default: strings)
+  --slo <name=ms,...>         latency objectives, e.g. p99=20,p99.9=50; exit code is 1 when exceeded
+  --hash-first                compare hashes of subtrees before building trees
+  --help                      print this message
+
+Exit code is 0 when objectives are met, 1 when some are exceeded or comparisons fail, and 2 on usage errors.""";
+
+    private final static int DEFAULT_CONCURRENCY = 64;
+    private final static int DEFAULT_WARMUP_SECONDS = 5;
+    private final static int DEFAULT_DURATION_SECONDS = 30;
+
+    /**
+     * Parses arguments
+     *
+     * @param args command line arguments
+     * @return options or null if help was requested
+     * @throws IllegalArgumentException if arguments are invalid
+     */
+    @Nullable
+    static LoadOptions parse(String[] args)
+    {
+        String corpus = null;
+        Map<String, Integer> mix = Map.of();
+        int concurrency = DEFAULT_CONCURRENCY;
+        int rate = 0;
+        boolean virtualThreads = false;
+        int warmup = DEFAULT_WARMUP_SECONDS;
+        int duration = DEFAULT_DURATION_SECONDS;
+        boolean json = false;
+        boolean bytesInput = false;
+        Map<String, Double> slo = Map.of();
+        ComparisonOptions.Builder builder = ComparisonOptions.builder();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--help" ->
+                {
+                    return null;
+                }
+                case "--mix" -> mix = weights(value(args, ++i));
+                case "--concurrency" -> concurrency = positive(args, ++i);
+                case "--rate" -> rate = rate(args, ++i);
+                case "--threads" -> virtualThreads = switch (value(args, ++i))
+                {
+                    case "platform" -> false;
+                    case "virtual" -> true;
+                    default -> throw new IllegalArgumentException("Unknown kind of threads: " + args[i]);
+                };
+                case "--warmup" -> warmup = nonNegative(args, ++i);
+                case "--duration" -> duration = positive(args, ++i);
+                case "--format" -> json = switch (value(args, ++i))
+                {
+                    case "text" -> false;
+                    case "json" -> true;
+                    default -> throw new IllegalArgumentException("Unknown report format: " + args[i]);
+                };
+                case "--input" -> bytesInput = switch (value(args, ++i))
+                {
+                    case "strings" -> false;
+                    case "bytes" -> true;
+                    default -> throw new IllegalArgumentException("Unknown input kind: " + args[i]);
+                };
+                case "--slo" -> slo = objectives(value(args, ++i));
+                case "--hash-first" -> builder.hashFirst(true);
+                default ->
+                {
+                    if (args[i].startsWith("--") || corpus != null)
+                    {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    corpus = args[i];
+                }
+            }
+        }
+        if (corpus == null)
+        {
+            throw new IllegalArgumentException("Corpus directory should be given");
+        }
+        return new LoadOptions(Path.of(corpus), mix, concurrency, rate, virtualThreads, Duration.ofSeconds(warmup),
+                Duration.ofSeconds(duration), json, bytesInput, slo, builder.build());
+    }
+
+    private static Map<String, Integer> weights(String value)
+    {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : pairs(value, "--mix").entrySet())
+        {
+            try
+            {
+                int weight = Integer.parseInt(entry.getValue());
+                if (weight >= 0)
+                {
+                    weights.put(entry.getKey(), weight);
+                    continue;
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                // reported below
+            }
+            throw new IllegalArgumentException("Weight of " + entry.getKey() + " should be a non-negative number: "
+                    + entry.getValue());
+        }
+        return weights;
+    }
+
+    private static Map<String, Double> objectives(String value)
+    {
+        Map<String, Double> objectives = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : pairs(value, "--slo").entrySet())
+        {
+            if (LoadReport.percentile(entry.getKey()) < 0)
+            {
+                throw new IllegalArgumentException("Unknown latency objective: " + entry.getKey());
+            }
+            try
+            {
+                objectives.put(entry.getKey(), Double.parseDouble(entry.getValue()));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Objective " + entry.getKey() + " should be a number: "
+                        + entry.getValue(), e);
+            }
+        }
+        return objectives;
+    }
+
+    // Comma separated name=value pairs
+    private static Map<String, String> pairs(String value, String option)
+    {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (String pair : value.split(","))
+        {
+            int separator = pair.indexOf('=');
+            if (separator <= 0 || separator == pair.length() - 1)
+            {
+                throw new IllegalArgumentException("Value of " + option + " should be name=value pairs: " + value);
+            }
+            pairs.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+        }
+        return pairs;
+    }
+
+    private static String value(String[] args, int i)
+    {
+        if (i >= args.length)
+        {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static int rate(String[] args, int i)
+    {
+        int rate = positive(args, i);
+        if (rate > MAX_RATE)
+        {
+            throw new IllegalArgumentException("Value of " + args[i - 1] + " should not exceed " + MAX_RATE + ": "
+                    + rate);
+        }
+        return rate;
+    }
+
+    private static int positive(String[] args, int i)
+    {
+        int number = nonNegative(args, i);
+        if (number == 0)
+        {
+            throw new IllegalArgumentException("Value of " + args[i - 1] + " should be a positive number: 0");
+        }
+        return number;
+    }
+
+    private static int nonNegative(String[] args, int i)
+    {
+        String value = value(args, i);
+        try
+        {
+            int number = Integer.parseInt(value);
+            if (number >= 0)
+            {
+                return number;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // reported below
+        }
+        throw new IllegalArgumentException("Value of " + args[i - 1] + " should be a non-negative number: " + value);
+    }
+}
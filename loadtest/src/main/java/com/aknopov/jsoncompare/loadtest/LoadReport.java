@@ -0,0 +1,186 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Results of a load run. JSON form has stable field names, so reports of releases can be compared by tools.
+ *
+ * @param mode "concurrency" or "rate"
+ * @param threads "platform" or "virtual"
+ * @param concurrency number of workers or size of the pool
+ * @param rate target requests per second, or 0
+ * @param kinds replayed payload kinds with their weights
+ * @param durationMs duration of the measurement in milliseconds
+ * @param requests number of completed comparisons
+ * @param errors number of comparisons that failed
+ * @param latenciesMs latencies in milliseconds by percentile name
+ * @param meanMs mean latency in milliseconds
+ * @param gc GC statistics of the measurement
+ * @param violations objectives that were exceeded
+ */
+record LoadReport(String mode, String threads, int concurrency, int rate, Map<String, Integer> kinds,
+        long durationMs, long requests, long errors, Map<String, Double> latenciesMs, double meanMs,
+        GcMonitor.Stats gc, List<String> violations)
+{
+    // Reported percentiles and their names accepted in objectives
+    private final static List<String> NAMES = List.of("p50", "p90", "p99", "p99.9", "max");
+    private final static double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9, 100.0 };
+    private final static double MICROS_PER_MS = 1_000.0;
+
+    /**
+     * Gets percentile by name
+     *
+     * @param name percentile name, e.g. "p99"
+     * @return percentile or -1 if the name is unknown
+     */
+    static double percentile(String name)
+    {
+        int i = NAMES.indexOf(name);
+        return i < 0 ? -1.0 : PERCENTILES[i];
+    }
+
+    /**
+     * Creates report from a histogram of latencies in microseconds
+     *
+     * @param options load options
+     * @param kinds replayed payload kinds with their weights
+     * @param histogram latencies of the measurement
+     * @param durationNanos duration of the measurement
+     * @param errors number of failed comparisons
+     * @param gc GC statistics of the measurement
+     * @return report with violations of objectives of the options
+     */
+    static LoadReport of(LoadOptions options, Map<String, Integer> kinds, Histogram histogram, long durationNanos,
+            long errors, GcMonitor.Stats gc)
+    {
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        for (int i = 0; i < NAMES.size(); i++)
+        {
+            long micros = PERCENTILES[i] == 100.0
+                    ? histogram.getMaxValue()
+                    : histogram.getValueAtPercentile(PERCENTILES[i]);
+            latencies.put(NAMES.get(i), micros / MICROS_PER_MS);
+        }
+        List<String> violations = options.slo().entrySet().stream()
+                .filter(e -> latencies.getOrDefault(e.getKey(), 0.0) > e.getValue())
+                .map(e -> String.format(Locale.ROOT, "%s %.3f ms exceeds %.3f ms", e.getKey(),
+                        latencies.getOrDefault(e.getKey(), 0.0), e.getValue()))
+                .toList();
+        return new LoadReport(options.rate() > 0 ? "rate" : "concurrency",
+                options.virtualThreads() ? "virtual" : "platform", options.concurrency(), options.rate(), kinds,
+                durationNanos / 1_000_000, histogram.getTotalCount(), errors, latencies,
+                histogram.getMean() / MICROS_PER_MS, gc, violations);
+    }
+
+    /**
+     * Checks whether objectives are met
+     *
+     * @return true if some comparisons completed, none failed and latencies are within objectives
+     */
+    boolean passed()
+    {
+        return violations.isEmpty() && errors == 0 && requests > 0;
+    }
+
+    /**
+     * Gets throughput
+     *
+     * @return completed comparisons per second
+     */
+    double requestsPerSecond()
+    {
+        return durationMs == 0 ? 0.0 : requests * 1_000.0 / durationMs;
+    }
+
+    /**
+     * Writes human-readable report
+     *
+     * @param out output
+     */
+    void writeText(PrintStream out)
+    {
+        out.printf(Locale.ROOT, "Mode: %s, %s threads, concurrency %d%s%n", mode, threads, concurrency,
+                rate > 0 ? ", rate " + rate + "/s" : "");
+        out.println("Mix: " + kinds);
+        out.printf(Locale.ROOT, "Requests: %d in %d ms (%.1f/s), errors: %d%n", requests, durationMs,
+                requestsPerSecond(), errors);
+        StringBuilder sb = new StringBuilder("Latency, ms:");
+        latenciesMs.forEach((name, value) -> sb.append(String.format(Locale.ROOT, " %s=%.3f", name, value)));
+        out.println(sb.append(String.format(Locale.ROOT, " mean=%.3f", meanMs)));
+        out.printf(Locale.ROOT, "GC: %d pauses, total %d ms, max %d ms, %d concurrent cycles%n", gc.pauses(),
+                gc.totalPauseMs(), gc.maxPauseMs(), gc.concurrentCycles());
+        for (String violation : violations)
+        {
+            out.println("SLO violated: " + violation);
+        }
+        if (errors > 0)
+        {
+            out.println("SLO violated: " + errors + " comparisons failed");
+        }
+        if (requests == 0)
+        {
+            out.println("SLO violated: no comparisons completed");
+        }
+    }
+
+    /**
+     * Writes report as JSON object
+     *
+     * @param out output
+     * @throws IOException if writing fails
+     */
+    void writeJson(PrintStream out) throws IOException
+    {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET))
+        {
+            generator.writeStartObject();
+            generator.writeStringField("mode", mode);
+            generator.writeStringField("threads", threads);
+            generator.writeNumberField("concurrency", concurrency);
+            generator.writeNumberField("rate", rate);
+            generator.writeObjectFieldStart("mix");
+            for (Map.Entry<String, Integer> kind : kinds.entrySet())
+            {
+                generator.writeNumberField(kind.getKey(), kind.getValue());
+            }
+            generator.writeEndObject();
+            generator.writeNumberField("durationMs", durationMs);
+            generator.writeNumberField("requests", requests);
+            generator.writeNumberField("errors", errors);
+            generator.writeNumberField("requestsPerSecond", requestsPerSecond());
+            generator.writeObjectFieldStart("latencyMs");
+            for (Map.Entry<String, Double> latency : latenciesMs.entrySet())
+            {
+                generator.writeNumberField(latency.getKey(), latency.getValue());
+            }
+            generator.writeNumberField("mean", meanMs);
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("gc");
+            generator.writeNumberField("pauses", gc.pauses());
+            generator.writeNumberField("totalPauseMs", gc.totalPauseMs());
+            generator.writeNumberField("maxPauseMs", gc.maxPauseMs());
+            generator.writeNumberField("concurrentCycles", gc.concurrentCycles());
+            generator.writeEndObject();
+            generator.writeBooleanField("passed", passed());
+            generator.writeArrayFieldStart("violations");
+            for (String violation : violations)
+            {
+                generator.writeString(violation);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        out.println();
+    }
+}
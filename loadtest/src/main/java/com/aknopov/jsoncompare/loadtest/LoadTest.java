@@ -0,0 +1,104 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Load generator replaying a mix of payload kinds through the comparator at a fixed concurrency or a fixed rate,
+ * on platform or virtual threads. Reports latency percentiles, throughput and GC statistics as text or JSON,
+ * so releases can be checked against latency objectives; exit code can be used as a CI gate.
+ */
+public final class LoadTest
+{
+    /**
+     * Exit code when objectives are met
+     */
+    public final static int EXIT_PASSED = 0;
+    /**
+     * Exit code when some objectives are exceeded or comparisons fail
+     */
+    public final static int EXIT_FAILED = 1;
+    /**
+     * Exit code on usage errors
+     */
+    public final static int EXIT_USAGE = 2;
+
+    private LoadTest()
+    {
+    }
+
+    /**
+     * Entry point
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args)
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs load
+     *
+     * @param args command line arguments
+     * @param out output of the report
+     * @param err output of errors
+     * @return exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+    {
+        LoadOptions options;
+        Corpus corpus;
+        try
+        {
+            options = LoadOptions.parse(args);
+            if (options == null)
+            {
+                out.println(LoadOptions.USAGE);
+                return EXIT_PASSED;
+            }
+            corpus = Corpus.load(options.corpus(), options.mix());
+        }
+        catch (IllegalArgumentException e)
+        {
+            err.println(e.getMessage());
+            err.println(LoadOptions.USAGE);
+            return EXIT_USAGE;
+        }
+        catch (IOException e)
+        {
+            err.println("Can't load corpus: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        try
+        {
+            LoadReport report = new LoadGenerator(options, corpus).run();
+            if (options.json())
+            {
+                report.writeJson(out);
+            }
+            else
+            {
+                report.writeText(out);
+            }
+            return report.passed() ? EXIT_PASSED : EXIT_FAILED;
+        }
+        catch (IllegalArgumentException e)
+        {
+            err.println(e.getMessage());
+            return EXIT_USAGE;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            err.println("Load was interrupted");
+            return EXIT_USAGE;
+        }
+        catch (IOException e)
+        {
+            err.println("Can't write report: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorpusTest
+{
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        write("a/expected/1.json", "1");
+        write("a/actual/1.json", "2");
+        write("a/expected/sub/2.json", "[1]");
+        write("a/actual/sub/2.json", "[2]");
+        write("a/expected/unpaired.json", "3");
+        write("b/expected/1.json", "{}");
+        write("b/actual/1.json", "{}");
+        write("c/expected/1.json", "{}");
+    }
+
+    @Test
+    void testLoading() throws IOException
+    {
+        Corpus corpus = Corpus.load(directory, Map.of());
+
+        assertEquals(List.of("a", "b"), corpus.kinds());
+        List<Corpus.Pair> pairs = corpus.pairs("a");
+        assertEquals(2, pairs.size());
+        assertEquals("1.json", pairs.get(0).path());
+        assertEquals("sub/2.json", pairs.get(1).path());
+        assertEquals("[2]", new String(pairs.get(1).actual(), StandardCharsets.UTF_8));
+        assertTrue(corpus.pairs("c").isEmpty());
+    }
+
+    @Test
+    void testMix() throws IOException
+    {
+        Corpus corpus = Corpus.load(directory, Map.of("a", 3, "b", 1));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10_000; i++)
+        {
+            counts.merge(corpus.next().kind(), 1, Integer::sum);
+        }
+        assertEquals(10_000, counts.get("a") + counts.get("b"));
+        assertTrue(counts.get("a") > 7_000 && counts.get("a") < 8_000, counts.toString());
+    }
+
+    @Test
+    void testZeroWeight() throws IOException
+    {
+        Corpus corpus = Corpus.load(directory, Map.of("a", 0, "b", 1));
+
+        assertEquals(List.of("b"), corpus.kinds());
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals("b", corpus.next().kind());
+        }
+    }
+
+    @Test
+    void testInvalidMix()
+    {
+        assertThrows(IllegalArgumentException.class, () -> Corpus.load(directory, Map.of("c", 1)));
+        assertThrows(IllegalArgumentException.class, () -> Corpus.load(directory, Map.of("a", 0)));
+        assertThrows(IOException.class, () -> Corpus.load(directory.resolve("none"), Map.of()));
+    }
+
+    private void write(String path, String content) throws IOException
+    {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,156 @@
+package com.aknopov.jsoncompare.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadTestTest
+{
+    private final static String SAMPLE_1 = "{\"a\": {\"b\": \"foo\", \"c\": 5}, \"d\": [1, 2]}";
+    private final static String SAMPLE_2 = "{\"a\": {\"b\": \"bar\", \"c\": 5}, \"d\": [1, 2]}";
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        write("small/expected/x.json", SAMPLE_1);
+        write("small/actual/x.json", SAMPLE_2);
+        write("large/expected/y.json", "[" + (SAMPLE_1 + ",").repeat(100) + SAMPLE_1 + "]");
+        write("large/actual/y.json", "[" + (SAMPLE_1 + ",").repeat(100) + SAMPLE_2 + "]");
+    }
+
+    @Test
+    void testFixedConcurrency() throws IOException
+    {
+        assertEquals(LoadTest.EXIT_PASSED, run("--concurrency", "2", "--duration", "1", "--warmup", "0",
+                "--mix", "small=3,large=1", "--slo", "p99=60000", "--format", "json"));
+        JsonNode report = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals("concurrency", report.get("mode").asText());
+        assertEquals("platform", report.get("threads").asText());
+        assertEquals(3, report.get("mix").get("small").asInt());
+        assertEquals(1, report.get("mix").get("large").asInt());
+        assertTrue(report.get("requests").asLong() > 0);
+        assertEquals(0, report.get("errors").asLong());
+        JsonNode latency = report.get("latencyMs");
+        assertTrue(latency.get("p50").asDouble() <= latency.get("p99").asDouble());
+        assertTrue(latency.get("p99").asDouble() <= latency.get("p99.9").asDouble());
+        assertTrue(latency.get("p99.9").asDouble() <= latency.get("max").asDouble());
+        assertTrue(report.get("gc").has("pauses"));
+        assertTrue(report.get("passed").asBoolean());
+    }
+
+    @Test
+    void testFixedRate()
+    {
+        assertEquals(LoadTest.EXIT_FAILED, run("--rate", "200", "--concurrency", "2", "--duration", "1",
+                "--warmup", "1", "--slo", "p50=0.000001"));
+        String output = output();
+        assertTrue(output.contains("Mode: rate, platform threads, concurrency 2, rate 200/s"), output);
+        assertTrue(output.contains("Latency, ms: p50="), output);
+        assertTrue(output.contains("SLO violated: p50"), output);
+        // About 200 requests are issued during the measurement
+        long requests = Long.parseLong(output.replaceAll("(?s).*Requests: (\\d+) .*", "$1"));
+        assertTrue(requests > 150 && requests < 250, output);
+    }
+
+    @Test
+    void testFailedComparisons() throws IOException
+    {
+        write("invalid/expected/z.json", SAMPLE_1);
+        write("invalid/actual/z.json", "{\"a\": ");
+
+        assertEquals(LoadTest.EXIT_FAILED, run("--concurrency", "1", "--duration", "1", "--warmup", "0",
+                "--mix", "invalid=1", "--format", "json"));
+        JsonNode report = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(report.get("requests").asLong(), report.get("errors").asLong());
+        assertFalse(report.get("passed").asBoolean());
+    }
+
+    @Test
+    void testBytesInput() throws IOException
+    {
+        write("invalid/expected/z.json", SAMPLE_1);
+        write("invalid/actual/z.json", "{\"a\": ");
+
+        assertEquals(LoadTest.EXIT_PASSED, run("--input", "bytes", "--concurrency", "2", "--duration", "1",
+                "--warmup", "0", "--mix", "small=1,large=1"));
+        assertEquals(LoadTest.EXIT_FAILED, run("--input", "bytes", "--concurrency", "1", "--duration", "1",
+                "--warmup", "0", "--mix", "invalid=1"));
+    }
+
+    @Test
+    void testVirtualThreads()
+    {
+        int exitCode = run("--threads", "virtual", "--concurrency", "4", "--duration", "1", "--warmup", "0");
+        if (Runtime.version().feature() >= 21)
+        {
+            assertEquals(LoadTest.EXIT_PASSED, exitCode, err.toString(StandardCharsets.UTF_8));
+            assertTrue(output().contains("virtual threads"));
+        }
+        else
+        {
+            assertEquals(LoadTest.EXIT_USAGE, exitCode);
+            assertTrue(err.toString(StandardCharsets.UTF_8).contains("Virtual threads need Java 21"));
+        }
+    }
+
+    @Test
+    void testUsageErrors()
+    {
+        assertEquals(LoadTest.EXIT_USAGE, LoadTest.run(new String[] {}, print(out), print(err)));
+        assertEquals(LoadTest.EXIT_USAGE, run("--mix", "unknown=1"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--mix", "small"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--slo", "p42=1"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--threads", "green"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--input", "chars"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--rate", "0"));
+        assertEquals(LoadTest.EXIT_USAGE, run("--rate", "1000000001"));
+        assertEquals(LoadTest.EXIT_USAGE,
+                LoadTest.run(new String[] {directory.resolve("none").toString()}, print(out), print(err)));
+        assertEquals(LoadTest.EXIT_PASSED, LoadTest.run(new String[] {"--help"}, print(out), print(err)));
+    }
+
+    private int run(String... options)
+    {
+        String[] args = new String[options.length + 1];
+        System.arraycopy(options, 0, args, 0, options.length);
+        args[options.length] = directory.toString();
+        return LoadTest.run(args, print(out), print(err));
+    }
+
+    private void write(String path, String content) throws IOException
+    {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private String output()
+    {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static PrintStream print(ByteArrayOutputStream stream)
+    {
+        return new PrintStream(stream, true, StandardCharsets.UTF_8);
+    }
+}
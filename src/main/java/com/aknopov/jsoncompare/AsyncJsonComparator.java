@@ -0,0 +1,301 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.JsonComparator.PreparedSample;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+
+/**
+ * Non-blocking comparison of two UTF-8 JSON documents arriving in chunks. Each sample is received by its own
+ * {@link Flow.Subscriber}, which feeds chunks to Jackson non-blocking parser and converts tokens to a tree as soon as
+ * they are available, so documents are never buffered as a whole. Comparison starts when root values of both samples
+ * are complete, and its result is delivered with a {@link CompletableFuture}.
+ * <p>
+ * Differences are the same as of {@link JsonComparator#compareJsonStrings(String, String, ComparisonOptions, DiffSink)}.
+ * Samples are always converted to trees, so {@link ComparisonOptions#isHashFirst()} and
+ * {@link ComparisonOptions#isParallelParsing()} options don't apply. Chunks may be reused by publishers as soon as
+ * {@code onNext} returns. Failures of publishers complete the result exceptionally.
+ */
+public final class AsyncJsonComparator
+{
+    private final SampleSubscriber first;
+    private final SampleSubscriber second;
+    private final CompletableFuture<ComparisonResult> result;
+
+    private AsyncJsonComparator(ComparisonOptions options, DiffSink sink, Executor executor)
+    {
+        this.first = new SampleSubscriber("first", options.getInputLimits());
+        this.second = new SampleSubscriber("second", options.getInputLimits());
+        this.result = first.prepared.thenCombineAsync(second.prepared,
+                (prepared1, prepared2) -> JsonComparator.comparePrepared(prepared1, prepared2,
+                        first.parseNanos + second.parseNanos, first.length, second.length, options, sink),
+                executor);
+        // Failure of either sample fails the comparison without waiting for the other one
+        first.prepared.exceptionally(this::fail);
+        second.prepared.exceptionally(this::fail);
+    }
+
+    /**
+     * Creates comparison of samples to be subscribed to publishers. Comparison runs in the common fork-join pool,
+     * so that threads delivering chunks (e.g. event loops) are not blocked by it.
+     *
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @return comparison waiting for samples
+     */
+    public static AsyncJsonComparator create(ComparisonOptions options, DiffSink sink)
+    {
+        return create(options, sink, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates comparison of samples to be subscribed to publishers
+     *
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @param executor executor of the comparison once both samples are parsed
+     * @return comparison waiting for samples
+     */
+    public static AsyncJsonComparator create(ComparisonOptions options, DiffSink sink, Executor executor)
+    {
+        return new AsyncJsonComparator(options, sink, executor);
+    }
+
+    /**
+     * Subscribes comparison to publishers of samples. Comparison runs in the common fork-join pool.
+     *
+     * @param sample1 publisher of the first document
+     * @param sample2 publisher of the second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @return comparison summary available when both documents are received and compared
+     */
+    public static CompletableFuture<ComparisonResult> compareAsync(Flow.Publisher<ByteBuffer> sample1,
+            Flow.Publisher<ByteBuffer> sample2, ComparisonOptions options, DiffSink sink)
+    {
+        AsyncJsonComparator comparator = create(options, sink);
+        sample1.subscribe(comparator.first());
+        sample2.subscribe(comparator.second());
+        return comparator.result();
+    }
+
+    /**
+     * @return receiver of chunks of the first document; it can be subscribed once
+     */
+    public Flow.Subscriber<ByteBuffer> first()
+    {
+        return first;
+    }
+
+    /**
+     * @return receiver of chunks of the second document; it can be subscribed once
+     */
+    public Flow.Subscriber<ByteBuffer> second()
+    {
+        return second;
+    }
+
+    /**
+     * @return comparison summary available when both documents are received and compared
+     */
+    public CompletableFuture<ComparisonResult> result()
+    {
+        return result;
+    }
+
+    @Nullable
+    private PreparedSample fail(Throwable throwable)
+    {
+        result.completeExceptionally(throwable);
+        return null;
+    }
+
+    // Chunks are requested one by one and parsed before the next one is requested
+    private static final class SampleSubscriber implements Flow.Subscriber<ByteBuffer>
+    {
+        private final String qualifier;
+        private final CompletableFuture<PreparedSample> prepared = new CompletableFuture<>();
+        private final JsonParser parser;
+        // Null if input is not limited
+        @Nullable
+        private final InputGuard guard;
+        private final IncrementalTreeBuilder builder;
+        @Nullable
+        private Flow.Subscription subscription;
+        private long length;
+        private long parseNanos;
+        private boolean cancelled;
+
+        SampleSubscriber(String qualifier, InputLimits limits)
+        {
+            this.qualifier = qualifier;
+            try
+            {
+                this.parser = limits.createNonBlockingParser();
+            }
+            catch (IOException e)
+            {
+                // Parser is fed from memory and doesn't open anything
+                throw new UncheckedIOException(e);
+            }
+            this.guard = InputGuard.of(limits);
+            this.builder = new IncrementalTreeBuilder(parser, guard);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            Objects.requireNonNull(subscription, "subscription");
+            if (this.subscription != null)
+            {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer chunk)
+        {
+            if (cancelled)
+            {
+                return;
+            }
+            if (prepared.isDone())
+            {
+                // The rest of the document after the root value is not parsed
+                subscription().request(1);
+                return;
+            }
+            long start = System.nanoTime();
+            length += chunk.remaining();
+            PreparedSample sample = parse(() ->
+            {
+                if (guard != null)
+                {
+                    guard.checkInputBytes(length);
+                }
+                ((ByteBufferFeeder)parser.getNonBlockingInputFeeder()).feedInput(chunk);
+            });
+            parseNanos += System.nanoTime() - start;
+            if (sample != null)
+            {
+                finish(sample);
+            }
+            if (!cancelled)
+            {
+                subscription().request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            if (prepared.isDone())
+            {
+                return;
+            }
+            long start = System.nanoTime();
+            PreparedSample sample = parse(() -> parser.getNonBlockingInputFeeder().endOfInput());
+            parseNanos += System.nanoTime() - start;
+            if (!prepared.isDone())
+            {
+                // Root value is always complete at the end of valid input, unless the input is empty
+                finish(sample != null ? sample : PreparedSample.of(null, qualifier));
+            }
+        }
+
+        // Feeds input and converts available tokens; returns the sample if the root value is complete or the input
+        // is rejected, null if more input is needed or the comparison failed
+        @Nullable
+        private PreparedSample parse(InputAction action)
+        {
+            try
+            {
+                action.run();
+                return builder.readAvailable() ? PreparedSample.of(builder.getRoot(), qualifier) : null;
+            }
+            catch (JsonProcessingException e)
+            {
+                // Invalid document is rejected without reading the rest
+                cancel();
+                return PreparedSample.failed(qualifier, e);
+            }
+            catch (IOException e)
+            {
+                // Input is fed from memory
+                fail(new UncheckedIOException(e));
+            }
+            catch (RuntimeException e)
+            {
+                fail(e);
+            }
+            return null;
+        }
+
+        private Flow.Subscription subscription()
+        {
+            return Objects.requireNonNull(subscription, "Chunk is delivered before subscription");
+        }
+
+        private void finish(PreparedSample sample)
+        {
+            prepared.complete(sample);
+            close();
+        }
+
+        private void fail(Throwable throwable)
+        {
+            prepared.completeExceptionally(throwable);
+            cancel();
+            close();
+        }
+
+        private void cancel()
+        {
+            if (subscription != null && !cancelled)
+            {
+                cancelled = true;
+                subscription.cancel();
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                parser.close();
+            }
+            catch (IOException e)
+            {
+                // Parser doesn't own any resources
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Input operation of the parser
+    @FunctionalInterface
+    private interface InputAction
+    {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,344 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The class implements comparison of a candidate document against a baseline with previously saved
+ * {@link SubtreeHashIndex}. Comparison descends only into subtrees with different hashes, and only byte ranges
+ * of those subtrees are re-parsed and compared as trees.
+ * <p>
+ * The same two-phase comparison is used for in-memory JSON documents with {@link ComparisonOptions#isHashFirst()}
+ * option - both documents are indexed, and trees are built only for differing subtrees.
+ */
+@Slf4j
+public final class BaselineComparator
+{
+    // Byte range of a document
+    private record Span(byte[] bytes, int start, int end)
+    {
+    }
+
+    // Reader of byte ranges of a document
+    @FunctionalInterface
+    private interface Source
+    {
+        Span read(long start, long end) throws IOException;
+    }
+
+    private final boolean stopOnFirst;
+    private final DiffRecorder diffRecorder;
+    private final JsonComparator comparator;
+    private final SubtreeHashIndex index1;
+    private final SubtreeHashIndex index2;
+    private final Source source1;
+    private final Source source2;
+
+    private BaselineComparator(ComparisonOptions options, DiffRecorder diffRecorder,
+            @Nullable MetricsCollector metrics, SubtreeHashIndex index1, SubtreeHashIndex index2, Source source1,
+            Source source2)
+    {
+        this.stopOnFirst = options.isStopOnFirst();
+        this.diffRecorder = diffRecorder;
+        this.comparator = new JsonComparator(options, diffRecorder, metrics);
+        this.index1 = index1;
+        this.index2 = index2;
+        this.source1 = source1;
+        this.source2 = source2;
+    }
+
+    /**
+     * Compares candidate document with the baseline.
+     *
+     * @param baseline path to the baseline document
+     * @param baselineIndex index of the baseline document (see {@link SubtreeHashIndex#load(Path)})
+     * @param candidate path to the candidate document
+     * @param stopOnFirst if true, stops on the first discrepancy
+     * @param knownDiscrepancies list of acceptable discrepancies in RegEx format
+     *
+     * @return list of discrepancies
+     * @throws IOException if reading of any document fails
+     * @throws IllegalArgumentException if the index was not built for the baseline document
+     */
+    public static List<String> compareWithBaseline(Path baseline, SubtreeHashIndex baselineIndex, Path candidate,
+            boolean stopOnFirst, Collection<String> knownDiscrepancies) throws IOException
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(stopOnFirst)
+                .knownDiscrepancies(knownDiscrepancies)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        compareWithBaseline(baseline, baselineIndex, candidate, options, sink);
+
+        return sink.getMessages();
+    }
+
+    /**
+     * Compares candidate document with the baseline delivering differences to the sink as soon as they are found.
+     *
+     * @param baseline path to the baseline document
+     * @param baselineIndex index of the baseline document (see {@link SubtreeHashIndex#load(Path)})
+     * @param candidate path to the candidate document
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     * @throws IOException if reading of any document fails
+     * @throws IllegalArgumentException if the index was not built for the baseline document
+     */
+    public static ComparisonResult compareWithBaseline(Path baseline, SubtreeHashIndex baselineIndex, Path candidate,
+            ComparisonOptions options, DiffSink sink) throws IOException
+    {
+        if (baselineIndex.sourceLength() != Files.size(baseline))
+        {
+            throw new IllegalArgumentException("Index does not match the baseline " + baseline);
+        }
+
+        DiffRecorder diffRecorder = new DiffRecorder(options, sink);
+        SubtreeHashIndex candidateIndex;
+        try
+        {
+            candidateIndex = SubtreeHashIndex.build(candidate);
+        }
+        catch (JsonProcessingException e)
+        {
+            log.error("Failed to parse the second sample: {}", e.getMessage());
+            diffRecorder.addMessage("Failed to parse the second sample: " + e.getOriginalMessage());
+            return diffRecorder.toResult();
+        }
+
+        if (baselineIndex.size() == 0 || candidateIndex.size() == 0)
+        {
+            diffRecorder.addMessage("Empty input for the " + (baselineIndex.size() == 0 ? "first" : "second")
+                    + " sample");
+            return diffRecorder.toResult();
+        }
+
+        try (FileChannel channel1 = FileChannel.open(baseline, StandardOpenOption.READ);
+             FileChannel channel2 = FileChannel.open(candidate, StandardOpenOption.READ))
+        {
+            BaselineComparator baselineComparator = new BaselineComparator(options, diffRecorder, null,
+                    baselineIndex, candidateIndex, (start, end) -> read(channel1, start, end),
+                    (start, end) -> read(channel2, start, end));
+            baselineComparator.compareNodes(0, 0, "", "", 0);
+            return diffRecorder.toResult();
+        }
+    }
+
+    /**
+     * Compares two UTF-8 JSON documents in two phases. Both documents are indexed with streaming passes without
+     * creating tree nodes, then trees are built only for subtrees with different hashes.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     */
+    static ComparisonResult compareHashFirst(byte[] sample1, byte[] sample2, ComparisonOptions options,
+            DiffSink sink)
+    {
+        ComparisonListener listener = options.getListener();
+        MetricsCollector metrics = listener != null ? new MetricsCollector() : null;
+        DiffRecorder diffRecorder = new DiffRecorder(options, sink);
+
+        long start = System.nanoTime();
+        SubtreeHashIndex index1 = index(sample1, "first", options.getInputLimits(), diffRecorder);
+        SubtreeHashIndex index2 = index1 != null || !options.isStopOnFirst()
+                ? index(sample2, "second", options.getInputLimits(), diffRecorder)
+                : null;
+        if (metrics != null)
+        {
+            metrics.parsed(System.nanoTime() - start, sample1.length, sample2.length);
+        }
+        if (index1 != null && index2 != null)
+        {
+            if (metrics != null)
+            {
+                // Only differing subtrees are converted, while comparing
+                metrics.converted(0, index1.size(), index2.size());
+            }
+            start = System.nanoTime();
+            try
+            {
+                new BaselineComparator(options, diffRecorder, metrics, index1, index2,
+                        (from, to) -> new Span(sample1, (int)from, (int)to),
+                        (from, to) -> new Span(sample2, (int)from, (int)to))
+                        .compareNodes(0, 0, "", "", 0);
+            }
+            catch (IOException e)
+            {
+                // Documents are in memory and were parsed while indexing
+                throw new UncheckedIOException(e);
+            }
+            if (metrics != null)
+            {
+                metrics.compared(System.nanoTime() - start);
+            }
+        }
+
+        if (listener != null && metrics != null)
+        {
+            listener.comparisonCompleted(metrics.snapshot(diffRecorder));
+        }
+        return diffRecorder.toResult();
+    }
+
+    // Index of a document or null if it is empty, can't be parsed or exceeds limits
+    @Nullable
+    private static SubtreeHashIndex index(byte[] sample, String qualifier, InputLimits limits,
+            DiffRecorder diffRecorder)
+    {
+        try
+        {
+            SubtreeHashIndex index = SubtreeHashIndex.build(sample, limits);
+            if (index.size() == 0)
+            {
+                log.error("Empty input for the {} sample", qualifier);
+                diffRecorder.addMessage("Empty input for the " + qualifier + " sample");
+                return null;
+            }
+            return index;
+        }
+        catch (StreamConstraintsException e)
+        {
+            log.error("The {} sample exceeds input limits: {}", qualifier, e.getMessage());
+            diffRecorder.addLimitExceeded(JsonComparator.limitMessage(qualifier, e));
+            return null;
+        }
+        catch (JsonProcessingException e)
+        {
+            log.error("Failed to parse the {} sample: {}", qualifier, e.getMessage());
+            diffRecorder.addMessage("Failed to parse the " + qualifier + " sample: " + e.getOriginalMessage());
+            return null;
+        }
+        catch (IOException e)
+        {
+            // Samples are in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean compareNodes(int node1, int node2, String path, String name, int index) throws IOException
+    {
+        if (index1.hash(node1) == index2.hash(node2))
+        {
+            return true;
+        }
+
+        if (sameStructure(node1, node2))
+        {
+            boolean multipleChildren = index1.childCount(node1) > 1;
+            int child1 = index1.firstChild(node1);
+            int child2 = index2.firstChild(node2);
+            for (int i = 0; i < index1.childCount(node1); i++)
+            {
+                if (index1.hash(child1) != index2.hash(child2))
+                {
+                    String childName = readName(child2);
+                    String childPath = path + "/" + childName + (multipleChildren ? "[" + i + "]" : "");
+                    if (!compareNodes(child1, child2, childPath, childName, i) && stopOnFirst
+                            || diffRecorder.isLimitReached())
+                    {
+                        return false;
+                    }
+                }
+                child1 = index1.nextSibling(child1);
+                child2 = index2.nextSibling(child2);
+            }
+            return false;
+        }
+
+        // Structures diverge - compare materialized subtrees
+        TreeNode<?> root1 = readSubtree(source1, index1, node1, name, index);
+        TreeNode<?> root2 = readSubtree(source2, index2, node2, name, index);
+        return comparator.compareTrees(root1, root2, path);
+    }
+
+    // Containers of the same type with children that can be matched positionally
+    private boolean sameStructure(int node1, int node2)
+    {
+        byte type = index1.type(node1);
+        if (type != index2.type(node2) || index1.childCount(node1) != index2.childCount(node2)
+                || index1.childCount(node1) == 0)
+        {
+            return false;
+        }
+        if (type == SubtreeHashIndex.ARRAY)
+        {
+            return true;
+        }
+        if (type != SubtreeHashIndex.OBJECT)
+        {
+            return false;
+        }
+
+        // Objects with reordered or renamed fields are left to the tree comparison
+        int child1 = index1.firstChild(node1);
+        int child2 = index2.firstChild(node2);
+        for (int i = 0; i < index1.childCount(node1); i++)
+        {
+            if (index1.nameHash(child1) != index2.nameHash(child2))
+            {
+                return false;
+            }
+            child1 = index1.nextSibling(child1);
+            child2 = index2.nextSibling(child2);
+        }
+        return true;
+    }
+
+    private String readName(int node) throws IOException
+    {
+        long keyStart = index2.keyStart(node);
+        if (keyStart < 0)
+        {
+            return "";
+        }
+        Span span = source2.read(keyStart, index2.start(node));
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(span.bytes(), span.start(),
+                span.end() - span.start()))
+        {
+            parser.nextToken();
+            return parser.getText();
+        }
+    }
+
+    private static TreeNode<?> readSubtree(Source source, SubtreeHashIndex index, int node, String name,
+            int childIndex) throws IOException
+    {
+        Span span = source.read(index.start(node), index.end(node));
+        return TreeNodeConverter.fromSpan(span.bytes(), span.start(), span.end(), name, childIndex);
+    }
+
+    private static Span read(FileChannel channel, long start, long end) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        long position = start;
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+            {
+                throw new IOException("Unexpected end of file at " + position);
+            }
+            position += read;
+        }
+        return new Span(buffer.array(), 0, buffer.capacity());
+    }
+}
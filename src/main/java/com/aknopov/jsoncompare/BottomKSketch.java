@@ -0,0 +1,79 @@
+package com.aknopov.jsoncompare;
+
+import java.util.Arrays;
+
+/**
+ * Bottom-k MinHash sketch of a set - k smallest mixed hashes of its elements, sorted. Jaccard similarity of sets
+ * is estimated from their sketches.
+ */
+final class BottomKSketch
+{
+    private final long[] values;
+    private int count;
+
+    BottomKSketch(int size)
+    {
+        this.values = new long[size];
+    }
+
+    /**
+     * Adds element of the set
+     *
+     * @param hash hash of the element; duplicates are ignored
+     */
+    void add(long hash)
+    {
+        long h = SubtreeHashIndex.mix(hash);
+        if (count == values.length && h >= values[count - 1])
+        {
+            return;
+        }
+        int pos = Arrays.binarySearch(values, 0, count, h);
+        if (pos >= 0)
+        {
+            return;
+        }
+        pos = -pos - 1;
+        int moved = Math.min(count, values.length - 1) - pos;
+        System.arraycopy(values, pos, values, pos + 1, moved);
+        values[pos] = h;
+        count = Math.min(count + 1, values.length);
+    }
+
+    /**
+     * Estimates Jaccard similarity of sets
+     *
+     * @param other sketch of the same size
+     * @return similarity from 0 to 1; 1 for two empty sets
+     */
+    double similarity(BottomKSketch other)
+    {
+        if (count == 0 && other.count == 0)
+        {
+            return 1;
+        }
+        int i = 0;
+        int j = 0;
+        int taken = 0;
+        int shared = 0;
+        while (taken < values.length && (i < count || j < other.count))
+        {
+            if (j == other.count || i < count && values[i] < other.values[j])
+            {
+                i++;
+            }
+            else if (i == count || other.values[j] < values[i])
+            {
+                j++;
+            }
+            else
+            {
+                shared++;
+                i++;
+                j++;
+            }
+            taken++;
+        }
+        return (double)shared / taken;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Classification of a path in three-way comparison
+ */
+public enum ChangeKind
+{
+    /** Changed in the left version only */
+    CHANGED_LEFT,
+    /** Changed in the right version only */
+    CHANGED_RIGHT,
+    /** Changed in both versions the same way */
+    CHANGED_BOTH_SAME,
+    /** Changed in both versions differently, or changed in one version and removed or replaced in the other */
+    CONFLICT
+}
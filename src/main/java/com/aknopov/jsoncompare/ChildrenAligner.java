@@ -0,0 +1,330 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffResult;
+import com.aknopov.jsoncompare.diff.DiffType;
+import com.aknopov.jsoncompare.diff.HashArrays;
+import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+
+/**
+ * Selects a strategy of children alignment per node from cheap statistics of children lists.
+ * <p>
+ * Short lists are aligned with Myers' algorithm without collecting statistics - it is cheap there and gives
+ * the reference result. Long arrays are compared positionally, long objects - by field names unless
+ * Myers' algorithm is estimated to be cheaper. Arrays of records with a configured key field are matched by keys.
+ * When Myers' algorithm runs out of budget, children are matched with a linear strategy and the alignment
+ * is marked as approximate.
+ */
+final class ChildrenAligner
+{
+    // Total number of children starting from which statistics are collected
+    final static int ADAPTIVE_MIN_CHILDREN = 64;
+    // Estimated edit distance up to which Myers' algorithm is preferred for objects
+    private final static int SMALL_EDIT_DISTANCE = 16;
+    // Ratio of squared edit distance to children count up to which Myers' algorithm is cheaper than matching by names
+    final static int MYERS_COST_RATIO = 6;
+    // Share of children differing in place up to which similarity is counted exactly instead of sketching
+    private final static int IN_PLACE_SHARE = 8;
+    // Size of bottom-k sketches for similarity estimation
+    private final static int SKETCH_SIZE = 32;
+
+    /**
+     * Result of alignment
+     *
+     * @param diffs differences between children lists
+     * @param strategy name of the used strategy
+     * @param myersResult result of Myers' algorithm run if it was used
+     * @param approximate true if Myers' algorithm was replaced with a linear strategy because of budget
+     * @param <T> type of children elements
+     */
+    record Alignment<T>(List<Diff<T>> diffs, String strategy, @Nullable DiffResult<T> myersResult, boolean approximate)
+    {
+    }
+
+    private final List<ChildrenDiffStrategy> customStrategies;
+    private final List<String> keyFields;
+    private final ComparisonBudget budget;
+
+    ChildrenAligner(ComparisonOptions options, ComparisonBudget budget)
+    {
+        this.customStrategies = options.getChildrenStrategies();
+        this.keyFields = options.getArrayKeyFields();
+        this.budget = budget;
+    }
+
+    Alignment<TreeNode<?>> align(TreeNode<?> node1, TreeNode<?> node2)
+    {
+        List<TreeNode<?>> children1 = node1.getChildren();
+        List<TreeNode<?>> children2 = node2.getChildren();
+        return align(node1.getNodeType() == NodeType.ARRAY, children1, hashes(children1), children2,
+                hashes(children2), new TreeChildrenView(children1), new TreeChildrenView(children2));
+    }
+
+    /**
+     * Collects structural hashes of nodes
+     *
+     * @param nodes the nodes
+     * @return array of hashes in order of nodes
+     */
+    static long[] hashes(List<TreeNode<?>> nodes)
+    {
+        long[] hashes = new long[nodes.size()];
+        for (int i = 0; i < hashes.length; i++)
+        {
+            hashes[i] = nodes.get(i).hashCode();
+        }
+        return hashes;
+    }
+
+    /**
+     * Aligns children of two nodes
+     *
+     * @param array true if children are array elements
+     * @param children1 children of the first node - elements are equal when children hashes are equal
+     * @param hashes1 structural hashes of children of the first node
+     * @param children2 children of the second node
+     * @param hashes2 structural hashes of children of the second node
+     * @param view1 view of children of the first node
+     * @param view2 view of children of the second node
+     * @param <T> type of children elements
+     * @return alignment
+     */
+    <T> Alignment<T> align(boolean array, List<T> children1, long[] hashes1, List<T> children2, long[] hashes2,
+            ChildrenView view1, ChildrenView view2)
+    {
+        if (customStrategies.isEmpty() && (keyFields.isEmpty() || !array)
+                && children1.size() + children2.size() < ADAPTIVE_MIN_CHILDREN)
+        {
+            Alignment<T> alignment = myers(children1, hashes1, children2, hashes2, 0, 0);
+            return alignment.approximate()
+                    ? fallback(collectStats(array, hashes1, hashes2, view1, view2), view1, view2, children1, children2,
+                            alignment)
+                    : alignment;
+        }
+
+        ChildrenStats stats = collectStats(array, hashes1, hashes2, view1, view2);
+        ChildrenDiffStrategy strategy = select(stats);
+        if (strategy == ChildrenDiffStrategies.MYERS)
+        {
+            Alignment<T> alignment = myers(children1, hashes1, children2, hashes2, stats.commonPrefix(),
+                    stats.commonSuffix());
+            return alignment.approximate()
+                    ? fallback(stats, view1, view2, children1, children2, alignment)
+                    : alignment;
+        }
+
+        return new Alignment<>(apply(strategy, stats, view1, view2, children1, children2), strategy.name(), null,
+                false);
+    }
+
+    // Linear matching used when Myers' algorithm is out of budget
+    private static <T> Alignment<T> fallback(ChildrenStats stats, ChildrenView view1, ChildrenView view2,
+            List<T> children1, List<T> children2, Alignment<T> interrupted)
+    {
+        ChildrenDiffStrategy strategy = stats.array() ? ChildrenDiffStrategies.POSITIONAL
+                : ChildrenDiffStrategies.NAMES;
+        return new Alignment<>(apply(strategy, stats, view1, view2, children1, children2), strategy.name(),
+                interrupted.myersResult(), true);
+    }
+
+    private static <T> List<Diff<T>> apply(ChildrenDiffStrategy strategy, ChildrenStats stats,
+            ChildrenView view1, ChildrenView view2, List<T> children1, List<T> children2)
+    {
+        List<Diff<T>> diffs = new ArrayList<>();
+        for (Diff<Integer> diff : strategy.align(stats, view1, view2))
+        {
+            List<T> children = diff.t() == DiffType.ADD ? children2 : children1;
+            diffs.add(new Diff<>(children.get(diff.e()), diff.t(), diff.aIdx(), diff.bIdx()));
+        }
+        return diffs;
+    }
+
+    private ChildrenDiffStrategy select(ChildrenStats stats)
+    {
+        for (ChildrenDiffStrategy strategy : customStrategies)
+        {
+            if (strategy.accepts(stats))
+            {
+                return strategy;
+            }
+        }
+
+        if (stats.keyField() != null)
+        {
+            return ChildrenDiffStrategies.KEYED;
+        }
+        if (stats.size1() + stats.size2() < ADAPTIVE_MIN_CHILDREN)
+        {
+            return ChildrenDiffStrategies.MYERS;
+        }
+        if (stats.array())
+        {
+            return ChildrenDiffStrategies.POSITIONAL;
+        }
+        // Myers' algorithm takes time of about middle + edits^2, matching by names - linear with a larger factor
+        int middle = stats.size1() + stats.size2() - 2 * (stats.commonPrefix() + stats.commonSuffix());
+        double edits = middle * (1 - stats.similarity()) / (1 + stats.similarity());
+        if (stats.isInsertionOnly() || edits <= SMALL_EDIT_DISTANCE || edits * edits <= MYERS_COST_RATIO * middle)
+        {
+            return ChildrenDiffStrategies.MYERS;
+        }
+        return ChildrenDiffStrategies.NAMES;
+    }
+
+    // Myers' algorithm over children between common prefix and suffix; approximate if the run is out of budget
+    private <T> Alignment<T> myers(List<T> children1, long[] hashes1, List<T> children2, long[] hashes2, int prefix,
+            int suffix)
+    {
+        int limit = budget.myersLimit();
+        if (limit == 0)
+        {
+            return new Alignment<>(List.of(), ChildrenDiffStrategies.MYERS.name(), null, true);
+        }
+
+        int end1 = children1.size() - suffix;
+        int end2 = children2.size() - suffix;
+        DiffResult<T> result = MeyerAlgorithm.compute(children1.subList(prefix, end1),
+                Arrays.copyOfRange(hashes1, prefix, end1), children2.subList(prefix, end2),
+                Arrays.copyOfRange(hashes2, prefix, end2), limit, budget::isExpired);
+        budget.chargeMyers(result.snakes());
+        if (prefix != 0 || suffix != 0)
+        {
+            List<Diff<T>> diffs = new ArrayList<>(result.diffs().size());
+            for (Diff<T> diff : result.diffs())
+            {
+                diffs.add(new Diff<>(diff.e(), diff.t(), diff.aIdx() + prefix, diff.bIdx() + prefix));
+            }
+            result = new DiffResult<>(diffs, result.snakes(), result.complete());
+        }
+        return new Alignment<>(result.diffs(), ChildrenDiffStrategies.MYERS.name(), result, !result.complete());
+    }
+
+    private ChildrenStats collectStats(boolean array, long[] hashes1, long[] hashes2, ChildrenView view1,
+            ChildrenView view2)
+    {
+        int size1 = hashes1.length;
+        int size2 = hashes2.length;
+        int prefix = HashArrays.commonPrefix(hashes1, 0, size1, hashes2, 0, size2);
+        int suffix = HashArrays.commonSuffix(hashes1, prefix, size1, hashes2, prefix, size2);
+
+        double similarity = size1 == size2 ? inPlaceSimilarity(hashes1, hashes2, prefix, size1 - suffix) : -1;
+        if (similarity < 0)
+        {
+            similarity = sketch(hashes1, prefix, size1 - suffix).similarity(sketch(hashes2, prefix, size2 - suffix));
+        }
+        String keyField = array ? findKeyField(view1, view2) : null;
+
+        return new ChildrenStats(array, size1, size2, prefix, suffix, similarity, keyField);
+    }
+
+    // Children of the same count mostly differ in place; returns -1 if too many of them differ, so that they are
+    // likely shifted
+    private static double inPlaceSimilarity(long[] hashes1, long[] hashes2, int from, int to)
+    {
+        int maxMismatches = (to - from) / IN_PLACE_SHARE;
+        int mismatches = 0;
+        for (int i = from; i < to; i++)
+        {
+            if (hashes1[i] != hashes2[i] && ++mismatches > maxMismatches)
+            {
+                return -1;
+            }
+        }
+        int common = to - from - mismatches;
+        return from == to ? 1 : (double)common / (common + 2 * mismatches);
+    }
+
+    private static BottomKSketch sketch(long[] hashes, int from, int to)
+    {
+        BottomKSketch sketch = new BottomKSketch(SKETCH_SIZE);
+        for (int i = from; i < to; i++)
+        {
+            sketch.add(hashes[i]);
+        }
+        return sketch;
+    }
+
+    // First configured field with unique scalar values present in all elements of both arrays
+    @Nullable
+    private String findKeyField(ChildrenView view1, ChildrenView view2)
+    {
+        for (String field : keyFields)
+        {
+            if (isKey(view1, field) && isKey(view2, field))
+            {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKey(ChildrenView view, String field)
+    {
+        Set<Object> keys = new HashSet<>();
+        for (int i = 0; i < view.size(); i++)
+        {
+            Object key = view.fieldValue(i, field);
+            if (key == null || !keys.add(key))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class TreeChildrenView implements ChildrenView
+    {
+        private final List<TreeNode<?>> children;
+
+        private TreeChildrenView(List<TreeNode<?>> children)
+        {
+            this.children = children;
+        }
+
+        @Override
+        public int size()
+        {
+            return children.size();
+        }
+
+        @Override
+        public int hash(int index)
+        {
+            return children.get(index).hashCode();
+        }
+
+        @Override
+        public String name(int index)
+        {
+            return children.get(index).getName();
+        }
+
+        @Override
+        @Nullable
+        public Object fieldValue(int index, String field)
+        {
+            TreeNode<?> child = children.get(index);
+            if (child.getNodeType() != NodeType.OBJECT)
+            {
+                return null;
+            }
+            for (TreeNode<?> grandChild : child.getChildren())
+            {
+                if (grandChild.getName().equals(field))
+                {
+                    return Utf8Text.decode(grandChild.getValue());
+                }
+            }
+            return null;
+        }
+    }
+}
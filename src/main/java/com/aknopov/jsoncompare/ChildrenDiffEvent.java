@@ -0,0 +1,57 @@
+package com.aknopov.jsoncompare;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a pathological alignment of children lists. Emitted only when alignment takes longer
+ * than {@code jsoncompare.jfr.slowDiffMillis} milliseconds (10 by default) or creates more than
+ * {@code jsoncompare.jfr.largeDiffSnakes} edit graph records (10000 by default).
+ */
+@Name("com.aknopov.jsoncompare.ChildrenDiff")
+@Label("Slow Children Alignment")
+@Category("JSON Comparator")
+@Description("Alignment of children of a node that exceeded thresholds")
+final class ChildrenDiffEvent extends jdk.jfr.Event
+{
+    private final static String SLOW_DIFF_MILLIS = "jsoncompare.jfr.slowDiffMillis";
+    private final static String LARGE_DIFF_SNAKES = "jsoncompare.jfr.largeDiffSnakes";
+
+    @Label("Path")
+    String path = "";
+
+    @Label("Strategy")
+    String strategy = "";
+
+    @Label("First Children Count")
+    int childCount1;
+
+    @Label("Second Children Count")
+    int childCount2;
+
+    @Label("Edit Distance")
+    int editDistance;
+
+    @Label("Snakes")
+    @Description("Number of edit graph records")
+    int snakes;
+
+    @Label("Complete")
+    @Description("False if alignment was cut by the limit of edit graph records")
+    boolean complete;
+
+    /**
+     * Checks thresholds. Properties are read on every call, but the check is made only while the event is recorded.
+     *
+     * @param durationNanos duration of the run
+     * @param snakes number of edit graph records
+     * @return true if the event should be emitted
+     */
+    static boolean exceedsThresholds(long durationNanos, int snakes)
+    {
+        return durationNanos > Long.getLong(SLOW_DIFF_MILLIS, 10) * 1_000_000
+                || snakes > Integer.getInteger(LARGE_DIFF_SNAKES, 10_000);
+    }
+}
@@ -0,0 +1,249 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffType;
+import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+
+/**
+ * Built-in strategies of children alignment
+ */
+public final class ChildrenDiffStrategies
+{
+    /**
+     * Minimal shortest edit script with Myers' algorithm. Suitable for any children; the cost grows
+     * with the product of list size and number of edits.
+     */
+    public static final ChildrenDiffStrategy MYERS = new Myers();
+
+    /**
+     * Compares array elements at the same positions. Since hashes of array elements include their indices,
+     * the result has the same edits as Myers' algorithm in linear time.
+     */
+    public static final ChildrenDiffStrategy POSITIONAL = new Positional();
+
+    /**
+     * Matches object fields by names and compares their hashes in linear time.
+     */
+    public static final ChildrenDiffStrategy NAMES = new Names();
+
+    /**
+     * Matches array elements by values of the key field (see {@link ComparisonOptions.Builder#arrayKeyFields}).
+     * Elements with the same key are compared regardless of their positions.
+     */
+    public static final ChildrenDiffStrategy KEYED = new Keyed();
+
+    private ChildrenDiffStrategies()
+    {
+    }
+
+    private static final class Myers implements ChildrenDiffStrategy
+    {
+        @Override
+        public String name()
+        {
+            return "myers";
+        }
+
+        @Override
+        public boolean accepts(ChildrenStats stats)
+        {
+            return true;
+        }
+
+        @Override
+        public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+        {
+            int prefix = stats.commonPrefix();
+            List<Integer> hashes1 = middleHashes(children1, prefix, stats.commonSuffix());
+            List<Integer> hashes2 = middleHashes(children2, prefix, stats.commonSuffix());
+
+            List<Diff<Integer>> diffs = new ArrayList<>();
+            for (Diff<Integer> diff : MeyerAlgorithm.compareSequences(hashes1, hashes2))
+            {
+                int idx = diff.aIdx() + prefix;
+                diffs.add(new Diff<>(idx, diff.t(), idx, diff.bIdx() + prefix));
+            }
+            return diffs;
+        }
+
+        private static List<Integer> middleHashes(ChildrenView children, int prefix, int suffix)
+        {
+            List<Integer> hashes = new ArrayList<>(children.size() - prefix - suffix);
+            for (int i = prefix; i < children.size() - suffix; i++)
+            {
+                hashes.add(children.hash(i));
+            }
+            return hashes;
+        }
+    }
+
+    private static final class Positional implements ChildrenDiffStrategy
+    {
+        @Override
+        public String name()
+        {
+            return "positional";
+        }
+
+        @Override
+        public boolean accepts(ChildrenStats stats)
+        {
+            return stats.array();
+        }
+
+        @Override
+        public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+        {
+            int common = Math.min(children1.size(), children2.size());
+            List<Diff<Integer>> diffs = new ArrayList<>();
+            for (int i = stats.commonPrefix(); i < common; i++)
+            {
+                if (children1.hash(i) != children2.hash(i))
+                {
+                    addPair(diffs, i, i);
+                }
+            }
+            addRange(diffs, DiffType.DELETE, common, children1.size());
+            addRange(diffs, DiffType.ADD, common, children2.size());
+            return diffs;
+        }
+    }
+
+    private static final class Names implements ChildrenDiffStrategy
+    {
+        @Override
+        public String name()
+        {
+            return "names";
+        }
+
+        @Override
+        public boolean accepts(ChildrenStats stats)
+        {
+            return !stats.array();
+        }
+
+        @Override
+        public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+        {
+            // Fields usually keep their order, so only the part where names differ is matched through a map
+            int size1 = children1.size();
+            int size2 = children2.size();
+            int common = Math.min(size1, size2);
+            int head = 0;
+            while (head < common && children1.name(head).equals(children2.name(head)))
+            {
+                head++;
+            }
+            int tail = 0;
+            while (tail < common - head && children1.name(size1 - 1 - tail).equals(children2.name(size2 - 1 - tail)))
+            {
+                tail++;
+            }
+
+            int middleStart = head;
+            int middleEnd = size1 - tail;
+            Map<String, Integer> indices2 = new HashMap<>();
+            for (int j = middleStart; j < size2 - tail; j++)
+            {
+                indices2.put(children2.name(j), j);
+            }
+            return matchByIndices(children1, children2, i -> i < middleStart ? i
+                    : i >= middleEnd ? i - size1 + size2
+                    : indices2.getOrDefault(children1.name(i), -1));
+        }
+    }
+
+    private static final class Keyed implements ChildrenDiffStrategy
+    {
+        @Override
+        public String name()
+        {
+            return "keyed";
+        }
+
+        @Override
+        public boolean accepts(ChildrenStats stats)
+        {
+            return stats.array() && stats.keyField() != null;
+        }
+
+        @Override
+        public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+        {
+            String keyField = stats.keyField();
+            if (keyField == null)
+            {
+                return POSITIONAL.align(stats, children1, children2);
+            }
+
+            Map<Object, Integer> indices2 = new HashMap<>();
+            for (int j = 0; j < children2.size(); j++)
+            {
+                Object key = children2.fieldValue(j, keyField);
+                if (key != null)
+                {
+                    indices2.put(key, j);
+                }
+            }
+            return matchByIndices(children1, children2, i ->
+            {
+                Object key = children1.fieldValue(i, keyField);
+                return key != null ? indices2.getOrDefault(key, -1) : -1;
+            });
+        }
+    }
+
+    // Pairs go first, so that unmatched children are not paired with matched ones; the matcher gives index
+    // of the second child matching the first one or -1
+    private static List<Diff<Integer>> matchByIndices(ChildrenView children1, ChildrenView children2,
+            IntUnaryOperator matcher)
+    {
+        List<Diff<Integer>> diffs = new ArrayList<>();
+        List<Diff<Integer>> unmatched = new ArrayList<>();
+        boolean[] matched2 = new boolean[children2.size()];
+        for (int i = 0; i < children1.size(); i++)
+        {
+            int j = matcher.applyAsInt(i);
+            if (j == -1)
+            {
+                unmatched.add(new Diff<>(i, DiffType.DELETE, i, i));
+                continue;
+            }
+            matched2[j] = true;
+            if (children1.hash(i) != children2.hash(j))
+            {
+                addPair(diffs, i, j);
+            }
+        }
+        diffs.addAll(unmatched);
+        for (int j = 0; j < children2.size(); j++)
+        {
+            if (!matched2[j])
+            {
+                diffs.add(new Diff<>(j, DiffType.ADD, j, j));
+            }
+        }
+        return diffs;
+    }
+
+    private static void addPair(List<Diff<Integer>> diffs, int idx1, int idx2)
+    {
+        diffs.add(new Diff<>(idx1, DiffType.DELETE, idx1, idx2));
+        diffs.add(new Diff<>(idx2, DiffType.ADD, idx2, idx1));
+    }
+
+    private static void addRange(List<Diff<Integer>> diffs, DiffType type, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            diffs.add(new Diff<>(i, type, i, i));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+
+import com.aknopov.jsoncompare.diff.Diff;
+
+/**
+ * Strategy of alignment of children of two nodes. Custom strategies are set with
+ * {@link ComparisonOptions.Builder#childrenStrategies} and are consulted before built-in ones
+ * (see {@link ChildrenDiffStrategies}).
+ * <p>
+ * Alignment is a list of differences with indices of children as elements: {@code DELETE} entries refer
+ * to children of the first node, {@code ADD} entries - to children of the second one. Deleted and added children
+ * with the same names are paired in the order of the list and compared recursively; the rest are reported
+ * as missing.
+ */
+public interface ChildrenDiffStrategy
+{
+    /**
+     * @return strategy name for diagnostics
+     */
+    default String name()
+    {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Checks if the strategy is suitable for children with given statistics
+     *
+     * @param stats statistics of children lists
+     * @return true if the strategy should be used
+     */
+    boolean accepts(ChildrenStats stats);
+
+    /**
+     * Aligns children lists
+     *
+     * @param stats statistics of children lists
+     * @param children1 children of the first node
+     * @param children2 children of the second node
+     * @return list of differences
+     */
+    List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2);
+}
@@ -0,0 +1,26 @@
+package com.aknopov.jsoncompare;
+
+import javax.annotation.Nullable;
+
+/**
+ * Cheap statistics of two children lists used for selection of {@link ChildrenDiffStrategy}
+ *
+ * @param array true if children are array elements, false if they are object fields
+ * @param size1 number of children in the first node
+ * @param size2 number of children in the second node
+ * @param commonPrefix number of equal leading children
+ * @param commonSuffix number of equal trailing children (not overlapping with the prefix)
+ * @param similarity estimated Jaccard similarity of children hashes between prefix and suffix, from 0 to 1
+ * @param keyField field with unique scalar values present in all array elements of both nodes, if any
+ */
+public record ChildrenStats(boolean array, int size1, int size2, int commonPrefix, int commonSuffix,
+        double similarity, @Nullable String keyField)
+{
+    /**
+     * @return true if one list is the other with a block of children inserted or removed
+     */
+    public boolean isInsertionOnly()
+    {
+        return commonPrefix + commonSuffix == Math.min(size1, size2);
+    }
+}
@@ -0,0 +1,38 @@
+package com.aknopov.jsoncompare;
+
+import javax.annotation.Nullable;
+
+/**
+ * Read-only view of children of a node given to {@link ChildrenDiffStrategy}
+ */
+public interface ChildrenView
+{
+    /**
+     * @return number of children
+     */
+    int size();
+
+    /**
+     * Structural hash of a child. Equal hashes mean equal subtrees. Hashes of array elements include their indices.
+     *
+     * @param index child index
+     * @return hash of the child
+     */
+    int hash(int index);
+
+    /**
+     * @param index child index
+     * @return field name of the child or empty string for array elements
+     */
+    String name(int index);
+
+    /**
+     * Returns value of a scalar field of an object child
+     *
+     * @param index child index
+     * @param field field name
+     * @return field value or {@code null} if the child is not an object or has no such scalar field
+     */
+    @Nullable
+    Object fieldValue(int index, String field);
+}
@@ -0,0 +1,14 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of clustering of documents by {@link DocumentClusterer}
+ *
+ * @param clusters clusters ordered by size; the first one is the reference for differences of others
+ * @param failures unmodifiable map of messages about documents that couldn't be parsed, ordered by document index
+ */
+public record ClusteringResult(List<DocumentCluster> clusters, Map<Integer, String> failures)
+{
+}
@@ -0,0 +1,246 @@
+package com.aknopov.jsoncompare;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffType;
+import com.google.common.collect.BiMap;
+import com.google.common.primitives.Longs;
+
+/**
+ * Comparison of two {@link ColumnarTree}s. Mirrors the comparison of {@code TreeNode} trees in {@link JsonComparator}
+ * and produces the same messages, but addresses nodes by indices. Java objects are created only for differing
+ * nodes: children index and hash arrays, alignment differences with boxed hashes of their children, and messages.
+ */
+final class ColumnarComparator
+{
+    private final ColumnarTree tree1;
+    private final ColumnarTree tree2;
+    private final boolean stopOnFirst;
+    private final DiffRecorder diffRecorder;
+    private final ComparisonBudget budget;
+    private final ChildrenAligner aligner;
+
+    ColumnarComparator(ColumnarTree tree1, ColumnarTree tree2, ComparisonOptions options, DiffRecorder diffRecorder)
+    {
+        this.tree1 = tree1;
+        this.tree2 = tree2;
+        this.stopOnFirst = options.isStopOnFirst();
+        this.diffRecorder = diffRecorder;
+        this.budget = new ComparisonBudget(options);
+        this.aligner = new ChildrenAligner(options, budget);
+    }
+
+    boolean nodesEqual(int node1, int node2)
+    {
+        if (tree1.hash(node1) == tree2.hash(node2))
+        {
+            return true;
+        }
+        if (!budget.visitNode())
+        {
+            diffRecorder.markApproximate();
+            diffRecorder.addDifference(DifferenceType.APPROXIMATE, tree1.path(node1),
+                    "Nodes differ, not compared in details: comparison budget is exceeded");
+            return false;
+        }
+
+        if (mustStop(typesAreDifferent(node1, node2)))
+        {
+            return false;
+        }
+        if (mustStop(namesAreDifferent(node1, node2)))
+        {
+            return false;
+        }
+        if (mustStop(valuesAreDifferent(node1, node2)))
+        {
+            return false;
+        }
+        checkChildrenDifferences(node1, node2);
+        return false;
+    }
+
+    private boolean mustStop(boolean differs)
+    {
+        return differs && stopOnFirst || diffRecorder.isLimitReached();
+    }
+
+    private boolean typesAreDifferent(int node1, int node2)
+    {
+        NodeType type1 = tree1.type(node1);
+        NodeType type2 = tree2.type(node2);
+        if (type1 != type2)
+        {
+            diffRecorder.addDifference(DifferenceType.TYPE, tree1.path(node1),
+                    "Node types are different: '%s' vs '%s'", type1, type2);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean namesAreDifferent(int node1, int node2)
+    {
+        String name1 = tree1.name(node1);
+        String name2 = tree2.name(node2);
+        if (!name1.equals(name2))
+        {
+            diffRecorder.addDifference(DifferenceType.NAME, tree1.path(node1),
+                    "Node names are different: '%s' vs '%s'", name1, name2);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean valuesAreDifferent(int node1, int node2)
+    {
+        if (!tree1.valueEquals(node1, tree2, node2))
+        {
+            diffRecorder.addDifference(DifferenceType.VALUE, tree1.path(node1), "Nodes values differ: '%s' vs '%s'",
+                    tree1.value(node1), tree2.value(node2));
+            return true;
+        }
+        return false;
+    }
+
+    private void checkChildrenDifferences(int node1, int node2)
+    {
+        int[] children1 = tree1.children(node1);
+        int[] children2 = tree2.children(node2);
+        long[] hashes1 = hashes(tree1, children1);
+        long[] hashes2 = hashes(tree2, children2);
+        if (Arrays.equals(hashes1, hashes2))
+        {
+            return;
+        }
+        NodeType nodeType = tree1.type(node1);
+        if (nodeType == NodeType.OBJECT && sameFields(children1, children2))
+        {
+            diffRecorder.addDifference(DifferenceType.ORDER, tree1.path(node1), "Children order differ for %d nodes",
+                    children1.length);
+            return;
+        }
+
+        ChildrenAligner.Alignment<Long> alignment = aligner.align(nodeType == NodeType.ARRAY, Longs.asList(hashes1),
+                hashes1, Longs.asList(hashes2), hashes2, new View(tree1, children1), new View(tree2, children2));
+        if (alignment.approximate())
+        {
+            diffRecorder.markApproximate();
+        }
+        List<Diff<Long>> diffs = alignment.diffs();
+        Function<Diff<Long>, String> names = d -> d.t() == DiffType.ADD
+                ? tree2.name(children2[d.aIdx()])
+                : tree1.name(children1[d.aIdx()]);
+
+        BiMap<Diff<Long>, Diff<Long>> matchingMap = JsonComparator.createModifiedNodesMap2(diffs, names);
+        List<Diff<Long>> unmatchedDiffs = diffs.stream()
+                .filter(d -> !matchingMap.containsKey(d) && !matchingMap.containsValue(d))
+                .toList();
+        if (!unmatchedDiffs.isEmpty())
+        {
+            diffRecorder.addDifference(DifferenceType.CHILDREN, tree1.path(node1),
+                    "Children differ: counts %d vs %d (diffs: %s)", children1.length, children2.length,
+                    JsonComparator.extractNamesOrIndices(unmatchedDiffs, nodeType, names));
+        }
+
+        for (Map.Entry<Diff<Long>, Diff<Long>> entry : matchingMap.entrySet())
+        {
+            boolean deletedFirst = entry.getKey().t() == DiffType.DELETE;
+            Diff<Long> deleted = deletedFirst ? entry.getKey() : entry.getValue();
+            Diff<Long> added = deletedFirst ? entry.getValue() : entry.getKey();
+            if (mustStop(!nodesEqual(children1[deleted.aIdx()], children2[added.aIdx()])))
+            {
+                return;
+            }
+        }
+    }
+
+    // Same set of fields with the same hashes - fields order is the only difference
+    private boolean sameFields(int[] children1, int[] children2)
+    {
+        if (children1.length != children2.length)
+        {
+            return false;
+        }
+        Map<String, Long> hashes2 = new HashMap<>();
+        for (int child : children2)
+        {
+            hashes2.put(tree2.name(child), tree2.hash(child));
+        }
+        for (int child : children1)
+        {
+            if (!Objects.equals(hashes2.get(tree1.name(child)), tree1.hash(child)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] hashes(ColumnarTree tree, int[] nodes)
+    {
+        long[] hashes = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            hashes[i] = tree.hash(nodes[i]);
+        }
+        return hashes;
+    }
+
+    private static final class View implements ChildrenView
+    {
+        private final ColumnarTree tree;
+        private final int[] children;
+
+        private View(ColumnarTree tree, int[] children)
+        {
+            this.tree = tree;
+            this.children = children;
+        }
+
+        @Override
+        public int size()
+        {
+            return children.length;
+        }
+
+        @Override
+        public int hash(int index)
+        {
+            return Long.hashCode(tree.hash(children[index]));
+        }
+
+        @Override
+        public String name(int index)
+        {
+            return tree.name(children[index]);
+        }
+
+        @Override
+        @Nullable
+        public Object fieldValue(int index, String field)
+        {
+            int node = children[index];
+            if (tree.type(node) != NodeType.OBJECT)
+            {
+                return null;
+            }
+            for (int child = tree.firstChild(node); child != -1; child = tree.nextSibling(child))
+            {
+                if (tree.name(child).equals(field))
+                {
+                    return tree.value(child);
+                }
+            }
+            return null;
+        }
+    }
+}
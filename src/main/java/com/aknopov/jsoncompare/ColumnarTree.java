@@ -0,0 +1,572 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Off-heap columnar presentation of a JSON document. Nodes are stored in depth-first order as flat primitive
+ * columns in direct buffers: type, name symbol, parent, index in the parent, first child, next sibling,
+ * children count, structural hash and value. Text values are kept in an off-heap value heap, numbers and booleans -
+ * in the value column itself. The only per-document Java objects are buffer chunks and the table of field names,
+ * so heap usage doesn't depend on the number of nodes.
+ * <p>
+ * Hashes follow the same rules as {@code TreeNode} hashes - array elements hashes include their indices,
+ * object fields hashes don't - so comparison of columnar trees gives the same results as comparison of strings.
+ * Trees are compared with {@link JsonComparator#compareColumnar}.
+ */
+public final class ColumnarTree
+{
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+    private static final int NONE = -1;
+    private static final long SEED = 0x6A09E667F3BCC909L;
+
+    private final Column types;
+    private final Column nameIds;
+    private final Column parents;
+    private final Column indices;
+    private final Column firstChildren;
+    private final Column nextSiblings;
+    private final Column childCounts;
+    private final Column hashes;
+    private final Column values;
+    private final ValueHeap heap;
+    private final List<String> symbols;
+    private final int size;
+
+    private ColumnarTree(Builder builder)
+    {
+        this.types = builder.types;
+        this.nameIds = builder.nameIds;
+        this.parents = builder.parents;
+        this.indices = builder.indices;
+        this.firstChildren = builder.firstChildren;
+        this.nextSiblings = builder.nextSiblings;
+        this.childCounts = builder.childCounts;
+        this.hashes = builder.hashes;
+        this.values = builder.values;
+        this.heap = builder.heap;
+        this.symbols = builder.symbols;
+        this.size = builder.size;
+    }
+
+    /**
+     * Encodes a JSON document with a single streaming pass.
+     *
+     * @param document path to the document
+     * @return encoded tree
+     * @throws IOException if the document can't be read or parsed
+     * @throws IllegalArgumentException if the document contains {@code null} values
+     */
+    public static ColumnarTree parse(Path document) throws IOException
+    {
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(document.toFile()))
+        {
+            return new Builder(parser).build();
+        }
+    }
+
+    /**
+     * Encodes a JSON document with a single streaming pass.
+     *
+     * @param document document stream
+     * @return encoded tree
+     * @throws IOException if the document can't be read or parsed
+     * @throws IllegalArgumentException if the document contains {@code null} values
+     */
+    public static ColumnarTree parse(InputStream document) throws IOException
+    {
+        return parse(document, InputFormat.JSON);
+    }
+
+    /**
+     * Encodes a document in JSON or binary format with a single streaming pass.
+     *
+     * @param document document stream
+     * @param format encoding of the document
+     * @return encoded tree
+     * @throws IOException if the document can't be read or parsed
+     * @throws IllegalArgumentException if the document contains {@code null} values
+     */
+    public static ColumnarTree parse(InputStream document, InputFormat format) throws IOException
+    {
+        try (JsonParser parser = format.mapper().createParser(document))
+        {
+            return new Builder(parser).build();
+        }
+    }
+
+    /**
+     * Encodes a JSON document with a single streaming pass.
+     *
+     * @param document document text
+     * @return encoded tree
+     * @throws IOException if the document can't be parsed
+     * @throws IllegalArgumentException if the document contains {@code null} values
+     */
+    public static ColumnarTree parse(String document) throws IOException
+    {
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(document))
+        {
+            return new Builder(parser).build();
+        }
+    }
+
+    /**
+     * @return number of nodes, 0 for empty input
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return hash of the whole document
+     */
+    public long rootHash()
+    {
+        return size == 0 ? 0 : hash(0);
+    }
+
+    /**
+     * @return size of allocated off-heap memory in bytes
+     */
+    public long offHeapBytes()
+    {
+        return types.capacity() + nameIds.capacity() + parents.capacity() + indices.capacity()
+                + firstChildren.capacity() + nextSiblings.capacity() + childCounts.capacity() + hashes.capacity()
+                + values.capacity() + heap.capacity();
+    }
+
+    NodeType type(int node)
+    {
+        return NODE_TYPES[types.getByte(node)];
+    }
+
+    String name(int node)
+    {
+        return symbols.get(nameIds.getInt(node));
+    }
+
+    int parent(int node)
+    {
+        return parents.getInt(node);
+    }
+
+    int index(int node)
+    {
+        return indices.getInt(node);
+    }
+
+    // First child or -1
+    int firstChild(int node)
+    {
+        return firstChildren.getInt(node);
+    }
+
+    // Next sibling or -1
+    int nextSibling(int node)
+    {
+        return nextSiblings.getInt(node);
+    }
+
+    int childCount(int node)
+    {
+        return childCounts.getInt(node);
+    }
+
+    long hash(int node)
+    {
+        return hashes.getLong(node);
+    }
+
+    /**
+     * Value of a leaf node as it is kept in {@code TreeNode}
+     *
+     * @param node node index
+     * @return text, number (as double) or boolean; {@code null} for containers
+     */
+    @Nullable
+    Object value(int node)
+    {
+        return switch (type(node))
+        {
+            case TEXT -> heap.getString(values.getLong(node));
+            case NUMBER -> Double.longBitsToDouble(values.getLong(node));
+            case BOOLEAN -> values.getLong(node) != 0;
+            case ARRAY, OBJECT -> null;
+        };
+    }
+
+    /**
+     * Compares values of leaf nodes without materializing texts
+     *
+     * @param node node of this tree
+     * @param other other tree
+     * @param otherNode node of the other tree
+     * @return true if values are equal
+     */
+    boolean valueEquals(int node, ColumnarTree other, int otherNode)
+    {
+        if (type(node) == NodeType.TEXT && other.type(otherNode) == NodeType.TEXT)
+        {
+            return heap.textEquals(values.getLong(node), other.heap, other.values.getLong(otherNode));
+        }
+        return Objects.equals(value(node), other.value(otherNode));
+    }
+
+    /**
+     * Path of a node in the same format as {@code TreeNode} path
+     *
+     * @param node node index
+     * @return path
+     */
+    String path(int node)
+    {
+        ArrayDeque<String> path = new ArrayDeque<>();
+        int current = node;
+        while (parent(current) != NONE)
+        {
+            int parentNode = parent(current);
+            path.push(childCount(parentNode) < 2 ? name(current) : name(current) + "[" + index(current) + "]");
+            current = parentNode;
+        }
+        return "/" + String.join("/", path);
+    }
+
+    /**
+     * Collects indices of children of a node
+     *
+     * @param node node index
+     * @return children indices in order
+     */
+    int[] children(int node)
+    {
+        int[] children = new int[childCount(node)];
+        int child = firstChild(node);
+        for (int i = 0; i < children.length; i++)
+        {
+            children[i] = child;
+            child = nextSibling(child);
+        }
+        return children;
+    }
+
+    /**
+     * Column of fixed size primitive values in chunks of direct buffers
+     */
+    private static final class Column
+    {
+        private static final int CHUNK_BITS = 14;
+        private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+        private final int width;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+
+        private Column(int width)
+        {
+            this.width = width;
+        }
+
+        private void ensure(int index)
+        {
+            while (index >>> CHUNK_BITS >= chunks.size())
+            {
+                chunks.add(ByteBuffer.allocateDirect(width << CHUNK_BITS).order(ByteOrder.nativeOrder()));
+            }
+        }
+
+        private ByteBuffer chunk(int index)
+        {
+            return chunks.get(index >>> CHUNK_BITS);
+        }
+
+        private int offset(int index)
+        {
+            return (index & CHUNK_MASK) * width;
+        }
+
+        private byte getByte(int index)
+        {
+            return chunk(index).get(offset(index));
+        }
+
+        private void putByte(int index, byte value)
+        {
+            chunk(index).put(offset(index), value);
+        }
+
+        private int getInt(int index)
+        {
+            return chunk(index).getInt(offset(index));
+        }
+
+        private void putInt(int index, int value)
+        {
+            chunk(index).putInt(offset(index), value);
+        }
+
+        private long getLong(int index)
+        {
+            return chunk(index).getLong(offset(index));
+        }
+
+        private void putLong(int index, long value)
+        {
+            chunk(index).putLong(offset(index), value);
+        }
+
+        private long capacity()
+        {
+            return (long)chunks.size() * (width << CHUNK_BITS);
+        }
+    }
+
+    /**
+     * Off-heap storage of UTF-8 texts. Offsets combine chunk number (high 32 bits) and position in the chunk.
+     */
+    private static final class ValueHeap
+    {
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        @Nullable
+        private ByteBuffer current;
+
+        private long add(byte[] text)
+        {
+            int required = text.length + Integer.BYTES;
+            ByteBuffer chunk = current;
+            if (chunk == null || chunk.remaining() < required)
+            {
+                chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, required));
+                chunks.add(chunk);
+                current = chunk;
+            }
+            long offset = ((long)(chunks.size() - 1) << 32) | chunk.position();
+            chunk.putInt(text.length).put(text);
+            return offset;
+        }
+
+        private ByteBuffer text(long offset)
+        {
+            ByteBuffer chunk = chunks.get((int)(offset >>> 32));
+            int position = (int)offset;
+            return chunk.slice(position + Integer.BYTES, chunk.getInt(position));
+        }
+
+        private String getString(long offset)
+        {
+            ByteBuffer text = text(offset);
+            byte[] bytes = new byte[text.remaining()];
+            text.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private boolean textEquals(long offset, ValueHeap other, long otherOffset)
+        {
+            return text(offset).equals(other.text(otherOffset));
+        }
+
+        private long capacity()
+        {
+            return chunks.stream().mapToLong(ByteBuffer::capacity).sum();
+        }
+    }
+
+    /**
+     * Streaming builder of columns
+     */
+    private static final class Builder
+    {
+        private final JsonParser parser;
+        private final Column types = new Column(Byte.BYTES);
+        private final Column nameIds = new Column(Integer.BYTES);
+        private final Column parents = new Column(Integer.BYTES);
+        private final Column indices = new Column(Integer.BYTES);
+        private final Column firstChildren = new Column(Integer.BYTES);
+        private final Column nextSiblings = new Column(Integer.BYTES);
+        private final Column childCounts = new Column(Integer.BYTES);
+        private final Column hashes = new Column(Long.BYTES);
+        private final Column values = new Column(Long.BYTES);
+        private final Column[] columns = {types, nameIds, parents, indices, firstChildren, nextSiblings, childCounts,
+                hashes, values};
+        private final ValueHeap heap = new ValueHeap();
+        private final List<String> symbols = new ArrayList<>();
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+        private int size;
+        // Open containers: node index, accumulated hash and the last child
+        private int[] openNodes = new int[16];
+        private long[] openHashes = new long[16];
+        private int[] lastChildren = new int[16];
+        private int depth;
+
+        private Builder(JsonParser parser)
+        {
+            this.parser = parser;
+        }
+
+        private ColumnarTree build() throws IOException
+        {
+            String name = "";
+            JsonToken token;
+            while ((token = parser.nextToken()) != null)
+            {
+                switch (token)
+                {
+                    case FIELD_NAME ->
+                    {
+                        name = parser.currentName();
+                        continue;
+                    }
+                    case START_OBJECT, START_ARRAY ->
+                    {
+                        NodeType type = token == JsonToken.START_OBJECT ? NodeType.OBJECT : NodeType.ARRAY;
+                        int node = addNode(type, name, 0);
+                        push(node, startHash(node, type, name));
+                    }
+                    case END_OBJECT, END_ARRAY ->
+                    {
+                        depth--;
+                        int node = openNodes[depth];
+                        finishNode(node, SubtreeHashIndex.combine(openHashes[depth], childCounts.getInt(node)));
+                    }
+                    default -> addValue(token, name);
+                }
+                name = "";
+            }
+            return new ColumnarTree(this);
+        }
+
+        private void addValue(JsonToken token, String name) throws IOException
+        {
+            NodeType type;
+            long value;
+            long valueHash;
+            switch (token)
+            {
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                {
+                    type = NodeType.NUMBER;
+                    value = Double.doubleToLongBits(parser.getDoubleValue());
+                    valueHash = SubtreeHashIndex.mix(value);
+                }
+                case VALUE_TRUE, VALUE_FALSE ->
+                {
+                    type = NodeType.BOOLEAN;
+                    value = token == JsonToken.VALUE_TRUE ? 1 : 0;
+                    valueHash = value + 1;
+                }
+                case VALUE_NULL -> throw new IllegalArgumentException("Can't convert node of type 'NULL' to value");
+                default ->
+                {
+                    type = NodeType.TEXT;
+                    // Binary values of binary formats are compared as Base64 text, like in Jackson trees
+                    String text = token == JsonToken.VALUE_EMBEDDED_OBJECT
+                            ? Base64Variants.getDefaultVariant().encode(parser.getBinaryValue())
+                            : parser.getText();
+                    value = heap.add(text.getBytes(StandardCharsets.UTF_8));
+                    valueHash = SubtreeHashIndex.hashString(text);
+                }
+            }
+            int node = addNode(type, name, value);
+            finishNode(node, SubtreeHashIndex.combine(startHash(node, type, name), valueHash));
+        }
+
+        private int addNode(NodeType type, String name, long value)
+        {
+            int node = size++;
+            for (Column column : columns)
+            {
+                column.ensure(node);
+            }
+
+            int parent = depth > 0 ? openNodes[depth - 1] : NONE;
+            types.putByte(node, (byte)type.ordinal());
+            nameIds.putInt(node, symbolIds.computeIfAbsent(name, this::addSymbol));
+            parents.putInt(node, parent);
+            firstChildren.putInt(node, NONE);
+            nextSiblings.putInt(node, NONE);
+            childCounts.putInt(node, 0);
+            values.putLong(node, value);
+            if (parent == NONE)
+            {
+                indices.putInt(node, 0);
+            }
+            else
+            {
+                int index = childCounts.getInt(parent);
+                indices.putInt(node, index);
+                childCounts.putInt(parent, index + 1);
+                if (index == 0)
+                {
+                    firstChildren.putInt(parent, node);
+                }
+                else
+                {
+                    nextSiblings.putInt(lastChildren[depth - 1], node);
+                }
+                lastChildren[depth - 1] = node;
+            }
+            return node;
+        }
+
+        private int addSymbol(String name)
+        {
+            symbols.add(name);
+            return symbols.size() - 1;
+        }
+
+        // Hash of node own data - name, type and index of array elements
+        private long startHash(int node, NodeType type, String name)
+        {
+            long hash = SubtreeHashIndex.combine(SubtreeHashIndex.combine(SEED, SubtreeHashIndex.hashString(name)),
+                    type.ordinal());
+            int parent = parents.getInt(node);
+            if (parent != NONE && types.getByte(parent) == NodeType.ARRAY.ordinal())
+            {
+                hash = SubtreeHashIndex.combine(hash, indices.getInt(node));
+            }
+            return hash;
+        }
+
+        private void finishNode(int node, long hash)
+        {
+            hashes.putLong(node, hash);
+            if (depth > 0)
+            {
+                openHashes[depth - 1] = SubtreeHashIndex.combine(openHashes[depth - 1], hash);
+            }
+        }
+
+        private void push(int node, long hash)
+        {
+            if (depth == openNodes.length)
+            {
+                openNodes = Arrays.copyOf(openNodes, depth * 2);
+                openHashes = Arrays.copyOf(openHashes, depth * 2);
+                lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+            }
+            openNodes[depth] = node;
+            openHashes[depth] = hash;
+            depth++;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.aknopov.jsoncompare;
+
+import java.time.Duration;
+
+import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+
+/**
+ * Tracks consumption of time and work limits of one comparison (see {@link ComparisonOptions.Builder#timeout},
+ * {@link ComparisonOptions.Builder#maxMyersWork} and {@link ComparisonOptions.Builder#maxNodes}).
+ */
+final class ComparisonBudget
+{
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private long myersWork;
+    private long nodes;
+
+    ComparisonBudget(ComparisonOptions options)
+    {
+        Duration timeout = options.getTimeout();
+        this.hasDeadline = timeout != null;
+        this.deadlineNanos = timeout != null ? System.nanoTime() + timeout.toNanos() : 0;
+        this.myersWork = options.getMaxMyersWork();
+        this.nodes = options.getMaxNodes();
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    boolean isExpired()
+    {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Accounts visit of a node
+     *
+     * @return false if the node shouldn't be compared in details because of exceeded budget
+     */
+    boolean visitNode()
+    {
+        if (nodes <= 0 || isExpired())
+        {
+            return false;
+        }
+        nodes--;
+        return true;
+    }
+
+    /**
+     * @return maximum number of edit graph records for the next Myers' algorithm run, 0 if the budget is exhausted
+     */
+    int myersLimit()
+    {
+        return isExpired() ? 0 : (int)Math.min(myersWork, MeyerAlgorithm.DEFAULT_MAX_DIFFS);
+    }
+
+    /**
+     * Accounts work done by Myers' algorithm
+     *
+     * @param snakes number of created edit graph records
+     */
+    void chargeMyers(int snakes)
+    {
+        myersWork = Math.max(0, myersWork - snakes);
+    }
+}
@@ -0,0 +1,31 @@
+package com.aknopov.jsoncompare;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering a whole comparison of two JSON documents
+ */
+@Name("com.aknopov.jsoncompare.Comparison")
+@Label("JSON Comparison")
+@Category("JSON Comparator")
+@Description("Comparison of two JSON documents")
+final class ComparisonEvent extends jdk.jfr.Event
+{
+    @Label("First Sample Size")
+    @DataAmount
+    int length1;
+
+    @Label("Second Sample Size")
+    @DataAmount
+    int length2;
+
+    @Label("Differences")
+    int differenceCount;
+
+    @Label("Truncated")
+    boolean truncated;
+}
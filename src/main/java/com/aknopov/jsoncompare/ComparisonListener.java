@@ -0,0 +1,15 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Receiver of comparison metrics. Metrics are collected only when a listener is set in {@link ComparisonOptions}.
+ */
+@FunctionalInterface
+public interface ComparisonListener
+{
+    /**
+     * Called once the comparison is finished
+     *
+     * @param metrics collected metrics
+     */
+    void comparisonCompleted(ComparisonMetrics metrics);
+}
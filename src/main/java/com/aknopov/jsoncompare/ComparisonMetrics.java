@@ -0,0 +1,28 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Metrics of one comparison
+ *
+ * @param parseNanos time spent on parsing of both samples, including conversion to trees or indexing when they are
+ *         done while parsing
+ * @param conversionNanos time spent on conversion of parsed samples to trees; 0 when samples are parsed straight
+ *         into trees (parallel parsing, UTF-8 documents, async comparison) or indexed (hash-first comparison)
+ * @param comparisonNanos time spent on comparison of trees (including filtering)
+ * @param filterNanos time spent on filtering of differences by ignore rules
+ * @param bytes1 size of the first sample in bytes
+ * @param bytes2 size of the second sample in bytes
+ * @param nodes1 number of nodes in the first tree or subtree hash index
+ * @param nodes2 number of nodes in the second tree or subtree hash index
+ * @param myersRuns number of Myers' algorithm runs over children lists
+ * @param myersEditDistance total number of edits found by Myers' algorithm
+ * @param myersSnakes total number of edit graph records (snakes) created by Myers' algorithm
+ * @param pairedChildren number of changed children paired for recursive comparison
+ * @param unmatchedChildren number of changed children without a pair
+ * @param reportedDiffs number of differences delivered to the sink
+ * @param filteredDiffs number of differences suppressed by ignore rules
+ */
+public record ComparisonMetrics(long parseNanos, long conversionNanos, long comparisonNanos, long filterNanos,
+        long bytes1, long bytes2, int nodes1, int nodes2, int myersRuns, long myersEditDistance, long myersSnakes,
+        long pairedChildren, long unmatchedChildren, int reportedDiffs, int filteredDiffs)
+{
+}
@@ -0,0 +1,382 @@
+package com.aknopov.jsoncompare;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Options of comparison. Instances are immutable and can be shared.
+ */
+public final class ComparisonOptions
+{
+    /**
+     * Options with default values - full comparison without limits
+     */
+    public static final ComparisonOptions DEFAULT = builder().build();
+
+    private final boolean stopOnFirst;
+    private final List<String> knownDiscrepancies;
+    private final int maxDiffs;
+    private final long maxBytes;
+    @Nullable
+    private final ComparisonListener listener;
+    private final List<ChildrenDiffStrategy> childrenStrategies;
+    private final List<String> arrayKeyFields;
+    @Nullable
+    private final Duration timeout;
+    private final long maxMyersWork;
+    private final long maxNodes;
+    private final boolean detectMoves;
+    private final boolean parallelParsing;
+    private final boolean hashFirst;
+    private final InputLimits inputLimits;
+
+    private ComparisonOptions(Builder builder)
+    {
+        this.stopOnFirst = builder.stopOnFirst;
+        this.knownDiscrepancies = builder.knownDiscrepancies;
+        this.maxDiffs = builder.maxDiffs;
+        this.maxBytes = builder.maxBytes;
+        this.listener = builder.listener;
+        this.childrenStrategies = builder.childrenStrategies;
+        this.arrayKeyFields = builder.arrayKeyFields;
+        this.timeout = builder.timeout;
+        this.maxMyersWork = builder.maxMyersWork;
+        this.maxNodes = builder.maxNodes;
+        this.detectMoves = builder.detectMoves;
+        this.parallelParsing = builder.parallelParsing;
+        this.hashFirst = builder.hashFirst;
+        this.inputLimits = builder.inputLimits;
+    }
+
+    /**
+     * Creates builder of options
+     *
+     * @return new builder
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return true if comparison stops on the first discrepancy
+     */
+    public boolean isStopOnFirst()
+    {
+        return stopOnFirst;
+    }
+
+    /**
+     * @return list of acceptable discrepancies in RegEx format
+     */
+    public List<String> getKnownDiscrepancies()
+    {
+        return knownDiscrepancies;
+    }
+
+    /**
+     * @return maximum number of reported differences
+     */
+    public int getMaxDiffs()
+    {
+        return maxDiffs;
+    }
+
+    /**
+     * @return maximum total size of reported messages in bytes (UTF-8)
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * @return receiver of comparison metrics or {@code null} if metrics are not collected
+     */
+    @Nullable
+    public ComparisonListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * @return custom strategies of children alignment consulted before built-in ones
+     */
+    public List<ChildrenDiffStrategy> getChildrenStrategies()
+    {
+        return childrenStrategies;
+    }
+
+    /**
+     * @return names of fields identifying records in arrays
+     */
+    public List<String> getArrayKeyFields()
+    {
+        return arrayKeyFields;
+    }
+
+    /**
+     * @return time limit of comparison or {@code null} if there is no limit
+     */
+    @Nullable
+    public Duration getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * @return maximum total number of edit graph records created by Myers' algorithm
+     */
+    public long getMaxMyersWork()
+    {
+        return maxMyersWork;
+    }
+
+    /**
+     * @return maximum number of differing nodes compared in details
+     */
+    public long getMaxNodes()
+    {
+        return maxNodes;
+    }
+
+    /**
+     * @return true if subtrees moved between parents are reported as moves
+     */
+    public boolean isDetectMoves()
+    {
+        return detectMoves;
+    }
+
+    /**
+     * @return true if samples are parsed concurrently
+     */
+    public boolean isParallelParsing()
+    {
+        return parallelParsing;
+    }
+
+    /**
+     * @return true if JSON documents are indexed first, and trees are built only for subtrees with different hashes
+     */
+    public boolean isHashFirst()
+    {
+        return hashFirst;
+    }
+
+    /**
+     * @return limits of input documents
+     */
+    public InputLimits getInputLimits()
+    {
+        return inputLimits;
+    }
+
+    /**
+     * Builder of {@link ComparisonOptions}
+     */
+    public static final class Builder
+    {
+        private boolean stopOnFirst;
+        private List<String> knownDiscrepancies = List.of();
+        private int maxDiffs = Integer.MAX_VALUE;
+        private long maxBytes = Long.MAX_VALUE;
+        @Nullable
+        private ComparisonListener listener;
+        private List<ChildrenDiffStrategy> childrenStrategies = List.of();
+        private List<String> arrayKeyFields = List.of();
+        @Nullable
+        private Duration timeout;
+        private long maxMyersWork = Long.MAX_VALUE;
+        private long maxNodes = Long.MAX_VALUE;
+        private boolean detectMoves;
+        private boolean parallelParsing;
+        private boolean hashFirst;
+        private InputLimits inputLimits = InputLimits.NONE;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param stopOnFirst if true, stops on the first discrepancy
+         * @return this builder
+         */
+        public Builder stopOnFirst(boolean stopOnFirst)
+        {
+            this.stopOnFirst = stopOnFirst;
+            return this;
+        }
+
+        /**
+         * @param knownDiscrepancies list of acceptable discrepancies in RegEx format
+         * @return this builder
+         */
+        public Builder knownDiscrepancies(Collection<String> knownDiscrepancies)
+        {
+            this.knownDiscrepancies = List.copyOf(knownDiscrepancies);
+            return this;
+        }
+
+        /**
+         * @param maxDiffs maximum number of reported differences; comparison stops when it's reached
+         * @return this builder
+         */
+        public Builder maxDiffs(int maxDiffs)
+        {
+            if (maxDiffs < 1)
+            {
+                throw new IllegalArgumentException("Maximum number of differences should be positive: " + maxDiffs);
+            }
+            this.maxDiffs = maxDiffs;
+            return this;
+        }
+
+        /**
+         * @param maxBytes maximum total size of reported messages; comparison stops when it's reached
+         * @return this builder
+         */
+        public Builder maxBytes(long maxBytes)
+        {
+            if (maxBytes < 1)
+            {
+                throw new IllegalArgumentException("Maximum size of differences should be positive: " + maxBytes);
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param listener receiver of comparison metrics; metrics are not collected when it's {@code null}
+         * @return this builder
+         */
+        public Builder listener(@Nullable ComparisonListener listener)
+        {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @param childrenStrategies custom strategies of children alignment; the first one accepting statistics
+         *      of children lists is used, built-in selection applies if none does
+         * @return this builder
+         */
+        public Builder childrenStrategies(List<ChildrenDiffStrategy> childrenStrategies)
+        {
+            this.childrenStrategies = List.copyOf(childrenStrategies);
+            return this;
+        }
+
+        /**
+         * @param arrayKeyFields names of fields identifying records in arrays; array elements are matched
+         *      by the first field with unique scalar values present in all elements
+         * @return this builder
+         */
+        public Builder arrayKeyFields(Collection<String> arrayKeyFields)
+        {
+            this.arrayKeyFields = List.copyOf(arrayKeyFields);
+            return this;
+        }
+
+        /**
+         * @param timeout time limit of comparison; when it's over, children are matched without Myers' algorithm
+         *      and remaining differing subtrees are reported without details
+         * @return this builder
+         */
+        public Builder timeout(Duration timeout)
+        {
+            if (timeout.isNegative() || timeout.isZero())
+            {
+                throw new IllegalArgumentException("Timeout should be positive: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param maxMyersWork maximum total number of edit graph records created by Myers' algorithm;
+         *      when it's reached, children are matched with linear strategies
+         * @return this builder
+         */
+        public Builder maxMyersWork(long maxMyersWork)
+        {
+            if (maxMyersWork < 1)
+            {
+                throw new IllegalArgumentException("Maximum Myers' work should be positive: " + maxMyersWork);
+            }
+            this.maxMyersWork = maxMyersWork;
+            return this;
+        }
+
+        /**
+         * @param maxNodes maximum number of differing nodes compared in details; differing subtrees beyond
+         *      the limit are reported without details
+         * @return this builder
+         */
+        public Builder maxNodes(long maxNodes)
+        {
+            if (maxNodes < 1)
+            {
+                throw new IllegalArgumentException("Maximum number of nodes should be positive: " + maxNodes);
+            }
+            this.maxNodes = maxNodes;
+            return this;
+        }
+
+        /**
+         * @param detectMoves if true, unmatched children are reported after comparison of whole trees, and
+         *      subtrees moved between parents are reported as single moves instead of removals and additions
+         * @return this builder
+         */
+        public Builder detectMoves(boolean detectMoves)
+        {
+            this.detectMoves = detectMoves;
+            return this;
+        }
+
+        /**
+         * @param parallelParsing if true, the second sample is parsed on the calling thread while the first one
+         *      is parsed in the common pool, and samples are converted to trees right during parsing
+         * @return this builder
+         */
+        public Builder parallelParsing(boolean parallelParsing)
+        {
+            this.parallelParsing = parallelParsing;
+            return this;
+        }
+
+        /**
+         * @param hashFirst if true, JSON documents are indexed with streaming passes first, and trees are built
+         *      only for subtrees with different hashes. Equal-sized arrays and objects with the same field names
+         *      are compared positionally, children of other containers are aligned as usual.
+         * @return this builder
+         */
+        public Builder hashFirst(boolean hashFirst)
+        {
+            this.hashFirst = hashFirst;
+            return this;
+        }
+
+        /**
+         * @param inputLimits limits of input documents; documents exceeding them are rejected while parsing
+         *      and reported with a single {@link DifferenceType#LIMIT} difference
+         * @return this builder
+         */
+        public Builder inputLimits(InputLimits inputLimits)
+        {
+            this.inputLimits = inputLimits;
+            return this;
+        }
+
+        /**
+         * @return built options
+         */
+        public ComparisonOptions build()
+        {
+            return new ComparisonOptions(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.aknopov.jsoncompare;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering one phase of a comparison - parsing, conversion or comparison of trees
+ */
+@Name("com.aknopov.jsoncompare.ComparisonPhase")
+@Label("JSON Comparison Phase")
+@Category("JSON Comparator")
+@Description("Parsing, conversion to trees or comparison of trees")
+final class ComparisonPhaseEvent extends jdk.jfr.Event
+{
+    static final String PARSE = "parse";
+    static final String CONVERT = "convert";
+    static final String COMPARE = "compare";
+
+    @Label("Phase")
+    String phase = "";
+
+    @Label("Path")
+    @Description("Path of the processed root")
+    String path = "";
+
+    @Label("Children Count")
+    @Description("Number of children of the processed root, -1 if not known")
+    int childCount = -1;
+}
@@ -0,0 +1,37 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Summary of a comparison. Differences themselves are delivered to a {@link DiffSink}.
+ *
+ * @param differenceCount number of differences delivered to the sink
+ * @param truncated true if comparison was stopped because of {@code maxDiffs} or {@code maxBytes} limits
+ * @param approximate true if time or work budget was exceeded and some differences were found with cheaper
+ *      methods or reported without details
+ * @param inputLimitExceeded true if a sample exceeded {@link InputLimits} and was rejected without comparison
+ */
+public record ComparisonResult(int differenceCount, boolean truncated, boolean approximate,
+        boolean inputLimitExceeded)
+{
+    /**
+     * Creates summary of a comparison of accepted samples
+     *
+     * @param differenceCount number of differences delivered to the sink
+     * @param truncated true if comparison was stopped because of limits
+     * @param approximate true if some differences were found with cheaper methods or reported without details
+     */
+    public ComparisonResult(int differenceCount, boolean truncated, boolean approximate)
+    {
+        this(differenceCount, truncated, approximate, false);
+    }
+
+    /**
+     * Creates summary of an exact comparison
+     *
+     * @param differenceCount number of differences delivered to the sink
+     * @param truncated true if comparison was stopped because of limits
+     */
+    public ComparisonResult(int differenceCount, boolean truncated)
+    {
+        this(differenceCount, truncated, false, false);
+    }
+}
@@ -0,0 +1,116 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Stateful comparison of two documents edited with JSON Patches (RFC 6902). Both trees with their hashes are kept
+ * between edits. A patch updates only the affected nodes and re-hashes their parent chains, and the following
+ * comparison recomputes differences only for pairs of subtrees changed since the previous one - differences of
+ * the others are reused. Instances are not thread-safe.
+ */
+public final class ComparisonSession
+{
+    /**
+     * Compared document
+     */
+    public enum Side
+    {
+        FIRST,
+        SECOND
+    }
+
+    private final ComparisonOptions options;
+    private final SubtreeDiffCache cache = new SubtreeDiffCache();
+    private TreeNode<?> root1;
+    private TreeNode<?> root2;
+    private ComparisonResult result;
+
+    private ComparisonSession(TreeNode<?> root1, TreeNode<?> root2, ComparisonOptions options)
+    {
+        this.options = options;
+        this.root1 = root1;
+        this.root2 = root2;
+        this.result = compare();
+    }
+
+    /**
+     * Parses and compares two JSON documents.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param options comparison options; detection of moves is not supported
+     * @return session with differences of the documents
+     * @throws JsonProcessingException if a document can't be parsed
+     * @throws IllegalArgumentException if a document is empty or options are not supported
+     */
+    public static ComparisonSession open(String sample1, String sample2, ComparisonOptions options)
+            throws JsonProcessingException
+    {
+        if (options.isDetectMoves())
+        {
+            throw new IllegalArgumentException("Detection of moves is not supported by sessions");
+        }
+        return new ComparisonSession(prepare(sample1, "first"), prepare(sample2, "second"), options);
+    }
+
+    /**
+     * Applies a patch to one of the documents and updates differences.
+     *
+     * @param side patched document
+     * @param patch JSON Patch - array of operations
+     * @return summary of the updated comparison
+     * @throws JsonProcessingException if the patch can't be parsed
+     * @throws IllegalArgumentException if the patch can't be applied; the document is left unchanged
+     */
+    public ComparisonResult applyPatch(Side side, String patch) throws JsonProcessingException
+    {
+        JsonNode operations = JsonComparator.OBJECT_MAPPER.readTree(patch);
+        if (side == Side.FIRST)
+        {
+            root1 = TreePatcher.apply(root1, operations);
+        }
+        else
+        {
+            root2 = TreePatcher.apply(root2, operations);
+        }
+        result = compare();
+        return result;
+    }
+
+    /**
+     * @return differences of the current versions of documents
+     */
+    public List<Difference> getDifferences()
+    {
+        return cache.getDifferences();
+    }
+
+    /**
+     * @return summary of comparison of the current versions of documents
+     */
+    public ComparisonResult getResult()
+    {
+        return result;
+    }
+
+    private ComparisonResult compare()
+    {
+        cache.startComparison();
+        DiffRecorder diffRecorder = new DiffRecorder(options, cache);
+        new JsonComparator(options, diffRecorder, null, cache).compareTrees(root1, root2, "");
+        return diffRecorder.toResult();
+    }
+
+    private static TreeNode<?> prepare(String sample, String qualifier) throws JsonProcessingException
+    {
+        JsonNode root = JsonComparator.OBJECT_MAPPER.readTree(sample);
+        if (root.isMissingNode())
+        {
+            throw new IllegalArgumentException("Empty input for the " + qualifier + " sample");
+        }
+        return TreeNodeConverter.fromJacksonRoot(root);
+    }
+}
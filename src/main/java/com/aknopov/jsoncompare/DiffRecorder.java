@@ -1,58 +1,196 @@
 package com.aknopov.jsoncompare;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 
+import com.google.common.base.Utf8;
 import com.google.errorprone.annotations.FormatMethod;
 
 /**
- * Collects discrepancy messages while walking the trees.
+ * Filters discrepancy messages found while walking the trees and passes them to a sink.
  */
 class DiffRecorder
 {
     private final List<Pattern> knownDiscrepancies;
-    private final List<String> messages = new ArrayList<>();
+    private final DiffSink sink;
+    private final int maxDiffs;
+    private final long maxBytes;
+    private final boolean timeFilter;
+    private int diffCount;
+    private int filteredCount;
+    private long filterNanos;
+    private long byteCount;
+    private boolean limitReached;
+    private boolean approximate;
+    private boolean inputLimitExceeded;
 
     DiffRecorder(Collection<String> knownDiscrepancies)
     {
-        this.knownDiscrepancies = knownDiscrepancies.stream().map(Pattern::compile).toList();
+        this(ComparisonOptions.builder().knownDiscrepancies(knownDiscrepancies).build(), new ListDiffSink());
+    }
+
+    DiffRecorder(ComparisonOptions options, DiffSink sink)
+    {
+        this.knownDiscrepancies = options.getKnownDiscrepancies().stream().map(Pattern::compile).toList();
+        this.sink = sink;
+        this.maxDiffs = options.getMaxDiffs();
+        this.maxBytes = options.getMaxBytes();
+        this.timeFilter = options.getListener() != null;
     }
 
     /**
-     * Adds message to the list
+     * Adds message that is not related to a particular node (like input errors)
+     *
      * @param message discrepancy message
      */
     void addMessage(String message)
     {
-        knownDiscrepancies.stream()
-                .filter(p -> p.matcher(message).find())
-                .findFirst()
-                .ifPresentOrElse(p -> {}, () -> messages.add(message));
+        addDifference(new Difference(DifferenceType.INPUT, "", message));
+    }
+
+    /**
+     * Adds message about a sample rejected because of input limits
+     *
+     * @param message discrepancy message
+     */
+    void addLimitExceeded(String message)
+    {
+        inputLimitExceeded = true;
+        addDifference(new Difference(DifferenceType.LIMIT, "", message));
     }
 
     /**
-     * Adds a message in according to {@link String#format} specifications.
+     * Adds a difference with a message in according to {@link String#format} specifications.
+     * Path of the node is appended to the message.
      *
+     * @param type kind of the difference
+     * @param path path to the node
      * @param format format string
      * @param args additional arguments
      */
     @FormatMethod
-    void addMessage(String format, @Nullable Object ... args)
+    void addDifference(DifferenceType type, String path, String format, @Nullable Object ... args)
+    {
+        addDifference(new Difference(type, path, String.format(format, args) + ", path='" + path + "'"));
+    }
+
+    /**
+     * Adds a difference with complete message
+     *
+     * @param difference the difference
+     */
+    void addDifference(Difference difference)
+    {
+        if (limitReached)
+        {
+            return;
+        }
+        if (isKnown(difference.message()))
+        {
+            filteredCount++;
+            return;
+        }
+
+        long messageBytes = Utf8.encodedLength(difference.message());
+        if (byteCount + messageBytes > maxBytes)
+        {
+            limitReached = true;
+            return;
+        }
+        diffCount++;
+        byteCount += messageBytes;
+        sink.accept(difference);
+        limitReached = diffCount >= maxDiffs;
+    }
+
+    private boolean isKnown(String message)
+    {
+        if (knownDiscrepancies.isEmpty())
+        {
+            return false;
+        }
+        if (!timeFilter)
+        {
+            return matchesKnown(message);
+        }
+        long start = System.nanoTime();
+        boolean known = matchesKnown(message);
+        filterNanos += System.nanoTime() - start;
+        return known;
+    }
+
+    private boolean matchesKnown(String message)
+    {
+        for (Pattern pattern : knownDiscrepancies)
+        {
+            if (pattern.matcher(message).find())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if no more differences are accepted because of limits
+     */
+    boolean isLimitReached()
+    {
+        return limitReached;
+    }
+
+    /**
+     * @return true if the comparison was marked as approximate
+     */
+    boolean isApproximate()
+    {
+        return approximate;
+    }
+
+    /**
+     * Marks the comparison as approximate
+     */
+    void markApproximate()
+    {
+        approximate = true;
+    }
+
+    /**
+     * @return number of differences suppressed as known discrepancies
+     */
+    int getFilteredCount()
+    {
+        return filteredCount;
+    }
+
+    /**
+     * @return time spent on matching known discrepancies; measured only when a listener is set in options
+     */
+    long getFilterNanos()
+    {
+        return filterNanos;
+    }
+
+    /**
+     * Creates summary of the comparison
+     *
+     * @return comparison result
+     */
+    ComparisonResult toResult()
     {
-        addMessage(String.format(format, args));
+        return new ComparisonResult(diffCount, limitReached, approximate, inputLimitExceeded);
     }
 
     /**
-     * Returns the list of messages
+     * Returns the list of messages if differences are collected by {@link ListDiffSink}
      *
      * @return list of messages
      */
     List<String> getMessages()
     {
-        return messages;
+        return sink instanceof ListDiffSink listSink ? listSink.getMessages() : List.of();
     }
 }
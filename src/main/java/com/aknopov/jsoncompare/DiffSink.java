@@ -0,0 +1,15 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Receiver of differences - gets each difference as soon as it is found.
+ */
+@FunctionalInterface
+public interface DiffSink
+{
+    /**
+     * Accepts the next difference
+     *
+     * @param difference detected difference
+     */
+    void accept(Difference difference);
+}
@@ -0,0 +1,12 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * One detected difference between samples
+ *
+ * @param type kind of the difference
+ * @param path path to the node in the first sample (empty for input errors)
+ * @param message human-readable description including the path
+ */
+public record Difference(DifferenceType type, String path, String message)
+{
+}
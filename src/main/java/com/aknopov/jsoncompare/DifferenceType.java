@@ -0,0 +1,26 @@
+package com.aknopov.jsoncompare;
+
+/**
+ * Kinds of detected differences
+ */
+public enum DifferenceType
+{
+    /** Sample can't be parsed or is empty */
+    INPUT,
+    /** Sample exceeds input limits and was rejected */
+    LIMIT,
+    /** Node types differ */
+    TYPE,
+    /** Node names differ */
+    NAME,
+    /** Values of leaf nodes differ */
+    VALUE,
+    /** Same children in different order */
+    ORDER,
+    /** Children lists differ */
+    CHILDREN,
+    /** Subtree moved to another parent */
+    MOVE,
+    /** Subtrees differ, details are not available because comparison budget is exceeded */
+    APPROXIMATE
+}
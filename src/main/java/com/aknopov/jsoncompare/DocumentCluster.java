@@ -0,0 +1,24 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+
+/**
+ * Cluster of near-identical documents found by {@link DocumentClusterer}
+ *
+ * @param representative index of the document representing the cluster
+ * @param groups groups of identical documents ordered by size; the first one contains the representative
+ * @param differences differences of the representative from the representative of the largest cluster;
+ *      empty for the largest cluster itself
+ */
+public record DocumentCluster(int representative, List<List<Integer>> groups, List<String> differences)
+{
+    /**
+     * @return number of documents in the cluster
+     */
+    public int size()
+    {
+        return groups.stream()
+                .mapToInt(List::size)
+                .sum();
+    }
+}
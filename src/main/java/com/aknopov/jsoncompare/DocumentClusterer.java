@@ -0,0 +1,172 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The class groups many documents, e.g. responses of different replicas, instead of comparing them pairwise.
+ * Each document is parsed once. Documents with equal root hashes form groups of identical documents, and groups
+ * with similar sets of subtree hashes (estimated with MinHash sketches) are joined into clusters. Detailed
+ * comparison runs only between representatives of clusters and the representative of the largest cluster.
+ */
+@Slf4j
+public final class DocumentClusterer
+{
+    /**
+     * Default estimated Jaccard similarity of subtree hash sets starting from which documents are clustered
+     */
+    public final static double DEFAULT_SIMILARITY = 0.8;
+
+    // Size of bottom-k sketches of subtree hashes
+    private final static int SKETCH_SIZE = 128;
+
+    // Identical documents with the sketch of their subtree hashes
+    private record Group(TreeNode<?> root, List<Integer> indices, BottomKSketch sketch)
+    {
+    }
+
+    private DocumentClusterer()
+    {
+    }
+
+    /**
+     * Clusters JSON documents with default similarity and options.
+     *
+     * @param documents documents
+     * @return clusters
+     */
+    public static ClusteringResult cluster(List<String> documents)
+    {
+        return cluster(documents, ComparisonOptions.DEFAULT, DEFAULT_SIMILARITY);
+    }
+
+    /**
+     * Clusters JSON documents.
+     *
+     * @param documents documents
+     * @param options options of comparison of cluster representatives
+     * @param similarity estimated Jaccard similarity of subtree hash sets starting from which documents are
+     *      clustered, from 0 to 1
+     * @return clusters
+     */
+    public static ClusteringResult cluster(List<String> documents, ComparisonOptions options, double similarity)
+    {
+        if (similarity < 0 || similarity > 1)
+        {
+            throw new IllegalArgumentException("Similarity should be between 0 and 1: " + similarity);
+        }
+
+        SortedMap<Integer, String> failures = new TreeMap<>();
+        Map<TreeNode<?>, List<Integer>> identical = new LinkedHashMap<>();
+        for (int i = 0; i < documents.size(); i++)
+        {
+            TreeNode<?> root = prepare(documents.get(i), i, failures);
+            if (root != null)
+            {
+                identical.computeIfAbsent(root, r -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<Group> groups = new ArrayList<>();
+        identical.forEach((root, indices) -> groups.add(new Group(root, List.copyOf(indices), sketch(root))));
+        groups.sort(Comparator.comparingInt((Group g) -> -g.indices().size()));
+
+        // Greedy clustering - a group joins the most similar cluster led by a larger group
+        List<List<Group>> clusters = new ArrayList<>();
+        for (Group group : groups)
+        {
+            List<Group> best = null;
+            double bestSimilarity = similarity;
+            for (List<Group> cluster : clusters)
+            {
+                double clusterSimilarity = cluster.get(0).sketch().similarity(group.sketch());
+                if (clusterSimilarity >= bestSimilarity)
+                {
+                    best = cluster;
+                    bestSimilarity = clusterSimilarity;
+                }
+            }
+            if (best == null)
+            {
+                best = new ArrayList<>();
+                clusters.add(best);
+            }
+            best.add(group);
+        }
+        clusters.sort(Comparator.comparingInt((List<Group> c) -> -c.stream()
+                .mapToInt(g -> g.indices().size())
+                .sum()));
+
+        List<DocumentCluster> result = new ArrayList<>(clusters.size());
+        for (List<Group> cluster : clusters)
+        {
+            Group leader = cluster.get(0);
+            List<String> differences = result.isEmpty()
+                    ? List.of()
+                    : compare(clusters.get(0).get(0).root(), leader.root(), options);
+            result.add(new DocumentCluster(leader.indices().get(0),
+                    cluster.stream().map(Group::indices).toList(), differences));
+        }
+        return new ClusteringResult(List.copyOf(result), Collections.unmodifiableSortedMap(failures));
+    }
+
+    @Nullable
+    private static TreeNode<?> prepare(String document, int index, Map<Integer, String> failures)
+    {
+        try
+        {
+            JsonNode jsonRoot = JsonComparator.OBJECT_MAPPER.readTree(document);
+            if (jsonRoot.isMissingNode())
+            {
+                failures.put(index, "Empty input");
+                return null;
+            }
+            return TreeNodeConverter.fromJacksonRoot(jsonRoot);
+        }
+        catch (JsonProcessingException e)
+        {
+            log.error("Failed to parse document {}: {}", index, e.getMessage());
+            failures.put(index, "Failed to parse: " + e.getOriginalMessage());
+            return null;
+        }
+        catch (IllegalArgumentException e)
+        {
+            failures.put(index, e.getMessage());
+            return null;
+        }
+    }
+
+    private static BottomKSketch sketch(TreeNode<?> root)
+    {
+        BottomKSketch sketch = new BottomKSketch(SKETCH_SIZE);
+        ArrayDeque<TreeNode<?>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty())
+        {
+            TreeNode<?> node = stack.pop();
+            sketch.add(node.hashCode());
+            node.getChildren().forEach(stack::push);
+        }
+        return sketch;
+    }
+
+    private static List<String> compare(TreeNode<?> root1, TreeNode<?> root2, ComparisonOptions options)
+    {
+        ListDiffSink sink = new ListDiffSink();
+        new JsonComparator(options, new DiffRecorder(options, sink)).compareTrees(root1, root2, "");
+        return sink.getMessages();
+    }
+}
@@ -0,0 +1,39 @@
+package com.aknopov.jsoncompare;
+
+import java.util.HexFormat;
+
+/**
+ * Canonical 128-bit fingerprint of a document computed by {@link Fingerprinter}. Documents that compare
+ * without differences have equal fingerprints; different documents have different fingerprints with
+ * overwhelming probability.
+ *
+ * @param high upper 64 bits
+ * @param low lower 64 bits
+ */
+public record Fingerprint(long high, long low)
+{
+    /**
+     * Parses fingerprint from its hexadecimal representation
+     *
+     * @param hex 32 hexadecimal digits as produced by {@link #toString()}
+     * @return fingerprint
+     * @throws IllegalArgumentException if the string is not a valid representation
+     */
+    public static Fingerprint fromString(String hex)
+    {
+        if (hex.length() != 32)
+        {
+            throw new IllegalArgumentException("Fingerprint should have 32 hexadecimal digits: " + hex);
+        }
+        return new Fingerprint(HexFormat.fromHexDigitsToLong(hex, 0, 16), HexFormat.fromHexDigitsToLong(hex, 16, 32));
+    }
+
+    /**
+     * @return 32 hexadecimal digits
+     */
+    @Override
+    public String toString()
+    {
+        return HexFormat.of().toHexDigits(high) + HexFormat.of().toHexDigits(low);
+    }
+}
@@ -0,0 +1,340 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+
+/**
+ * Computes canonical {@link Fingerprint}s of documents in a single streaming pass without building trees.
+ * Memory usage is proportional to the nesting depth of documents only.
+ * <p>
+ * Like {@code TreeNode} hashes, a fingerprint covers node types, field names, values and children in order,
+ * with numbers compared as doubles and binary values as Base64 text, but uses 128-bit Murmur3 hash that is
+ * strong enough for deduplication of large document collections. Optionally order of object fields is ignored,
+ * and nodes can be excluded by JSON Pointer (RFC 6901) patterns. Instances are immutable and can be shared.
+ */
+public final class Fingerprinter
+{
+    /**
+     * Fingerprinter with default settings - fields order matters, no ignored nodes
+     */
+    public static final Fingerprinter DEFAULT = builder().build();
+
+    private final static HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private final static byte OBJECT = 1;
+    private final static byte ARRAY = 2;
+    private final static byte TEXT = 3;
+    private final static byte NUMBER = 4;
+    private final static byte BOOLEAN = 5;
+    private final static byte NULL = 6;
+    private final static byte FIELD = 7;
+
+    private final boolean unorderedFields;
+    private final List<Pattern> ignoredPaths;
+
+    private Fingerprinter(Builder builder)
+    {
+        this.unorderedFields = builder.unorderedFields;
+        this.ignoredPaths = builder.ignoredPaths.stream()
+                .map(Pattern::compile)
+                .toList();
+    }
+
+    /**
+     * Creates builder of fingerprinter
+     *
+     * @return new builder
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Computes fingerprint of a JSON document
+     *
+     * @param document document text
+     * @return fingerprint
+     * @throws IOException if the document can't be parsed
+     * @throws IllegalArgumentException if the document is empty
+     */
+    public Fingerprint fingerprint(String document) throws IOException
+    {
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(document))
+        {
+            return fingerprint(parser);
+        }
+    }
+
+    /**
+     * Computes fingerprint of a document in JSON or binary format
+     *
+     * @param document encoded document
+     * @param format encoding of the document
+     * @return fingerprint
+     * @throws IOException if the document can't be parsed
+     * @throws IllegalArgumentException if the document is empty
+     */
+    public Fingerprint fingerprint(byte[] document, InputFormat format) throws IOException
+    {
+        try (JsonParser parser = format.mapper().createParser(document))
+        {
+            return fingerprint(parser);
+        }
+    }
+
+    /**
+     * Computes fingerprint of a document in JSON or binary format
+     *
+     * @param document document stream, it's not closed
+     * @param format encoding of the document
+     * @return fingerprint
+     * @throws IOException if the document can't be read or parsed
+     * @throws IllegalArgumentException if the document is empty
+     */
+    public Fingerprint fingerprint(InputStream document, InputFormat format) throws IOException
+    {
+        try (JsonParser parser = format.mapper().createParser(document))
+        {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return fingerprint(parser);
+        }
+    }
+
+    private Fingerprint fingerprint(JsonParser parser) throws IOException
+    {
+        if (parser.nextToken() == null)
+        {
+            throw new IllegalArgumentException("Empty document");
+        }
+
+        // Containers being hashed; the bottom frame receives hash of the root
+        Frame root = new Frame(true, false, 0);
+        ArrayDeque<Frame> frames = new ArrayDeque<>();
+        Frame current = root;
+        StringBuilder path = new StringBuilder();
+        while (root.index == 0)
+        {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY)
+            {
+                Frame done = current;
+                current = frames.pop();
+                path.setLength(done.pathLength);
+                current.add(done.name, done.hash());
+            }
+            else if (token != JsonToken.FIELD_NAME)
+            {
+                String name = current.array ? "" : parser.currentName();
+                int pathLength = path.length();
+                if (current != root && !ignoredPaths.isEmpty())
+                {
+                    appendPointer(path, current, name);
+                }
+
+                if (current != root && isIgnored(path))
+                {
+                    parser.skipChildren();
+                    current.index++;
+                    path.setLength(pathLength);
+                }
+                else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY)
+                {
+                    frames.push(current);
+                    boolean array = token == JsonToken.START_ARRAY;
+                    current = new Frame(array, !array && unorderedFields, pathLength);
+                    current.name = name;
+                }
+                else
+                {
+                    current.add(name, valueHash(parser, token));
+                    path.setLength(pathLength);
+                }
+            }
+            if (root.index == 0)
+            {
+                parser.nextToken();
+            }
+        }
+
+        byte[] bytes = Objects.requireNonNull(root.last).asBytes();
+        return new Fingerprint(Longs.fromByteArray(bytes), Longs.fromBytes(bytes[8], bytes[9], bytes[10],
+                bytes[11], bytes[12], bytes[13], bytes[14], bytes[15]));
+    }
+
+    private static HashCode valueHash(JsonParser parser, JsonToken token) throws IOException
+    {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        return switch (token)
+        {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> hasher.putByte(NUMBER)
+                    .putLong(Double.doubleToLongBits(parser.getDoubleValue()))
+                    .hash();
+            case VALUE_TRUE, VALUE_FALSE -> hasher.putByte(BOOLEAN)
+                    .putBoolean(token == JsonToken.VALUE_TRUE)
+                    .hash();
+            case VALUE_NULL -> hasher.putByte(NULL).hash();
+            case VALUE_EMBEDDED_OBJECT -> hasher.putByte(TEXT)
+                    .putString(Base64Variants.getDefaultVariant().encode(parser.getBinaryValue()),
+                            StandardCharsets.UTF_8)
+                    .hash();
+            default -> hasher.putByte(TEXT)
+                    .putString(parser.getText(), StandardCharsets.UTF_8)
+                    .hash();
+        };
+    }
+
+    // JSON Pointer of the next child of the current container
+    private static void appendPointer(StringBuilder path, Frame current, String name)
+    {
+        path.append('/');
+        if (current.array)
+        {
+            path.append(current.index);
+        }
+        else
+        {
+            path.append(name.replace("~", "~0").replace("/", "~1"));
+        }
+    }
+
+    private boolean isIgnored(CharSequence path)
+    {
+        if (ignoredPaths.isEmpty())
+        {
+            return false;
+        }
+        for (Pattern pattern : ignoredPaths)
+        {
+            if (pattern.matcher(path).matches())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Hashing state of a container
+    private static final class Frame
+    {
+        private final boolean array;
+        private final boolean unordered;
+        private final int pathLength;
+        private final Hasher ordered = HASH_FUNCTION.newHasher();
+        private String name = "";
+        // Position of the next child, including ignored ones
+        private int index;
+        // Number of hashed children
+        private int count;
+        // 128-bit sum of children hashes for unordered fields
+        private long sumHigh;
+        private long sumLow;
+        @Nullable
+        private HashCode last;
+
+        private Frame(boolean array, boolean unordered, int pathLength)
+        {
+            this.array = array;
+            this.unordered = unordered;
+            this.pathLength = pathLength;
+        }
+
+        private void add(String childName, HashCode childHash)
+        {
+            index++;
+            count++;
+            HashCode member = array ? childHash : HASH_FUNCTION.newHasher()
+                    .putByte(FIELD)
+                    .putString(childName, StandardCharsets.UTF_8)
+                    .putBytes(childHash.asBytes())
+                    .hash();
+            last = member;
+            if (unordered)
+            {
+                byte[] bytes = member.asBytes();
+                long sum = sumLow + Longs.fromByteArray(bytes);
+                sumHigh += Longs.fromBytes(bytes[8], bytes[9], bytes[10], bytes[11], bytes[12], bytes[13], bytes[14],
+                        bytes[15]) + (Long.compareUnsigned(sum, sumLow) < 0 ? 1 : 0);
+                sumLow = sum;
+            }
+            else
+            {
+                ordered.putBytes(member.asBytes());
+            }
+        }
+
+        private HashCode hash()
+        {
+            Hasher hasher = HASH_FUNCTION.newHasher()
+                    .putByte(array ? ARRAY : OBJECT)
+                    .putInt(count);
+            if (unordered)
+            {
+                hasher.putLong(sumHigh).putLong(sumLow);
+            }
+            else
+            {
+                hasher.putBytes(ordered.hash().asBytes());
+            }
+            return hasher.hash();
+        }
+    }
+
+    /**
+     * Builder of {@link Fingerprinter}
+     */
+    public static final class Builder
+    {
+        private boolean unorderedFields;
+        private List<String> ignoredPaths = List.of();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param unorderedFields if true, order of object fields doesn't affect fingerprints
+         * @return this builder
+         */
+        public Builder unorderedFields(boolean unorderedFields)
+        {
+            this.unorderedFields = unorderedFields;
+            return this;
+        }
+
+        /**
+         * @param ignoredPaths RegEx patterns of JSON Pointers (e.g. {@code /items/\d+/timestamp}) of nodes
+         *      excluded from fingerprints
+         * @return this builder
+         */
+        public Builder ignoredPaths(Collection<String> ignoredPaths)
+        {
+            this.ignoredPaths = List.copyOf(ignoredPaths);
+            return this;
+        }
+
+        /**
+         * @return built fingerprinter
+         */
+        public Fingerprinter build()
+        {
+            return new Fingerprinter(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Converts tokens of a non-blocking parser to {@code TreeNode} tree as they become available. Containers are kept
+ * open on a stack and added to their parents when their last tokens are read, so hashes of subtrees are computed
+ * while the rest of the document is still arriving. The result is the same as of
+ * {@link TreeNodeConverter#fromParser(JsonParser)}.
+ */
+final class IncrementalTreeBuilder
+{
+    private final JsonParser parser;
+    @Nullable
+    private final InputGuard guard;
+    private final Deque<TreeNode<?>> openNodes = new ArrayDeque<>();
+    private String name = "";
+    @Nullable
+    private TreeNode<?> root;
+
+    IncrementalTreeBuilder(JsonParser parser, @Nullable InputGuard guard)
+    {
+        this.parser = parser;
+        this.guard = guard;
+    }
+
+    /**
+     * Converts tokens the parser can read from the input fed so far
+     *
+     * @return true if the root value is complete; the rest of the input is not read
+     * @throws IOException if the document can't be parsed or exceeds limits
+     */
+    boolean readAvailable() throws IOException
+    {
+        JsonToken token;
+        while (root == null && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+        {
+            addToken(token);
+        }
+        return root != null;
+    }
+
+    /**
+     * @return converted tree or null if the root value is not complete
+     */
+    @Nullable
+    TreeNode<?> getRoot()
+    {
+        return root;
+    }
+
+    private void addToken(JsonToken token) throws IOException
+    {
+        switch (token)
+        {
+            case FIELD_NAME ->
+            {
+                name = parser.currentName();
+                if (guard != null)
+                {
+                    guard.checkName(name);
+                }
+            }
+            case START_OBJECT -> openNodes.push(newNode(NodeType.OBJECT, null));
+            case START_ARRAY -> openNodes.push(newNode(NodeType.ARRAY, null));
+            case END_OBJECT, END_ARRAY -> complete(openNodes.pop());
+            case VALUE_STRING ->
+            {
+                if (guard != null)
+                {
+                    guard.checkTextLength(parser.getTextLength());
+                }
+                complete(newNode(NodeType.TEXT, parser.getText()));
+            }
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> complete(newNode(NodeType.NUMBER, parser.getDoubleValue()));
+            case VALUE_TRUE, VALUE_FALSE -> complete(newNode(NodeType.BOOLEAN, token == JsonToken.VALUE_TRUE));
+            case VALUE_NULL -> throw new IllegalArgumentException("Can't convert node of type 'NULL' to value");
+            default -> throw new IllegalArgumentException("Unexpected token '" + token + "'");
+        }
+    }
+
+    // Children are added to parents when complete, so the next child index is the number of added children
+    private TreeNode<?> newNode(NodeType nodeType, @Nullable Object value) throws IOException
+    {
+        TreeNode<?> parent = openNodes.peek();
+        int index = parent != null ? parent.numChildren() : 0;
+        if (guard != null)
+        {
+            if (parent != null && parent.getNodeType() == NodeType.ARRAY)
+            {
+                guard.checkArrayLength(index + 1);
+            }
+            guard.countNode();
+        }
+        TreeNode<?> node = new TreeNode<>(name, nodeType, parent, value, index);
+        name = "";
+        return node;
+    }
+
+    private void complete(TreeNode<?> node)
+    {
+        TreeNode<?> parent = openNodes.peek();
+        if (parent != null)
+        {
+            parent.addChild(node);
+        }
+        else
+        {
+            root = node;
+        }
+    }
+}
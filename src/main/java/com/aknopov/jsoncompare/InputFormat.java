@@ -0,0 +1,49 @@
+package com.aknopov.jsoncompare;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * Encodings of input documents. Binary documents are read by Jackson parsers of the corresponding data format
+ * into the same trees as textual JSON, so documents in different encodings can be compared with each other.
+ */
+public enum InputFormat
+{
+    /**
+     * Textual JSON
+     */
+    JSON(new JsonFactory()),
+    /**
+     * Jackson binary JSON format
+     */
+    SMILE(new SmileFactory()),
+    /**
+     * Concise Binary Object Representation (RFC 8949)
+     */
+    CBOR(new CBORFactory()),
+    /**
+     * MessagePack binary format
+     */
+    MESSAGE_PACK(new MessagePackFactory());
+
+    private final ObjectMapper mapper;
+
+    InputFormat(JsonFactory factory)
+    {
+        this.mapper = new ObjectMapper(factory.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION));
+    }
+
+    /**
+     * Mapper reading documents of the format; rejects duplicate fields
+     *
+     * @return object mapper
+     */
+    ObjectMapper mapper()
+    {
+        return mapper;
+    }
+}
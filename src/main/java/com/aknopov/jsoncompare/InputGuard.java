@@ -0,0 +1,125 @@
+package com.aknopov.jsoncompare;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+
+/**
+ * Counters of a document checked against {@link InputLimits} that Jackson doesn't enforce. Violations are
+ * reported with the same exception as violations of Jackson constraints.
+ */
+final class InputGuard
+{
+    private final InputLimits limits;
+    private long nodes;
+
+    private InputGuard(InputLimits limits)
+    {
+        this.limits = limits;
+    }
+
+    /**
+     * Creates guard of a document
+     *
+     * @param limits input limits
+     * @return guard or null if there are no limits
+     */
+    @Nullable
+    static InputGuard of(InputLimits limits)
+    {
+        return limits.isUnlimited() ? null : new InputGuard(limits);
+    }
+
+    /**
+     * Checks size of the document before it's parsed
+     *
+     * @param length document size in bytes
+     * @throws StreamConstraintsException if the document is too large
+     */
+    void checkInputBytes(long length) throws StreamConstraintsException
+    {
+        if (length > limits.getMaxInputBytes())
+        {
+            throw new StreamConstraintsException(String.format("Document length (%d) exceeds the maximum allowed (%d)",
+                    length, limits.getMaxInputBytes()));
+        }
+    }
+
+    /**
+     * Counts a node
+     *
+     * @throws StreamConstraintsException if the document has too many nodes
+     */
+    void countNode() throws StreamConstraintsException
+    {
+        if (++nodes > limits.getMaxNodes())
+        {
+            throw new StreamConstraintsException(String.format("Number of nodes exceeds the maximum allowed (%d)",
+                    limits.getMaxNodes()));
+        }
+    }
+
+    /**
+     * Checks number of elements of an array as they are added
+     *
+     * @param length number of elements including the added one
+     * @throws StreamConstraintsException if the array is too long
+     */
+    void checkArrayLength(int length) throws StreamConstraintsException
+    {
+        if (length > limits.getMaxArrayLength())
+        {
+            throw new StreamConstraintsException(String.format("Array length exceeds the maximum allowed (%d)",
+                    limits.getMaxArrayLength()));
+        }
+    }
+
+    /**
+     * Checks length of a string value that the parser skipped without decoding, so Jackson didn't check it
+     *
+     * @param text undecoded value
+     * @throws StreamConstraintsException if the value is too long
+     */
+    void checkText(Utf8Text text) throws StreamConstraintsException
+    {
+        if (text.longerThan(limits.getMaxStringLength()))
+        {
+            throw stringTooLong();
+        }
+    }
+
+    /**
+     * Checks length of a string value read into the parser buffer; Jackson checks it only when the buffer grows
+     *
+     * @param length value length in characters
+     * @throws StreamConstraintsException if the value is too long
+     */
+    void checkTextLength(int length) throws StreamConstraintsException
+    {
+        if (length > limits.getMaxStringLength())
+        {
+            throw stringTooLong();
+        }
+    }
+
+    /**
+     * Checks length of a field name; Jackson checks only names that don't fit in its buffer
+     *
+     * @param name field name
+     * @throws StreamConstraintsException if the name is too long
+     */
+    void checkName(String name) throws StreamConstraintsException
+    {
+        if (name.length() > limits.getMaxStringLength())
+        {
+            throw new StreamConstraintsException(String.format("Name length exceeds the maximum allowed (%d)",
+                    limits.getMaxStringLength()));
+        }
+    }
+
+    private StreamConstraintsException stringTooLong()
+    {
+        return new StreamConstraintsException(String.format("String value length exceeds the maximum allowed (%d)",
+                limits.getMaxStringLength()));
+    }
+}
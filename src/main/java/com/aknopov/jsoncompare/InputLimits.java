@@ -0,0 +1,263 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+
+/**
+ * Limits of input documents guarding against pathological payloads. Depth, string lengths and input size are
+ * passed to Jackson {@link StreamReadConstraints}; numbers of nodes and array elements, as well as lengths of
+ * strings Jackson doesn't check, are checked while trees or indices are built. Documents exceeding limits are
+ * rejected as soon as a limit is hit and reported with a {@link DifferenceType#LIMIT} difference. Instances are
+ * immutable and can be shared.
+ */
+public final class InputLimits
+{
+    /**
+     * No limits besides default constraints of Jackson
+     */
+    public static final InputLimits NONE = builder().build();
+
+    private final int maxDepth;
+    private final long maxNodes;
+    private final int maxStringLength;
+    private final int maxArrayLength;
+    private final long maxInputBytes;
+    private final boolean unlimited;
+    // Factories with constraints by format, created on first use
+    private final Map<InputFormat, JsonFactory> factories = new ConcurrentHashMap<>();
+
+    private InputLimits(Builder builder)
+    {
+        this.maxDepth = builder.maxDepth;
+        this.maxNodes = builder.maxNodes;
+        this.maxStringLength = builder.maxStringLength;
+        this.maxArrayLength = builder.maxArrayLength;
+        this.maxInputBytes = builder.maxInputBytes;
+        this.unlimited = maxDepth == Integer.MAX_VALUE && maxNodes == Long.MAX_VALUE
+                && maxStringLength == Integer.MAX_VALUE && maxArrayLength == Integer.MAX_VALUE
+                && maxInputBytes == Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates builder of limits
+     *
+     * @return new builder
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return maximum nesting depth of containers
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * @return maximum number of nodes in a document
+     */
+    public long getMaxNodes()
+    {
+        return maxNodes;
+    }
+
+    /**
+     * @return maximum length of string values and field names in characters
+     */
+    public int getMaxStringLength()
+    {
+        return maxStringLength;
+    }
+
+    /**
+     * @return maximum number of elements of an array
+     */
+    public int getMaxArrayLength()
+    {
+        return maxArrayLength;
+    }
+
+    /**
+     * @return maximum size of a document in bytes
+     */
+    public long getMaxInputBytes()
+    {
+        return maxInputBytes;
+    }
+
+    /**
+     * @return true if no limits are set
+     */
+    public boolean isUnlimited()
+    {
+        return unlimited;
+    }
+
+    /**
+     * Creates parser of a document enforcing depth, string length and size limits
+     *
+     * @param format document encoding
+     * @param document document bytes
+     * @return parser
+     * @throws IOException if the parser can't be created
+     */
+    JsonParser createParser(InputFormat format, byte[] document) throws IOException
+    {
+        return unlimited ? format.mapper().createParser(document) : factory(format).createParser(document);
+    }
+
+    /**
+     * Creates parser of a JSON string enforcing depth and string length limits
+     *
+     * @param document JSON text
+     * @return parser
+     * @throws IOException if the parser can't be created
+     */
+    JsonParser createParser(String document) throws IOException
+    {
+        return unlimited
+                ? InputFormat.JSON.mapper().createParser(document)
+                : factory(InputFormat.JSON).createParser(document);
+    }
+
+    /**
+     * Creates parser of JSON text fed in chunks enforcing depth and string length limits
+     *
+     * @return parser with {@link com.fasterxml.jackson.core.async.ByteBufferFeeder}
+     * @throws IOException if the parser can't be created
+     */
+    JsonParser createNonBlockingParser() throws IOException
+    {
+        return unlimited
+                ? InputFormat.JSON.mapper().getFactory().createNonBlockingByteBufferParser()
+                : factory(InputFormat.JSON).createNonBlockingByteBufferParser();
+    }
+
+    private JsonFactory factory(InputFormat format)
+    {
+        return factories.computeIfAbsent(format, f -> f.mapper().getFactory().copy()
+                .setStreamReadConstraints(constraints()));
+    }
+
+    // Jackson defaults apply to limits that are not set
+    private StreamReadConstraints constraints()
+    {
+        StreamReadConstraints.Builder builder = StreamReadConstraints.defaults().rebuild();
+        if (maxDepth != Integer.MAX_VALUE)
+        {
+            builder.maxNestingDepth(maxDepth);
+        }
+        if (maxStringLength != Integer.MAX_VALUE)
+        {
+            builder.maxStringLength(maxStringLength)
+                    .maxNameLength(maxStringLength);
+        }
+        if (maxInputBytes != Long.MAX_VALUE)
+        {
+            builder.maxDocumentLength(maxInputBytes);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builder of {@link InputLimits}
+     */
+    public static final class Builder
+    {
+        private int maxDepth = Integer.MAX_VALUE;
+        private long maxNodes = Long.MAX_VALUE;
+        private int maxStringLength = Integer.MAX_VALUE;
+        private int maxArrayLength = Integer.MAX_VALUE;
+        private long maxInputBytes = Long.MAX_VALUE;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param maxDepth maximum nesting depth of containers
+         * @return this builder
+         */
+        public Builder maxDepth(int maxDepth)
+        {
+            if (maxDepth < 1)
+            {
+                throw new IllegalArgumentException("Maximum depth should be positive: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * @param maxNodes maximum number of nodes in a document
+         * @return this builder
+         */
+        public Builder maxNodes(long maxNodes)
+        {
+            if (maxNodes < 1)
+            {
+                throw new IllegalArgumentException("Maximum number of nodes should be positive: " + maxNodes);
+            }
+            this.maxNodes = maxNodes;
+            return this;
+        }
+
+        /**
+         * @param maxStringLength maximum length of string values and field names in characters
+         * @return this builder
+         */
+        public Builder maxStringLength(int maxStringLength)
+        {
+            if (maxStringLength < 1)
+            {
+                throw new IllegalArgumentException("Maximum string length should be positive: " + maxStringLength);
+            }
+            this.maxStringLength = maxStringLength;
+            return this;
+        }
+
+        /**
+         * @param maxArrayLength maximum number of elements of an array
+         * @return this builder
+         */
+        public Builder maxArrayLength(int maxArrayLength)
+        {
+            if (maxArrayLength < 1)
+            {
+                throw new IllegalArgumentException("Maximum array length should be positive: " + maxArrayLength);
+            }
+            this.maxArrayLength = maxArrayLength;
+            return this;
+        }
+
+        /**
+         * @param maxInputBytes maximum size of a document in bytes; larger documents are rejected before parsing
+         * @return this builder
+         */
+        public Builder maxInputBytes(long maxInputBytes)
+        {
+            if (maxInputBytes < 1)
+            {
+                throw new IllegalArgumentException("Maximum input size should be positive: " + maxInputBytes);
+            }
+            this.maxInputBytes = maxInputBytes;
+            return this;
+        }
+
+        /**
+         * @return built limits
+         */
+        public InputLimits build()
+        {
+            return new InputLimits(this);
+        }
+    }
+}
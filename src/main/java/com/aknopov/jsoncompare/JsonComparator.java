@@ -1,23 +1,33 @@
 package com.aknopov.jsoncompare;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 import javax.annotation.Nullable;
 
 import com.aknopov.jsoncompare.TreeNode.NodeType;
 import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffResult;
 import com.aknopov.jsoncompare.diff.DiffType;
-import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.google.common.base.Utf8;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import lombok.extern.slf4j.Slf4j;
@@ -28,17 +38,82 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public final class JsonComparator
 {
-    private final static ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
-            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
-            .build();
+    final static ObjectMapper OBJECT_MAPPER = InputFormat.JSON.mapper();
+
+    // Opens parser of a sample
+    @FunctionalInterface
+    private interface SampleReader
+    {
+        JsonParser open() throws IOException;
+
+        // UTF-8 JSON text read by the parser, if string values can refer to it
+        @Nullable
+        default byte[] utf8Json()
+        {
+            return null;
+        }
+    }
+
+    // Converted sample or the reason of failure
+    record PreparedSample(@Nullable TreeNode<?> root, @Nullable String error, boolean limitExceeded)
+    {
+        static PreparedSample of(@Nullable TreeNode<?> root, String qualifier)
+        {
+            if (root == null)
+            {
+                log.error("Empty input for the {} sample", qualifier);
+                return new PreparedSample(null, "Empty input for the " + qualifier + " sample", false);
+            }
+            return new PreparedSample(root, null, false);
+        }
+
+        static PreparedSample failed(String qualifier, JsonProcessingException e)
+        {
+            if (e instanceof StreamConstraintsException constraints)
+            {
+                log.error("The {} sample exceeds input limits: {}", qualifier, e.getMessage());
+                return new PreparedSample(null, limitMessage(qualifier, constraints), true);
+            }
+            log.error("Failed to parse the {} sample: {}", qualifier, e.getMessage());
+            return new PreparedSample(null, "Failed to parse the " + qualifier + " sample: " + e.getOriginalMessage(),
+                    false);
+        }
+    }
 
     private final boolean stopOnFirst;
     private final DiffRecorder diffRecorder;
+    private final ComparisonBudget budget;
+    private final ChildrenAligner aligner;
+    @Nullable
+    private final MetricsCollector metrics;
+    @Nullable
+    private final MoveDetector moveDetector;
+    @Nullable
+    private final SubtreeDiffCache cache;
+    @Nullable
+    private Consumer<String> removalListener;
+    private String rootPath = "";
 
-    private JsonComparator(boolean stopOnFirst, Collection<String> knownDiscrepancies)
+    JsonComparator(ComparisonOptions options, DiffRecorder diffRecorder)
     {
-        this.stopOnFirst = stopOnFirst;
-        this.diffRecorder = new DiffRecorder(knownDiscrepancies);
+        this(options, diffRecorder, null);
+    }
+
+    JsonComparator(ComparisonOptions options, DiffRecorder diffRecorder, @Nullable MetricsCollector metrics)
+    {
+        this(options, diffRecorder, metrics, null);
+    }
+
+    JsonComparator(ComparisonOptions options, DiffRecorder diffRecorder, @Nullable MetricsCollector metrics,
+            @Nullable SubtreeDiffCache cache)
+    {
+        this.stopOnFirst = options.isStopOnFirst();
+        this.diffRecorder = diffRecorder;
+        this.budget = new ComparisonBudget(options);
+        this.aligner = new ChildrenAligner(options, budget);
+        this.metrics = metrics;
+        this.moveDetector = options.isDetectMoves() ? new MoveDetector() : null;
+        this.cache = cache;
     }
 
     /**
@@ -68,30 +143,437 @@ public final class JsonComparator
     public static List<String> compareJsonStrings(String sample1, String sample2, boolean stopOnFirst,
             Collection<String> knownDiscrepancies)
     {
-        JsonComparator comparator = new JsonComparator(stopOnFirst, knownDiscrepancies);
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(stopOnFirst)
+                .knownDiscrepancies(knownDiscrepancies)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        compareJsonStrings(sample1, sample2, options, sink);
+
+        return sink.getMessages();
+    }
+
+    /**
+     * Compares two JSON strings delivering differences to the sink as soon as they are found.
+     * Comparison stops early when limits set in options are reached.
+     * If options have a {@link ComparisonListener}, it receives metrics of the comparison at the end.
+     *
+     * @param sample1 first string
+     * @param sample2 second string
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     */
+    public static ComparisonResult compareJsonStrings(String sample1, String sample2, ComparisonOptions options,
+            DiffSink sink)
+    {
+        if (options.isHashFirst())
+        {
+            return BaselineComparator.compareHashFirst(sample1.getBytes(StandardCharsets.UTF_8),
+                    sample2.getBytes(StandardCharsets.UTF_8), options, sink);
+        }
+        InputLimits limits = options.getInputLimits();
+        return compare(() -> limits.createParser(sample1), () -> limits.createParser(sample2),
+                () -> Utf8.encodedLength(sample1), () -> Utf8.encodedLength(sample2), options, sink);
+    }
+
+    /**
+     * Compares two documents encoded in JSON or binary formats. Documents may have different encodings, e.g.
+     * CBOR document can be compared with textual JSON. Binary documents are parsed directly into trees
+     * without transcoding to text.
+     *
+     * @param sample1 first document
+     * @param format1 encoding of the first document
+     * @param sample2 second document
+     * @param format2 encoding of the second document
+     * @param stopOnFirst if true, stops on the first discrepancy
+     *
+     * @return list of discrepancies
+     */
+    public static List<String> compareDocuments(byte[] sample1, InputFormat format1, byte[] sample2,
+            InputFormat format2, boolean stopOnFirst)
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(stopOnFirst)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        compareDocuments(sample1, format1, sample2, format2, options, sink);
+
+        return sink.getMessages();
+    }
+
+    /**
+     * Compares two documents encoded in JSON or binary formats delivering differences to the sink as soon as
+     * they are found.
+     *
+     * @param sample1 first document
+     * @param format1 encoding of the first document
+     * @param sample2 second document
+     * @param format2 encoding of the second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     */
+    public static ComparisonResult compareDocuments(byte[] sample1, InputFormat format1, byte[] sample2,
+            InputFormat format2, ComparisonOptions options, DiffSink sink)
+    {
+        if (options.isHashFirst() && format1 == InputFormat.JSON && format2 == InputFormat.JSON)
+        {
+            return BaselineComparator.compareHashFirst(sample1, sample2, options, sink);
+        }
+        InputLimits limits = options.getInputLimits();
+        return compare(reader(sample1, format1, limits), reader(sample2, format2, limits), () -> sample1.length,
+                () -> sample2.length, options, sink);
+    }
+
+    private static SampleReader reader(byte[] sample, InputFormat format, InputLimits limits)
+    {
+        if (format != InputFormat.JSON)
+        {
+            return () -> limits.createParser(format, sample);
+        }
+        return new SampleReader()
+        {
+            @Override
+            public JsonParser open() throws IOException
+            {
+                return limits.createParser(InputFormat.JSON, sample);
+            }
+
+            @Override
+            public byte[] utf8Json()
+            {
+                return sample;
+            }
+        };
+    }
+
+    private static ComparisonResult compare(SampleReader reader1, SampleReader reader2, IntSupplier length1,
+            IntSupplier length2, ComparisonOptions options, DiffSink sink)
+    {
+        return compare(length1, length2, options, sink, comparator ->
+        {
+            // Limits are enforced while converting parsed tokens, so limited samples are not parsed into Jackson trees
+            if (options.isParallelParsing())
+            {
+                comparator.prepareInParallel(reader1, reader2, length1, length2, options.getInputLimits());
+            }
+            else if (!options.getInputLimits().isUnlimited()
+                    || reader1.utf8Json() != null && reader2.utf8Json() != null)
+            {
+                comparator.prepareDirectly(reader1, reader2, length1, length2, options.getInputLimits());
+            }
+            else
+            {
+                comparator.prepareSequentially(reader1, reader2, length1, length2);
+            }
+        });
+    }
+
+    /**
+     * Compares samples converted to trees by the caller, e.g. incrementally while their bytes arrive.
+     *
+     * @param prepared1 first sample
+     * @param prepared2 second sample
+     * @param parseNanos time spent on parsing of both samples
+     * @param length1 size of the first sample in bytes
+     * @param length2 size of the second sample in bytes
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     */
+    static ComparisonResult comparePrepared(PreparedSample prepared1, PreparedSample prepared2, long parseNanos,
+            long length1, long length2, ComparisonOptions options, DiffSink sink)
+    {
+        IntSupplier size1 = () -> (int)Math.min(length1, Integer.MAX_VALUE);
+        IntSupplier size2 = () -> (int)Math.min(length2, Integer.MAX_VALUE);
+        return compare(size1, size2, options, sink,
+                comparator -> comparator.comparePrepared(prepared1, prepared2, parseNanos, size1, size2));
+    }
 
-        JsonNode root1 = comparator.parseSample(sample1, "first");
+    // Samples are prepared and compared by the comparator passed to the preparation
+    private static ComparisonResult compare(IntSupplier length1, IntSupplier length2, ComparisonOptions options,
+            DiffSink sink, Consumer<JsonComparator> preparation)
+    {
+        ComparisonListener listener = options.getListener();
+        MetricsCollector metrics = listener != null ? new MetricsCollector() : null;
+        DiffRecorder diffRecorder = new DiffRecorder(options, sink);
+        JsonComparator comparator = new JsonComparator(options, diffRecorder, metrics);
+        ComparisonEvent event = new ComparisonEvent();
+        event.begin();
+
+        preparation.accept(comparator);
+
+        ComparisonResult result = diffRecorder.toResult();
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.length1 = length1.getAsInt();
+            event.length2 = length2.getAsInt();
+            event.differenceCount = result.differenceCount();
+            event.truncated = result.truncated();
+            event.commit();
+        }
+        if (listener != null && metrics != null)
+        {
+            listener.comparisonCompleted(metrics.snapshot(diffRecorder));
+        }
+        return result;
+    }
+
+    /**
+     * Compares two documents in off-heap columnar encoding. Results are the same as of comparison of JSON strings.
+     * Equal subtrees are skipped by hashes, so Java objects are created only for differing nodes - their children
+     * lists, alignment differences and messages.
+     *
+     * @param tree1 first document
+     * @param tree2 second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     *
+     * @return comparison summary
+     */
+    public static ComparisonResult compareColumnar(ColumnarTree tree1, ColumnarTree tree2, ComparisonOptions options,
+            DiffSink sink)
+    {
+        DiffRecorder diffRecorder = new DiffRecorder(options, sink);
+        if (tree1.size() == 0)
+        {
+            diffRecorder.addMessage("Empty input for the first sample");
+        }
+        if (tree2.size() == 0 && (tree1.size() != 0 || !options.isStopOnFirst()))
+        {
+            diffRecorder.addMessage("Empty input for the second sample");
+        }
+        if (tree1.size() != 0 && tree2.size() != 0)
+        {
+            new ColumnarComparator(tree1, tree2, options, diffRecorder).nodesEqual(0, 0);
+        }
+        return diffRecorder.toResult();
+    }
+
+    /**
+     * Sets receiver of paths of children of the first tree that were removed - reported as unmatched
+     *
+     * @param listener receiver of paths
+     */
+    void onRemoval(Consumer<String> listener)
+    {
+        removalListener = listener;
+    }
+
+    /**
+     * Compares two already converted trees that are parts of larger documents.
+     *
+     * @param root1 root of the first tree
+     * @param root2 root of the second tree
+     * @param path location of the roots in the enclosing documents (prefix of reported paths)
+     *
+     * @return true if trees are equal
+     */
+    boolean compareTrees(TreeNode<?> root1, TreeNode<?> root2, String path)
+    {
+        rootPath = path;
+        boolean equal = nodesEqual(root1, root2);
+        reportMoves();
+        return equal;
+    }
+
+    private void prepareSequentially(SampleReader reader1, SampleReader reader2, IntSupplier length1,
+            IntSupplier length2)
+    {
+        long start = System.nanoTime();
+        JsonNode root1 = parseSample(reader1, "first");
         if (root1 != null || !stopOnFirst)
         {
-            JsonNode root2 = comparator.parseSample(sample2, "second");
+            JsonNode root2 = parseSample(reader2, "second");
+            if (metrics != null)
+            {
+                metrics.parsed(System.nanoTime() - start, length1.getAsInt(), length2.getAsInt());
+            }
             if (root1 != null && root2 != null)
             {
+                start = System.nanoTime();
                 TreeNode<?> treeRoot1 = TreeNodeConverter.fromJacksonRoot(root1);
                 TreeNode<?> treeRoot2 = TreeNodeConverter.fromJacksonRoot(root2);
-                comparator.nodesEqual(treeRoot1, treeRoot2);
+                if (metrics != null)
+                {
+                    metrics.converted(System.nanoTime() - start, treeRoot1, treeRoot2);
+                }
+                compareRoots(treeRoot1, treeRoot2);
             }
         }
+    }
 
+    // Samples are parsed straight into trees concurrently; failures are reported in the same order as sequentially
+    private void prepareInParallel(SampleReader reader1, SampleReader reader2, IntSupplier length1,
+            IntSupplier length2, InputLimits limits)
+    {
+        long start = System.nanoTime();
+        CompletableFuture<PreparedSample> future1 = CompletableFuture.supplyAsync(
+                () -> prepareSample(reader1, "first", length1, limits));
+        PreparedSample prepared2 = prepareSample(reader2, "second", length2, limits);
+        PreparedSample prepared1;
+        try
+        {
+            prepared1 = future1.join();
+        }
+        catch (CompletionException e)
+        {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        comparePrepared(prepared1, prepared2, System.nanoTime() - start, length1, length2);
+    }
+
+    // Samples are parsed straight into trees; UTF-8 JSON samples keep string values undecoded
+    private void prepareDirectly(SampleReader reader1, SampleReader reader2, IntSupplier length1,
+            IntSupplier length2, InputLimits limits)
+    {
+        long start = System.nanoTime();
+        PreparedSample prepared1 = prepareSample(reader1, "first", length1, limits);
+        PreparedSample prepared2 = prepared1.root() != null || !stopOnFirst
+                ? prepareSample(reader2, "second", length2, limits)
+                : new PreparedSample(null, null, false);
+        comparePrepared(prepared1, prepared2, System.nanoTime() - start, length1, length2);
+    }
+
+    private void comparePrepared(PreparedSample prepared1, PreparedSample prepared2, long parseNanos,
+            IntSupplier length1, IntSupplier length2)
+    {
+        if (metrics != null)
+        {
+            metrics.parsed(parseNanos, length1.getAsInt(), length2.getAsInt());
+        }
+
+        TreeNode<?> treeRoot1 = prepared1.root();
+        TreeNode<?> treeRoot2 = prepared2.root();
+        String error1 = prepared1.error();
+        String error2 = prepared2.error();
+        if (error1 != null)
+        {
+            addError(error1, prepared1.limitExceeded());
+        }
+        if (error2 != null && (treeRoot1 != null || !stopOnFirst))
+        {
+            addError(error2, prepared2.limitExceeded());
+        }
+        if (treeRoot1 != null && treeRoot2 != null)
+        {
+            if (metrics != null)
+            {
+                // Samples were converted while parsing
+                metrics.converted(0, treeRoot1, treeRoot2);
+            }
+            compareRoots(treeRoot1, treeRoot2);
+        }
+    }
 
-        return comparator.diffRecorder.getMessages();
+    private void addError(String error, boolean limitExceeded)
+    {
+        if (limitExceeded)
+        {
+            diffRecorder.addLimitExceeded(error);
+        }
+        else
+        {
+            diffRecorder.addMessage(error);
+        }
+    }
+
+    private static PreparedSample prepareSample(SampleReader reader, String qualifier, IntSupplier length,
+            InputLimits limits)
+    {
+        ComparisonPhaseEvent event = new ComparisonPhaseEvent();
+        event.begin();
+        InputGuard guard = InputGuard.of(limits);
+        try (JsonParser parser = open(reader, length, guard))
+        {
+            TreeNode<?> root = TreeNodeConverter.fromParser(parser, reader.utf8Json(), guard);
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.phase = ComparisonPhaseEvent.PARSE;
+                event.path = "/";
+                event.childCount = root != null ? root.numChildren() : 0;
+                event.commit();
+            }
+            return PreparedSample.of(root, qualifier);
+        }
+        catch (JsonProcessingException e)
+        {
+            return PreparedSample.failed(qualifier, e);
+        }
+        catch (IOException e)
+        {
+            // Samples are in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Samples larger than the limit are rejected before parsing
+    private static JsonParser open(SampleReader reader, IntSupplier length, @Nullable InputGuard guard)
+            throws IOException
+    {
+        if (guard != null)
+        {
+            guard.checkInputBytes(length.getAsInt());
+        }
+        return reader.open();
+    }
+
+    /**
+     * Creates message about a sample exceeding input limits
+     *
+     * @param qualifier "first" or "second"
+     * @param e violation of limits
+     * @return message
+     */
+    static String limitMessage(String qualifier, StreamConstraintsException e)
+    {
+        return "Input limit exceeded in the " + qualifier + " sample: " + e.getOriginalMessage();
+    }
+
+    private void compareRoots(TreeNode<?> treeRoot1, TreeNode<?> treeRoot2)
+    {
+        long start = System.nanoTime();
+        ComparisonPhaseEvent phaseEvent = new ComparisonPhaseEvent();
+        phaseEvent.begin();
+        nodesEqual(treeRoot1, treeRoot2);
+        reportMoves();
+        phaseEvent.end();
+        if (metrics != null)
+        {
+            metrics.compared(System.nanoTime() - start);
+        }
+        if (phaseEvent.shouldCommit())
+        {
+            phaseEvent.phase = ComparisonPhaseEvent.COMPARE;
+            phaseEvent.path = "/";
+            phaseEvent.childCount = treeRoot1.getChildren().size();
+            phaseEvent.commit();
+        }
     }
 
     @Nullable
-    private JsonNode parseSample(String sample, String qualifier)
+    private JsonNode parseSample(SampleReader reader, String qualifier)
     {
-        try
+        ComparisonPhaseEvent event = new ComparisonPhaseEvent();
+        event.begin();
+        try (JsonParser parser = reader.open())
         {
-            JsonNode ret = OBJECT_MAPPER.readTree(sample);
+            JsonNode tree = OBJECT_MAPPER.readTree(parser);
+            JsonNode ret = tree != null ? tree : MissingNode.getInstance();
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.phase = ComparisonPhaseEvent.PARSE;
+                event.path = "/";
+                event.childCount = ret.size();
+                event.commit();
+            }
             if (ret.isMissingNode())
             {
                 log.error("Empty input for the {} sample", qualifier);
@@ -101,12 +583,23 @@ public final class JsonComparator
             }
             return ret;
         }
+        catch (StreamConstraintsException e)
+        {
+            log.error("The {} sample exceeds input limits: {}", qualifier, e.getMessage());
+            diffRecorder.addLimitExceeded(limitMessage(qualifier, e));
+            return null;
+        }
         catch (JsonProcessingException e)
         {
             log.error("Failed to parse the {} sample: {}", qualifier, e.getMessage());
             diffRecorder.addMessage("Failed to parse the " + qualifier + " sample: " + e.getOriginalMessage());
             return null;
         }
+        catch (IOException e)
+        {
+            // Samples are in memory
+            throw new UncheckedIOException(e);
+        }
     }
 
     private boolean nodesEqual(TreeNode<?> node1, TreeNode<?> node2)
@@ -115,16 +608,33 @@ public final class JsonComparator
         {
             return true;
         }
+        if (cache != null)
+        {
+            return cache.compare(node1, node2, () -> compareNodes(node1, node2), diffRecorder);
+        }
+        return compareNodes(node1, node2);
+    }
 
-        if (typesAreDifferent(node1, node2) && stopOnFirst)
+    // Compares nodes with different hashes
+    private boolean compareNodes(TreeNode<?> node1, TreeNode<?> node2)
+    {
+        if (!budget.visitNode())
         {
+            diffRecorder.markApproximate();
+            diffRecorder.addDifference(DifferenceType.APPROXIMATE, path(node1),
+                    "Nodes differ, not compared in details: comparison budget is exceeded");
             return false;
         }
-        if (namesAreDifferent(node1, node2) && stopOnFirst)
+
+        if (mustStop(typesAreDifferent(node1, node2)))
         {
             return false;
         }
-        if (valuesAreDifferent(node1, node2) && stopOnFirst)
+        if (mustStop(namesAreDifferent(node1, node2)))
+        {
+            return false;
+        }
+        if (mustStop(valuesAreDifferent(node1, node2)))
         {
             return false;
         }
@@ -132,13 +642,20 @@ public final class JsonComparator
         return false;
     }
 
+    // Stops on the first difference if requested or when limits on reported differences are reached
+    private boolean mustStop(boolean differs)
+    {
+        return differs && stopOnFirst || diffRecorder.isLimitReached();
+    }
+
     private boolean typesAreDifferent(TreeNode<?> node1, TreeNode<?> node2)
     {
         NodeType type1 = node1.getNodeType();
         NodeType type2 = node2.getNodeType();
         if (type1 != type2)
         {
-            diffRecorder.addMessage("Node types are different: '%s' vs '%s', path='%s'", type1, type2, node1.path());
+            diffRecorder.addDifference(DifferenceType.TYPE, path(node1), "Node types are different: '%s' vs '%s'",
+                    type1, type2);
             return true;
         }
         return false;
@@ -150,7 +667,8 @@ public final class JsonComparator
         String name2 = node2.getName();
         if (!Objects.equals(name1, name2))
         {
-            diffRecorder.addMessage("Node names are different: '%s' vs '%s', path='%s'", name1, name2, node1.path());
+            diffRecorder.addDifference(DifferenceType.NAME, path(node1), "Node names are different: '%s' vs '%s'",
+                    name1, name2);
             return true;
         }
         return false;
@@ -161,14 +679,26 @@ public final class JsonComparator
     {
         Object value1 = node1.getValue();
         Object value2 = node2.getValue();
-        if (!Objects.equals(value1, value2))
+        if (!Utf8Text.valuesEqual(value1, value2))
         {
-            diffRecorder.addMessage("Nodes values differ: '%s' vs '%s', path='%s'", value1, value2, node1.path());
+            diffRecorder.addDifference(DifferenceType.VALUE, path(node1), "Nodes values differ: '%s' vs '%s'",
+                    value1, value2);
             return true;
         }
         return false;
     }
 
+    // Node path prefixed with location of compared roots
+    private String path(TreeNode<?> node)
+    {
+        String path = node.path();
+        if (rootPath.isEmpty())
+        {
+            return path;
+        }
+        return node.getParent() == null ? rootPath : rootPath + path;
+    }
+
     private void checkChildrenDifferences(TreeNode<?> node1, TreeNode<?> node2)
     {
         List<TreeNode<?>> children1 = node1.getChildren();
@@ -179,27 +709,107 @@ public final class JsonComparator
         }
         if (Objects.equals(sortChildren(children1), sortChildren(children2)))
         {
-            diffRecorder.addMessage("Children order differ for %d nodes, path='%s'", children1.size(), node1.path());
+            diffRecorder.addDifference(DifferenceType.ORDER, path(node1), "Children order differ for %d nodes",
+                    children1.size());
             // TODO Implement comparison and output of sorted children
             return;
         }
 
-        List<Diff<TreeNode<?>>> diffs = MeyerAlgorithm.compareSequences(children1, children2);
+        ChildrenDiffEvent event = new ChildrenDiffEvent();
+        long start = event.isEnabled() ? System.nanoTime() : 0;
+        event.begin();
+        ChildrenAligner.Alignment<TreeNode<?>> alignment = aligner.align(node1, node2);
+        event.end();
+        List<Diff<TreeNode<?>>> diffs = alignment.diffs();
+        if (alignment.approximate())
+        {
+            diffRecorder.markApproximate();
+        }
+        DiffResult<TreeNode<?>> myersResult = alignment.myersResult();
+        int snakes = myersResult != null ? myersResult.snakes() : 0;
+        if (event.isEnabled() && ChildrenDiffEvent.exceedsThresholds(System.nanoTime() - start, snakes))
+        {
+            event.path = path(node1);
+            event.strategy = alignment.strategy();
+            event.childCount1 = children1.size();
+            event.childCount2 = children2.size();
+            event.editDistance = diffs.size();
+            event.snakes = snakes;
+            event.complete = myersResult == null || myersResult.complete();
+            event.commit();
+        }
 
         BiMap<Diff<TreeNode<?>>, Diff<TreeNode<?>>> matchingMap = createModifiedNodesMap2(diffs);
         List<Diff<TreeNode<?>>> unmatchedDiffs = diffs.stream().filter(d -> !matchingMap.containsKey(d) && !matchingMap.containsValue(d))
                 .toList();
+        if (metrics != null)
+        {
+            if (myersResult != null)
+            {
+                metrics.myersRun(myersResult);
+            }
+            metrics.childrenPaired(matchingMap.size(), unmatchedDiffs.size());
+        }
         if (!unmatchedDiffs.isEmpty())
         {
-            diffRecorder.addMessage("Children differ: counts %d vs %d (diffs: %s), path='%s'",
-                    node1.getChildren().size(), node2.getChildren().size(),
-                    extractNamesOrIndices(unmatchedDiffs, node1.getNodeType()), node1.path());
+            if (moveDetector != null)
+            {
+                moveDetector.add(node1, node2, unmatchedDiffs);
+            }
+            else
+            {
+                reportUnmatchedChildren(node1, node2, unmatchedDiffs);
+            }
         }
 
         // Recursion!
         iterateMatchingNodes(matchingMap);
     }
 
+    private void reportUnmatchedChildren(TreeNode<?> node1, TreeNode<?> node2, List<Diff<TreeNode<?>>> unmatchedDiffs)
+    {
+        diffRecorder.addDifference(DifferenceType.CHILDREN, path(node1), "Children differ: counts %d vs %d (diffs: %s)",
+                node1.getChildren().size(), node2.getChildren().size(),
+                extractNamesOrIndices(unmatchedDiffs, node1.getNodeType()));
+        if (removalListener != null)
+        {
+            for (Diff<TreeNode<?>> diff : unmatchedDiffs)
+            {
+                if (diff.t() == DiffType.DELETE)
+                {
+                    removalListener.accept(path(diff.e()));
+                }
+            }
+        }
+    }
+
+    // Reports moves and children differences postponed for move detection. Near moves are compared in details,
+    // which may postpone more children.
+    private void reportMoves()
+    {
+        while (moveDetector != null && moveDetector.hasPending())
+        {
+            MoveDetector.Detection detection = moveDetector.detect();
+            for (MoveDetector.Move move : detection.moves())
+            {
+                diffRecorder.addDifference(DifferenceType.MOVE, path(move.from()), "Node moved to '%s'",
+                        path(move.to()));
+                if (mustStop(true) || !move.exact() && mustStop(!nodesEqual(move.from(), move.to())))
+                {
+                    return;
+                }
+            }
+            for (MoveDetector.Unmatched unmatched : detection.unmatched())
+            {
+                reportUnmatchedChildren(unmatched.node1(), unmatched.node2(), unmatched.unmatched());
+                if (mustStop(true))
+                {
+                    return;
+                }
+            }
+        }
+    }
+
     private List<TreeNode<?>> sortChildren(List<TreeNode<?>> children)
     {
         return children.stream()
@@ -207,12 +817,31 @@ public final class JsonComparator
                 .toList();
     }
 
-    private BiMap<Diff<TreeNode<?>>, Diff<TreeNode<?>>> createModifiedNodesMap2(List<Diff<TreeNode<?>>> diffs)
+    /**
+     * Pairs deleted and added nodes with the same names - these are compared recursively.
+     *
+     * @param diffs differences between children lists
+     * @return map of paired differences
+     */
+    static BiMap<Diff<TreeNode<?>>, Diff<TreeNode<?>>> createModifiedNodesMap2(List<Diff<TreeNode<?>>> diffs)
     {
-        HashBiMap<Diff<TreeNode<?>>, Diff<TreeNode<?>>> modifiedMap = HashBiMap.create();
+        return createModifiedNodesMap2(diffs, d -> d.e().getName());
+    }
+
+    /**
+     * Pairs deleted and added children with the same names - these are compared recursively.
+     *
+     * @param diffs differences between children lists
+     * @param names names of children referred by differences
+     * @param <T> type of children elements
+     * @return map of paired differences
+     */
+    static <T> BiMap<Diff<T>, Diff<T>> createModifiedNodesMap2(List<Diff<T>> diffs, Function<Diff<T>, String> names)
+    {
+        HashBiMap<Diff<T>, Diff<T>> modifiedMap = HashBiMap.create();
         for (int i = 0; i < diffs.size(); i++)
         {
-            Diff<TreeNode<?>> diff1 = diffs.get(i);
+            Diff<T> diff1 = diffs.get(i);
             if (modifiedMap.containsValue(diff1))
             {
                 continue;
@@ -221,14 +850,14 @@ public final class JsonComparator
             DiffType requiredDiff = diff1.t() == DiffType.DELETE ? DiffType.ADD : DiffType.DELETE;
             for (int j = i + 1; j < diffs.size(); j++)
             {
-                Diff<TreeNode<?>> diff2 = diffs.get(j);
+                Diff<T> diff2 = diffs.get(j);
                 if (modifiedMap.containsValue(diff2))
                 {
                     continue;
                 }
 
                 if (diff2.t() == requiredDiff
-                && Objects.equals(diff1.e().getName(), diff2.e().getName()))
+                && Objects.equals(names.apply(diff1), names.apply(diff2)))
                 {
                     modifiedMap.put(diff1, diff2);
                     break;
@@ -242,40 +871,64 @@ public final class JsonComparator
     {
         for (Map.Entry<Diff<TreeNode<?>>, Diff<TreeNode<?>>> entry: matchingMap.entrySet())
         {
-            TreeNode<?> node1 = entry.getKey().e();
-            TreeNode<?> node2 = entry.getValue().e();
-            if (!nodesEqual(node1, node2) && stopOnFirst)
+            // Pairs are keyed by the first of two differences, that can be an addition
+            boolean deletedFirst = entry.getKey().t() == DiffType.DELETE;
+            TreeNode<?> node1 = (deletedFirst ? entry.getKey() : entry.getValue()).e();
+            TreeNode<?> node2 = (deletedFirst ? entry.getValue() : entry.getKey()).e();
+            if (mustStop(!nodesEqual(node1, node2)))
             {
                 return;
             }
         }
     }
 
-    private String extractNamesOrIndices(List<Diff<TreeNode<?>>> unmatchedDiffs, NodeType parentType)
+    /**
+     * Formats unmatched children as run-length "compressed" list of names (objects) or indices (arrays).
+     *
+     * @param unmatchedDiffs differences that were not paired
+     * @param parentType type of the parent node
+     * @return comma separated list
+     */
+    static String extractNamesOrIndices(List<Diff<TreeNode<?>>> unmatchedDiffs, NodeType parentType)
+    {
+        return extractNamesOrIndices(unmatchedDiffs, parentType, d -> d.e().getName());
+    }
+
+    /**
+     * Formats unmatched children as run-length "compressed" list of names (objects) or indices (arrays).
+     *
+     * @param unmatchedDiffs differences that were not paired
+     * @param parentType type of the parent node
+     * @param names names of children referred by differences
+     * @param <T> type of children elements
+     * @return comma separated list
+     */
+    static <T> String extractNamesOrIndices(List<Diff<T>> unmatchedDiffs, NodeType parentType,
+            Function<Diff<T>, String> names)
     {
         // First names from the first sample (deleted ones), then from the second (added ones)
-        List<String> names = new ArrayList<>(unmatchedDiffs.size());
+        List<String> list = new ArrayList<>(unmatchedDiffs.size());
         if (parentType == NodeType.OBJECT)
         {
-            extractNamesByEditType(names, unmatchedDiffs, DiffType.DELETE, "+");
-            extractNamesByEditType(names, unmatchedDiffs, DiffType.ADD, "-");
+            extractNamesByEditType(list, unmatchedDiffs, names, DiffType.DELETE, "+");
+            extractNamesByEditType(list, unmatchedDiffs, names, DiffType.ADD, "-");
         }
         else if (parentType == NodeType.ARRAY)
         {
-            extractIndicesByEditType(names, unmatchedDiffs, DiffType.DELETE, "+");
-            extractIndicesByEditType(names, unmatchedDiffs, DiffType.ADD, "-");
+            extractIndicesByEditType(list, unmatchedDiffs, DiffType.DELETE, "+");
+            extractIndicesByEditType(list, unmatchedDiffs, DiffType.ADD, "-");
         }
-        return String.join(", ", names);
+        return String.join(", ", list);
     }
 
     // Extracts child names with run-length "compression" (just counting consecutive mismatches)
-    private void extractNamesByEditType(List<String> names, List<Diff<TreeNode<?>>> unmatchedDiffs, DiffType diffType,
-            String sign)
+    private static <T> void extractNamesByEditType(List<String> names, List<Diff<T>> unmatchedDiffs,
+            Function<Diff<T>, String> nameOf, DiffType diffType, String sign)
     {
         int startIdx = -1;
         int endIdx = -1;
         String firstName = "";
-        for (Diff<TreeNode<?>> diff: unmatchedDiffs)
+        for (Diff<T> diff: unmatchedDiffs)
         {
             if (diff.t() == diffType)
             {
@@ -291,7 +944,7 @@ public final class JsonComparator
                     }
                     endIdx = diff.aIdx();
                     startIdx = endIdx;
-                    firstName = diff.e().getName();
+                    firstName = nameOf.apply(diff);
                 }
             }
             else
@@ -304,16 +957,16 @@ public final class JsonComparator
     }
 
     // Extract child indices with run-length "compression" (just counting consecutive mismatches)
-    private void extractIndicesByEditType(List<String> names, List<Diff<TreeNode<?>>> unmatchedDiffs, DiffType diffType,
-            String sign)
+    private static <T> void extractIndicesByEditType(List<String> names, List<Diff<T>> unmatchedDiffs,
+            DiffType diffType, String sign)
     {
         int startIdx = -1;
         int endIdx = -1;
-        for (Diff<TreeNode<?>> diff: unmatchedDiffs)
+        for (Diff<T> diff: unmatchedDiffs)
         {
             if (diff.t() == diffType)
             {
-                if (diff.aIdx() - startIdx == 1)
+                if (startIdx != -1 && diff.aIdx() - startIdx == 1)
                 {
                     endIdx = diff.aIdx();
                 }
@@ -333,7 +986,7 @@ public final class JsonComparator
         recordRunConditionally(names, "", startIdx, endIdx, sign);
     }
 
-    private void recordRunConditionally(List<String> names, String name, int startIdx, int endIdx, String sign)
+    private static void recordRunConditionally(List<String> names, String name, int startIdx, int endIdx, String sign)
     {
         if (startIdx != -1)
         {
@@ -0,0 +1,374 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffType;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The class writes differences of two JSON documents as data - a JSON Patch (RFC 6902) that transforms the first
+ * document into the second one, or a structured report. Differences are found with the same children alignment
+ * as in {@link JsonComparator} and written with a {@link JsonGenerator} as soon as they are found, so their
+ * number is not limited by memory. Options other than ones of children alignment and budgets are not used.
+ */
+public final class JsonDiffWriter
+{
+    private enum Mode
+    {
+        PATCH,
+        REPORT
+    }
+
+    private final Mode mode;
+    private final JsonGenerator generator;
+    private final ChildrenAligner aligner;
+    private long count;
+
+    private JsonDiffWriter(Mode mode, JsonGenerator generator, ComparisonOptions options)
+    {
+        this.mode = mode;
+        this.generator = generator;
+        this.aligner = new ChildrenAligner(options, new ComparisonBudget(options));
+    }
+
+    /**
+     * Writes JSON Patch that transforms the first document into the second one. Operations of the patch are
+     * applied to arrays in order, so their indices account for preceding operations.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param options comparison options
+     * @param out output stream; it is flushed but not closed
+     * @return number of written operations
+     * @throws JsonProcessingException if a document can't be parsed
+     * @throws IOException if the output can't be written
+     * @throws IllegalArgumentException if a document is empty
+     */
+    public static long writePatch(String sample1, String sample2, ComparisonOptions options, OutputStream out)
+            throws IOException
+    {
+        return write(Mode.PATCH, sample1, sample2, options, out);
+    }
+
+    /**
+     * Writes report of differences as an object with "differences" array and their "count". Each difference has
+     * "type", "path" - JSON Pointer to the node in the first document, or in the second one for added nodes, and
+     * "old" and/or "new" values of the node.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param options comparison options
+     * @param out output stream; it is flushed but not closed
+     * @return number of written differences
+     * @throws JsonProcessingException if a document can't be parsed
+     * @throws IOException if the output can't be written
+     * @throws IllegalArgumentException if a document is empty
+     */
+    public static long writeReport(String sample1, String sample2, ComparisonOptions options, OutputStream out)
+            throws IOException
+    {
+        return write(Mode.REPORT, sample1, sample2, options, out);
+    }
+
+    private static long write(Mode mode, String sample1, String sample2, ComparisonOptions options,
+            OutputStream out) throws IOException
+    {
+        TreeNode<?> root1 = prepare(sample1, "first");
+        TreeNode<?> root2 = prepare(sample2, "second");
+        try (JsonGenerator generator = JsonComparator.OBJECT_MAPPER.getFactory()
+                .createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET))
+        {
+            JsonDiffWriter writer = new JsonDiffWriter(mode, generator, options);
+            if (mode == Mode.REPORT)
+            {
+                generator.writeStartObject();
+                generator.writeFieldName("differences");
+            }
+            generator.writeStartArray();
+            writer.compare(root1, root2, "", "", "");
+            generator.writeEndArray();
+            if (mode == Mode.REPORT)
+            {
+                generator.writeNumberField("count", writer.count);
+                generator.writeEndObject();
+            }
+            return writer.count;
+        }
+    }
+
+    private static TreeNode<?> prepare(String sample, String qualifier) throws JsonProcessingException
+    {
+        JsonNode root = JsonComparator.OBJECT_MAPPER.readTree(sample);
+        if (root.isMissingNode())
+        {
+            throw new IllegalArgumentException("Empty input for the " + qualifier + " sample");
+        }
+        return TreeNodeConverter.fromJacksonRoot(root);
+    }
+
+    // Paths are JSON Pointers to nodes in the first and the second documents and in the partially patched one
+    private void compare(TreeNode<?> node1, TreeNode<?> node2, String path1, String path2, String patchPath)
+            throws IOException
+    {
+        if (sameContent(node1, node2))
+        {
+            return;
+        }
+        NodeType type = node1.getNodeType();
+        if (type != node2.getNodeType())
+        {
+            writeReplacement(DifferenceType.TYPE, node1, node2, path1, patchPath);
+        }
+        else if (type == NodeType.OBJECT)
+        {
+            compareFields(node1, node2, path1, path2, patchPath);
+        }
+        else if (type == NodeType.ARRAY)
+        {
+            compareElements(node1, node2, path1, path2, patchPath);
+        }
+        else
+        {
+            writeReplacement(DifferenceType.VALUE, node1, node2, path1, patchPath);
+        }
+    }
+
+    // Order of fields doesn't matter for patches
+    private void compareFields(TreeNode<?> node1, TreeNode<?> node2, String path1, String path2, String patchPath)
+            throws IOException
+    {
+        Map<String, TreeNode<?>> fields2 = new HashMap<>();
+        node2.getChildren().forEach(c -> fields2.put(c.getName(), c));
+        for (TreeNode<?> child1 : node1.getChildren())
+        {
+            String token = "/" + escape(child1.getName());
+            TreeNode<?> child2 = fields2.remove(child1.getName());
+            if (child2 == null)
+            {
+                writeRemoval(child1, path1 + token, patchPath + token);
+            }
+            else
+            {
+                compare(child1, child2, path1 + token, path2 + token, patchPath + token);
+            }
+        }
+        for (TreeNode<?> child2 : node2.getChildren())
+        {
+            if (fields2.containsKey(child2.getName()))
+            {
+                String token = "/" + escape(child2.getName());
+                writeAddition(child2, path2 + token, patchPath + token);
+            }
+        }
+    }
+
+    // Walks both lists along the alignment; a deletion next to an addition is compared recursively
+    private void compareElements(TreeNode<?> node1, TreeNode<?> node2, String path1, String path2,
+            String patchPath) throws IOException
+    {
+        List<TreeNode<?>> children1 = node1.getChildren();
+        List<TreeNode<?>> children2 = node2.getChildren();
+        Set<Integer> deleted = new HashSet<>();
+        Set<Integer> added = new HashSet<>();
+        for (Diff<TreeNode<?>> diff : aligner.align(node1, node2).diffs())
+        {
+            (diff.t() == DiffType.DELETE ? deleted : added).add(diff.e().getIndex());
+        }
+        if (!keptElementsMatch(children1, children2, deleted, added))
+        {
+            writeReplacement(DifferenceType.ORDER, node1, node2, path1, patchPath);
+            return;
+        }
+
+        int i = 0;
+        int j = 0;
+        int position = 0;
+        while (i < children1.size() || j < children2.size())
+        {
+            boolean delete = i < children1.size() && deleted.contains(i);
+            boolean add = j < children2.size() && added.contains(j);
+            if (delete && !add)
+            {
+                writeRemoval(children1.get(i), path1 + "/" + i, patchPath + "/" + position);
+                i++;
+            }
+            else if (add && !delete)
+            {
+                writeAddition(children2.get(j), path2 + "/" + j, patchPath + "/" + position);
+                j++;
+                position++;
+            }
+            else
+            {
+                compare(children1.get(i), children2.get(j), path1 + "/" + i, path2 + "/" + j,
+                        patchPath + "/" + position);
+                i++;
+                j++;
+                position++;
+            }
+        }
+    }
+
+    // Elements that are neither deleted nor added should be equal in order, otherwise the alignment is not usable
+    private static boolean keptElementsMatch(List<TreeNode<?>> children1, List<TreeNode<?>> children2,
+            Set<Integer> deleted, Set<Integer> added)
+    {
+        if (children1.size() - deleted.size() != children2.size() - added.size())
+        {
+            return false;
+        }
+        int j = 0;
+        for (int i = 0; i < children1.size(); i++)
+        {
+            if (deleted.contains(i))
+            {
+                continue;
+            }
+            while (added.contains(j))
+            {
+                j++;
+            }
+            if (!sameContent(children1.get(i), children2.get(j++)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Hashes of array elements include their indices, so content is compared by hashes of children
+    private static boolean sameContent(TreeNode<?> node1, TreeNode<?> node2)
+    {
+        if (node1.getIndex() == node2.getIndex())
+        {
+            return node1.equals(node2);
+        }
+        return node1.getNodeType() == node2.getNodeType()
+                && node1.getName().equals(node2.getName())
+                && Utf8Text.valuesEqual(node1.getValue(), node2.getValue())
+                && node1.getChildren().equals(node2.getChildren());
+    }
+
+    private void writeReplacement(DifferenceType type, TreeNode<?> node1, TreeNode<?> node2, String path1,
+            String patchPath) throws IOException
+    {
+        generator.writeStartObject();
+        if (mode == Mode.PATCH)
+        {
+            generator.writeStringField("op", "replace");
+            generator.writeStringField("path", patchPath);
+            generator.writeFieldName("value");
+            writeValue(node2);
+        }
+        else
+        {
+            generator.writeStringField("type", type.name());
+            generator.writeStringField("path", path1);
+            generator.writeFieldName("old");
+            writeValue(node1);
+            generator.writeFieldName("new");
+            writeValue(node2);
+        }
+        generator.writeEndObject();
+        count++;
+    }
+
+    private void writeRemoval(TreeNode<?> node1, String path1, String patchPath) throws IOException
+    {
+        generator.writeStartObject();
+        if (mode == Mode.PATCH)
+        {
+            generator.writeStringField("op", "remove");
+            generator.writeStringField("path", patchPath);
+        }
+        else
+        {
+            generator.writeStringField("type", DifferenceType.CHILDREN.name());
+            generator.writeStringField("path", path1);
+            generator.writeFieldName("old");
+            writeValue(node1);
+        }
+        generator.writeEndObject();
+        count++;
+    }
+
+    private void writeAddition(TreeNode<?> node2, String path2, String patchPath) throws IOException
+    {
+        generator.writeStartObject();
+        if (mode == Mode.PATCH)
+        {
+            generator.writeStringField("op", "add");
+            generator.writeStringField("path", patchPath);
+            generator.writeFieldName("value");
+        }
+        else
+        {
+            generator.writeStringField("type", DifferenceType.CHILDREN.name());
+            generator.writeStringField("path", path2);
+            generator.writeFieldName("new");
+        }
+        writeValue(node2);
+        generator.writeEndObject();
+        count++;
+    }
+
+    private void writeValue(TreeNode<?> node) throws IOException
+    {
+        switch (node.getNodeType())
+        {
+            case OBJECT ->
+            {
+                generator.writeStartObject();
+                for (TreeNode<?> child : node.getChildren())
+                {
+                    generator.writeFieldName(child.getName());
+                    writeValue(child);
+                }
+                generator.writeEndObject();
+            }
+            case ARRAY ->
+            {
+                generator.writeStartArray();
+                for (TreeNode<?> child : node.getChildren())
+                {
+                    writeValue(child);
+                }
+                generator.writeEndArray();
+            }
+            case NUMBER -> writeNumber((Double)Objects.requireNonNull(node.getValue()));
+            case BOOLEAN -> generator.writeBoolean((Boolean)Objects.requireNonNull(node.getValue()));
+            case TEXT -> generator.writeString(String.valueOf(node.getValue()));
+        }
+    }
+
+    // Numbers are kept as doubles; integral ones are written without fraction
+    private void writeNumber(double number) throws IOException
+    {
+        if (number == Math.rint(number) && Math.abs(number) < 1L << 53)
+        {
+            generator.writeNumber((long)number);
+        }
+        else
+        {
+            generator.writeNumber(number);
+        }
+    }
+
+    private static String escape(String name)
+    {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,356 @@
+package com.aknopov.jsoncompare;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The class implements comparison of JSON Lines (NDJSON) streams record by record.
+ * Records are read incrementally, so memory usage is bounded by the alignment window rather than by the stream size.
+ */
+@Slf4j
+public final class JsonLinesComparator
+{
+    /**
+     * Default number of unmatched records kept per sample while aligning by a key field
+     */
+    public final static int DEFAULT_WINDOW_SIZE = 1000;
+
+    // Parsed record with its position in the stream
+    private record Record(int index, TreeNode<?> root)
+    {
+    }
+
+    // Value of the key field; values of different types don't match, e.g. number 1 and text "1"
+    private record RecordKey(TreeNode.NodeType type, String text)
+    {
+        @Override
+        public String toString()
+        {
+            return text;
+        }
+    }
+
+    private final boolean stopOnFirst;
+    @Nullable
+    private final String keyField;
+    private final int windowSize;
+    private final DiffRecorder diffRecorder;
+    private final JsonComparator comparator;
+    private final Map<RecordKey, Record> pending1 = new LinkedHashMap<>();
+    private final Map<RecordKey, Record> pending2 = new LinkedHashMap<>();
+    private boolean differs;
+
+    private JsonLinesComparator(ComparisonOptions options, DiffSink sink, @Nullable String keyField, int windowSize)
+    {
+        this.stopOnFirst = options.isStopOnFirst();
+        this.keyField = keyField;
+        this.windowSize = windowSize;
+        this.diffRecorder = new DiffRecorder(options, sink);
+        this.comparator = new JsonComparator(options, diffRecorder);
+    }
+
+    /**
+     * Compares two JSON Lines streams aligning records by their positions.
+     *
+     * @param lines1 first stream
+     * @param lines2 second stream
+     * @param stopOnFirst if true, stops on the first discrepancy
+     *
+     * @return list of discrepancies
+     * @throws IOException if reading of any stream fails
+     */
+    public static List<String> compareJsonLines(Reader lines1, Reader lines2, boolean stopOnFirst) throws IOException
+    {
+        return compareJsonLines(lines1, lines2, stopOnFirst, List.of(), null, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Compares two JSON Lines streams. Records are aligned either by their positions or, when {@code keyField}
+     * is given, by the value of that top level field. In the latter case up to {@code windowSize} unmatched records
+     * are kept per stream waiting for their counterparts; older records are reported as missing.
+     *
+     * @param lines1 first stream
+     * @param lines2 second stream
+     * @param stopOnFirst if true, stops on the first discrepancy
+     * @param knownDiscrepancies list of acceptable discrepancies in RegEx format
+     * @param keyField name of the field identifying records or {@code null} for positional alignment
+     * @param windowSize maximum number of unmatched records kept per stream
+     *
+     * @return list of discrepancies
+     * @throws IOException if reading of any stream fails
+     */
+    public static List<String> compareJsonLines(Reader lines1, Reader lines2, boolean stopOnFirst,
+            Collection<String> knownDiscrepancies, @Nullable String keyField, int windowSize) throws IOException
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(stopOnFirst)
+                .knownDiscrepancies(knownDiscrepancies)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        compareJsonLines(lines1, lines2, options, sink, keyField, windowSize);
+
+        return sink.getMessages();
+    }
+
+    /**
+     * Compares two JSON Lines streams delivering differences to the sink as soon as they are found.
+     *
+     * @param lines1 first stream
+     * @param lines2 second stream
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @param keyField name of the field identifying records or {@code null} for positional alignment
+     * @param windowSize maximum number of unmatched records kept per stream
+     *
+     * @return comparison summary
+     * @throws IOException if reading of any stream fails
+     */
+    public static ComparisonResult compareJsonLines(Reader lines1, Reader lines2, ComparisonOptions options,
+            DiffSink sink, @Nullable String keyField, int windowSize) throws IOException
+    {
+        if (windowSize < 1)
+        {
+            throw new IllegalArgumentException("Window size should be positive: " + windowSize);
+        }
+
+        JsonLinesComparator linesComparator = new JsonLinesComparator(options, sink, keyField, windowSize);
+        linesComparator.compareStreams(toBuffered(lines1), toBuffered(lines2));
+
+        return linesComparator.diffRecorder.toResult();
+    }
+
+    private static BufferedReader toBuffered(Reader reader)
+    {
+        return reader instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(reader);
+    }
+
+    private void compareStreams(BufferedReader reader1, BufferedReader reader2) throws IOException
+    {
+        int count1 = 0;
+        int count2 = 0;
+        String line1 = nextLine(reader1);
+        String line2 = nextLine(reader2);
+        while ((line1 != null || line2 != null) && !mustStop())
+        {
+            if (keyField == null && line1 != null && line2 != null)
+            {
+                comparePositionally(count1, line1, line2);
+            }
+            else if (keyField != null)
+            {
+                if (line1 != null)
+                {
+                    alignByKey(keyField, count1, line1, "first", pending1, pending2);
+                }
+                if (line2 != null && !mustStop())
+                {
+                    alignByKey(keyField, count2, line2, "second", pending2, pending1);
+                }
+            }
+
+            if (line1 != null)
+            {
+                count1++;
+                line1 = nextLine(reader1);
+            }
+            if (line2 != null)
+            {
+                count2++;
+                line2 = nextLine(reader2);
+            }
+        }
+
+        if (mustStop())
+        {
+            return;
+        }
+        if (keyField == null)
+        {
+            reportExtraRecords(count1, count2);
+        }
+        else
+        {
+            flushPending(pending1, "second", Integer.MAX_VALUE);
+            flushPending(pending2, "first", Integer.MAX_VALUE);
+        }
+    }
+
+    // Skips blank lines
+    @Nullable
+    private static String nextLine(BufferedReader reader) throws IOException
+    {
+        String line = reader.readLine();
+        while (line != null && line.isBlank())
+        {
+            line = reader.readLine();
+        }
+        return line;
+    }
+
+    private boolean mustStop()
+    {
+        return stopOnFirst && differs || diffRecorder.isLimitReached();
+    }
+
+    private void comparePositionally(int index, String line1, String line2)
+    {
+        // Byte-identical records need neither parsing nor tree comparison
+        if (line1.equals(line2))
+        {
+            return;
+        }
+
+        TreeNode<?> root1 = parseRecord(line1, index, "first");
+        TreeNode<?> root2 = parseRecord(line2, index, "second");
+        if (root1 != null && root2 != null)
+        {
+            compareRecords(new Record(index, root1), new Record(index, root2));
+        }
+    }
+
+    private void alignByKey(String field, int index, String line, String qualifier,
+            Map<RecordKey, Record> ownPending, Map<RecordKey, Record> otherPending)
+    {
+        TreeNode<?> root = parseRecord(line, index, qualifier);
+        if (root == null)
+        {
+            return;
+        }
+
+        RecordKey key = extractKey(root, field);
+        if (key == null)
+        {
+            differs = true;
+            diffRecorder.addDifference(DifferenceType.INPUT, "/[" + index + "]",
+                    "Record of the %s sample has no key field '%s'", qualifier, field);
+            return;
+        }
+
+        Record record = new Record(index, root);
+        Record counterpart = otherPending.remove(key);
+        if (counterpart == null)
+        {
+            Record duplicate = ownPending.put(key, record);
+            if (duplicate != null)
+            {
+                reportMissing(key, duplicate, otherQualifier(qualifier));
+            }
+            flushPending(ownPending, otherQualifier(qualifier), windowSize);
+        }
+        else if (ownPending == pending1)
+        {
+            compareRecords(record, counterpart);
+        }
+        else
+        {
+            compareRecords(counterpart, record);
+        }
+    }
+
+    @Nullable
+    private static RecordKey extractKey(TreeNode<?> root, String field)
+    {
+        if (root.getNodeType() != TreeNode.NodeType.OBJECT)
+        {
+            return null;
+        }
+        for (TreeNode<?> child : root.getChildren())
+        {
+            if (child.getName().equals(field) && child.getValue() != null)
+            {
+                return new RecordKey(child.getNodeType(), keyText(child.getValue()));
+            }
+        }
+        return null;
+    }
+
+    // Numbers are kept as doubles; integral ones are printed without fraction
+    private static String keyText(Object value)
+    {
+        if (value instanceof Double number && number == Math.rint(number) && Math.abs(number) < 1L << 53)
+        {
+            return Long.toString(number.longValue());
+        }
+        return String.valueOf(Utf8Text.decode(value));
+    }
+
+    private static String otherQualifier(String qualifier)
+    {
+        return qualifier.equals("first") ? "second" : "first";
+    }
+
+    // Reports oldest pending records until no more than `limit` remain
+    private void flushPending(Map<RecordKey, Record> pending, String missingIn, int limit)
+    {
+        int excess = limit == Integer.MAX_VALUE ? pending.size() : pending.size() - limit;
+        Iterator<Map.Entry<RecordKey, Record>> it = pending.entrySet().iterator();
+        while (excess-- > 0 && it.hasNext() && !mustStop())
+        {
+            Map.Entry<RecordKey, Record> entry = it.next();
+            reportMissing(entry.getKey(), entry.getValue(), missingIn);
+            it.remove();
+        }
+    }
+
+    private void reportMissing(RecordKey key, Record record, String missingIn)
+    {
+        differs = true;
+        diffRecorder.addDifference(DifferenceType.CHILDREN, "/[" + record.index() + "]",
+                "Record is missing in the %s sample: key='%s'", missingIn, key);
+    }
+
+    private void reportExtraRecords(int count1, int count2)
+    {
+        if (count1 != count2)
+        {
+            differs = true;
+            int from = Math.min(count1, count2);
+            int to = Math.max(count1, count2) - 1;
+            String sign = count1 > count2 ? "+" : "-";
+            diffRecorder.addDifference(DifferenceType.CHILDREN, "/",
+                    "Children differ: counts %d vs %d (diffs: [%d-%d]:%s%d)", count1, count2, from, to, sign,
+                    to - from + 1);
+        }
+    }
+
+    private void compareRecords(Record record1, Record record2)
+    {
+        // Hashes of equal records are equal - the tree walk returns immediately
+        if (!Objects.equals(record1.root(), record2.root()))
+        {
+            differs = true;
+            comparator.compareTrees(record1.root(), record2.root(), "/[" + record1.index() + "]");
+        }
+    }
+
+    @Nullable
+    private TreeNode<?> parseRecord(String line, int index, String qualifier)
+    {
+        try
+        {
+            JsonNode jsonNode = JsonComparator.OBJECT_MAPPER.readTree(line);
+            return TreeNodeConverter.fromJacksonRoot(jsonNode);
+        }
+        catch (JsonProcessingException e)
+        {
+            log.error("Failed to parse record {} of the {} sample: {}", index, qualifier, e.getMessage());
+            differs = true;
+            diffRecorder.addMessage("Failed to parse record " + index + " of the " + qualifier + " sample: "
+                    + e.getOriginalMessage());
+            return null;
+        }
+    }
+}
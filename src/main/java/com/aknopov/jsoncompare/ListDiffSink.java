@@ -0,0 +1,28 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink that keeps messages of all received differences in a list.
+ */
+public final class ListDiffSink implements DiffSink
+{
+    private final List<String> messages = new ArrayList<>();
+
+    @Override
+    public void accept(Difference difference)
+    {
+        messages.add(difference.message());
+    }
+
+    /**
+     * Returns the list of messages
+     *
+     * @return list of messages
+     */
+    public List<String> getMessages()
+    {
+        return messages;
+    }
+}
@@ -0,0 +1,82 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayDeque;
+
+import com.aknopov.jsoncompare.diff.DiffResult;
+
+/**
+ * Accumulates metrics of a comparison. Created only when a {@link ComparisonListener} is set.
+ */
+final class MetricsCollector
+{
+    private long parseNanos;
+    private long conversionNanos;
+    private long comparisonNanos;
+    private long bytes1;
+    private long bytes2;
+    private int nodes1;
+    private int nodes2;
+    private int myersRuns;
+    private long myersEditDistance;
+    private long myersSnakes;
+    private long pairedChildren;
+    private long unmatchedChildren;
+
+    void parsed(long nanos, long bytes1, long bytes2)
+    {
+        parseNanos = nanos;
+        this.bytes1 = bytes1;
+        this.bytes2 = bytes2;
+    }
+
+    void converted(long nanos, TreeNode<?> root1, TreeNode<?> root2)
+    {
+        converted(nanos, countNodes(root1), countNodes(root2));
+    }
+
+    void converted(long nanos, int nodes1, int nodes2)
+    {
+        conversionNanos = nanos;
+        this.nodes1 = nodes1;
+        this.nodes2 = nodes2;
+    }
+
+    void compared(long nanos)
+    {
+        comparisonNanos = nanos;
+    }
+
+    void myersRun(DiffResult<?> result)
+    {
+        myersRuns++;
+        myersEditDistance += result.diffs().size();
+        myersSnakes += result.snakes();
+    }
+
+    void childrenPaired(int paired, int unmatched)
+    {
+        pairedChildren += paired;
+        unmatchedChildren += unmatched;
+    }
+
+    ComparisonMetrics snapshot(DiffRecorder diffRecorder)
+    {
+        return new ComparisonMetrics(parseNanos, conversionNanos, comparisonNanos, diffRecorder.getFilterNanos(),
+                bytes1, bytes2, nodes1, nodes2, myersRuns, myersEditDistance, myersSnakes, pairedChildren,
+                unmatchedChildren, diffRecorder.toResult().differenceCount(), diffRecorder.getFilteredCount());
+    }
+
+    private static int countNodes(TreeNode<?> root)
+    {
+        int count = 0;
+        ArrayDeque<TreeNode<?>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty())
+        {
+            TreeNode<?> node = stack.pop();
+            count++;
+            node.getChildren().forEach(stack::push);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,219 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffType;
+
+/**
+ * Post-pass of comparison that finds subtrees moved between parents. Children left unmatched by alignment
+ * are collected during comparison, deleted ones are indexed by content - name, type, value and hashes of
+ * children, so that subtrees at different positions match. Exact moves are found by lookups of added children,
+ * near moves - by unique pairs of deleted and added containers with the same name and similar children.
+ * Time is linear in the number of unmatched children.
+ */
+final class MoveDetector
+{
+    // Estimated similarity of children from which containers with the same names are considered moved
+    private final static double NEAR_SIMILARITY = 0.5;
+    private final static int SKETCH_SIZE = 32;
+
+    /**
+     * Subtree moved between parents
+     *
+     * @param from node in the first document
+     * @param to node in the second document
+     * @param exact true if subtrees are equal
+     */
+    record Move(TreeNode<?> from, TreeNode<?> to, boolean exact)
+    {
+    }
+
+    /**
+     * Children of compared nodes that were neither paired nor moved
+     *
+     * @param node1 node of the first document
+     * @param node2 node of the second document
+     * @param unmatched unmatched differences between children lists
+     */
+    record Unmatched(TreeNode<?> node1, TreeNode<?> node2, List<Diff<TreeNode<?>>> unmatched)
+    {
+    }
+
+    /**
+     * Result of detection
+     *
+     * @param moves found moves
+     * @param unmatched remaining unmatched children
+     */
+    record Detection(List<Move> moves, List<Unmatched> unmatched)
+    {
+    }
+
+    // Subtree content independent of position
+    private record ContentKey(String name, NodeType type, @Nullable Object value, List<Integer> children)
+    {
+        private static ContentKey of(TreeNode<?> node)
+        {
+            return new ContentKey(node.getName(), node.getNodeType(), Utf8Text.decode(node.getValue()),
+                    node.getChildren().stream()
+                            .map(TreeNode::hashCode)
+                            .toList());
+        }
+    }
+
+    private record NameKey(String name, NodeType type)
+    {
+    }
+
+    private List<Unmatched> pending = new ArrayList<>();
+
+    /**
+     * Postpones reporting of unmatched children till detection
+     *
+     * @param node1 node of the first document
+     * @param node2 node of the second document
+     * @param unmatched unmatched differences between children lists
+     */
+    void add(TreeNode<?> node1, TreeNode<?> node2, List<Diff<TreeNode<?>>> unmatched)
+    {
+        pending.add(new Unmatched(node1, node2, unmatched));
+    }
+
+    /**
+     * @return true if there are children collected after the last detection
+     */
+    boolean hasPending()
+    {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Detects moves among children collected after the last detection
+     *
+     * @return moves and remaining unmatched children
+     */
+    Detection detect()
+    {
+        List<Unmatched> collected = pending;
+        pending = new ArrayList<>();
+
+        Map<ContentKey, ArrayDeque<TreeNode<?>>> deleted = new HashMap<>();
+        for (Unmatched unmatched : collected)
+        {
+            for (Diff<TreeNode<?>> diff : unmatched.unmatched())
+            {
+                if (diff.t() == DiffType.DELETE)
+                {
+                    deleted.computeIfAbsent(ContentKey.of(diff.e()), k -> new ArrayDeque<>()).addLast(diff.e());
+                }
+            }
+        }
+
+        List<Move> moves = new ArrayList<>();
+        Set<TreeNode<?>> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<NameKey, List<TreeNode<?>>> addedContainers = new LinkedHashMap<>();
+        for (Unmatched unmatched : collected)
+        {
+            for (Diff<TreeNode<?>> diff : unmatched.unmatched())
+            {
+                if (diff.t() != DiffType.ADD)
+                {
+                    continue;
+                }
+                ArrayDeque<TreeNode<?>> candidates = deleted.get(ContentKey.of(diff.e()));
+                TreeNode<?> from = candidates != null ? candidates.pollFirst() : null;
+                if (from != null)
+                {
+                    moves.add(new Move(from, diff.e(), true));
+                    moved.add(from);
+                    moved.add(diff.e());
+                }
+                else if (isNamedContainer(diff.e()))
+                {
+                    addedContainers.computeIfAbsent(nameKey(diff.e()), k -> new ArrayList<>()).add(diff.e());
+                }
+            }
+        }
+
+        findNearMoves(deleted, addedContainers, moves, moved);
+
+        List<Unmatched> remaining = new ArrayList<>();
+        for (Unmatched unmatched : collected)
+        {
+            List<Diff<TreeNode<?>>> diffs = unmatched.unmatched().stream()
+                    .filter(d -> !moved.contains(d.e()))
+                    .toList();
+            if (!diffs.isEmpty())
+            {
+                remaining.add(new Unmatched(unmatched.node1(), unmatched.node2(), diffs));
+            }
+        }
+        return new Detection(moves, remaining);
+    }
+
+    // Pairs containers that are the only deleted and the only added ones with the same name and type
+    private static void findNearMoves(Map<ContentKey, ArrayDeque<TreeNode<?>>> deleted,
+            Map<NameKey, List<TreeNode<?>>> addedContainers, List<Move> moves, Set<TreeNode<?>> moved)
+    {
+        Map<NameKey, List<TreeNode<?>>> deletedContainers = new HashMap<>();
+        for (ArrayDeque<TreeNode<?>> nodes : deleted.values())
+        {
+            for (TreeNode<?> node : nodes)
+            {
+                if (isNamedContainer(node))
+                {
+                    deletedContainers.computeIfAbsent(nameKey(node), k -> new ArrayList<>()).add(node);
+                }
+            }
+        }
+
+        for (Map.Entry<NameKey, List<TreeNode<?>>> entry : addedContainers.entrySet())
+        {
+            List<TreeNode<?>> candidates = deletedContainers.get(entry.getKey());
+            if (entry.getValue().size() != 1 || candidates == null || candidates.size() != 1)
+            {
+                continue;
+            }
+            TreeNode<?> from = candidates.get(0);
+            TreeNode<?> to = entry.getValue().get(0);
+            if (sketch(from).similarity(sketch(to)) >= NEAR_SIMILARITY)
+            {
+                moves.add(new Move(from, to, false));
+                moved.add(from);
+                moved.add(to);
+            }
+        }
+    }
+
+    private static boolean isNamedContainer(TreeNode<?> node)
+    {
+        return !node.getName().isEmpty() && !node.getChildren().isEmpty();
+    }
+
+    private static NameKey nameKey(TreeNode<?> node)
+    {
+        return new NameKey(node.getName(), node.getNodeType());
+    }
+
+    private static BottomKSketch sketch(TreeNode<?> node)
+    {
+        BottomKSketch sketch = new BottomKSketch(SKETCH_SIZE);
+        for (TreeNode<?> child : node.getChildren())
+        {
+            sketch.add(child.hashCode());
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,15 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+
+/**
+ * Changes of one path of the base document in three-way comparison
+ *
+ * @param path path of the node in the base document
+ * @param kind classification of changes
+ * @param left differences of the left version at the path
+ * @param right differences of the right version at the path
+ */
+public record PathChange(String path, ChangeKind kind, List<Difference> left, List<Difference> right)
+{
+}
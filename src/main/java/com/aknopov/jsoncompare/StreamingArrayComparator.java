@@ -0,0 +1,358 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.aknopov.jsoncompare.diff.Diff;
+import com.aknopov.jsoncompare.diff.DiffType;
+import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.BiMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The class implements lock-step comparison of huge top level JSON arrays. Elements are read from both streams
+ * one by one and aligned with Myers' algorithm applied to a sliding window, so memory usage is proportional
+ * to the window size rather than to the array length.
+ */
+@Slf4j
+public final class StreamingArrayComparator
+{
+    /**
+     * Default number of elements per sample kept for alignment
+     */
+    public final static int DEFAULT_WINDOW_SIZE = 256;
+
+    // Elements of one sample waiting for alignment
+    private static final class Window
+    {
+        private final JsonParser parser;
+        private final ArrayDeque<TreeNode<?>> elements = new ArrayDeque<>();
+        private int firstIndex;
+        private boolean exhausted;
+
+        private Window(JsonParser parser)
+        {
+            this.parser = parser;
+        }
+
+        private void drop(int count)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                elements.removeFirst();
+            }
+            firstIndex += count;
+        }
+    }
+
+    private final boolean stopOnFirst;
+    private final int windowSize;
+    private final DiffRecorder diffRecorder;
+    private final JsonComparator comparator;
+    private boolean differs;
+
+    private StreamingArrayComparator(ComparisonOptions options, DiffSink sink, int windowSize)
+    {
+        this.stopOnFirst = options.isStopOnFirst();
+        this.windowSize = windowSize;
+        this.diffRecorder = new DiffRecorder(options, sink);
+        this.comparator = new JsonComparator(options, diffRecorder);
+    }
+
+    /**
+     * Compares two JSON documents with top level arrays element by element.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param stopOnFirst if true, stops on the first discrepancy
+     *
+     * @return list of discrepancies
+     * @throws IOException if reading of any stream fails
+     */
+    public static List<String> compareJsonArrays(InputStream sample1, InputStream sample2, boolean stopOnFirst)
+            throws IOException
+    {
+        return compareJsonArrays(sample1, sample2, stopOnFirst, List.of(), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Compares two JSON documents with top level arrays element by element. Documents that are not arrays
+     * are compared as whole trees.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param stopOnFirst if true, stops on the first discrepancy
+     * @param knownDiscrepancies list of acceptable discrepancies in RegEx format
+     * @param windowSize number of elements per sample used for alignment
+     *
+     * @return list of discrepancies
+     * @throws IOException if reading of any stream fails
+     */
+    public static List<String> compareJsonArrays(InputStream sample1, InputStream sample2, boolean stopOnFirst,
+            Collection<String> knownDiscrepancies, int windowSize) throws IOException
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(stopOnFirst)
+                .knownDiscrepancies(knownDiscrepancies)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        compareJsonArrays(sample1, sample2, options, sink, windowSize);
+
+        return sink.getMessages();
+    }
+
+    /**
+     * Compares two JSON documents with top level arrays element by element delivering differences to the sink
+     * as soon as they are found.
+     *
+     * @param sample1 first document
+     * @param sample2 second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @param windowSize number of elements per sample used for alignment
+     *
+     * @return comparison summary
+     * @throws IOException if reading of any stream fails
+     */
+    public static ComparisonResult compareJsonArrays(InputStream sample1, InputStream sample2,
+            ComparisonOptions options, DiffSink sink, int windowSize) throws IOException
+    {
+        return compareJsonArrays(sample1, InputFormat.JSON, sample2, InputFormat.JSON, options, sink, windowSize);
+    }
+
+    /**
+     * Compares two documents with top level arrays element by element. Documents are encoded in JSON or binary
+     * formats, possibly different ones, and are read with parsers of their formats without transcoding.
+     *
+     * @param sample1 first document
+     * @param format1 encoding of the first document
+     * @param sample2 second document
+     * @param format2 encoding of the second document
+     * @param options comparison options
+     * @param sink receiver of differences
+     * @param windowSize number of elements per sample used for alignment
+     *
+     * @return comparison summary
+     * @throws IOException if reading of any stream fails
+     */
+    public static ComparisonResult compareJsonArrays(InputStream sample1, InputFormat format1, InputStream sample2,
+            InputFormat format2, ComparisonOptions options, DiffSink sink, int windowSize) throws IOException
+    {
+        if (windowSize < 2)
+        {
+            throw new IllegalArgumentException("Window size should be at least 2: " + windowSize);
+        }
+
+        StreamingArrayComparator arrayComparator = new StreamingArrayComparator(options, sink, windowSize);
+        try (JsonParser parser1 = format1.mapper().createParser(sample1);
+             JsonParser parser2 = format2.mapper().createParser(sample2))
+        {
+            arrayComparator.compareStreams(new Window(parser1), new Window(parser2));
+        }
+
+        return arrayComparator.diffRecorder.toResult();
+    }
+
+    private void compareStreams(Window window1, Window window2) throws IOException
+    {
+        try
+        {
+            JsonToken token1 = window1.parser.nextToken();
+            JsonToken token2 = window2.parser.nextToken();
+            if (token1 == null || token2 == null)
+            {
+                String qualifier = token1 == null ? "first" : "second";
+                diffRecorder.addMessage("Empty input for the " + qualifier + " sample");
+                return;
+            }
+            if (token1 != JsonToken.START_ARRAY || token2 != JsonToken.START_ARRAY)
+            {
+                compareWholeTrees(window1, window2);
+                return;
+            }
+
+            while (!mustStop() && fill(window1) + fill(window2) > 0)
+            {
+                alignWindows(window1, window2);
+            }
+        }
+        catch (JsonProcessingException e)
+        {
+            String qualifier = e.getProcessor() == window1.parser ? "first" : "second";
+            log.error("Failed to parse the {} sample: {}", qualifier, e.getMessage());
+            diffRecorder.addMessage("Failed to parse the " + qualifier + " sample: " + e.getOriginalMessage());
+        }
+    }
+
+    private void compareWholeTrees(Window window1, Window window2) throws IOException
+    {
+        TreeNode<?> root1 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(window1.parser));
+        TreeNode<?> root2 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(window2.parser));
+        comparator.compareTrees(root1, root2, "");
+    }
+
+    private boolean mustStop()
+    {
+        return stopOnFirst && differs || diffRecorder.isLimitReached();
+    }
+
+    // Reads elements up to the window size, returns the number of elements in the window
+    private int fill(Window window) throws IOException
+    {
+        while (!window.exhausted && window.elements.size() < windowSize)
+        {
+            JsonToken token = window.parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY)
+            {
+                window.exhausted = true;
+            }
+            else
+            {
+                // Converted as roots, so positions do not affect hashes and shifted elements still match
+                int index = window.firstIndex + window.elements.size();
+                window.elements.addLast(TreeNodeConverter.fromJackson("",
+                        JsonComparator.OBJECT_MAPPER.readTree(window.parser), null, index));
+            }
+        }
+        return window.elements.size();
+    }
+
+    private void alignWindows(Window window1, Window window2)
+    {
+        // Equal heads are the common case - no need to run the diff
+        int common = 0;
+        while (!window1.elements.isEmpty() && !window2.elements.isEmpty()
+                && Objects.equals(window1.elements.peekFirst(), window2.elements.peekFirst()))
+        {
+            window1.drop(1);
+            window2.drop(1);
+            common++;
+        }
+        if (common > 0)
+        {
+            return;
+        }
+
+        List<TreeNode<?>> elements1 = new ArrayList<>(window1.elements);
+        List<TreeNode<?>> elements2 = new ArrayList<>(window2.elements);
+        List<Diff<TreeNode<?>>> diffs = MeyerAlgorithm.compareSequences(elements1, elements2);
+
+        int consumed1 = elements1.size();
+        int consumed2 = elements2.size();
+        if (!window1.exhausted || !window2.exhausted)
+        {
+            // Only the first half of windows is settled - the rest may realign with elements not read yet
+            int[] cut = findCut(diffs, elements1.size(), elements2.size());
+            consumed1 = cut[0];
+            consumed2 = cut[1];
+        }
+
+        List<Diff<TreeNode<?>>> settled = new ArrayList<>();
+        for (Diff<TreeNode<?>> diff : diffs)
+        {
+            if (diff.t() == DiffType.DELETE && diff.aIdx() < consumed1)
+            {
+                int idx = diff.aIdx() + window1.firstIndex;
+                settled.add(new Diff<>(diff.e(), DiffType.DELETE, idx, idx));
+            }
+            else if (diff.t() == DiffType.ADD && diff.aIdx() < consumed2)
+            {
+                int idx = diff.aIdx() + window2.firstIndex;
+                settled.add(new Diff<>(diff.e(), DiffType.ADD, idx, idx));
+            }
+        }
+        reportDiffs(settled);
+
+        window1.drop(consumed1);
+        window2.drop(consumed2);
+    }
+
+    // Finds numbers of elements that can be consumed from both windows - up to the last match in the first half.
+    private int[] findCut(List<Diff<TreeNode<?>>> diffs, int size1, int size2)
+    {
+        boolean[] deleted = new boolean[size1];
+        boolean[] added = new boolean[size2];
+        for (Diff<TreeNode<?>> diff : diffs)
+        {
+            if (diff.t() == DiffType.DELETE)
+            {
+                deleted[diff.aIdx()] = true;
+            }
+            else if (diff.t() == DiffType.ADD)
+            {
+                added[diff.aIdx()] = true;
+            }
+        }
+
+        int half = windowSize / 2;
+        int[] cut = {Math.min(half, size1), Math.min(half, size2)};
+        int i = 0;
+        int j = 0;
+        while (i < size1 && j < size2)
+        {
+            if (deleted[i])
+            {
+                i++;
+            }
+            else if (added[j])
+            {
+                j++;
+            }
+            else
+            {
+                if (i >= half || j >= half)
+                {
+                    break;
+                }
+                cut[0] = i + 1;
+                cut[1] = j + 1;
+                i++;
+                j++;
+            }
+        }
+        return cut;
+    }
+
+    private void reportDiffs(List<Diff<TreeNode<?>>> diffs)
+    {
+        if (diffs.isEmpty())
+        {
+            return;
+        }
+        differs = true;
+
+        BiMap<Diff<TreeNode<?>>, Diff<TreeNode<?>>> matchingMap = JsonComparator.createModifiedNodesMap2(diffs);
+        List<Diff<TreeNode<?>>> unmatchedDiffs = diffs.stream()
+                .filter(d -> !matchingMap.containsKey(d) && !matchingMap.containsValue(d))
+                .toList();
+        if (!unmatchedDiffs.isEmpty())
+        {
+            diffRecorder.addDifference(DifferenceType.CHILDREN, "/", "Array elements differ (diffs: %s)",
+                    JsonComparator.extractNamesOrIndices(unmatchedDiffs, NodeType.ARRAY));
+            if (mustStop())
+            {
+                return;
+            }
+        }
+
+        for (Map.Entry<Diff<TreeNode<?>>, Diff<TreeNode<?>>> entry : matchingMap.entrySet())
+        {
+            Diff<TreeNode<?>> deleted = entry.getKey().t() == DiffType.DELETE ? entry.getKey() : entry.getValue();
+            Diff<TreeNode<?>> added = entry.getKey().t() == DiffType.DELETE ? entry.getValue() : entry.getKey();
+            if (!comparator.compareTrees(deleted.e(), added.e(), "/[" + deleted.aIdx() + "]") && mustStop())
+            {
+                return;
+            }
+        }
+    }
+}
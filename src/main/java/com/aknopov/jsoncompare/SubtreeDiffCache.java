@@ -0,0 +1,124 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Differences of compared pairs of subtrees kept between comparisons of edited trees. Pairs are identified by
+ * hashes and paths of nodes, so differences of subtrees that were not edited since the previous comparison are
+ * replayed instead of being recomputed. Also collects all differences of the current comparison.
+ */
+final class SubtreeDiffCache implements DiffSink
+{
+    // Hashes are kept by value since nodes are re-hashed when edited
+    private record Key(int hash1, int hash2, String path1, String path2)
+    {
+    }
+
+    // Differences of a pair and keys of pairs compared within it, so that they are kept when the pair is replayed
+    private record Entry(List<Difference> differences, List<Key> nested)
+    {
+    }
+
+    private Map<Key, Entry> previous = new HashMap<>();
+    private Map<Key, Entry> current = new HashMap<>();
+    private final List<Difference> differences = new ArrayList<>();
+    // Keys of pairs compared within each pair being compared
+    private final Deque<List<Key>> nestedKeys = new ArrayDeque<>();
+
+    /**
+     * Starts a new comparison - only pairs of subtrees met in the previous comparison are kept
+     */
+    void startComparison()
+    {
+        previous = current;
+        current = new HashMap<>();
+        differences.clear();
+        nestedKeys.clear();
+    }
+
+    @Override
+    public void accept(Difference difference)
+    {
+        differences.add(difference);
+    }
+
+    /**
+     * @return differences of the current comparison
+     */
+    List<Difference> getDifferences()
+    {
+        return List.copyOf(differences);
+    }
+
+    /**
+     * Compares a pair of different subtrees or replays their differences from the previous comparison.
+     *
+     * @param node1 node of the first tree
+     * @param node2 node of the second tree
+     * @param comparison comparison of the subtrees reporting differences to the recorder
+     * @param diffRecorder recorder of the current comparison
+     *
+     * @return result of the comparison
+     */
+    boolean compare(TreeNode<?> node1, TreeNode<?> node2, BooleanSupplier comparison, DiffRecorder diffRecorder)
+    {
+        Key key = new Key(node1.hashCode(), node2.hashCode(), node1.path(), node2.path());
+        List<Key> parentNested = nestedKeys.peek();
+        if (parentNested != null)
+        {
+            parentNested.add(key);
+        }
+
+        Entry cached = previous.get(key);
+        if (cached != null)
+        {
+            cached.differences().forEach(diffRecorder::addDifference);
+            if (isComplete(diffRecorder))
+            {
+                carry(key);
+            }
+            return false;
+        }
+
+        int start = differences.size();
+        List<Key> nested = new ArrayList<>();
+        nestedKeys.push(nested);
+        boolean equal = comparison.getAsBoolean();
+        nestedKeys.pop();
+        if (isComplete(diffRecorder))
+        {
+            current.put(key, new Entry(List.copyOf(differences.subList(start, differences.size())),
+                    List.copyOf(nested)));
+        }
+        return equal;
+    }
+
+    // Replayed pair keeps its nested pairs, which are compared again when the pair changes
+    private void carry(Key key)
+    {
+        Deque<Key> pending = new ArrayDeque<>();
+        pending.push(key);
+        while (!pending.isEmpty())
+        {
+            Key next = pending.pop();
+            Entry entry = previous.get(next);
+            if (entry != null)
+            {
+                current.put(next, entry);
+                entry.nested().forEach(pending::push);
+            }
+        }
+    }
+
+    // Incomplete results are not kept
+    private static boolean isComplete(DiffRecorder diffRecorder)
+    {
+        return !diffRecorder.isLimitReached() && !diffRecorder.isApproximate();
+    }
+}
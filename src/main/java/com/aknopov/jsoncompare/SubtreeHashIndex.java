@@ -0,0 +1,541 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+
+/**
+ * Merkle-like index of a JSON document: structural hash and byte span of every subtree.
+ * <p>
+ * The index is built with a single streaming pass without creating tree nodes. Records are stored
+ * in depth-first order with fixed size in chunks of {@value #CHUNK_RECORDS} records, so offsets within chunks fit
+ * in {@code int} for any document size. The index can be saved as a compact sidecar file and memory-mapped later.
+ * Hashes are stable between runs, so a saved index of a baseline can be matched against a freshly built index
+ * of a candidate document.
+ */
+public final class SubtreeHashIndex
+{
+    // Node types (persisted)
+    static final byte TEXT = 0;
+    static final byte NUMBER = 1;
+    static final byte BOOLEAN = 2;
+    static final byte ARRAY = 3;
+    static final byte OBJECT = 4;
+    static final byte NULL = 5;
+
+    private static final int MAGIC = 0x4A434958; // "JCIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    // Record layout
+    private static final int HASH = 0;
+    private static final int NAME_HASH = 8;
+    private static final int KEY_START = 16;
+    private static final int START = 24;
+    private static final int END = 32;
+    private static final int SUBTREE_SIZE = 40;
+    private static final int CHILD_COUNT = 44;
+    private static final int TYPE = 48;
+    private static final int RECORD_SIZE = 56;
+
+    private static final int CHUNK_BITS = 14;
+    static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+    private static final int CHUNK_SIZE = CHUNK_RECORDS * RECORD_SIZE;
+    // Chunks mapped by a single mapping of a sidecar file, below 2 GB
+    private static final int CHUNKS_PER_MAPPING = 2048;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Typical number of document bytes per node, used to size records of a document in advance
+    private static final int BYTES_PER_NODE = 16;
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final List<ByteBuffer> chunks;
+    private final int size;
+    private final long sourceLength;
+
+    private SubtreeHashIndex(List<ByteBuffer> chunks, int size, long sourceLength)
+    {
+        this.chunks = chunks;
+        this.size = size;
+        this.sourceLength = sourceLength;
+    }
+
+    /**
+     * Builds index of a JSON document with a single streaming pass.
+     *
+     * @param document path to the document
+     * @return built index
+     * @throws IOException if the document can't be read or parsed
+     */
+    public static SubtreeHashIndex build(Path document) throws IOException
+    {
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(document.toFile()))
+        {
+            long length = Files.size(document);
+            return new Builder(parser, length, null).build(length);
+        }
+    }
+
+    /**
+     * Builds index of a JSON document with a single streaming pass.
+     *
+     * @param document document bytes
+     * @return built index
+     * @throws IOException if the document can't be parsed
+     */
+    public static SubtreeHashIndex build(byte[] document) throws IOException
+    {
+        return build(document, InputLimits.NONE);
+    }
+
+    /**
+     * Builds index of a JSON document with a single streaming pass enforcing input limits.
+     *
+     * @param document document bytes
+     * @param limits input limits
+     * @return built index
+     * @throws IOException if the document can't be parsed
+     * @throws StreamConstraintsException if the document exceeds limits
+     */
+    static SubtreeHashIndex build(byte[] document, InputLimits limits) throws IOException
+    {
+        InputGuard guard = InputGuard.of(limits);
+        if (guard != null)
+        {
+            guard.checkInputBytes(document.length);
+        }
+        try (JsonParser parser = limits.createParser(InputFormat.JSON, document))
+        {
+            return new Builder(parser, document.length, guard).build(document.length);
+        }
+    }
+
+    /**
+     * Saves the index into a sidecar file.
+     *
+     * @param sidecar path to the file
+     * @throws IOException if writing fails
+     */
+    public void save(Path sidecar) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sourceLength).putInt(size).putInt(RECORD_SIZE).flip();
+
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            write(channel, header);
+            for (int chunk = 0; (long)chunk * CHUNK_RECORDS < size; chunk++)
+            {
+                int records = Math.min(size - chunk * CHUNK_RECORDS, CHUNK_RECORDS);
+                write(channel, chunks.get(chunk).duplicate().position(0).limit(records * RECORD_SIZE));
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads the index from a sidecar file. The file is memory-mapped, not read.
+     *
+     * @param sidecar path to the file
+     * @return loaded index
+     * @throws IOException if reading fails or the file is not a valid index
+     */
+    public static SubtreeHashIndex load(Path sidecar) throws IOException
+    {
+        return load(sidecar, CHUNKS_PER_MAPPING);
+    }
+
+    // Files larger than a single mapping can hold are mapped in several regions of whole chunks
+    static SubtreeHashIndex load(Path sidecar, int chunksPerMapping) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ))
+        {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(20) != RECORD_SIZE)
+            {
+                throw new IOException("Not a subtree hash index: " + sidecar);
+            }
+            long sourceLength = header.getLong(8);
+            int size = header.getInt(16);
+            long recordsLength = (long)size * RECORD_SIZE;
+            if (size < 0 || recordsLength + HEADER_SIZE > channel.size())
+            {
+                throw new IOException("Truncated subtree hash index: " + sidecar);
+            }
+
+            List<ByteBuffer> chunks = new ArrayList<>();
+            long mappingSize = (long)chunksPerMapping * CHUNK_SIZE;
+            for (long from = 0; from < recordsLength; from += mappingSize)
+            {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + from,
+                        Math.min(mappingSize, recordsLength - from));
+                for (int position = 0; position < mapped.limit(); position += CHUNK_SIZE)
+                {
+                    chunks.add(mapped.slice(position, Math.min(CHUNK_SIZE, mapped.limit() - position))
+                            .order(ByteOrder.LITTLE_ENDIAN));
+                }
+            }
+            return new SubtreeHashIndex(chunks, size, sourceLength);
+        }
+    }
+
+    /**
+     * @return number of indexed nodes
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return length of the indexed document in bytes
+     */
+    public long sourceLength()
+    {
+        return sourceLength;
+    }
+
+    /**
+     * @return hash of the whole document
+     */
+    public long rootHash()
+    {
+        return size == 0 ? 0 : hash(0);
+    }
+
+    long hash(int node)
+    {
+        return chunk(node).getLong(offset(node) + HASH);
+    }
+
+    long nameHash(int node)
+    {
+        return chunk(node).getLong(offset(node) + NAME_HASH);
+    }
+
+    // Offset of the field name or -1 for array elements and the root
+    long keyStart(int node)
+    {
+        return chunk(node).getLong(offset(node) + KEY_START);
+    }
+
+    long start(int node)
+    {
+        return chunk(node).getLong(offset(node) + START);
+    }
+
+    long end(int node)
+    {
+        return chunk(node).getLong(offset(node) + END);
+    }
+
+    int childCount(int node)
+    {
+        return chunk(node).getInt(offset(node) + CHILD_COUNT);
+    }
+
+    byte type(int node)
+    {
+        return chunk(node).get(offset(node) + TYPE);
+    }
+
+    int firstChild(int node)
+    {
+        return node + 1;
+    }
+
+    int nextSibling(int node)
+    {
+        return node + chunk(node).getInt(offset(node) + SUBTREE_SIZE);
+    }
+
+    private ByteBuffer chunk(int node)
+    {
+        return chunks.get(node >>> CHUNK_BITS);
+    }
+
+    // Offset of the record in its chunk
+    private static int offset(int node)
+    {
+        return (node & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    // Murmur3 finalizer
+    static long mix(long k)
+    {
+        long h = k;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Order-sensitive combination of hash state with the next value
+    static long combine(long state, long value)
+    {
+        return Long.rotateLeft(state ^ mix(value), 27) * MULTIPLIER;
+    }
+
+    static long hashString(String s)
+    {
+        long h = SEED;
+        for (int i = 0; i < s.length(); i++)
+        {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return mix(h ^ s.length());
+    }
+
+    // Same as hashString for the text in the range of the array
+    static long hashChars(char[] chars, int offset, int length)
+    {
+        long h = SEED;
+        for (int i = offset; i < offset + length; i++)
+        {
+            h = (h ^ chars[i]) * FNV_PRIME;
+        }
+        return mix(h ^ length);
+    }
+
+    /**
+     * Streaming index builder
+     */
+    private static final class Builder
+    {
+        private final JsonParser parser;
+        @Nullable
+        private final InputGuard guard;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        // Capacity of the first chunk in records, estimated by document size
+        private final int initialCapacity;
+        private int size;
+        // Open containers: node index and accumulated hash
+        private int[] openNodes = new int[16];
+        private long[] openHashes = new long[16];
+        private int depth;
+
+        private Builder(JsonParser parser, long sourceLength, @Nullable InputGuard guard)
+        {
+            this.parser = parser;
+            this.guard = guard;
+            this.initialCapacity = (int)Math.min(Math.max(sourceLength / BYTES_PER_NODE, INITIAL_CAPACITY),
+                    CHUNK_RECORDS);
+        }
+
+        private SubtreeHashIndex build(long sourceLength) throws IOException
+        {
+            long nameHash = 0;
+            long keyStart = -1;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null)
+            {
+                long start = parser.currentTokenLocation().getByteOffset();
+                switch (token)
+                {
+                    case FIELD_NAME ->
+                    {
+                        String name = parser.currentName();
+                        if (guard != null)
+                        {
+                            guard.checkName(name);
+                        }
+                        nameHash = hashString(name);
+                        keyStart = start;
+                        continue;
+                    }
+                    case START_OBJECT, START_ARRAY ->
+                    {
+                        byte type = token == JsonToken.START_OBJECT ? OBJECT : ARRAY;
+                        int node = addRecord(type, nameHash, keyStart, start);
+                        push(node, combine(combine(SEED, type), nameHash));
+                    }
+                    case END_OBJECT, END_ARRAY -> closeContainer(start + 1);
+                    default -> addValue(token, nameHash, keyStart, start);
+                }
+                nameHash = 0;
+                keyStart = -1;
+            }
+            return new SubtreeHashIndex(chunks, size, sourceLength);
+        }
+
+        private void addValue(JsonToken token, long nameHash, long keyStart, long start) throws IOException
+        {
+            long valueHash;
+            byte type;
+            switch (token)
+            {
+                case VALUE_STRING ->
+                {
+                    type = TEXT;
+                    if (guard != null)
+                    {
+                        guard.checkTextLength(parser.getTextLength());
+                    }
+                    // Text is hashed in the parser buffer without creating a string
+                    valueHash = hashChars(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                {
+                    type = NUMBER;
+                    // Numbers are compared as doubles - `1` and `1.0` are the same
+                    double value = parser.getNumberType() == JsonParser.NumberType.INT
+                            || parser.getNumberType() == JsonParser.NumberType.LONG
+                            ? parser.getLongValue()
+                            : parser.getDoubleValue();
+                    valueHash = mix(Double.doubleToLongBits(value));
+                }
+                case VALUE_TRUE, VALUE_FALSE ->
+                {
+                    type = BOOLEAN;
+                    valueHash = token == JsonToken.VALUE_TRUE ? 1 : 2;
+                }
+                case VALUE_NULL ->
+                {
+                    type = NULL;
+                    valueHash = 0;
+                }
+                default ->
+                {
+                    type = TEXT;
+                    valueHash = hashString(parser.getText());
+                }
+            }
+
+            int node = addRecord(type, nameHash, keyStart, start);
+            long hash = combine(combine(combine(SEED, type), nameHash), valueHash);
+            finishRecord(node, hash, valueEnd(token, start));
+        }
+
+        // Ends of literals other than strings are known without asking the parser for its location
+        private long valueEnd(JsonToken token, long start) throws IOException
+        {
+            return switch (token)
+            {
+                // Number literals are ASCII text kept by the parser as is
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> start + parser.getTextLength();
+                case VALUE_TRUE, VALUE_NULL -> start + 4;
+                case VALUE_FALSE -> start + 5;
+                default -> parser.currentLocation().getByteOffset();
+            };
+        }
+
+        private int addRecord(byte type, long nameHash, long keyStart, long start) throws IOException
+        {
+            if (size == Integer.MAX_VALUE)
+            {
+                throw new JsonParseException(parser, "Document has too many nodes to index: " + size);
+            }
+            ByteBuffer records = reserve(size);
+            int base = offset(size);
+            records.putLong(base + NAME_HASH, nameHash)
+                    .putLong(base + KEY_START, keyStart)
+                    .putLong(base + START, start)
+                    .put(base + TYPE, type);
+            if (depth > 0)
+            {
+                // Children are counted as they appear
+                int parent = openNodes[depth - 1];
+                ByteBuffer parentRecords = chunk(parent);
+                int parentBase = offset(parent);
+                int childCount = parentRecords.getInt(parentBase + CHILD_COUNT) + 1;
+                if (guard != null && parentRecords.get(parentBase + TYPE) == ARRAY)
+                {
+                    guard.checkArrayLength(childCount);
+                }
+                parentRecords.putInt(parentBase + CHILD_COUNT, childCount);
+            }
+            if (guard != null)
+            {
+                guard.countNode();
+            }
+            return size++;
+        }
+
+        // Chunk with space for the record; only the last chunk grows, others are full
+        private ByteBuffer reserve(int node)
+        {
+            int index = node >>> CHUNK_BITS;
+            if (index == chunks.size())
+            {
+                int capacity = index == 0 ? initialCapacity : CHUNK_RECORDS;
+                chunks.add(ByteBuffer.allocate(capacity * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+            }
+            ByteBuffer records = chunks.get(index);
+            if (offset(node) + RECORD_SIZE > records.capacity())
+            {
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(records.capacity() * 2, CHUNK_SIZE))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                grown.put(records.position(0));
+                records = grown;
+                chunks.set(index, records);
+            }
+            return records;
+        }
+
+        private ByteBuffer chunk(int node)
+        {
+            return chunks.get(node >>> CHUNK_BITS);
+        }
+
+        private void finishRecord(int node, long hash, long end)
+        {
+            int base = offset(node);
+            chunk(node).putLong(base + HASH, hash)
+                    .putLong(base + END, end)
+                    .putInt(base + SUBTREE_SIZE, size - node);
+            if (depth > 0)
+            {
+                openHashes[depth - 1] = combine(openHashes[depth - 1], hash);
+            }
+        }
+
+        private void push(int node, long hash)
+        {
+            if (depth == openNodes.length)
+            {
+                openNodes = Arrays.copyOf(openNodes, depth * 2);
+                openHashes = Arrays.copyOf(openHashes, depth * 2);
+            }
+            openNodes[depth] = node;
+            openHashes[depth] = hash;
+            depth++;
+        }
+
+        private void closeContainer(long end)
+        {
+            depth--;
+            int node = openNodes[depth];
+            int childCount = chunk(node).getInt(offset(node) + CHILD_COUNT);
+            finishRecord(node, combine(openHashes[depth], childCount), end);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The class implements three-way comparison of a base document against two edited versions, e.g. for detection
+ * of merge conflicts. The base is parsed once, both versions are compared with it - in parallel for large
+ * documents, and differences are merged by paths of the base document.
+ */
+@Slf4j
+public final class ThreeWayComparator
+{
+    /**
+     * Total length of the base and a version starting from which versions are compared in parallel
+     */
+    public final static int PARALLEL_MIN_LENGTH = 1 << 20;
+
+    // Comparison of the base with one version
+    private record Side(@Nullable String error, List<Difference> differences, Set<String> replaced)
+    {
+    }
+
+    private ThreeWayComparator()
+    {
+    }
+
+    /**
+     * Compares two versions of a JSON document with their base.
+     *
+     * @param base base document
+     * @param left left version
+     * @param right right version
+     * @param options options of comparison of each version with the base
+     *
+     * @return changes by paths of the base document
+     */
+    public static ThreeWayResult compare(String base, String left, String right, ComparisonOptions options)
+    {
+        List<String> errors = new ArrayList<>();
+        TreeNode<?> baseRoot = prepare(base, "base", errors);
+        if (baseRoot == null)
+        {
+            return new ThreeWayResult(List.of(), errors);
+        }
+
+        Side leftSide;
+        Side rightSide;
+        if (base.length() + Math.max(left.length(), right.length()) >= PARALLEL_MIN_LENGTH)
+        {
+            CompletableFuture<Side> future = CompletableFuture.supplyAsync(
+                    () -> compareSide(baseRoot, left, "left", options));
+            rightSide = compareSide(baseRoot, right, "right", options);
+            try
+            {
+                leftSide = future.join();
+            }
+            catch (CompletionException e)
+            {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        else
+        {
+            leftSide = compareSide(baseRoot, left, "left", options);
+            rightSide = compareSide(baseRoot, right, "right", options);
+        }
+
+        if (leftSide.error() != null || rightSide.error() != null)
+        {
+            for (Side side : List.of(leftSide, rightSide))
+            {
+                String error = side.error();
+                if (error != null)
+                {
+                    errors.add(error);
+                }
+            }
+            return new ThreeWayResult(List.of(), errors);
+        }
+        return new ThreeWayResult(classify(leftSide, rightSide), List.of());
+    }
+
+    @Nullable
+    private static TreeNode<?> prepare(String sample, String qualifier, List<String> errors)
+    {
+        try
+        {
+            JsonNode root = JsonComparator.OBJECT_MAPPER.readTree(sample);
+            if (root.isMissingNode())
+            {
+                errors.add("Empty input for the " + qualifier + " sample");
+                return null;
+            }
+            return TreeNodeConverter.fromJacksonRoot(root);
+        }
+        catch (JsonProcessingException e)
+        {
+            log.error("Failed to parse the {} sample: {}", qualifier, e.getMessage());
+            errors.add("Failed to parse the " + qualifier + " sample: " + e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    // Base tree is only read, so both sides can be compared concurrently
+    private static Side compareSide(TreeNode<?> baseRoot, String sample, String qualifier,
+            ComparisonOptions options)
+    {
+        List<String> errors = new ArrayList<>(1);
+        TreeNode<?> root = prepare(sample, qualifier, errors);
+        if (root == null)
+        {
+            return new Side(errors.get(0), List.of(), Set.of());
+        }
+
+        List<Difference> differences = new ArrayList<>();
+        Set<String> replaced = new HashSet<>();
+        JsonComparator comparator = new JsonComparator(options, new DiffRecorder(options, differences::add));
+        comparator.onRemoval(replaced::add);
+        comparator.compareTrees(baseRoot, root, "");
+        for (Difference difference : differences)
+        {
+            if (difference.type() == DifferenceType.TYPE || difference.type() == DifferenceType.MOVE)
+            {
+                replaced.add(difference.path());
+            }
+        }
+        return new Side(null, differences, replaced);
+    }
+
+    private static List<PathChange> classify(Side left, Side right)
+    {
+        Map<String, List<Difference>> leftByPath = byPath(left.differences());
+        Map<String, List<Difference>> rightByPath = byPath(right.differences());
+        Set<String> paths = new TreeSet<>(leftByPath.keySet());
+        paths.addAll(rightByPath.keySet());
+
+        List<PathChange> changes = new ArrayList<>(paths.size());
+        for (String path : paths)
+        {
+            List<Difference> leftDiffs = leftByPath.getOrDefault(path, List.of());
+            List<Difference> rightDiffs = rightByPath.getOrDefault(path, List.of());
+            ChangeKind kind;
+            if (leftDiffs.isEmpty())
+            {
+                kind = isReplaced(path, left.replaced()) ? ChangeKind.CONFLICT : ChangeKind.CHANGED_RIGHT;
+            }
+            else if (rightDiffs.isEmpty())
+            {
+                kind = isReplaced(path, right.replaced()) ? ChangeKind.CONFLICT : ChangeKind.CHANGED_LEFT;
+            }
+            else
+            {
+                kind = messages(leftDiffs).equals(messages(rightDiffs))
+                        ? ChangeKind.CHANGED_BOTH_SAME
+                        : ChangeKind.CONFLICT;
+            }
+            changes.add(new PathChange(path, kind, leftDiffs, rightDiffs));
+        }
+        return changes;
+    }
+
+    private static Map<String, List<Difference>> byPath(List<Difference> differences)
+    {
+        Map<String, List<Difference>> byPath = new TreeMap<>();
+        for (Difference difference : differences)
+        {
+            byPath.computeIfAbsent(difference.path(), p -> new ArrayList<>()).add(difference);
+        }
+        return byPath;
+    }
+
+    private static List<String> messages(List<Difference> differences)
+    {
+        return differences.stream()
+                .map(Difference::message)
+                .toList();
+    }
+
+    // True if the node or one of its ancestors was removed, moved or replaced with a node of another type
+    private static boolean isReplaced(String path, Set<String> replaced)
+    {
+        String current = path;
+        while (!current.isEmpty())
+        {
+            if (replaced.contains(current))
+            {
+                return true;
+            }
+            int slash = current.lastIndexOf('/');
+            current = slash > 0 ? current.substring(0, slash) : current.equals("/") ? "" : "/";
+        }
+        return false;
+    }
+}
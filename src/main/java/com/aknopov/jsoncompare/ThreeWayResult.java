@@ -0,0 +1,20 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+
+/**
+ * Result of three-way comparison
+ *
+ * @param changes changes ordered by paths
+ * @param inputErrors messages about documents that can't be parsed or are empty; there are no changes then
+ */
+public record ThreeWayResult(List<PathChange> changes, List<String> inputErrors)
+{
+    /**
+     * @return true if any path is in conflict
+     */
+    public boolean hasConflicts()
+    {
+        return changes.stream().anyMatch(c -> c.kind() == ChangeKind.CONFLICT);
+    }
+}
@@ -40,7 +40,7 @@ class TreeNode<T>
     @Nullable
     private final TreeNode<?> parent;
     private final List<TreeNode<?>> children;
-    private final int index;
+    private int index;
     @Getter(AccessLevel.NONE)
     private final CRC32C crc32 = new CRC32C();
     @Getter(AccessLevel.NONE)
@@ -74,6 +74,48 @@ class TreeNode<T>
         return this;
     }
 
+    /**
+     * Inserts a child shifting following children. Hashes of this node and its ancestors are updated.
+     *
+     * @param position position of the child
+     * @param child child created with this node as parent
+     */
+    void insertChild(int position, TreeNode<?> child)
+    {
+        children.add(position, child);
+        reindexChildren(position);
+        rehashUpwards();
+    }
+
+    /**
+     * Removes a child shifting following children. Hashes of this node and its ancestors are updated.
+     *
+     * @param position position of the child
+     * @return removed child
+     */
+    TreeNode<?> removeChild(int position)
+    {
+        TreeNode<?> removed = children.remove(position);
+        reindexChildren(position);
+        rehashUpwards();
+        return removed;
+    }
+
+    /**
+     * Replaces a child. Hashes of this node and its ancestors are updated.
+     *
+     * @param position position of the child
+     * @param child child created with this node as parent
+     * @return replaced child
+     */
+    TreeNode<?> replaceChild(int position, TreeNode<?> child)
+    {
+        TreeNode<?> replaced = children.set(position, child);
+        reindexChildren(position);
+        rehashUpwards();
+        return replaced;
+    }
+
     int numChildren()
     {
         return children.size();
@@ -121,6 +163,39 @@ class TreeNode<T>
         }
     }
 
+    // Array elements hash their indices, so shifted elements are re-hashed
+    private void reindexChildren(int from)
+    {
+        for (int i = from; i < children.size(); i++)
+        {
+            TreeNode<?> child = children.get(i);
+            if (child.index != i)
+            {
+                child.index = i;
+                if (nodeType == NodeType.ARRAY)
+                {
+                    child.rehash();
+                }
+            }
+        }
+    }
+
+    // Hashes of children are up-to-date, so only the parent chain is re-hashed
+    private void rehashUpwards()
+    {
+        for (TreeNode<?> node = this; node != null; node = node.parent)
+        {
+            node.rehash();
+        }
+    }
+
+    private void rehash()
+    {
+        crc32.reset();
+        initCrc32();
+        children.forEach(this::updateCrc);
+    }
+
     private void updateCrc(TreeNode<?> child)
     {
         updateCrcWithHash(child.hashCode());
@@ -1,8 +1,14 @@
 package com.aknopov.jsoncompare;
 
+import java.io.IOException;
+
 import javax.annotation.Nullable;
 
 import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
 
@@ -23,7 +29,20 @@ final class TreeNodeConverter
      */
     static TreeNode<?> fromJacksonRoot(JsonNode jsonNode)
     {
-        return fromJackson("", jsonNode, null, 0);
+        ComparisonPhaseEvent event = new ComparisonPhaseEvent();
+        event.begin();
+
+        TreeNode<?> root = fromJackson("", jsonNode, null, 0);
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.phase = ComparisonPhaseEvent.CONVERT;
+            event.path = "/";
+            event.childCount = root.getChildren().size();
+            event.commit();
+        }
+        return root;
     }
 
     /**
@@ -65,6 +84,155 @@ final class TreeNodeConverter
         return treeNode;
     }
 
+    /**
+     * Converts parsed tokens to {@code TreeNode} tree without building Jackson tree. Hashes of subtrees are
+     * computed as soon as their last tokens are read.
+     *
+     * @param parser parser positioned before the document
+     * @return converted tree or null if there is no content
+     * @throws IOException if the document can't be parsed
+     */
+    @Nullable
+    static TreeNode<?> fromParser(JsonParser parser) throws IOException
+    {
+        return fromParser(parser, null);
+    }
+
+    /**
+     * Converts parsed tokens to {@code TreeNode} tree. When the parser reads UTF-8 JSON from a byte array, values
+     * of string leaves refer to the array and are decoded only when rendered.
+     *
+     * @param parser parser positioned before the document
+     * @param utf8Json the array the parser reads or null if string values should be decoded
+     * @return converted tree or null if there is no content
+     * @throws IOException if the document can't be parsed
+     */
+    @Nullable
+    static TreeNode<?> fromParser(JsonParser parser, @Nullable byte[] utf8Json) throws IOException
+    {
+        return fromParser(parser, utf8Json, null);
+    }
+
+    /**
+     * Converts parsed tokens to {@code TreeNode} tree counting nodes and array elements against input limits
+     *
+     * @param parser parser positioned before the document
+     * @param utf8Json the array the parser reads or null if string values should be decoded
+     * @param guard counters of the document or null if there are no limits
+     * @return converted tree or null if there is no content
+     * @throws IOException if the document can't be parsed or exceeds limits
+     */
+    @Nullable
+    static TreeNode<?> fromParser(JsonParser parser, @Nullable byte[] utf8Json, @Nullable InputGuard guard)
+            throws IOException
+    {
+        JsonToken token = parser.nextToken();
+        return token != null ? fromParser("", token, parser, utf8Json, 0, guard, null, 0) : null;
+    }
+
+    /**
+     * Converts a subtree spanning a range of UTF-8 JSON document. String values refer to the document.
+     *
+     * @param utf8Json the document
+     * @param start start of the subtree, inclusive
+     * @param end end of the subtree, exclusive
+     * @param name tree node name
+     * @param index index in the parent child list
+     * @return converted subtree
+     * @throws IOException if the range is not a JSON value
+     */
+    static TreeNode<?> fromSpan(byte[] utf8Json, int start, int end, String name, int index) throws IOException
+    {
+        try (JsonParser parser = JsonComparator.OBJECT_MAPPER.createParser(utf8Json, start, end - start))
+        {
+            JsonToken token = parser.nextToken();
+            if (token == null)
+            {
+                throw new JsonParseException(parser, "No content in range [" + start + ", " + end + ")");
+            }
+            return fromParser(name, token, parser, utf8Json, start, null, null, index);
+        }
+    }
+
+    // Token offsets of a parser created for a range of the document are relative to the range start
+    private static TreeNode<?> fromParser(String name, JsonToken token, JsonParser parser, @Nullable byte[] utf8Json,
+            int base, @Nullable InputGuard guard, @Nullable TreeNode<?> parent, int index) throws IOException
+    {
+        if (guard != null)
+        {
+            guard.countNode();
+        }
+        return switch (token)
+        {
+            case START_OBJECT ->
+            {
+                TreeNode<?> treeNode = new TreeNode<>(name, NodeType.OBJECT, parent, null, index);
+                int idx = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME)
+                {
+                    String childName = parser.currentName();
+                    if (guard != null)
+                    {
+                        guard.checkName(childName);
+                    }
+                    treeNode.addChild(fromParser(childName, parser.nextToken(), parser, utf8Json, base, guard,
+                            treeNode, idx++));
+                }
+                yield treeNode;
+            }
+            case START_ARRAY ->
+            {
+                TreeNode<?> treeNode = new TreeNode<>(name, NodeType.ARRAY, parent, null, index);
+                int idx = 0;
+                for (JsonToken childToken = parser.nextToken(); childToken != JsonToken.END_ARRAY;
+                        childToken = parser.nextToken())
+                {
+                    if (guard != null)
+                    {
+                        guard.checkArrayLength(idx + 1);
+                    }
+                    treeNode.addChild(fromParser("", childToken, parser, utf8Json, base, guard, treeNode, idx++));
+                }
+                yield treeNode;
+            }
+            case VALUE_STRING -> new TreeNode<>(name, NodeType.TEXT, parent,
+                    textValue(parser, utf8Json, base, guard), index);
+            // Binary values of binary formats are Base64 text, like in Jackson trees
+            case VALUE_EMBEDDED_OBJECT -> new TreeNode<>(name, NodeType.TEXT, parent,
+                    Base64Variants.getDefaultVariant().encode(parser.getBinaryValue()), index);
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                    new TreeNode<>(name, NodeType.NUMBER, parent, parser.getDoubleValue(), index);
+            case VALUE_TRUE, VALUE_FALSE ->
+                    new TreeNode<>(name, NodeType.BOOLEAN, parent, token == JsonToken.VALUE_TRUE, index);
+            case VALUE_NULL -> throw new IllegalArgumentException("Can't convert node of type 'NULL' to value");
+            default -> throw new IllegalArgumentException("Unexpected token '" + token + "'");
+        };
+    }
+
+    // Jackson checks lengths of strings only when they don't fit in its buffer, so they are checked here
+    private static Object textValue(JsonParser parser, @Nullable byte[] utf8Json, int base,
+            @Nullable InputGuard guard) throws IOException
+    {
+        if (utf8Json != null)
+        {
+            long quote = base + parser.currentTokenLocation().getByteOffset();
+            Utf8Text text = quote <= Integer.MAX_VALUE ? Utf8Text.ofLiteral(utf8Json, (int)quote) : null;
+            if (text != null)
+            {
+                if (guard != null)
+                {
+                    guard.checkText(text);
+                }
+                return text;
+            }
+        }
+        if (guard != null)
+        {
+            guard.checkTextLength(parser.getTextLength());
+        }
+        return parser.getText();
+    }
+
     private static TreeNode<?> valueToTreeNode(String fieldName, JsonNode jsonNode, @Nullable TreeNode<?> parent, int index)
     {
         return switch (jsonNode.getNodeType())
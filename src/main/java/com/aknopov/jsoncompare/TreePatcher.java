@@ -0,0 +1,308 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.aknopov.jsoncompare.TreeNode.NodeType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Applies JSON Patch (RFC 6902) operations to a tree in place. Only nodes on the patched paths are created or
+ * removed, and hashes are updated along their parent chains. A patch is atomic - when an operation fails,
+ * preceding operations are rolled back.
+ */
+final class TreePatcher
+{
+    // Creates a node at the given location
+    @FunctionalInterface
+    private interface NodeFactory
+    {
+        TreeNode<?> create(String name, @Nullable TreeNode<?> parent, int index);
+    }
+
+    // Parent of the location referred by a pointer and the last reference token
+    private record Location(TreeNode<?> parent, String token)
+    {
+    }
+
+    private final ArrayDeque<Runnable> undoLog = new ArrayDeque<>();
+    private TreeNode<?> root;
+
+    private TreePatcher(TreeNode<?> root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Applies a patch to a tree.
+     *
+     * @param root root of the tree
+     * @param patch array of patch operations
+     * @return root of the patched tree - a new one when the whole document is replaced
+     * @throws IllegalArgumentException if the patch is malformed or can't be applied; the tree is left unchanged
+     */
+    static TreeNode<?> apply(TreeNode<?> root, JsonNode patch)
+    {
+        if (!patch.isArray())
+        {
+            throw new IllegalArgumentException("Patch should be an array of operations");
+        }
+
+        TreePatcher patcher = new TreePatcher(root);
+        try
+        {
+            for (JsonNode operation : patch)
+            {
+                patcher.applyOperation(operation);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            patcher.rollback();
+            throw e;
+        }
+        return patcher.root;
+    }
+
+    private void applyOperation(JsonNode operation)
+    {
+        String path = textField(operation, "path");
+        switch (textField(operation, "op"))
+        {
+            case "add" -> add(path, fromJson(valueField(operation)));
+            case "remove" -> remove(path);
+            case "replace" -> replace(path, fromJson(valueField(operation)));
+            case "move" ->
+            {
+                String from = textField(operation, "from");
+                if (path.startsWith(from + "/"))
+                {
+                    throw new IllegalArgumentException("Can't move '" + from + "' into its own child '" + path + "'");
+                }
+                if (!path.equals(from))
+                {
+                    add(path, copyOf(remove(from)));
+                }
+            }
+            case "copy" -> add(path, copyOf(resolve(textField(operation, "from"))));
+            case "test" -> test(path, valueField(operation));
+            default -> throw new IllegalArgumentException("Unknown patch operation: " + operation);
+        }
+    }
+
+    private void add(String path, NodeFactory factory)
+    {
+        if (path.isEmpty())
+        {
+            replaceRoot(factory);
+            return;
+        }
+        Location location = locate(path);
+        TreeNode<?> parent = location.parent();
+        if (parent.getNodeType() == NodeType.ARRAY)
+        {
+            int position = location.token().equals("-")
+                    ? parent.numChildren()
+                    : arrayIndex(location.token(), parent.numChildren() + 1, path);
+            insert(parent, position, factory.create("", parent, position));
+        }
+        else
+        {
+            int position = fieldIndex(parent, location.token());
+            if (position < 0)
+            {
+                insert(parent, parent.numChildren(), factory.create(location.token(), parent, parent.numChildren()));
+            }
+            else
+            {
+                replaceAt(parent, position, factory.create(location.token(), parent, position));
+            }
+        }
+    }
+
+    private TreeNode<?> remove(String path)
+    {
+        if (path.isEmpty())
+        {
+            throw new IllegalArgumentException("Can't remove the whole document");
+        }
+        Location location = locate(path);
+        int position = existingIndex(location, path);
+        TreeNode<?> parent = location.parent();
+        TreeNode<?> removed = parent.removeChild(position);
+        undoLog.push(() -> parent.insertChild(position, removed));
+        return removed;
+    }
+
+    private void replace(String path, NodeFactory factory)
+    {
+        if (path.isEmpty())
+        {
+            replaceRoot(factory);
+            return;
+        }
+        Location location = locate(path);
+        int position = existingIndex(location, path);
+        TreeNode<?> parent = location.parent();
+        replaceAt(parent, position, factory.create(parent.getChild(position).getName(), parent, position));
+    }
+
+    private void test(String path, JsonNode value)
+    {
+        TreeNode<?> node = resolve(path);
+        TreeNode<?> expected = TreeNodeConverter.fromJackson(node.getName(), value, node.getParent(), node.getIndex());
+        if (!expected.equals(node))
+        {
+            throw new IllegalArgumentException("Test failed for path '" + path + "'");
+        }
+    }
+
+    private void insert(TreeNode<?> parent, int position, TreeNode<?> child)
+    {
+        parent.insertChild(position, child);
+        undoLog.push(() -> parent.removeChild(position));
+    }
+
+    private void replaceAt(TreeNode<?> parent, int position, TreeNode<?> child)
+    {
+        TreeNode<?> replaced = parent.replaceChild(position, child);
+        undoLog.push(() -> parent.replaceChild(position, replaced));
+    }
+
+    private void replaceRoot(NodeFactory factory)
+    {
+        TreeNode<?> replaced = root;
+        root = factory.create("", null, 0);
+        undoLog.push(() -> root = replaced);
+    }
+
+    private void rollback()
+    {
+        while (!undoLog.isEmpty())
+        {
+            undoLog.pop().run();
+        }
+    }
+
+    private TreeNode<?> resolve(String path)
+    {
+        if (path.isEmpty())
+        {
+            return root;
+        }
+        Location location = locate(path);
+        return location.parent().getChild(existingIndex(location, path));
+    }
+
+    // Resolves all reference tokens of the pointer but the last one
+    private Location locate(String path)
+    {
+        List<String> tokens = parsePointer(path);
+        TreeNode<?> node = root;
+        for (String token : tokens.subList(0, tokens.size() - 1))
+        {
+            node = node.getChild(existingIndex(new Location(node, token), path));
+        }
+        if (node.getNodeType() != NodeType.ARRAY && node.getNodeType() != NodeType.OBJECT)
+        {
+            throw new IllegalArgumentException("Parent of path '" + path + "' is not a container");
+        }
+        return new Location(node, tokens.get(tokens.size() - 1));
+    }
+
+    private static int existingIndex(Location location, String path)
+    {
+        TreeNode<?> parent = location.parent();
+        int position = switch (parent.getNodeType())
+        {
+            case ARRAY -> arrayIndex(location.token(), parent.numChildren(), path);
+            case OBJECT -> fieldIndex(parent, location.token());
+            default -> -1;
+        };
+        if (position < 0)
+        {
+            throw new IllegalArgumentException("Path not found: '" + path + "'");
+        }
+        return position;
+    }
+
+    private static int arrayIndex(String token, int limit, String path)
+    {
+        if (!token.matches("0|[1-9][0-9]{0,8}") || Integer.parseInt(token) >= limit)
+        {
+            throw new IllegalArgumentException("Invalid array index '" + token + "' in path '" + path + "'");
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static int fieldIndex(TreeNode<?> parent, String name)
+    {
+        for (int i = 0; i < parent.numChildren(); i++)
+        {
+            if (parent.getChild(i).getName().equals(name))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> parsePointer(String path)
+    {
+        if (!path.startsWith("/"))
+        {
+            throw new IllegalArgumentException("Invalid JSON pointer: '" + path + "'");
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : path.substring(1).split("/", -1))
+        {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    private static String textField(JsonNode operation, String field)
+    {
+        JsonNode value = operation.get(field);
+        if (value == null || !value.isTextual())
+        {
+            throw new IllegalArgumentException("Missing '" + field + "' in patch operation: " + operation);
+        }
+        return value.asText();
+    }
+
+    private static JsonNode valueField(JsonNode operation)
+    {
+        JsonNode value = operation.get("value");
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Missing 'value' in patch operation: " + operation);
+        }
+        return value;
+    }
+
+    private static NodeFactory fromJson(JsonNode value)
+    {
+        return (name, parent, index) -> TreeNodeConverter.fromJackson(name, value, parent, index);
+    }
+
+    private static NodeFactory copyOf(TreeNode<?> node)
+    {
+        return (name, parent, index) -> copy(node, name, parent, index);
+    }
+
+    // Nodes keep references to parents, so moved and copied subtrees are re-created
+    private static TreeNode<?> copy(TreeNode<?> node, String name, @Nullable TreeNode<?> parent, int index)
+    {
+        TreeNode<?> copy = new TreeNode<>(name, node.getNodeType(), parent, node.getValue(), index);
+        for (int i = 0; i < node.numChildren(); i++)
+        {
+            TreeNode<?> child = node.getChild(i);
+            copy.addChild(copy(child, child.getName(), copy, i));
+        }
+        return copy;
+    }
+}
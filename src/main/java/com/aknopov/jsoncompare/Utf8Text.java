@@ -0,0 +1,285 @@
+package com.aknopov.jsoncompare;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * Text value referring to a string literal in UTF-8 encoded JSON input. The literal is decoded into a {@code String}
+ * only when the value is rendered. Hash code is the same as of the decoded string, and values are equal to strings
+ * with the same content, so trees with decoded and undecoded values can be compared.
+ */
+final class Utf8Text
+{
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+    // Literal has escape sequences, so equal texts may have different bytes
+    private final boolean escaped;
+    private int hash;
+    @Nullable
+    private String decoded;
+
+    private Utf8Text(byte[] buffer, int offset, int length, boolean escaped)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.escaped = escaped;
+    }
+
+    /**
+     * Creates text referring to a string literal
+     *
+     * @param buffer UTF-8 encoded JSON input
+     * @param quote position of the opening quote of the literal
+     * @return text or null if there is no complete literal at the position
+     */
+    @Nullable
+    static Utf8Text ofLiteral(byte[] buffer, int quote)
+    {
+        if (quote < 0 || quote >= buffer.length || buffer[quote] != '"')
+        {
+            return null;
+        }
+        boolean escaped = false;
+        int end = quote + 1;
+        while (end < buffer.length && buffer[end] != '"')
+        {
+            if (buffer[end] == '\\')
+            {
+                escaped = true;
+                end++;
+            }
+            end++;
+        }
+        return end < buffer.length ? new Utf8Text(buffer, quote + 1, end - quote - 1, escaped) : null;
+    }
+
+    /**
+     * Checks equality of text values that can be either strings or undecoded texts
+     *
+     * @param value1 first value
+     * @param value2 second value
+     * @return true if values are equal
+     */
+    static boolean valuesEqual(@Nullable Object value1, @Nullable Object value2)
+    {
+        return value2 instanceof Utf8Text ? value2.equals(value1) : Objects.equals(value1, value2);
+    }
+
+    /**
+     * Decodes a value if it is an undecoded text, so it can be used as a key along with strings
+     *
+     * @param value value of a node
+     * @return string or the value itself
+     */
+    @Nullable
+    static Object decode(@Nullable Object value)
+    {
+        return value instanceof Utf8Text ? value.toString() : value;
+    }
+
+    /**
+     * Checks length of the decoded text without decoding it
+     *
+     * @param maxLength maximum number of UTF-16 units
+     * @return true if the text is longer
+     */
+    boolean longerThan(int maxLength)
+    {
+        // Literal has at least as many bytes as its text has units
+        if (length <= maxLength)
+        {
+            return false;
+        }
+        Units units = new Units();
+        for (int i = 0; i < maxLength && units.hasNext(); i++)
+        {
+            units.next();
+        }
+        return units.hasNext();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o instanceof Utf8Text other)
+        {
+            if (!escaped && !other.escaped)
+            {
+                return Arrays.equals(buffer, offset, offset + length, other.buffer, other.offset,
+                        other.offset + other.length);
+            }
+            return hashCode() == other.hashCode() && sameUnits(other.new Units());
+        }
+        if (o instanceof String string)
+        {
+            return decoded != null ? decoded.equals(string) : sameUnits(new StringUnits(string));
+        }
+        return false;
+    }
+
+    // Same algorithm as String.hashCode over UTF-16 units
+    @Override
+    public int hashCode()
+    {
+        int h = hash;
+        if (h == 0 && length != 0)
+        {
+            Units units = new Units();
+            while (units.hasNext())
+            {
+                h = 31 * h + units.next();
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString()
+    {
+        String s = decoded;
+        if (s == null)
+        {
+            if (escaped)
+            {
+                StringBuilder sb = new StringBuilder(length);
+                Units units = new Units();
+                while (units.hasNext())
+                {
+                    sb.append(units.next());
+                }
+                s = sb.toString();
+            }
+            else
+            {
+                s = new String(buffer, offset, length, StandardCharsets.UTF_8);
+            }
+            decoded = s;
+        }
+        return s;
+    }
+
+    private boolean sameUnits(CharIterator other)
+    {
+        Units units = new Units();
+        while (units.hasNext())
+        {
+            if (!other.hasNext() || units.next() != other.next())
+            {
+                return false;
+            }
+        }
+        return !other.hasNext();
+    }
+
+    private interface CharIterator
+    {
+        boolean hasNext();
+
+        char next();
+    }
+
+    private static final class StringUnits implements CharIterator
+    {
+        private final String string;
+        private int position;
+
+        private StringUnits(String string)
+        {
+            this.string = string;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return position < string.length();
+        }
+
+        @Override
+        public char next()
+        {
+            return string.charAt(position++);
+        }
+    }
+
+    // Decodes UTF-8 bytes and escape sequences of the literal into UTF-16 units
+    private final class Units implements CharIterator
+    {
+        private int position = offset;
+        private char pendingLow;
+
+        @Override
+        public boolean hasNext()
+        {
+            return pendingLow != 0 || position < offset + length;
+        }
+
+        @Override
+        public char next()
+        {
+            if (pendingLow != 0)
+            {
+                char low = pendingLow;
+                pendingLow = 0;
+                return low;
+            }
+            int b = buffer[position++];
+            if (b == '\\')
+            {
+                return unescape();
+            }
+            if (b >= 0)
+            {
+                return (char)b;
+            }
+            if ((b & 0xE0) == 0xC0)
+            {
+                return (char)((b & 0x1F) << 6 | continuation());
+            }
+            if ((b & 0xF0) == 0xE0)
+            {
+                return (char)((b & 0x0F) << 12 | continuation() << 6 | continuation());
+            }
+            int codePoint = (b & 0x07) << 18 | continuation() << 12 | continuation() << 6 | continuation();
+            pendingLow = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+
+        private int continuation()
+        {
+            return buffer[position++] & 0x3F;
+        }
+
+        private char unescape()
+        {
+            byte c = buffer[position++];
+            return switch (c)
+            {
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                case 'u' ->
+                {
+                    int unit = 0;
+                    for (int i = 0; i < 4; i++)
+                    {
+                        unit = unit << 4 | Character.digit(buffer[position++], 16);
+                    }
+                    yield (char)unit;
+                }
+                default -> (char)c;
+            };
+        }
+    }
+}
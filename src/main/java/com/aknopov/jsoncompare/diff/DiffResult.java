@@ -0,0 +1,15 @@
+package com.aknopov.jsoncompare.diff;
+
+import java.util.List;
+
+/**
+ * Result of sequences comparison with statistics of the run
+ *
+ * @param diffs list of differences
+ * @param snakes number of records (snakes) in the edit graph
+ * @param complete false if analysis was stopped by the limit of edit graph records
+ * @param <T> type of elements
+ */
+public record DiffResult<T>(List<Diff<T>> diffs, int snakes, boolean complete)
+{
+}
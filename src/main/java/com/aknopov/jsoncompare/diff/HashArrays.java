@@ -0,0 +1,74 @@
+package com.aknopov.jsoncompare.diff;
+
+import java.util.Arrays;
+
+/**
+ * Scans of ranges of hash arrays for common runs. Scans are based on {@link Arrays#mismatch}, which JIT compiles
+ * into vectorized comparison of several elements per instruction.
+ */
+public final class HashArrays
+{
+    // Size of blocks compared at once when scanning from the end
+    private final static int SUFFIX_BLOCK = 64;
+
+    private HashArrays()
+    {
+    }
+
+    /**
+     * Finds length of common prefix of two ranges
+     *
+     * @param a first array
+     * @param aFrom start of the first range, inclusive
+     * @param aTo end of the first range, exclusive
+     * @param b second array
+     * @param bFrom start of the second range, inclusive
+     * @param bTo end of the second range, exclusive
+     * @return number of equal elements from the start of the ranges
+     */
+    public static int commonPrefix(long[] a, int aFrom, int aTo, long[] b, int bFrom, int bTo)
+    {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        if (length <= 0 || a[aFrom] != b[bFrom])
+        {
+            return 0;
+        }
+        int mismatch = Arrays.mismatch(a, aFrom, aFrom + length, b, bFrom, bFrom + length);
+        return mismatch < 0 ? length : mismatch;
+    }
+
+    /**
+     * Finds length of common suffix of two ranges
+     *
+     * @param a first array
+     * @param aFrom start of the first range, inclusive
+     * @param aTo end of the first range, exclusive
+     * @param b second array
+     * @param bFrom start of the second range, inclusive
+     * @param bTo end of the second range, exclusive
+     * @return number of equal elements from the end of the ranges
+     */
+    public static int commonSuffix(long[] a, int aFrom, int aTo, long[] b, int bFrom, int bTo)
+    {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        int suffix = 0;
+        while (suffix < length)
+        {
+            int block = Math.min(SUFFIX_BLOCK, length - suffix);
+            int aStart = aTo - suffix - block;
+            int bStart = bTo - suffix - block;
+            if (Arrays.mismatch(a, aStart, aStart + block, b, bStart, bStart + block) < 0)
+            {
+                suffix += block;
+                continue;
+            }
+            // The block has a mismatch - the rest of the suffix is scanned element by element
+            for (int i = block - 1; i >= 0 && a[aStart + i] == b[bStart + i]; i--)
+            {
+                suffix++;
+            }
+            break;
+        }
+        return suffix;
+    }
+}
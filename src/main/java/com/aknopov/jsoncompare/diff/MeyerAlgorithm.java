@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nullable;
 
 /**
  * Implementation of O(NP) Myers' diff algorithm <a href='http://www.xmailserver.org/diff2.pdf'>http://www.xmailserver.org/diff2.pdf</a>
@@ -12,7 +15,12 @@ import java.util.Objects;
  */
 public class MeyerAlgorithm<T>
 {
-    private final static int DEFAULT_MAX_DIFFS = 2000000;
+    /**
+     * Default maximum number of edit graphs to analyse
+     */
+    public final static int DEFAULT_MAX_DIFFS = 2000000;
+
+    private final static BooleanSupplier NEVER = () -> false;
 
     // `Coord` is a coordinate in edit graph
     private record Coord(int x, int y)
@@ -26,10 +34,17 @@ public class MeyerAlgorithm<T>
 
     private final List<T> a;
     private final List<T> b;
+    @Nullable
+    private final long[] hashesA;
+    @Nullable
+    private final long[] hashesB;
     private final int maxDiffs;
     private final boolean recordEquals;
     private final List<Diff<T>> diffs;
     private final boolean reverse;
+    private final BooleanSupplier interrupted;
+    private int snakes;
+    private boolean complete;
 
     /**
      * Compares two sequences of any type and returns a list of differences.
@@ -56,22 +71,109 @@ public class MeyerAlgorithm<T>
      * @return a list of differences between the two sequences.
      */
     public static <T> List<Diff<T>> compareSequences(List<T> a, List<T> b, int maxDiffs)
+    {
+        return compute(a, b, maxDiffs).diffs();
+    }
+
+    /**
+     * Compares two sequences of any type and returns a list of differences along with statistics of the run.
+     *
+     * @param a the first sequence to compare
+     * @param b the second sequence to compare
+     * @param <T> the type of the elements in the sequences
+     *
+     * @return differences between the two sequences and run statistics
+     */
+    public static <T> DiffResult<T> compute(List<T> a, List<T> b)
+    {
+        return compute(a, b, DEFAULT_MAX_DIFFS);
+    }
+
+    /**
+     * Compares two sequences of any type and returns a list of differences along with statistics of the run.
+     *
+     * @param a the first sequence to compare
+     * @param b the second sequence to compare
+     * @param maxDiffs maximum number of edit graphs to analyse
+     * @param <T> the type of the elements in the sequences
+     *
+     * @return differences between the two sequences and run statistics
+     */
+    public static <T> DiffResult<T> compute(List<T> a, List<T> b, int maxDiffs)
+    {
+        return compute(a, b, maxDiffs, NEVER);
+    }
+
+    /**
+     * Compares two sequences of any type and returns a list of differences along with statistics of the run.
+     * The run can be interrupted - the condition is checked once per edit distance step.
+     *
+     * @param a the first sequence to compare
+     * @param b the second sequence to compare
+     * @param maxDiffs maximum number of edit graphs to analyse
+     * @param interrupted condition of the run interruption (e.g. deadline)
+     * @param <T> the type of the elements in the sequences
+     *
+     * @return differences between the two sequences and run statistics; incomplete if the run was interrupted
+     */
+    public static <T> DiffResult<T> compute(List<T> a, List<T> b, int maxDiffs, BooleanSupplier interrupted)
+    {
+        return run(a, null, b, null, maxDiffs, interrupted);
+    }
+
+    /**
+     * Compares two sequences with known hashes of elements. Snakes of equal elements are extended by scans
+     * of hash arrays instead of comparison of elements one by one.
+     *
+     * @param a the first sequence to compare
+     * @param hashesA hashes of elements of the first sequence; equal hashes should mean equal elements
+     * @param b the second sequence to compare
+     * @param hashesB hashes of elements of the second sequence
+     * @param maxDiffs maximum number of edit graphs to analyse
+     * @param interrupted condition of the run interruption (e.g. deadline)
+     * @param <T> the type of the elements in the sequences
+     *
+     * @return differences between the two sequences and run statistics; incomplete if the run was interrupted
+     */
+    public static <T> DiffResult<T> compute(List<T> a, long[] hashesA, List<T> b, long[] hashesB, int maxDiffs,
+            BooleanSupplier interrupted)
+    {
+        assert hashesA.length == a.size() && hashesB.length == b.size();
+        return run(a, hashesA, b, hashesB, maxDiffs, interrupted);
+    }
+
+    private static <T> DiffResult<T> run(List<T> a, @Nullable long[] hashesA, List<T> b, @Nullable long[] hashesB,
+            int maxDiffs, BooleanSupplier interrupted)
     {
         assert maxDiffs > 0;
 
+        MyersRunEvent event = new MyersRunEvent();
+        event.begin();
+
         MeyerAlgorithm<T> algorithm;
         if (a.size() < b.size())
         {
-            algorithm = new MeyerAlgorithm<>(a, b, maxDiffs, false, false);
+            algorithm = new MeyerAlgorithm<>(a, hashesA, b, hashesB, maxDiffs, false, false, interrupted);
         }
         else
         {
-            algorithm = new MeyerAlgorithm<>(b, a, maxDiffs, true, false);
+            algorithm = new MeyerAlgorithm<>(b, hashesB, a, hashesA, maxDiffs, true, false, interrupted);
         }
 
         algorithm.doCompare();
 
-        return algorithm.diffs;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.size1 = a.size();
+            event.size2 = b.size();
+            event.editDistance = algorithm.diffs.size();
+            event.snakes = algorithm.snakes;
+            event.complete = algorithm.complete;
+            event.commit();
+        }
+
+        return new DiffResult<>(algorithm.diffs, algorithm.snakes, algorithm.complete);
     }
 
     /**
@@ -97,13 +199,17 @@ public class MeyerAlgorithm<T>
         return sb.toString();
     }
 
-    private MeyerAlgorithm(List<T> a, List<T> b, int maxDiffs, boolean reverse, boolean recordEquals)
+    private MeyerAlgorithm(List<T> a, @Nullable long[] hashesA, List<T> b, @Nullable long[] hashesB, int maxDiffs,
+            boolean reverse, boolean recordEquals, BooleanSupplier interrupted)
     {
         this.a = a;
         this.b = b;
+        this.hashesA = hashesA;
+        this.hashesB = hashesB;
         this.maxDiffs = maxDiffs;
         this.reverse = reverse;
         this.recordEquals = recordEquals;
+        this.interrupted = interrupted;
         this.diffs = new ArrayList<>();
     }
 
@@ -194,11 +300,13 @@ public class MeyerAlgorithm<T>
 
             fp[delta + offset] = snake(delta, fp[delta - 1 + offset] + 1, fp[delta + 1 + offset], offset, paths, graphs);
 
-            if (fp[delta + offset] >= this.a.size() || graphs.size() > this.maxDiffs)
+            if (fp[delta + offset] >= this.a.size() || graphs.size() > this.maxDiffs || interrupted.getAsBoolean())
             {
                 break;
             }
         }
+        snakes = graphs.size();
+        complete = fp[delta + offset] >= this.a.size();
 
         int r = paths[delta + offset];
         var comparePoint = new ArrayList<Coord>();
@@ -227,10 +335,19 @@ public class MeyerAlgorithm<T>
         int y = Math.max(p, pp);
         int x = y - k;
 
-        while (x < a.size() && y < b.size() && Objects.equals(a.get(x), b.get(y)))
+        if (hashesA != null && hashesB != null)
         {
-            x++;
-            y++;
+            int common = HashArrays.commonPrefix(hashesA, x, hashesA.length, hashesB, y, hashesB.length);
+            x += common;
+            y += common;
+        }
+        else
+        {
+            while (x < a.size() && y < b.size() && Objects.equals(a.get(x), b.get(y)))
+            {
+                x++;
+                y++;
+            }
         }
 
         paths[k + offset] = graphs.size();
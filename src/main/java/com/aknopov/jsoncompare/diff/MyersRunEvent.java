@@ -0,0 +1,35 @@
+package com.aknopov.jsoncompare.diff;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a single run of Myers' algorithm. Disabled by default - runs are too frequent.
+ */
+@Name("com.aknopov.jsoncompare.MyersRun")
+@Label("Myers Run")
+@Category("JSON Comparator")
+@Description("Comparison of two sequences with Myers' algorithm")
+@Enabled(false)
+@Threshold("1 ms")
+final class MyersRunEvent extends jdk.jfr.Event
+{
+    @Label("First Sequence Size")
+    int size1;
+
+    @Label("Second Sequence Size")
+    int size2;
+
+    @Label("Edit Distance")
+    int editDistance;
+
+    @Label("Snakes")
+    int snakes;
+
+    @Label("Complete")
+    boolean complete;
+}
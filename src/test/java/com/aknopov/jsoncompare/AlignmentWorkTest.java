@@ -0,0 +1,142 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.aknopov.jsoncompare.ChildrenAligner.Alignment;
+import com.aknopov.jsoncompare.diff.DiffResult;
+import com.aknopov.jsoncompare.diff.MeyerAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that adaptive alignment of children doesn't do more work than Myers' algorithm run over whole children
+ * lists, as it was done before strategies were selected per node. Work is counted in edit graph records (snakes),
+ * linear strategies create none of them. Where Myers' algorithm completes, the adaptive path must find no more
+ * differences than it.
+ */
+class AlignmentWorkTest
+{
+    private final static int SIZE = 5_000;
+
+    private record Work(Alignment<TreeNode<?>> adaptive, DiffResult<TreeNode<?>> myers)
+    {
+        int adaptiveSnakes()
+        {
+            return adaptive.myersResult() != null ? adaptive.myersResult().snakes() : 0;
+        }
+    }
+
+    @Test
+    void testArrayWithScatteredChanges() throws IOException
+    {
+        Work work = check(array(SIZE, i -> Integer.toString(i)),
+                array(SIZE, i -> i % 100 == 7 ? "-1" : Integer.toString(i)));
+
+        assertEquals(ChildrenDiffStrategies.POSITIONAL.name(), work.adaptive().strategy());
+        assertEquals(work.myers().diffs().size(), work.adaptive().diffs().size());
+    }
+
+    @Test
+    void testArrayWithInsertion() throws IOException
+    {
+        Work work = check(array(SIZE, i -> Integer.toString(i)),
+                array(SIZE + 1, i -> i == SIZE / 2 ? "-1" : Integer.toString(i < SIZE / 2 ? i : i - 1)));
+
+        assertEquals(ChildrenDiffStrategies.POSITIONAL.name(), work.adaptive().strategy());
+        // Hashes of array elements include indices, so all elements after the insertion differ
+        assertFalse(work.myers().complete());
+    }
+
+    @Test
+    void testIdenticalArrays() throws IOException
+    {
+        String sample = array(SIZE, i -> "{\"id\": " + i + "}");
+        Work work = check(sample, sample);
+
+        assertEquals(ChildrenDiffStrategies.POSITIONAL.name(), work.adaptive().strategy());
+        assertTrue(work.adaptive().diffs().isEmpty());
+    }
+
+    @Test
+    void testObjectWithChangedValues() throws IOException
+    {
+        Work work = check(object(SIZE, i -> "\"f" + i + "\": " + i),
+                object(SIZE, i -> "\"f" + i + "\": " + (i % 100 == 7 ? -i : i)));
+
+        // Few edits - Myers' algorithm is cheaper than matching by names
+        assertEquals(ChildrenDiffStrategies.MYERS.name(), work.adaptive().strategy());
+        assertEquals(work.myers().diffs().size(), work.adaptive().diffs().size());
+    }
+
+    @Test
+    void testObjectWithManyChangedValues() throws IOException
+    {
+        Work work = check(object(SIZE, i -> "\"f" + i + "\": " + i),
+                object(SIZE, i -> "\"f" + i + "\": " + (i % 10 == 7 ? -i : i)));
+
+        assertEquals(ChildrenDiffStrategies.NAMES.name(), work.adaptive().strategy());
+        assertTrue(work.myers().snakes() > ChildrenAligner.MYERS_COST_RATIO * 2 * SIZE);
+    }
+
+    @Test
+    void testObjectWithRenamedFields() throws IOException
+    {
+        Work work = check(object(SIZE, i -> "\"f" + i + "\": " + i),
+                object(SIZE, i -> "\"" + (i % 10 == 3 ? "g" : "f") + i + "\": " + i));
+
+        assertEquals(ChildrenDiffStrategies.NAMES.name(), work.adaptive().strategy());
+        assertTrue(work.myers().snakes() > ChildrenAligner.MYERS_COST_RATIO * 2 * SIZE);
+    }
+
+    @Test
+    void testObjectWithInsertion() throws IOException
+    {
+        Work work = check(object(SIZE, i -> "\"f" + i + "\": " + i),
+                object(SIZE + 1, i -> i == SIZE / 2 ? "\"x\": 0" : "\"f" + i + "\": " + i));
+
+        assertEquals(ChildrenDiffStrategies.MYERS.name(), work.adaptive().strategy());
+        assertEquals(work.myers().diffs().size(), work.adaptive().diffs().size());
+    }
+
+    private static Work check(String sample1, String sample2) throws IOException
+    {
+        TreeNode<?> root1 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(sample1));
+        TreeNode<?> root2 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(sample2));
+        Work work = new Work(new ChildrenAligner(ComparisonOptions.DEFAULT,
+                new ComparisonBudget(ComparisonOptions.DEFAULT)).align(root1, root2), myers(root1, root2));
+
+        assertFalse(work.adaptive().approximate());
+        assertTrue(work.adaptiveSnakes() <= work.myers().snakes());
+        if (work.myers().complete())
+        {
+            assertTrue(work.adaptive().diffs().size() <= work.myers().diffs().size());
+        }
+        return work;
+    }
+
+    // Alignment before strategies were introduced
+    private static DiffResult<TreeNode<?>> myers(TreeNode<?> node1, TreeNode<?> node2)
+    {
+        List<TreeNode<?>> children1 = node1.getChildren();
+        List<TreeNode<?>> children2 = node2.getChildren();
+        return MeyerAlgorithm.compute(children1, ChildrenAligner.hashes(children1), children2,
+                ChildrenAligner.hashes(children2), MeyerAlgorithm.DEFAULT_MAX_DIFFS, () -> false);
+    }
+
+    private static String array(int size, IntFunction<String> element)
+    {
+        return IntStream.range(0, size).mapToObj(element).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String object(int size, IntFunction<String> field)
+    {
+        return IntStream.range(0, size).mapToObj(field).collect(Collectors.joining(", ", "{", "}"));
+    }
+}
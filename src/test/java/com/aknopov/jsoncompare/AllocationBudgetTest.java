@@ -0,0 +1,164 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that bytes allocated by one comparison stay within budgets. Budgets are set at about twice
+ * the measured allocation of JDK 17, so they fail on regressions rather than on noise. When a change legitimately
+ * needs more memory, budgets should be raised together with the change.
+ */
+class AllocationBudgetTest
+{
+    // Comparison of JSON strings through Jackson trees; measured up to 64 bytes per input byte and 754 per node
+    private final static Budget STRINGS = new Budget(128, 1536);
+    // Comparison of UTF-8 documents converted straight into trees; measured up to 50 and 586
+    private final static Budget DOCUMENTS = new Budget(100, 1200);
+    // Hash-first comparison converting only differing subtrees; measured up to 40 and 491
+    private final static Budget HASH_FIRST = new Budget(80, 1000);
+
+    private final static int WARMUP_RUNS = 5;
+    private final static int MEASURED_RUNS = 5;
+
+    /**
+     * Allocation budget
+     *
+     * @param perInputByte maximum bytes allocated per byte of both samples
+     * @param perNode maximum bytes allocated per node of both samples
+     */
+    private record Budget(double perInputByte, double perNode)
+    {
+    }
+
+    @Test
+    void testIdenticalDocuments() throws IOException
+    {
+        String sample = records(5_000, -1);
+        checkBudgets("identical", sample, new String(sample.toCharArray()), 0);
+    }
+
+    @Test
+    void testOneLeafChanged() throws IOException
+    {
+        checkBudgets("one leaf", records(5_000, -1), records(5_000, 2_500), 1);
+    }
+
+    @Test
+    void testWideObject() throws IOException
+    {
+        checkBudgets("wide", wide(20_000, -1), wide(20_000, 10_000), 1);
+    }
+
+    @Test
+    void testDeepNesting() throws IOException
+    {
+        checkBudgets("deep", deep(400, -1), deep(400, 200), 1);
+    }
+
+    private static void checkBudgets(String name, String sample1, String sample2, int expectedDiffs) throws IOException
+    {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemoryEnabled(),
+                "Allocation counters are not available");
+
+        byte[] bytes1 = sample1.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes2 = sample2.getBytes(StandardCharsets.UTF_8);
+        long inputBytes = bytes1.length + bytes2.length;
+        long nodes = SubtreeHashIndex.build(bytes1).size() + SubtreeHashIndex.build(bytes2).size();
+        ComparisonOptions hashFirst = ComparisonOptions.builder()
+                .hashFirst(true)
+                .build();
+
+        check(threads, name + " strings", STRINGS, inputBytes, nodes, expectedDiffs,
+                () -> JsonComparator.compareJsonStrings(sample1, sample2, ComparisonOptions.DEFAULT, d -> { }));
+        check(threads, name + " documents", DOCUMENTS, inputBytes, nodes, expectedDiffs,
+                () -> JsonComparator.compareDocuments(bytes1, InputFormat.JSON, bytes2, InputFormat.JSON,
+                        ComparisonOptions.DEFAULT, d -> { }));
+        check(threads, name + " hash-first", HASH_FIRST, inputBytes, nodes, expectedDiffs,
+                () -> JsonComparator.compareJsonStrings(sample1, sample2, hashFirst, d -> { }));
+    }
+
+    private static void check(com.sun.management.ThreadMXBean threads, String name, Budget budget, long inputBytes,
+            long nodes, int expectedDiffs, Supplier<ComparisonResult> comparison)
+    {
+        long allocated = allocatedBytes(threads, comparison, expectedDiffs);
+        double perInputByte = (double)allocated / inputBytes;
+        double perNode = (double)allocated / nodes;
+        assertTrue(perInputByte <= budget.perInputByte(), () -> String.format(
+                "%s: %.1f bytes allocated per input byte exceed budget %.1f", name, perInputByte,
+                budget.perInputByte()));
+        assertTrue(perNode <= budget.perNode(), () -> String.format(
+                "%s: %.1f bytes allocated per node exceed budget %.1f", name, perNode, budget.perNode()));
+    }
+
+    // Minimum over several runs after warming up, so JIT compilation and TLAB refills don't count
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads,
+            Supplier<ComparisonResult> comparison, int expectedDiffs)
+    {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_RUNS; i++)
+        {
+            assertEquals(expectedDiffs, comparison.get().differenceCount());
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++)
+        {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            comparison.get();
+            min = Math.min(min, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+        return min;
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean threadBean()
+    {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean ? bean : null;
+    }
+
+    private static String records(int count, int changed)
+    {
+        StringBuilder sb = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < count; i++)
+        {
+            sb.append(i == 0 ? "" : ", ")
+                    .append("{\"id\": ").append(i)
+                    .append(", \"name\": \"item ").append(i == changed ? "changed" : String.valueOf(i))
+                    .append("\", \"tags\": [\"a\", \"b\"], \"price\": ").append(i * 1.5)
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String wide(int fields, int changed)
+    {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < fields; i++)
+        {
+            sb.append(i == 0 ? "" : ", ")
+                    .append("\"field").append(i).append("\": ").append(i == changed ? -i : i);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String deep(int depth, int changed)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+        {
+            sb.append("{\"level\": ").append(i == changed ? -i : i).append(", \"next\": ");
+        }
+        sb.append("\"end\"");
+        return sb.append("}".repeat(depth)).toString();
+    }
+}
@@ -0,0 +1,284 @@
+package com.aknopov.jsoncompare;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncJsonComparatorTest
+{
+    private final static String SAMPLE_1 = """
+            {"name": "caf\\u00e9 €", "values": [1, 2.5, 3, {"id": 7, "tags": ["a", "b"]}], "flag": true,
+             "nested": {"deep": {"deeper": [[1], [2, 3]]}}, "text": "line\\nbreak"}""";
+    private final static String SAMPLE_2 = """
+            {"name": "cafe €", "values": [1, 2.5, {"id": 7, "tags": ["b", "a"]}, 4], "flag": false,
+             "nested": {"deep": {"deeper": [[1], [2, 3, 4]]}}, "extra": "😀"}""";
+
+    // Subscription delivering chunks by hand
+    private static class TestSubscription implements Flow.Subscription
+    {
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(long n)
+        {
+            requested += n;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 16, 1 << 16})
+    void testSameDifferencesAsStrings(int chunkSize)
+    {
+        List<String> expected = JsonComparator.compareJsonStrings(SAMPLE_1, SAMPLE_2, false);
+        ListDiffSink sink = new ListDiffSink();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, sink);
+
+        feed(comparator.first(), SAMPLE_1, chunkSize, true);
+        assertFalse(comparator.result().isDone());
+        feed(comparator.second(), SAMPLE_2, chunkSize, true);
+
+        ComparisonResult result = comparator.result().join();
+        assertEquals(expected, sink.getMessages());
+        assertEquals(expected.size(), result.differenceCount());
+    }
+
+    @Test
+    void testCompletesWithRootValue()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, sink, Runnable::run);
+
+        TestSubscription subscription1 = feed(comparator.first(), "{\"a\": [1, 2]}", 4, false);
+        TestSubscription subscription2 = feed(comparator.second(), "{\"a\": [1, 3]}", 4, false);
+
+        assertTrue(comparator.result().isDone());
+        assertEquals(1, sink.getMessages().size());
+        // Trailing input is consumed, but not parsed
+        assertFalse(subscription1.cancelled);
+        assertFalse(subscription2.cancelled);
+        comparator.second().onNext(ByteBuffer.wrap(" garbage".getBytes(StandardCharsets.UTF_8)));
+        comparator.second().onComplete();
+        assertEquals(1, comparator.result().join().differenceCount());
+    }
+
+    @Test
+    void testScalarRoots()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, sink, Runnable::run);
+
+        // Number can't be complete before the end of input
+        feed(comparator.first(), "12", 1, false);
+        feed(comparator.second(), "123", 1, false);
+        assertFalse(comparator.result().isDone());
+        comparator.first().onComplete();
+        comparator.second().onComplete();
+
+        assertEquals(JsonComparator.compareJsonStrings("12", "123", false), sink.getMessages());
+    }
+
+    @Test
+    void testInvalidInput()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, sink);
+
+        feed(comparator.first(), "", 1, true);
+        TestSubscription subscription = feed(comparator.second(), "{\"a\": ]", 2, false);
+
+        assertTrue(subscription.cancelled);
+        ComparisonResult result = comparator.result().join();
+        assertEquals(2, result.differenceCount());
+        assertEquals("Empty input for the first sample", sink.getMessages().get(0));
+        assertTrue(sink.getMessages().get(1).startsWith("Failed to parse the second sample: "));
+    }
+
+    @Test
+    void testTruncatedInput()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, sink);
+
+        feed(comparator.first(), "{\"a\": 1}", 3, true);
+        feed(comparator.second(), "{\"a\": 1", 3, true);
+
+        assertEquals(1, comparator.result().join().differenceCount());
+        assertTrue(sink.getMessages().get(0).startsWith("Failed to parse the second sample: "));
+    }
+
+    @Test
+    void testInputLimits()
+    {
+        List<Difference> differences = new ArrayList<>();
+        ComparisonOptions options = ComparisonOptions.builder()
+                .inputLimits(InputLimits.builder().maxArrayLength(3).maxInputBytes(1000).build())
+                .build();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(options, differences::add);
+
+        TestSubscription subscription1 = feed(comparator.first(), "[1, 2, 3, 4]", 2, false);
+        TestSubscription subscription2 = feed(comparator.second(), "\"" + "x".repeat(1500) + "\"", 100, false);
+
+        assertTrue(subscription1.cancelled);
+        assertTrue(subscription2.cancelled);
+        ComparisonResult result = comparator.result().join();
+        assertTrue(result.inputLimitExceeded());
+        assertEquals(List.of(DifferenceType.LIMIT, DifferenceType.LIMIT), differences.stream().map(Difference::type)
+                .toList());
+        assertEquals("Input limit exceeded in the first sample: Array length exceeds the maximum allowed (3)",
+                differences.get(0).message());
+        assertEquals("Input limit exceeded in the second sample: Document length (1100) exceeds the maximum allowed"
+                + " (1000)", differences.get(1).message());
+    }
+
+    @Test
+    void testPublisherFailure()
+    {
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, new ListDiffSink());
+        IllegalStateException failure = new IllegalStateException("Connection reset");
+
+        feed(comparator.first(), "{\"a\": 1}", 3, true);
+        feed(comparator.second(), "{\"a\":", 3, false);
+        comparator.second().onError(failure);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> comparator.result().get());
+        assertSame(failure, e.getCause());
+    }
+
+    @Test
+    void testNullValuesAreNotSupported()
+    {
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, new ListDiffSink());
+
+        TestSubscription subscription = feed(comparator.first(), "{\"a\": null}", 16, false);
+
+        assertTrue(subscription.cancelled);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> comparator.result().get());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void testComparisonIsNotRunOnFeedingThread()
+    {
+        List<Thread> threads = new ArrayList<>();
+        ComparisonOptions options = ComparisonOptions.builder()
+                .listener(metrics -> threads.add(Thread.currentThread()))
+                .build();
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(options, new ListDiffSink());
+
+        feed(comparator.first(), SAMPLE_1, 16, true);
+        feed(comparator.second(), SAMPLE_2, 16, true);
+        comparator.result().join();
+
+        assertEquals(1, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    void testNullSubscriptionIsRejected()
+    {
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, new ListDiffSink());
+
+        assertThrows(NullPointerException.class, () -> comparator.first().onSubscribe(null));
+    }
+
+    @Test
+    void testSecondSubscriptionIsCancelled()
+    {
+        AsyncJsonComparator comparator = AsyncJsonComparator.create(ComparisonOptions.DEFAULT, new ListDiffSink());
+        TestSubscription subscription1 = new TestSubscription();
+        TestSubscription subscription2 = new TestSubscription();
+
+        comparator.first().onSubscribe(subscription1);
+        comparator.first().onSubscribe(subscription2);
+
+        assertEquals(1, subscription1.requested);
+        assertFalse(subscription1.cancelled);
+        assertTrue(subscription2.cancelled);
+    }
+
+    @Test
+    void testPublishers() throws Exception
+    {
+        ListDiffSink sink = new ListDiffSink();
+        CompletableFuture<ComparisonResult> result;
+        try (SubmissionPublisher<ByteBuffer> publisher1 = new SubmissionPublisher<>();
+             SubmissionPublisher<ByteBuffer> publisher2 = new SubmissionPublisher<>())
+        {
+            result = AsyncJsonComparator.compareAsync(publisher1, publisher2, ComparisonOptions.DEFAULT, sink);
+            for (ByteBuffer chunk : chunks(SAMPLE_1, 10))
+            {
+                publisher1.submit(chunk);
+            }
+            for (ByteBuffer chunk : chunks(SAMPLE_2, 10))
+            {
+                publisher2.submit(chunk);
+            }
+        }
+
+        result.get(10, TimeUnit.SECONDS);
+        assertEquals(JsonComparator.compareJsonStrings(SAMPLE_1, SAMPLE_2, false), sink.getMessages());
+    }
+
+    // Chunks are delivered only when requested, and the buffer is overwritten after each of them
+    private static TestSubscription feed(Flow.Subscriber<ByteBuffer> subscriber, String sample, int chunkSize,
+            boolean complete)
+    {
+        TestSubscription subscription = new TestSubscription();
+        subscriber.onSubscribe(subscription);
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        for (ByteBuffer chunk : chunks(sample, chunkSize))
+        {
+            if (subscription.cancelled)
+            {
+                return subscription;
+            }
+            assertTrue(subscription.requested > 0);
+            subscription.requested--;
+            buffer.clear().put(chunk).flip();
+            subscriber.onNext(buffer);
+            Arrays.fill(buffer.array(), (byte)'?');
+        }
+        if (complete && !subscription.cancelled)
+        {
+            subscriber.onComplete();
+        }
+        return subscription;
+    }
+
+    private static List<ByteBuffer> chunks(String sample, int chunkSize)
+    {
+        byte[] bytes = sample.getBytes(StandardCharsets.UTF_8);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (int start = 0; start < bytes.length; start += chunkSize)
+        {
+            chunks.add(ByteBuffer.wrap(bytes, start, Math.min(chunkSize, bytes.length - start)).slice());
+        }
+        return chunks;
+    }
+}
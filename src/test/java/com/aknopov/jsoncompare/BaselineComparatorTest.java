@@ -0,0 +1,192 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineComparatorTest
+{
+    private final static String BASELINE = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 17, 31]}, "g": [{"id": 1}, {"id": 2}], "h": null}
+""";
+    private final static String CANDIDATE_1 = """
+{"a": {"b": "foo", "c": 5.0, "d": {"e": "baz"}, "f": [13, 17, 31]}, "g": [{"id": 1}, {"id": 3}], "h": null}
+""";
+    private final static String CANDIDATE_2 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 15]}, "g": [{"id": 1}, {"id": 2}], "h": null}
+""";
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String name, String content) throws IOException
+    {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+
+    @Test
+    void testIndexPersistence() throws IOException
+    {
+        Path baseline = write("baseline.json", BASELINE);
+        SubtreeHashIndex index = SubtreeHashIndex.build(baseline);
+        index.save(tempDir.resolve("baseline.idx"));
+
+        SubtreeHashIndex loaded = SubtreeHashIndex.load(tempDir.resolve("baseline.idx"));
+
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.rootHash(), loaded.rootHash());
+        assertEquals(BASELINE.length(), loaded.sourceLength());
+        for (int i = 0; i < index.size(); i++)
+        {
+            assertEquals(index.hash(i), loaded.hash(i));
+            assertEquals(index.start(i), loaded.start(i));
+            assertEquals(index.end(i), loaded.end(i));
+        }
+    }
+
+    @Test
+    void testIndexInChunks() throws IOException
+    {
+        // Records span several chunks, and the sidecar is mapped in several regions
+        int count = SubtreeHashIndex.CHUNK_RECORDS * 2 + 100;
+        String document = IntStream.range(0, count)
+                .mapToObj(i -> "{\"id\": " + i + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+        Path baseline = write("large.json", document);
+        SubtreeHashIndex index = SubtreeHashIndex.build(baseline);
+        index.save(tempDir.resolve("large.idx"));
+
+        SubtreeHashIndex loaded = SubtreeHashIndex.load(tempDir.resolve("large.idx"), 1);
+
+        assertEquals(2 * count + 1, loaded.size());
+        assertEquals(count, loaded.childCount(0));
+        assertEquals(index.rootHash(), loaded.rootHash());
+        int last = loaded.firstChild(0);
+        for (int i = 1; i < count; i++)
+        {
+            last = loaded.nextSibling(last);
+        }
+        assertEquals("{\"id\": " + (count - 1) + "}", document.substring((int)loaded.start(last),
+                (int)loaded.end(last)));
+        assertEquals(index.hash(last + 1), loaded.hash(last + 1));
+
+        String candidate = document.replace("{\"id\": 20000}", "{\"id\": -1}");
+        List<String> diffs = BaselineComparator.compareWithBaseline(baseline, loaded,
+                write("candidate.json", candidate), false, List.of());
+        assertEquals(List.of("Nodes values differ: '20000.0' vs '-1.0', path='/[20000]/id'"), diffs);
+    }
+
+    @Test
+    void testIndexHashes() throws IOException
+    {
+        SubtreeHashIndex index1 = SubtreeHashIndex.build(BASELINE.getBytes());
+        SubtreeHashIndex index2 = SubtreeHashIndex.build(BASELINE.replace(" ", "").getBytes());
+        SubtreeHashIndex index3 = SubtreeHashIndex.build(CANDIDATE_1.getBytes());
+
+        assertEquals(index1.rootHash(), index2.rootHash());
+        assertNotEquals(index1.rootHash(), index3.rootHash());
+        assertEquals(16, index1.size());
+        assertEquals(3, index1.childCount(0));
+        // "a" subtree spans the whole object
+        assertEquals("{\"b\": \"foo\", \"c\": 5, \"d\": {\"e\": \"bar\"}, \"f\": [13, 17, 31]}",
+                BASELINE.substring((int)index1.start(1), (int)index1.end(1)));
+    }
+
+    @Test
+    void testComparisonWithBaseline() throws IOException
+    {
+        Path baseline = write("baseline.json", BASELINE);
+        SubtreeHashIndex.build(baseline).save(tempDir.resolve("baseline.idx"));
+        SubtreeHashIndex index = SubtreeHashIndex.load(tempDir.resolve("baseline.idx"));
+
+        assertTrue(BaselineComparator.compareWithBaseline(baseline, index, baseline, false, List.of()).isEmpty());
+
+        List<String> diffs1 = BaselineComparator.compareWithBaseline(baseline, index,
+                write("candidate1.json", CANDIDATE_1), false, List.of());
+        assertEquals(List.of("Nodes values differ: 'bar' vs 'baz', path='/a[0]/d[2]/e'",
+                "Nodes values differ: '2.0' vs '3.0', path='/g[1]/[1]/id'"), diffs1);
+
+        List<String> diffs2 = BaselineComparator.compareWithBaseline(baseline, index,
+                write("candidate2.json", CANDIDATE_2), false, List.of());
+        assertEquals(List.of("Children differ: counts 3 vs 2 (diffs: [1-1]:+1), path='/a[0]/f[3]'"), diffs2);
+    }
+
+    @Test
+    void testInvalidInputs() throws IOException
+    {
+        Path baseline = write("baseline.json", BASELINE);
+        SubtreeHashIndex index = SubtreeHashIndex.build(baseline);
+
+        List<String> diffs = BaselineComparator.compareWithBaseline(baseline, index,
+                write("candidate.json", "{\"a\": "), false, List.of());
+        assertEquals(1, diffs.size());
+        assertTrue(diffs.get(0).startsWith("Failed to parse the second sample:"));
+
+        assertThrows(IllegalArgumentException.class, () -> BaselineComparator.compareWithBaseline(
+                write("other.json", CANDIDATE_2), index, baseline, false, List.of()));
+        assertThrows(IOException.class, () -> SubtreeHashIndex.load(baseline));
+    }
+
+    @Test
+    void testHashFirstComparison()
+    {
+        List<ComparisonMetrics> metrics = new ArrayList<>();
+        ComparisonOptions options = ComparisonOptions.builder()
+                .hashFirst(true)
+                .listener(metrics::add)
+                .build();
+
+        ListDiffSink sink1 = new ListDiffSink();
+        JsonComparator.compareJsonStrings(BASELINE, CANDIDATE_1, options, sink1);
+        assertEquals(List.of("Nodes values differ: 'bar' vs 'baz', path='/a[0]/d[2]/e'",
+                "Nodes values differ: '2.0' vs '3.0', path='/g[1]/[1]/id'"), sink1.getMessages());
+
+        ListDiffSink sink2 = new ListDiffSink();
+        ComparisonResult result = JsonComparator.compareDocuments(BASELINE.getBytes(StandardCharsets.UTF_8),
+                InputFormat.JSON, CANDIDATE_2.getBytes(StandardCharsets.UTF_8), InputFormat.JSON, options, sink2);
+        assertEquals(List.of("Children differ: counts 3 vs 2 (diffs: [1-1]:+1), path='/a[0]/f[3]'"),
+                sink2.getMessages());
+        assertEquals(1, result.differenceCount());
+
+        assertEquals(2, metrics.size());
+        assertEquals(BASELINE.length(), metrics.get(1).bytes1());
+        assertEquals(16, metrics.get(1).nodes1());
+        assertEquals(15, metrics.get(1).nodes2());
+        assertEquals(0, metrics.get(1).conversionNanos());
+    }
+
+    @Test
+    void testHashFirstInvalidInputs()
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .hashFirst(true)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        JsonComparator.compareJsonStrings("", "{\"a\": ", options, sink);
+
+        assertEquals(2, sink.getMessages().size());
+        assertEquals("Empty input for the first sample", sink.getMessages().get(0));
+        assertTrue(sink.getMessages().get(1).startsWith("Failed to parse the second sample:"));
+
+        ComparisonOptions stopOnFirst = ComparisonOptions.builder()
+                .hashFirst(true)
+                .stopOnFirst(true)
+                .build();
+        ListDiffSink stopSink = new ListDiffSink();
+        JsonComparator.compareJsonStrings("", "{\"a\": ", stopOnFirst, stopSink);
+        assertEquals(List.of("Empty input for the first sample"), stopSink.getMessages());
+    }
+}
@@ -0,0 +1,136 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.aknopov.jsoncompare.diff.Diff;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChildrenAlignerTest
+{
+    private final static ComparisonOptions MYERS_ONLY = ComparisonOptions.builder()
+            .childrenStrategies(List.of(ChildrenDiffStrategies.MYERS))
+            .build();
+
+    @Test
+    void testPositionalMatchesMyers()
+    {
+        String sample1 = array(100, i -> Integer.toString(i));
+        String sample2 = array(103, i -> i % 17 == 5 ? "-1" : Integer.toString(i));
+
+        List<String> expected = compare(sample1, sample2, MYERS_ONLY);
+        assertEquals(expected, compare(sample1, sample2, ComparisonOptions.DEFAULT));
+    }
+
+    @Test
+    void testNamesMatchMyers()
+    {
+        String sample1 = object(80, i -> "\"f" + i + "\": " + i);
+        String sample2 = object(80, i -> "\"" + (i % 3 == 0 ? "g" : "f") + i + "\": " + (i % 5 == 0 ? -i : i));
+
+        List<String> expected = compare(sample1, sample2, MYERS_ONLY);
+        assertEquals(expected.stream().sorted().toList(),
+                compare(sample1, sample2, ComparisonOptions.DEFAULT).stream().sorted().toList());
+    }
+
+    @Test
+    void testKeyedMatching()
+    {
+        String sample1 = array(3, i -> "{\"id\": " + i + ", \"v\": \"x\"}");
+        String sample2 = "[{\"id\": 9, \"v\": \"x\"}, " + array(3, i -> "{\"id\": " + i + ", \"v\": \""
+                + (i == 1 ? "y" : "x") + "\"}").substring(1);
+        ComparisonOptions options = ComparisonOptions.builder()
+                .arrayKeyFields(List.of("key", "id"))
+                .build();
+
+        assertEquals(List.of("Children differ: counts 3 vs 4 (diffs: [0-0]:-1), path='/'",
+                "Nodes values differ: 'x' vs 'y', path='/[1]/v[1]'"), compare(sample1, sample2, options));
+    }
+
+    @Test
+    void testCustomStrategy()
+    {
+        List<ChildrenStats> seen = new ArrayList<>();
+        ChildrenDiffStrategy strategy = new ChildrenDiffStrategy()
+        {
+            @Override
+            public boolean accepts(ChildrenStats stats)
+            {
+                seen.add(stats);
+                return false;
+            }
+
+            @Override
+            public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+            {
+                return List.of();
+            }
+        };
+        ComparisonOptions options = ComparisonOptions.builder()
+                .childrenStrategies(List.of(strategy))
+                .build();
+
+        List<String> diffs = compare("[1, 2, 3, 4, 5]", "[1, 2, 7, 4, 5, 6]", options);
+
+        assertEquals(1, seen.size());
+        ChildrenStats stats = seen.get(0);
+        assertTrue(stats.array());
+        assertEquals(2, stats.commonPrefix());
+        assertEquals(0, stats.commonSuffix());
+        assertEquals(compare("[1, 2, 3, 4, 5]", "[1, 2, 7, 4, 5, 6]", ComparisonOptions.DEFAULT), diffs);
+    }
+
+    @Test
+    void testInsertionOnlyStats()
+    {
+        List<ChildrenStats> seen = new ArrayList<>();
+        ChildrenDiffStrategy strategy = new ChildrenDiffStrategy()
+        {
+            @Override
+            public boolean accepts(ChildrenStats stats)
+            {
+                seen.add(stats);
+                return false;
+            }
+
+            @Override
+            public List<Diff<Integer>> align(ChildrenStats stats, ChildrenView children1, ChildrenView children2)
+            {
+                return List.of();
+            }
+        };
+        ComparisonOptions options = ComparisonOptions.builder()
+                .childrenStrategies(List.of(strategy))
+                .build();
+
+        compare("{\"a\": 1, \"b\": 2, \"c\": 3}", "{\"a\": 1, \"x\": 0, \"b\": 2, \"c\": 3}", options);
+
+        ChildrenStats stats = seen.get(0);
+        assertEquals(1, stats.commonPrefix());
+        assertEquals(2, stats.commonSuffix());
+        assertTrue(stats.isInsertionOnly());
+    }
+
+    private static List<String> compare(String sample1, String sample2, ComparisonOptions options)
+    {
+        ListDiffSink sink = new ListDiffSink();
+        JsonComparator.compareJsonStrings(sample1, sample2, options, sink);
+        return sink.getMessages();
+    }
+
+    private static String array(int size, IntFunction<String> element)
+    {
+        return IntStream.range(0, size).mapToObj(element).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String object(int size, IntFunction<String> field)
+    {
+        return IntStream.range(0, size).mapToObj(field).collect(Collectors.joining(", ", "{", "}"));
+    }
+}
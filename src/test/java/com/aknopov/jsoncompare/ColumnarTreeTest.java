@@ -0,0 +1,151 @@
+package com.aknopov.jsoncompare;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarTreeTest
+{
+    private final static String SAMPLE_1 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 17, 31]}, "g": true}
+""";
+    private final static String SAMPLE_2 = """
+{"a": {"b": "bär", "c": 5.0, "d": {"e": "bar", "x": 1}, "f": [13, 31]}, "g": false}
+""";
+    private final static String SAMPLE_3 = """
+{"g": true, "a": {"c": 5, "b": "foo", "d": {"e": "bar"}, "f": [13, 17, 31]}}
+""";
+    private final static String SAMPLE_4 = """
+[{"id": 1, "name": "a"}, {"id": 2, "name": "b"}, [1, 2], "text", 7]
+""";
+    private final static String SAMPLE_5 = """
+[{"id": 1, "name": "a"}, {"id": 3, "nom": "b"}, [2], 7, "text", 8]
+""";
+
+    private static Stream<Arguments> samplesSource()
+    {
+        return Stream.of(
+                Arguments.of(SAMPLE_1, SAMPLE_1),
+                Arguments.of(SAMPLE_1, SAMPLE_2),
+                Arguments.of(SAMPLE_2, SAMPLE_1),
+                Arguments.of(SAMPLE_1, SAMPLE_3),
+                Arguments.of(SAMPLE_4, SAMPLE_5),
+                Arguments.of(SAMPLE_5, SAMPLE_4),
+                Arguments.of(SAMPLE_1, SAMPLE_4),
+                Arguments.of("{}", SAMPLE_1)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("samplesSource")
+    void testSameResultsAsStrings(String sample1, String sample2) throws IOException
+    {
+        assertEquals(compareStrings(sample1, sample2, false), compareColumnar(sample1, sample2, false));
+        assertEquals(compareStrings(sample1, sample2, true), compareColumnar(sample1, sample2, true));
+    }
+
+    @Test
+    void testLargeDocuments() throws IOException
+    {
+        Random random = new Random(17);
+        String sample1 = randomDocument(random, 3);
+        String sample2 = randomDocument(new Random(17), 3)
+                .replace("\"s7", "\"s8")
+                .replace(", 7,", ", 8, 9,");
+
+        List<String> expected = compareStrings(sample1, sample2, false);
+        assertTrue(expected.size() > 1);
+        assertEquals(expected, compareColumnar(sample1, sample2, false));
+    }
+
+    @Test
+    void testStructure() throws IOException
+    {
+        ColumnarTree tree = ColumnarTree.parse(SAMPLE_1);
+
+        assertEquals(11, tree.size());
+        assertEquals("/a[0]/f[3]/[1]", tree.path(tree.nextSibling(tree.firstChild(6))));
+        assertEquals(3, tree.childCount(6));
+        assertEquals(17.0, tree.value(tree.children(6)[1]));
+        assertEquals("foo", tree.value(2));
+        assertTrue(tree.offHeapBytes() > 0);
+
+        assertEquals(tree.rootHash(), ColumnarTree.parse(SAMPLE_1.replace(" ", "")).rootHash());
+        assertNotEquals(tree.rootHash(), ColumnarTree.parse(SAMPLE_3).rootHash());
+    }
+
+    @Test
+    void testBinaryInput() throws IOException
+    {
+        for (InputFormat format : InputFormat.values())
+        {
+            byte[] encoded = format.mapper().writeValueAsBytes(JsonComparator.OBJECT_MAPPER.readTree(SAMPLE_1));
+            ColumnarTree tree = ColumnarTree.parse(new ByteArrayInputStream(encoded), format);
+
+            assertEquals(ColumnarTree.parse(SAMPLE_1).rootHash(), tree.rootHash());
+        }
+    }
+
+    @Test
+    void testInvalidInput() throws IOException
+    {
+        assertEquals(List.of("Empty input for the first sample", "Empty input for the second sample"),
+                compareColumnar("", " ", false));
+        assertThrows(IllegalArgumentException.class, () -> ColumnarTree.parse("{\"a\": null}"));
+        assertThrows(IOException.class, () -> ColumnarTree.parse("{\"a\": 1, \"a\": 2}"));
+    }
+
+    private static List<String> compareStrings(String sample1, String sample2, boolean stopOnFirst)
+    {
+        return JsonComparator.compareJsonStrings(sample1, sample2, stopOnFirst);
+    }
+
+    private static List<String> compareColumnar(String sample1, String sample2, boolean stopOnFirst)
+            throws IOException
+    {
+        ListDiffSink sink = new ListDiffSink();
+        JsonComparator.compareColumnar(ColumnarTree.parse(sample1), ColumnarTree.parse(sample2),
+                ComparisonOptions.builder().stopOnFirst(stopOnFirst).build(), sink);
+        return sink.getMessages();
+    }
+
+    private static String randomDocument(Random random, int depth)
+    {
+        StringBuilder sb = new StringBuilder("{");
+        int fields = 3 + random.nextInt(40);
+        for (int i = 0; i < fields; i++)
+        {
+            sb.append(i == 0 ? "" : ", ").append("\"f").append(i).append("\": ");
+            int kind = random.nextInt(depth > 0 ? 4 : 2);
+            switch (kind)
+            {
+                case 0 -> sb.append(random.nextInt(100));
+                case 1 -> sb.append("\"s").append(random.nextInt(100)).append('"');
+                case 2 -> sb.append(randomDocument(random, depth - 1));
+                default ->
+                {
+                    sb.append('[');
+                    int size = random.nextInt(80);
+                    for (int j = 0; j < size; j++)
+                    {
+                        sb.append(j == 0 ? "" : ", ").append(random.nextInt(20));
+                    }
+                    sb.append(']');
+                }
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.aknopov.jsoncompare.ComparisonSession.Side;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComparisonSessionTest
+{
+    private final static String SAMPLE_1 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 17, 31]}, "g": true, "h": "x"}
+""";
+    private final static String SAMPLE_2 = """
+{"a": {"b": "foo", "c": 7, "d": {"e": "bar"}, "f": [13, 19, 31]}, "g": true, "h": "x"}
+""";
+
+    @Test
+    void testInitialComparison() throws IOException
+    {
+        ComparisonSession session = ComparisonSession.open(SAMPLE_1, SAMPLE_2, ComparisonOptions.DEFAULT);
+
+        assertEquals(compare(SAMPLE_1, SAMPLE_2), messages(session));
+        assertEquals(2, session.getResult().differenceCount());
+    }
+
+    @Test
+    void testPatches() throws IOException
+    {
+        ComparisonSession session = ComparisonSession.open(SAMPLE_1, SAMPLE_2, ComparisonOptions.DEFAULT);
+
+        session.applyPatch(Side.FIRST, """
+[{"op": "replace", "path": "/a/c", "value": 7}]
+""");
+        assertEquals(compare(SAMPLE_1.replace("5", "7"), SAMPLE_2), messages(session));
+
+        session.applyPatch(Side.SECOND, """
+[{"op": "add", "path": "/a/f/1", "value": 17}, {"op": "remove", "path": "/a/f/2"}]
+""");
+        assertEquals(List.of(), messages(session));
+        assertEquals(0, session.getResult().differenceCount());
+
+        session.applyPatch(Side.SECOND, """
+[
+  {"op": "add", "path": "/a/f/-", "value": 37},
+  {"op": "move", "from": "/a/d", "path": "/d"},
+  {"op": "copy", "from": "/h", "path": "/a~1b"}
+]
+""");
+        String patched2 = """
+{"a": {"b": "foo", "c": 7, "f": [13, 17, 31, 37]}, "g": true, "h": "x", "d": {"e": "bar"}, "a/b": "x"}
+""";
+        assertEquals(compare(SAMPLE_1.replace("5", "7"), patched2), messages(session));
+
+        session.applyPatch(Side.FIRST, """
+[{"op": "replace", "path": "", "value": {"x": 1}}]
+""");
+        assertEquals(compare("{\"x\": 1}", patched2), messages(session));
+    }
+
+    @Test
+    void testFailedPatchIsRolledBack() throws IOException
+    {
+        ComparisonSession session = ComparisonSession.open(SAMPLE_1, SAMPLE_2, ComparisonOptions.DEFAULT);
+        List<String> messages = messages(session);
+
+        assertThrows(IllegalArgumentException.class, () -> session.applyPatch(Side.FIRST, """
+[{"op": "remove", "path": "/a/c"}, {"op": "test", "path": "/g", "value": false}]
+"""));
+        assertThrows(IllegalArgumentException.class, () -> session.applyPatch(Side.FIRST, """
+[{"op": "add", "path": "/a/f/0", "value": 1}, {"op": "remove", "path": "/a/f/5"}]
+"""));
+        assertThrows(IllegalArgumentException.class, () -> session.applyPatch(Side.FIRST, """
+[{"op": "move", "from": "/a", "path": "/a/d/a"}]
+"""));
+
+        session.applyPatch(Side.FIRST, """
+[{"op": "test", "path": "/a/f/1", "value": 17}]
+""");
+        assertEquals(messages, messages(session));
+    }
+
+    @Test
+    void testLimits() throws IOException
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .maxDiffs(1)
+                .build();
+        ComparisonSession session = ComparisonSession.open(SAMPLE_1, SAMPLE_2, options);
+
+        assertEquals(1, session.getDifferences().size());
+        assertTrue(session.getResult().truncated());
+
+        session.applyPatch(Side.FIRST, """
+[{"op": "replace", "path": "/a/c", "value": 7}]
+""");
+        assertEquals(compare(SAMPLE_1.replace("5", "7"), SAMPLE_2), messages(session));
+
+        session.applyPatch(Side.FIRST, """
+[{"op": "replace", "path": "/a/f/1", "value": 19}]
+""");
+        assertEquals(List.of(), session.getDifferences());
+        assertFalse(session.getResult().truncated());
+    }
+
+    @Test
+    void testInvalidInput()
+    {
+        assertThrows(IllegalArgumentException.class,
+                () -> ComparisonSession.open(" ", SAMPLE_2, ComparisonOptions.DEFAULT));
+        assertThrows(IOException.class,
+                () -> ComparisonSession.open("{\"a\": [1, 2}", SAMPLE_2, ComparisonOptions.DEFAULT));
+        assertThrows(IllegalArgumentException.class, () -> ComparisonSession.open(SAMPLE_1, SAMPLE_2,
+                ComparisonOptions.builder().detectMoves(true).build()));
+    }
+
+    private static List<String> compare(String sample1, String sample2)
+    {
+        return JsonComparator.compareJsonStrings(sample1, sample2, false);
+    }
+
+    private static List<String> messages(ComparisonSession session)
+    {
+        return session.getDifferences().stream()
+                .map(Difference::message)
+                .toList();
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DiffRecorderTest
 {
@@ -40,4 +41,23 @@ class DiffRecorderTest
         diffRecorder.addMessage(" footer2");
         assertEquals(List.of("header", "body", " footer2"), diffRecorder.getMessages());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLimits()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        DiffRecorder diffRecorder = new DiffRecorder(ComparisonOptions.builder()
+                .knownDiscrepancies(List.of("ignored"))
+                .maxDiffs(2)
+                .build(), sink);
+
+        diffRecorder.addMessage("first");
+        diffRecorder.addMessage("ignored");
+        diffRecorder.addDifference(DifferenceType.VALUE, "/a", "second");
+        diffRecorder.addMessage("third");
+
+        assertTrue(diffRecorder.isLimitReached());
+        assertEquals(List.of("first", "second, path='/a'"), sink.getMessages());
+        assertEquals(new ComparisonResult(2, true), diffRecorder.toResult());
+    }
+}
@@ -0,0 +1,90 @@
+package com.aknopov.jsoncompare;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentClustererTest
+{
+    private final static String RESPONSE_1 = """
+{"status": "ok", "items": [{"id": 1, "name": "a"}, {"id": 2, "name": "b"}, {"id": 3, "name": "c"},
+ {"id": 4, "name": "d"}, {"id": 5, "name": "e"}, {"id": 6, "name": "f"}, {"id": 7, "name": "g"},
+ {"id": 8, "name": "h"}, {"id": 9, "name": "i"}, {"id": 10, "name": "j"}, {"id": 11, "name": "k"},
+ {"id": 12, "name": "l"}, {"id": 13, "name": "m"}, {"id": 14, "name": "n"}], "version": 7}
+""";
+    // Same as the first one but a single value
+    private final static String RESPONSE_2 = RESPONSE_1.replace("\"f\"", "\"x\"");
+    private final static String RESPONSE_3 = """
+{"error": {"code": 503, "message": "Service unavailable"}}
+""";
+
+    @Test
+    void testClustering()
+    {
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            documents.add(RESPONSE_1);
+        }
+        documents.add(RESPONSE_2);
+        documents.add(RESPONSE_2);
+        documents.add(RESPONSE_3);
+        documents.add(1, RESPONSE_3);
+
+        ClusteringResult result = DocumentClusterer.cluster(documents);
+
+        assertEquals(Map.of(), result.failures());
+        assertEquals(2, result.clusters().size());
+
+        DocumentCluster main = result.clusters().get(0);
+        assertEquals(0, main.representative());
+        assertEquals(12, main.size());
+        assertEquals(List.of(List.of(0, 2, 3, 4, 5, 6, 7, 8, 9, 10), List.of(11, 12)), main.groups());
+        assertTrue(main.differences().isEmpty());
+
+        DocumentCluster errors = result.clusters().get(1);
+        assertEquals(1, errors.representative());
+        assertEquals(List.of(List.of(1, 13)), errors.groups());
+        assertEquals(JsonComparator.compareJsonStrings(RESPONSE_1, RESPONSE_3, false), errors.differences());
+    }
+
+    @Test
+    void testSimilarity()
+    {
+        List<String> documents = List.of(RESPONSE_1, RESPONSE_2);
+
+        assertEquals(1, DocumentClusterer.cluster(documents, ComparisonOptions.DEFAULT, 0.5).clusters().size());
+
+        ClusteringResult exact = DocumentClusterer.cluster(documents, ComparisonOptions.DEFAULT, 1);
+        assertEquals(2, exact.clusters().size());
+        assertEquals(JsonComparator.compareJsonStrings(RESPONSE_1, RESPONSE_2, false),
+                exact.clusters().get(1).differences());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DocumentClusterer.cluster(documents, ComparisonOptions.DEFAULT, 1.5));
+    }
+
+    @Test
+    void testInvalidDocuments()
+    {
+        ClusteringResult result = DocumentClusterer.cluster(List.of("", RESPONSE_1, "{\"a\": ", "{\"a\": null}"));
+
+        assertEquals(1, result.clusters().size());
+        assertEquals(List.of(0, 2, 3), List.copyOf(result.failures().keySet()));
+        assertEquals("Empty input", result.failures().get(0));
+        assertTrue(result.failures().get(2).startsWith("Failed to parse:"));
+        assertThrows(UnsupportedOperationException.class, () -> result.failures().remove(0));
+    }
+
+    @Test
+    void testEmptyInput()
+    {
+        assertTrue(DocumentClusterer.cluster(List.of()).clusters().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.aknopov.jsoncompare;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FingerprinterTest
+{
+    private final static String SAMPLE_1 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 17, 31]}, "g": true, "h": null}
+""";
+    private final static String SAMPLE_2 = """
+{
+  "a": {"b": "foo", "c": 5.0, "d": {"e": "bar"}, "f": [13, 17, 31]},
+  "g": true,
+  "h": null
+}
+""";
+    private final static String SAMPLE_3 = """
+{"g": true, "h": null, "a": {"d": {"e": "bar"}, "c": 5, "b": "foo", "f": [13, 17, 31]}}
+""";
+    private final static String SAMPLE_4 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 31, 17]}, "g": true, "h": null}
+""";
+
+    @Test
+    void testEqualDocuments() throws IOException
+    {
+        Fingerprint fingerprint = Fingerprinter.DEFAULT.fingerprint(SAMPLE_1);
+
+        assertEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_1));
+        assertEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_2));
+        assertEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(
+                new ByteArrayInputStream(SAMPLE_2.getBytes(StandardCharsets.UTF_8)), InputFormat.JSON));
+    }
+
+    @Test
+    void testDifferentDocuments() throws IOException
+    {
+        Fingerprint fingerprint = Fingerprinter.DEFAULT.fingerprint(SAMPLE_1);
+
+        assertNotEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_3));
+        assertNotEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_4));
+        assertNotEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_1.replace("bar", "baz")));
+        assertNotEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_1.replace("\"e\"", "\"x\"")));
+        assertNotEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(SAMPLE_1.replace("true", "\"true\"")));
+        assertNotEquals(Fingerprinter.DEFAULT.fingerprint("[[1], 2]"), Fingerprinter.DEFAULT.fingerprint("[[1, 2]]"));
+        assertNotEquals(Fingerprinter.DEFAULT.fingerprint("{}"), Fingerprinter.DEFAULT.fingerprint("[]"));
+    }
+
+    @Test
+    void testUnorderedFields() throws IOException
+    {
+        Fingerprinter fingerprinter = Fingerprinter.builder()
+                .unorderedFields(true)
+                .build();
+
+        assertEquals(fingerprinter.fingerprint(SAMPLE_1), fingerprinter.fingerprint(SAMPLE_3));
+        assertNotEquals(fingerprinter.fingerprint(SAMPLE_1), fingerprinter.fingerprint(SAMPLE_4));
+        assertNotEquals(fingerprinter.fingerprint("{\"a\": 1, \"b\": 2}"),
+                fingerprinter.fingerprint("{\"a\": 2, \"b\": 1}"));
+    }
+
+    @Test
+    void testIgnoredPaths() throws IOException
+    {
+        Fingerprinter fingerprinter = Fingerprinter.builder()
+                .ignoredPaths(List.of("/a/d", "/a/f/1"))
+                .build();
+
+        assertEquals(fingerprinter.fingerprint(SAMPLE_1),
+                fingerprinter.fingerprint(SAMPLE_1.replace("bar", "baz").replace("17", "19")));
+        assertEquals(fingerprinter.fingerprint(SAMPLE_1),
+                fingerprinter.fingerprint(SAMPLE_1.replace(", \"d\": {\"e\": \"bar\"}", "")));
+        assertNotEquals(fingerprinter.fingerprint(SAMPLE_1), fingerprinter.fingerprint(SAMPLE_4));
+        assertNotEquals(fingerprinter.fingerprint(SAMPLE_1), fingerprinter.fingerprint(SAMPLE_1.replace("31", "37")));
+    }
+
+    @Test
+    void testBinaryFormats() throws IOException
+    {
+        Fingerprint fingerprint = Fingerprinter.DEFAULT.fingerprint(SAMPLE_1);
+        for (InputFormat format : InputFormat.values())
+        {
+            byte[] encoded = format.mapper().writeValueAsBytes(JsonComparator.OBJECT_MAPPER.readTree(SAMPLE_1));
+
+            assertEquals(fingerprint, Fingerprinter.DEFAULT.fingerprint(encoded, format));
+        }
+    }
+
+    @Test
+    void testStringRepresentation() throws IOException
+    {
+        Fingerprint fingerprint = Fingerprinter.DEFAULT.fingerprint(SAMPLE_1);
+
+        assertEquals(32, fingerprint.toString().length());
+        assertEquals(fingerprint, Fingerprint.fromString(fingerprint.toString()));
+        assertThrows(IllegalArgumentException.class, () -> Fingerprint.fromString("12ab"));
+    }
+
+    @Test
+    void testInvalidInput()
+    {
+        assertThrows(IllegalArgumentException.class, () -> Fingerprinter.DEFAULT.fingerprint(" "));
+        assertThrows(IOException.class, () -> Fingerprinter.DEFAULT.fingerprint("{\"a\": [1, 2}"));
+        assertThrows(IOException.class, () -> Fingerprinter.DEFAULT.fingerprint("{\"a\": 1, \"a\": 2}"));
+    }
+}
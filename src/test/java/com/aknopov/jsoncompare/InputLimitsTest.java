@@ -0,0 +1,194 @@
+package com.aknopov.jsoncompare;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputLimitsTest
+{
+    private final static String SAMPLE = "{\"a\": {\"b\": \"foo\", \"c\": [1, 2, 3]}, \"d\": true}";
+    private final static String SAMPLE_2 = "{\"a\": {\"b\": \"bar\", \"c\": [1, 2, 3]}, \"d\": true}";
+
+    @Test
+    void testDepthLimit()
+    {
+        InputLimits limits = InputLimits.builder().maxDepth(50).build();
+
+        checkRejected(SAMPLE, nested(60), limits, "second", "nesting depth (51) exceeds the maximum allowed (50");
+        checkAccepted(SAMPLE, nested(50), limits);
+    }
+
+    @Test
+    void testNodeLimit()
+    {
+        InputLimits limits = InputLimits.builder().maxNodes(8).build();
+
+        checkRejected(SAMPLE, "[1]", InputLimits.builder().maxNodes(7).build(), "first",
+                "Number of nodes exceeds the maximum allowed (7)");
+        checkAccepted(SAMPLE, SAMPLE_2, limits);
+    }
+
+    @Test
+    void testStringLengthLimit()
+    {
+        InputLimits limits = InputLimits.builder().maxStringLength(10).build();
+
+        checkRejected("[\"" + "x".repeat(11) + "\"]", SAMPLE, limits, "first", "exceeds the maximum allowed (10");
+        checkRejected("{\"" + "x".repeat(11) + "\": 1}", SAMPLE, limits, "first", "exceeds the maximum allowed (10");
+        // 10 characters in 20 bytes of the literal
+        checkAccepted("[\"" + "\\n".repeat(10) + "\"]", "[\"" + "\\t".repeat(10) + "\"]", limits);
+    }
+
+    @Test
+    void testArrayLengthLimit()
+    {
+        InputLimits limits = InputLimits.builder().maxArrayLength(3).build();
+
+        checkRejected(SAMPLE, "[1, 2, 3, 4]", limits, "second", "Array length exceeds the maximum allowed (3)");
+        checkAccepted(SAMPLE, SAMPLE_2, limits);
+    }
+
+    @Test
+    void testInputSizeLimit()
+    {
+        InputLimits limits = InputLimits.builder().maxInputBytes(SAMPLE.length()).build();
+
+        checkRejected(SAMPLE + " ", SAMPLE, limits, "first", "Document length (" + (SAMPLE.length() + 1)
+                + ") exceeds the maximum allowed (" + SAMPLE.length() + ")");
+        checkAccepted(SAMPLE, SAMPLE_2, limits);
+    }
+
+    @Test
+    void testHugeArrayIsRejectedEarly()
+    {
+        String huge = "[" + "0,".repeat(2_000_000) + "0]";
+        ComparisonOptions options = ComparisonOptions.builder()
+                .inputLimits(InputLimits.builder().maxArrayLength(1_000).build())
+                .build();
+        List<Difference> differences = new ArrayList<>();
+
+        ComparisonResult result = JsonComparator.compareJsonStrings(huge, huge, options, differences::add);
+
+        assertTrue(result.inputLimitExceeded());
+        assertEquals(2, differences.size());
+    }
+
+    @Test
+    void testStopOnFirst()
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .stopOnFirst(true)
+                .inputLimits(InputLimits.builder().maxNodes(2).build())
+                .build();
+        List<Difference> differences = new ArrayList<>();
+
+        JsonComparator.compareJsonStrings(SAMPLE, SAMPLE, options, differences::add);
+
+        assertEquals(1, differences.size());
+        assertEquals(DifferenceType.LIMIT, differences.get(0).type());
+    }
+
+    @Test
+    void testJacksonDefaultConstraints()
+    {
+        List<Difference> differences = new ArrayList<>();
+
+        ComparisonResult result = JsonComparator.compareJsonStrings(nested(1_500), SAMPLE, ComparisonOptions.DEFAULT,
+                differences::add);
+
+        assertTrue(result.inputLimitExceeded());
+        assertEquals(DifferenceType.LIMIT, differences.get(0).type());
+    }
+
+    @Test
+    void testUnlimitedByDefault()
+    {
+        assertTrue(InputLimits.NONE.isUnlimited());
+        assertEquals(InputLimits.NONE, ComparisonOptions.DEFAULT.getInputLimits());
+        assertFalse(InputLimits.builder().maxDepth(10).build().isUnlimited());
+    }
+
+    @Test
+    void testInvalidLimits()
+    {
+        assertThrows(IllegalArgumentException.class, () -> InputLimits.builder().maxDepth(0));
+        assertThrows(IllegalArgumentException.class, () -> InputLimits.builder().maxNodes(0));
+        assertThrows(IllegalArgumentException.class, () -> InputLimits.builder().maxStringLength(-1));
+        assertThrows(IllegalArgumentException.class, () -> InputLimits.builder().maxArrayLength(0));
+        assertThrows(IllegalArgumentException.class, () -> InputLimits.builder().maxInputBytes(0));
+    }
+
+    // Samples are rejected the same way by all comparison paths
+    private static void checkRejected(String sample1, String sample2, InputLimits limits, String qualifier,
+            String message)
+    {
+        for (ComparisonOptions options : options(limits))
+        {
+            for (boolean documents : new boolean[] {false, true})
+            {
+                List<Difference> differences = new ArrayList<>();
+                ComparisonResult result = compare(sample1, sample2, options, documents, differences::add);
+
+                String description = (documents ? "documents" : "strings") + ", " + describe(options);
+                assertTrue(result.inputLimitExceeded(), description);
+                assertEquals(1, differences.size(), description);
+                Difference difference = differences.get(0);
+                assertEquals(DifferenceType.LIMIT, difference.type(), description);
+                assertTrue(difference.message().startsWith("Input limit exceeded in the " + qualifier + " sample: "),
+                        description + ": " + difference.message());
+                assertTrue(difference.message().contains(message), description + ": " + difference.message());
+            }
+        }
+    }
+
+    private static void checkAccepted(String sample1, String sample2, InputLimits limits)
+    {
+        List<String> expected = JsonComparator.compareJsonStrings(sample1, sample2, false);
+        for (ComparisonOptions options : options(limits))
+        {
+            for (boolean documents : new boolean[] {false, true})
+            {
+                ListDiffSink sink = new ListDiffSink();
+                ComparisonResult result = compare(sample1, sample2, options, documents, sink);
+
+                String description = (documents ? "documents" : "strings") + ", " + describe(options);
+                assertFalse(result.inputLimitExceeded(), description);
+                assertEquals(expected, sink.getMessages(), description);
+            }
+        }
+    }
+
+    private static ComparisonResult compare(String sample1, String sample2, ComparisonOptions options,
+            boolean documents, DiffSink sink)
+    {
+        return documents
+                ? JsonComparator.compareDocuments(sample1.getBytes(StandardCharsets.UTF_8), InputFormat.JSON,
+                        sample2.getBytes(StandardCharsets.UTF_8), InputFormat.JSON, options, sink)
+                : JsonComparator.compareJsonStrings(sample1, sample2, options, sink);
+    }
+
+    private static List<ComparisonOptions> options(InputLimits limits)
+    {
+        return List.of(
+                ComparisonOptions.builder().inputLimits(limits).build(),
+                ComparisonOptions.builder().inputLimits(limits).parallelParsing(true).build(),
+                ComparisonOptions.builder().inputLimits(limits).hashFirst(true).build());
+    }
+
+    private static String describe(ComparisonOptions options)
+    {
+        return options.isHashFirst() ? "hash-first" : options.isParallelParsing() ? "parallel" : "sequential";
+    }
+
+    private static String nested(int depth)
+    {
+        return "[".repeat(depth) + "1" + "]".repeat(depth);
+    }
+}
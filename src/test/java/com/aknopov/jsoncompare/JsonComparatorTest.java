@@ -1,14 +1,25 @@
 package com.aknopov.jsoncompare;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JsonComparatorTest
@@ -85,6 +96,89 @@ private final static String JSON_SAMPLE_5 =
         assertTrue(!thirdErr.isEmpty() && thirdErr.get(0).startsWith("Failed to parse the first sample:"));
     }
 
+    @Test
+    void testParallelParsing()
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .parallelParsing(true)
+                .build();
+        List<List<String>> pairs = List.of(List.of(JSON_SAMPLE_1, JSON_SAMPLE_3), List.of(JSON_SAMPLE_4, JSON_SAMPLE_5),
+                List.of(JSON_ARRAY_1, JSON_ARRAY_2), List.of(JSON_ARRAY_3, JSON_ARRAY_4),
+                List.of("not a JSON", INVALID_JSON_SAMPLE), List.of("", JSON_SAMPLE_1));
+        for (List<String> pair : pairs)
+        {
+            ListDiffSink sink = new ListDiffSink();
+            JsonComparator.compareJsonStrings(pair.get(0), pair.get(1), options, sink);
+
+            assertEquals(JsonComparator.compareJsonStrings(pair.get(0), pair.get(1), false), sink.getMessages());
+        }
+
+        ComparisonOptions stopOnFirst = ComparisonOptions.builder()
+                .parallelParsing(true)
+                .stopOnFirst(true)
+                .build();
+        ListDiffSink sink = new ListDiffSink();
+        JsonComparator.compareJsonStrings("", "not a JSON", stopOnFirst, sink);
+        assertEquals(List.of("Empty input for the first sample"), sink.getMessages());
+    }
+
+    @Test
+    void testBinaryFormats() throws IOException
+    {
+        byte[] text1 = JSON_SAMPLE_1.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3, false);
+        for (InputFormat format : InputFormat.values())
+        {
+            byte[] binary1 = encode(JSON_SAMPLE_1, format);
+            byte[] binary3 = encode(JSON_SAMPLE_3, format);
+
+            assertTrue(JsonComparator.compareDocuments(binary1, format, text1, InputFormat.JSON, false).isEmpty());
+            assertEquals(expected, JsonComparator.compareDocuments(text1, InputFormat.JSON, binary3, format, false));
+            assertEquals(expected, JsonComparator.compareDocuments(binary1, format, binary3, format, false));
+        }
+    }
+
+    @Test
+    void testBinaryValues() throws IOException
+    {
+        ObjectNode node = JsonComparator.OBJECT_MAPPER.createObjectNode().put("data", new byte[] {1, 2, 3});
+        byte[] cbor = InputFormat.CBOR.mapper().writeValueAsBytes(node);
+
+        assertTrue(JsonComparator.compareDocuments(cbor, InputFormat.CBOR,
+                "{\"data\": \"AQID\"}".getBytes(StandardCharsets.UTF_8), InputFormat.JSON, false).isEmpty());
+    }
+
+    @Test
+    void testUtf8TextValues()
+    {
+        List<List<String>> pairs = List.of(List.of(JSON_SAMPLE_1, JSON_SAMPLE_3), List.of(JSON_ARRAY_1, JSON_ARRAY_2),
+                List.of("{\"a\": \"caf\\u00e9 \\\"x\\\"\"}", "{\"a\": \"caf\u00e9 \\\"y\\\"\"}"),
+                List.of("not a JSON", JSON_SAMPLE_1));
+        for (List<String> pair : pairs)
+        {
+            byte[] text1 = pair.get(0).getBytes(StandardCharsets.UTF_8);
+            byte[] text2 = pair.get(1).getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(JsonComparator.compareJsonStrings(pair.get(0), pair.get(1), false),
+                    JsonComparator.compareDocuments(text1, InputFormat.JSON, text2, InputFormat.JSON, false));
+        }
+        assertTrue(JsonComparator.compareDocuments("[\"\\u00e9\\n\"]".getBytes(StandardCharsets.UTF_8),
+                InputFormat.JSON, "[\"\u00e9\\n\"]".getBytes(StandardCharsets.UTF_8), InputFormat.JSON,
+                false).isEmpty());
+    }
+
+    @Test
+    void testParsingInvalidBinarySamples()
+    {
+        byte[] text = JSON_SAMPLE_1.getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of("Empty input for the first sample"),
+                JsonComparator.compareDocuments(new byte[0], InputFormat.CBOR, text, InputFormat.JSON, true));
+
+        List<String> diffs = JsonComparator.compareDocuments(text, InputFormat.JSON, new byte[] {(byte)0xFF},
+                InputFormat.CBOR, true);
+        assertTrue(!diffs.isEmpty() && diffs.get(0).startsWith("Failed to parse the second sample:"));
+    }
+
     @Test
     void testIdentityEquivalence()
     {
@@ -101,6 +195,25 @@ private final static String JSON_SAMPLE_5 =
                 "Nodes values differ: 'true' vs 'false', path='/[1]/passed[2]'"), diffs);
     }
 
+    @Test
+    void testChildrenDifferingAtStart()
+    {
+        // Insertion comes first in the diff list, values are still reported in the order of samples
+        assertEquals(List.of("Children differ: counts 2 vs 3 (diffs: [1-1]:-1), path='/'",
+                "Nodes values differ: '1.0' vs '0.0', path='/[0]'"),
+                JsonComparator.compareJsonStrings("[1, 2]", "[0, 1, 2]", false));
+        // Unmatched element at index 0 starts the run of deleted elements
+        assertEquals(List.of("Children differ: counts 1 vs 0 (diffs: [0-0]:+1), path='/'"),
+                JsonComparator.compareJsonStrings("[1]", "[]", false));
+        assertEquals(List.of("Children differ: counts 4 vs 2 (diffs: [0-1]:+2), path='/'"),
+                JsonComparator.compareJsonStrings("[1, 2, 3, 4]", "[3, 4]", false));
+    }
+
+    private static byte[] encode(String json, InputFormat format) throws IOException
+    {
+        return format.mapper().writeValueAsBytes(JsonComparator.OBJECT_MAPPER.readTree(json));
+    }
+
     private static Stream<Arguments> comparisonSource()
     {
         return Stream.of(
@@ -142,4 +255,180 @@ private final static String JSON_SAMPLE_5 =
                 List.of("Children order differ for \\d+ nodes, path='/a.*'"));
         assertEquals(List.of("Nodes values differ: 'org' vs 'mod', path='/d[1]'"), diffs);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDiffSink()
+    {
+        List<Difference> differences = new ArrayList<>();
+        ComparisonResult result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.DEFAULT, differences::add);
+
+        assertEquals(new ComparisonResult(3, false), result);
+        assertEquals(List.of(
+                new Difference(DifferenceType.VALUE, "/a/b[0]", "Nodes values differ: 'foo' vs 'bar', path='/a/b[0]'"),
+                new Difference(DifferenceType.VALUE, "/a/d[2]/e", "Nodes values differ: 'bar' vs 'foo', path='/a/d[2]/e'"),
+                new Difference(DifferenceType.CHILDREN, "/a/f[3]",
+                        "Children differ: counts 3 vs 2 (diffs: [1-1]:+1), path='/a/f[3]'")), differences);
+    }
+
+    @Test
+    void testDiffLimits()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        ComparisonResult result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.builder().maxDiffs(2).build(), sink);
+        assertTrue(result.truncated());
+        assertEquals(2, result.differenceCount());
+        assertEquals(2, sink.getMessages().size());
+
+        sink = new ListDiffSink();
+        result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.builder().maxBytes(60).build(), sink);
+        assertTrue(result.truncated());
+        assertEquals(List.of("Nodes values differ: 'foo' vs 'bar', path='/a/b[0]'"), sink.getMessages());
+
+        result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.builder().maxDiffs(10).build(), d -> {});
+        assertFalse(result.truncated());
+        assertEquals(3, result.differenceCount());
+    }
+
+    @Test
+    void testMetrics()
+    {
+        List<ComparisonMetrics> collected = new ArrayList<>();
+        ComparisonOptions options = ComparisonOptions.builder()
+                .knownDiscrepancies(List.of("'foo' vs 'bar'"))
+                .listener(collected::add)
+                .build();
+        ComparisonResult result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3, options,
+                new ListDiffSink());
+
+        assertEquals(1, collected.size());
+        ComparisonMetrics metrics = collected.get(0);
+        assertEquals(JSON_SAMPLE_1.length(), metrics.bytes1());
+        assertEquals(JSON_SAMPLE_3.length(), metrics.bytes2());
+        assertEquals(10, metrics.nodes1());
+        assertEquals(9, metrics.nodes2());
+        assertTrue(metrics.myersRuns() > 0);
+        assertTrue(metrics.pairedChildren() > 0);
+        assertEquals(result.differenceCount(), metrics.reportedDiffs());
+        assertEquals(1, metrics.filteredDiffs());
+        assertTrue(metrics.parseNanos() > 0);
+        assertTrue(metrics.comparisonNanos() >= metrics.filterNanos());
+    }
+
+    @Test
+    void testJfrEvents(@TempDir Path tempDir) throws IOException
+    {
+        Path dump = tempDir.resolve("comparison.jfr");
+        System.setProperty("jsoncompare.jfr.largeDiffSnakes", "0");
+        try (Recording recording = new Recording())
+        {
+            recording.enable("com.aknopov.jsoncompare.Comparison");
+            recording.enable("com.aknopov.jsoncompare.ComparisonPhase");
+            recording.enable("com.aknopov.jsoncompare.ChildrenDiff");
+            recording.start();
+            JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3, false);
+            recording.stop();
+            recording.dump(dump);
+        }
+        finally
+        {
+            System.clearProperty("jsoncompare.jfr.largeDiffSnakes");
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<String> phases = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith(".ComparisonPhase"))
+                .map(e -> e.getString("phase"))
+                .toList();
+        assertEquals(List.of("parse", "parse", "convert", "convert", "compare"), phases);
+
+        RecordedEvent comparison = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith(".Comparison"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3, comparison.getInt("differenceCount"));
+
+        RecordedEvent childrenDiff = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith(".ChildrenDiff")
+                        && e.getString("path").equals("/a/f[3]"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3, childrenDiff.getInt("childCount1"));
+        assertEquals(2, childrenDiff.getInt("childCount2"));
+    }
+
+    @Test
+    void testBudgets()
+    {
+        ListDiffSink sink = new ListDiffSink();
+        ComparisonResult result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.builder().maxNodes(1).build(), sink);
+        assertTrue(result.approximate());
+        assertEquals(List.of("Nodes differ, not compared in details: comparison budget is exceeded, path='/a'"),
+                sink.getMessages());
+
+        sink = new ListDiffSink();
+        result = JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_3,
+                ComparisonOptions.builder().timeout(Duration.ofNanos(1)).build(), sink);
+        assertTrue(result.approximate());
+        assertEquals(List.of("Nodes differ, not compared in details: comparison budget is exceeded, path='/'"),
+                sink.getMessages());
+
+        String array1 = "[1, 2, 3, 4, 5, 6]";
+        String array2 = "[1, 7, 3, 8, 5, 6, 9]";
+        ListDiffSink exactSink = new ListDiffSink();
+        ComparisonResult exact = JsonComparator.compareJsonStrings(array1, array2, ComparisonOptions.DEFAULT,
+                exactSink);
+        assertFalse(exact.approximate());
+
+        sink = new ListDiffSink();
+        result = JsonComparator.compareJsonStrings(array1, array2,
+                ComparisonOptions.builder().maxMyersWork(1).build(), sink);
+        assertTrue(result.approximate());
+        assertEquals(exactSink.getMessages(), sink.getMessages());
+    }
+
+    @Test
+    void testMoveDetection()
+    {
+        String sample1 = """
+{"pending": [{"id": 1, "task": "a"}, {"id": 2, "task": "b"}], "done": [{"id": 0, "task": "z"}],
+ "meta": {"owner": {"name": "x", "team": "y", "tags": [1, 2], "email": "x@y"}}, "archive": {}}
+""";
+        String sample2 = """
+{"pending": [{"id": 1, "task": "a"}], "done": [{"id": 0, "task": "z"}, {"id": 2, "task": "b"}],
+ "meta": {}, "archive": {"owner": {"name": "x", "team": "q", "tags": [1, 2], "email": "x@y"}}}
+""";
+        ComparisonOptions options = ComparisonOptions.builder()
+                .detectMoves(true)
+                .build();
+
+        List<Difference> differences = new ArrayList<>();
+        JsonComparator.compareJsonStrings(sample1, sample2, options, differences::add);
+        assertEquals(List.of("Node moved to '/done[1]/[1]', path='/pending[0]/[1]'",
+                "Node moved to '/archive[3]/owner', path='/meta[2]/owner'",
+                "Nodes values differ: 'y' vs 'q', path='/meta[2]/owner/team[1]'"),
+                differences.stream().map(Difference::message).toList());
+        assertEquals(List.of(DifferenceType.MOVE, DifferenceType.MOVE, DifferenceType.VALUE),
+                differences.stream().map(Difference::type).toList());
+
+        List<String> plain = JsonComparator.compareJsonStrings(sample1, sample2, false);
+        assertEquals(4, plain.size());
+        assertTrue(plain.stream().allMatch(m -> m.startsWith("Children differ")));
+    }
+
+    @Test
+    void testMoveDetectionLeavesUnmatchedChildren()
+    {
+        ComparisonOptions options = ComparisonOptions.builder()
+                .detectMoves(true)
+                .build();
+
+        ListDiffSink sink = new ListDiffSink();
+        JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_4, options, sink);
+        assertEquals(JsonComparator.compareJsonStrings(JSON_SAMPLE_1, JSON_SAMPLE_4, false), sink.getMessages());
+    }
+}
@@ -0,0 +1,122 @@
+package com.aknopov.jsoncompare;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonDiffWriterTest
+{
+    private final static String SAMPLE_1 = """
+{"a": {"b": "foo", "c": 5, "d": {"e": "bar"}, "f": [13, 17, 31]}, "g": true, "h/i": "x", "j": [1, 2, 3]}
+""";
+    private final static String SAMPLE_2 = """
+{"a": {"b": "foo", "c": 7.5, "f": [11, 13, 19, 31, 37], "k": [1]}, "g": "true", "h/i": "y", "j": [2, 3]}
+""";
+
+    @Test
+    void testPatchTransformsDocument() throws IOException
+    {
+        assertPatchTransforms(SAMPLE_1, SAMPLE_2);
+        assertPatchTransforms(SAMPLE_2, SAMPLE_1);
+        assertPatchTransforms("[1, 2, 3, 4, 5]", "[0, 1, 3, 5, 6]");
+        assertPatchTransforms("[{\"id\": 1, \"v\": \"a\"}, {\"id\": 2}]", "[{\"id\": 2}, {\"id\": 1, \"v\": \"b\"}]");
+        assertPatchTransforms("{\"a\": 1}", "[1]");
+    }
+
+    @Test
+    void testPatchOfEqualDocuments() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, JsonDiffWriter.writePatch(SAMPLE_1, SAMPLE_1, ComparisonOptions.DEFAULT, out));
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPatchOperations() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JsonDiffWriter.writePatch("{\"a\": [1, 2, 3], \"b/c\": 1, \"d\": 0}", "{\"a\": [1, 3], \"b/c\": 2, \"e\": 0}",
+                ComparisonOptions.DEFAULT, out);
+
+        assertEquals("""
+[{"op":"remove","path":"/a/1"},{"op":"replace","path":"/b~1c","value":2},{"op":"remove","path":"/d"},\
+{"op":"add","path":"/e","value":0}]""", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testReport() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = JsonDiffWriter.writeReport(SAMPLE_1, SAMPLE_2, ComparisonOptions.DEFAULT, out);
+
+        JsonNode report = JsonComparator.OBJECT_MAPPER.readTree(out.toByteArray());
+        assertEquals(count, report.get("count").asLong());
+        assertEquals(count, report.get("differences").size());
+        JsonNode first = report.get("differences").get(0);
+        assertEquals("VALUE", first.get("type").asText());
+        assertEquals("/a/c", first.get("path").asText());
+        assertEquals(5, first.get("old").asInt());
+        assertEquals(7.5, first.get("new").asDouble());
+        JsonNode removed = report.get("differences").get(1);
+        assertEquals("CHILDREN", removed.get("type").asText());
+        assertEquals("/a/d", removed.get("path").asText());
+        assertEquals("bar", removed.get("old").get("e").asText());
+    }
+
+    @Test
+    void testInvalidInput()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonDiffWriter.writePatch(" ", SAMPLE_2, ComparisonOptions.DEFAULT, out));
+        assertThrows(IOException.class,
+                () -> JsonDiffWriter.writeReport(SAMPLE_1, "{\"a\": [1, 2}", ComparisonOptions.DEFAULT, out));
+    }
+
+    private static void assertPatchTransforms(String sample1, String sample2) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonDiffWriter.writePatch(sample1, sample2, ComparisonOptions.DEFAULT, out);
+
+        TreeNode<?> root1 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(sample1));
+        TreeNode<?> root2 = TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(sample2));
+        TreeNode<?> patched = TreePatcher.apply(root1, JsonComparator.OBJECT_MAPPER.readTree(out.toByteArray()));
+
+        assertEquals(toJackson(root2), toJackson(patched), out.toString(StandardCharsets.UTF_8));
+    }
+
+    // Patches don't preserve order of fields, which is significant for hashes
+    private static JsonNode toJackson(TreeNode<?> node)
+    {
+        return switch (node.getNodeType())
+        {
+            case OBJECT ->
+            {
+                ObjectNode object = JsonNodeFactory.instance.objectNode();
+                node.getChildren().forEach(c -> object.set(c.getName(), toJackson(c)));
+                yield object;
+            }
+            case ARRAY ->
+            {
+                ArrayNode array = JsonNodeFactory.instance.arrayNode();
+                node.getChildren().forEach(c -> array.add(toJackson(c)));
+                yield array;
+            }
+            default -> JsonComparator.OBJECT_MAPPER.valueToTree(node.getValue());
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonLinesComparatorTest
+{
+    private final static String LINES_1 = """
+{"id": 1, "name": "a"}
+{"id": 2, "name": "b"}
+
+{"id": 3, "name": "c"}
+""";
+    private final static String LINES_2 = """
+{"id": 1, "name": "a"}
+{"id": 2, "name": "x"}
+{"id": 3,   "name": "c"}
+{"id": 4, "name": "d"}
+""";
+    private final static String SHUFFLED_LINES = """
+{"id": 3, "name": "c"}
+{"id": 5, "name": "e"}
+{"id": 1, "name": "a"}
+{"id": 2, "name": "x"}
+""";
+
+    @Test
+    void testIdenticalStreams() throws IOException
+    {
+        assertTrue(JsonLinesComparator.compareJsonLines(new StringReader(LINES_1), new StringReader(LINES_1), false)
+                .isEmpty());
+    }
+
+    @Test
+    void testPositionalComparison() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(new StringReader(LINES_1),
+                new StringReader(LINES_2), false);
+
+        assertEquals(List.of("Nodes values differ: 'b' vs 'x', path='/[1]/name[1]'",
+                "Children differ: counts 3 vs 4 (diffs: [3-3]:-1), path='/'"), diffs);
+    }
+
+    @Test
+    void testKeyedComparison() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(new StringReader(LINES_1),
+                new StringReader(SHUFFLED_LINES), false, List.of(), "id", 10);
+
+        assertEquals(List.of("Nodes values differ: 'b' vs 'x', path='/[1]/name[1]'",
+                "Record is missing in the first sample: key='5', path='/[1]'"), diffs);
+    }
+
+    @Test
+    void testWindowEviction() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(new StringReader(LINES_1),
+                new StringReader(SHUFFLED_LINES), false, List.of(), "id", 1);
+
+        assertEquals(List.of("Record is missing in the second sample: key='1', path='/[0]'",
+                "Record is missing in the first sample: key='3', path='/[0]'",
+                "Record is missing in the second sample: key='2', path='/[1]'",
+                "Record is missing in the first sample: key='5', path='/[1]'",
+                "Record is missing in the first sample: key='1', path='/[2]'",
+                "Record is missing in the second sample: key='3', path='/[2]'",
+                "Record is missing in the first sample: key='2', path='/[3]'"), diffs);
+    }
+
+    @Test
+    void testKeyTypes() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(
+                new StringReader("{\"id\": 1}\n{\"id\": \"k\\u00e9y\"}\n"),
+                new StringReader("{\"id\": \"1.0\"}\n{\"id\": \"k\u00e9y\"}\n"), false, List.of(), "id", 10);
+
+        assertEquals(List.of("Record is missing in the second sample: key='1', path='/[0]'",
+                "Record is missing in the first sample: key='1.0', path='/[0]'"), diffs);
+    }
+
+    @Test
+    void testStopOnFirst() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(new StringReader(LINES_1),
+                new StringReader(LINES_2), true);
+
+        assertEquals(1, diffs.size());
+    }
+
+    @Test
+    void testInvalidRecords() throws IOException
+    {
+        List<String> diffs = JsonLinesComparator.compareJsonLines(new StringReader("{\"id\": 1}\nnot a JSON\n"),
+                new StringReader("{\"id\": 1}\n{\"id\": 2}\n"), false);
+
+        assertEquals(1, diffs.size());
+        assertTrue(diffs.get(0).startsWith("Failed to parse record 1 of the first sample:"));
+
+        assertThrows(IllegalArgumentException.class, () -> JsonLinesComparator.compareJsonLines(
+                new StringReader(LINES_1), new StringReader(LINES_2), false, List.of(), "id", 0));
+    }
+}
@@ -0,0 +1,103 @@
+package com.aknopov.jsoncompare;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingArrayComparatorTest
+{
+    private final static String ARRAY_1 = """
+[{"id": 1, "name": "a"}, {"id": 2, "name": "b"}, {"id": 3, "name": "c"}]
+""";
+    private final static String ARRAY_2 = """
+[{"id": 1, "name": "a"}, {"id": 2, "name": "x"}, {"id": 3, "name": "c"}]
+""";
+
+    private static InputStream toStream(String sample)
+    {
+        return new ByteArrayInputStream(sample.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String numbers(IntStream stream)
+    {
+        return stream.mapToObj(Integer::toString).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    @Test
+    void testIdenticalArrays() throws IOException
+    {
+        assertTrue(StreamingArrayComparator.compareJsonArrays(toStream(ARRAY_1), toStream(ARRAY_1), false).isEmpty());
+    }
+
+    @Test
+    void testModifiedElement() throws IOException
+    {
+        List<String> diffs = StreamingArrayComparator.compareJsonArrays(toStream(ARRAY_1), toStream(ARRAY_2), false);
+
+        assertEquals(List.of("Nodes values differ: 'b' vs 'x', path='/[1]/name[1]'"), diffs);
+    }
+
+    @Test
+    void testRealignmentInSmallWindow() throws IOException
+    {
+        String sample1 = numbers(IntStream.range(0, 100));
+        String sample2 = numbers(IntStream.range(0, 100).filter(i -> i != 10 && i != 11 && i != 70));
+
+        List<String> diffs = StreamingArrayComparator.compareJsonArrays(toStream(sample1), toStream(sample2), false,
+                List.of(), 8);
+
+        assertEquals(List.of("Array elements differ (diffs: [10-11]:+2), path='/'",
+                "Array elements differ (diffs: [70-70]:+1), path='/'"), diffs);
+    }
+
+    @Test
+    void testTrailingElements() throws IOException
+    {
+        String sample1 = numbers(IntStream.range(0, 10));
+        String sample2 = numbers(IntStream.range(0, 13));
+
+        List<String> diffs = StreamingArrayComparator.compareJsonArrays(toStream(sample1), toStream(sample2), false,
+                List.of(), 4);
+
+        assertEquals(List.of("Array elements differ (diffs: [10-11]:-2, [12-12]:-1), path='/'"), diffs);
+    }
+
+    @Test
+    void testNonArrays() throws IOException
+    {
+        List<String> diffs = StreamingArrayComparator.compareJsonArrays(toStream("{\"a\": 1}"), toStream("[1]"), false);
+
+        assertEquals(List.of("Node types are different: 'OBJECT' vs 'ARRAY', path='/'",
+                "Children differ: counts 1 vs 1 (diffs: a[0-0]:+1, [0-0]:-1), path='/'"), diffs);
+    }
+
+    @Test
+    void testBinaryInput() throws IOException
+    {
+        byte[] cbor = InputFormat.CBOR.mapper().writeValueAsBytes(JsonComparator.OBJECT_MAPPER.readTree(ARRAY_1));
+        ListDiffSink sink = new ListDiffSink();
+        StreamingArrayComparator.compareJsonArrays(new ByteArrayInputStream(cbor), InputFormat.CBOR,
+                toStream(ARRAY_2), InputFormat.JSON, ComparisonOptions.builder().build(), sink,
+                StreamingArrayComparator.DEFAULT_WINDOW_SIZE);
+
+        assertEquals(List.of("Nodes values differ: 'b' vs 'x', path='/[1]/name[1]'"), sink.getMessages());
+    }
+
+    @Test
+    void testInvalidInput() throws IOException
+    {
+        List<String> diffs = StreamingArrayComparator.compareJsonArrays(toStream(ARRAY_1), toStream("[1, 2"), false);
+
+        assertEquals(1, diffs.size());
+        assertTrue(diffs.get(0).startsWith("Failed to parse the second sample:"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.aknopov.jsoncompare;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubtreeDiffCacheTest
+{
+    @Test
+    void testNestedPairsAreKeptWhenReplayed() throws IOException
+    {
+        TreeNode<?> parent1 = child(tree("{\"a\": {\"d\": 1, \"e\": 1}}"));
+        TreeNode<?> parent2 = child(tree("{\"a\": {\"d\": 2, \"e\": 1}}"));
+        TreeNode<?> edited2 = child(tree("{\"a\": {\"d\": 2, \"e\": 3}}"));
+        SubtreeDiffCache cache = new SubtreeDiffCache();
+        AtomicInteger parentComparisons = new AtomicInteger();
+        AtomicInteger nestedComparisons = new AtomicInteger();
+
+        // Compared, replayed, then compared again after the other field is edited
+        for (TreeNode<?> node2 : List.of(parent2, parent2, edited2))
+        {
+            cache.startComparison();
+            DiffRecorder diffRecorder = new DiffRecorder(ComparisonOptions.DEFAULT, cache);
+            cache.compare(parent1, node2, () ->
+            {
+                parentComparisons.incrementAndGet();
+                return cache.compare(child(parent1), child(node2), () ->
+                {
+                    nestedComparisons.incrementAndGet();
+                    diffRecorder.addDifference(DifferenceType.VALUE, child(parent1).path(), "d differs");
+                    return false;
+                }, diffRecorder);
+            }, diffRecorder);
+
+            assertEquals(List.of("d differs, path='/a/d[0]'"), cache.getDifferences().stream()
+                    .map(Difference::message)
+                    .toList());
+        }
+
+        assertEquals(2, parentComparisons.get());
+        assertEquals(1, nestedComparisons.get());
+    }
+
+    private static TreeNode<?> tree(String sample) throws IOException
+    {
+        return TreeNodeConverter.fromJacksonRoot(JsonComparator.OBJECT_MAPPER.readTree(sample));
+    }
+
+    private static TreeNode<?> child(TreeNode<?> node)
+    {
+        return node.getChildren().get(0);
+    }
+}
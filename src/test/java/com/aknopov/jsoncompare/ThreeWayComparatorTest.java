@@ -0,0 +1,125 @@
+package com.aknopov.jsoncompare;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreeWayComparatorTest
+{
+    private final static String BASE = """
+{"name": "service", "port": 80, "limits": {"cpu": 1, "memory": 512}, "tags": ["a", "b"], "owner": {"team": "x"}}
+""";
+
+    @Test
+    void testClassification()
+    {
+        String left = """
+{"name": "service", "port": 8080, "limits": {"cpu": 2, "memory": 512}, "tags": ["a", "b"], "owner": {"team": "y"}}
+""";
+        String right = """
+{"name": "api", "port": 8080, "limits": {"cpu": 4, "memory": 512}, "tags": ["a", "b"], "owner": {"team": "y"}}
+""";
+
+        ThreeWayResult result = ThreeWayComparator.compare(BASE, left, right, ComparisonOptions.DEFAULT);
+
+        assertEquals(List.of(), result.inputErrors());
+        assertEquals(Map.of("/limits[2]/cpu[0]", ChangeKind.CONFLICT,
+                "/name[0]", ChangeKind.CHANGED_RIGHT,
+                "/owner[4]/team", ChangeKind.CHANGED_BOTH_SAME,
+                "/port[1]", ChangeKind.CHANGED_BOTH_SAME), kinds(result));
+        assertTrue(result.hasConflicts());
+
+        PathChange conflict = result.changes().get(0);
+        assertEquals(List.of("Nodes values differ: '1.0' vs '2.0', path='/limits[2]/cpu[0]'"),
+                conflict.left().stream().map(Difference::message).toList());
+        assertEquals(List.of("Nodes values differ: '1.0' vs '4.0', path='/limits[2]/cpu[0]'"),
+                conflict.right().stream().map(Difference::message).toList());
+    }
+
+    @Test
+    void testChangeOfRemovedNode()
+    {
+        String left = """
+{"name": "service", "port": 80, "limits": {"cpu": 1, "memory": 512}, "tags": ["a", "b"]}
+""";
+        String right = """
+{"name": "service", "port": 80, "limits": {"cpu": 1, "memory": 512}, "tags": ["a", "b"], "owner": {"team": "y"}}
+""";
+
+        ThreeWayResult result = ThreeWayComparator.compare(BASE, left, right, ComparisonOptions.DEFAULT);
+
+        assertEquals(Map.of("/", ChangeKind.CHANGED_LEFT, "/owner[4]/team", ChangeKind.CONFLICT), kinds(result));
+    }
+
+    @Test
+    void testIndependentChanges()
+    {
+        String left = BASE.replace("\"memory\": 512", "\"memory\": 1024");
+        String right = BASE.replace("[\"a\", \"b\"]", "[\"a\", \"c\"]");
+
+        ThreeWayResult result = ThreeWayComparator.compare(BASE, left, right, ComparisonOptions.DEFAULT);
+
+        assertEquals(Map.of("/limits[2]/memory[1]", ChangeKind.CHANGED_LEFT, "/tags[3]/[1]", ChangeKind.CHANGED_RIGHT),
+                kinds(result));
+        assertFalse(result.hasConflicts());
+        assertTrue(ThreeWayComparator.compare(BASE, BASE, BASE, ComparisonOptions.DEFAULT).changes().isEmpty());
+    }
+
+    @Test
+    void testParallelComparison()
+    {
+        String base = IntStream.range(0, 100_000)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(", ", "[", "]"));
+        String left = base.replace(", 500,", ", 501,");
+        String right = base.replace(", 700,", ", 701,");
+        assertTrue(base.length() > ThreeWayComparator.PARALLEL_MIN_LENGTH / 2);
+
+        ThreeWayResult result = ThreeWayComparator.compare(base, left, right, ComparisonOptions.DEFAULT);
+
+        assertEquals(Map.of("/[500]", ChangeKind.CHANGED_LEFT, "/[700]", ChangeKind.CHANGED_RIGHT), kinds(result));
+    }
+
+    @Test
+    void testNullValuesAreNotSupported()
+    {
+        String base = IntStream.range(0, 100_000)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(", ", "[", "]"));
+        String left = base.replace(", 500,", ", null,");
+        String smallBase = "[1, 2]";
+        String smallLeft = "[1, null]";
+
+        // Same exception, whether versions are compared in parallel or not
+        assertThrows(IllegalArgumentException.class,
+                () -> ThreeWayComparator.compare(base, left, base, ComparisonOptions.DEFAULT));
+        assertThrows(IllegalArgumentException.class,
+                () -> ThreeWayComparator.compare(smallBase, smallLeft, smallBase, ComparisonOptions.DEFAULT));
+    }
+
+    @Test
+    void testInvalidInput()
+    {
+        assertEquals(List.of("Empty input for the base sample"),
+                ThreeWayComparator.compare("", BASE, BASE, ComparisonOptions.DEFAULT).inputErrors());
+
+        ThreeWayResult result = ThreeWayComparator.compare(BASE, BASE, "{\"a\": ", ComparisonOptions.DEFAULT);
+        assertTrue(result.changes().isEmpty());
+        assertEquals(1, result.inputErrors().size());
+        assertTrue(result.inputErrors().get(0).startsWith("Failed to parse the right sample:"));
+    }
+
+    private static Map<String, ChangeKind> kinds(ThreeWayResult result)
+    {
+        return result.changes().stream()
+                .collect(Collectors.toMap(PathChange::path, PathChange::kind));
+    }
+}
@@ -1,5 +1,8 @@
 package com.aknopov.jsoncompare;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import com.aknopov.jsoncompare.TreeNode.NodeType;
@@ -7,6 +10,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 class TreeNodeConverterTest
@@ -169,4 +173,34 @@ class TreeNodeConverterTest
             assertEquals("", child1_1.getName());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConversionFromParser() throws Exception
+    {
+        for (String sample : List.of(EMPTY_SAMPLE, JSON_SAMPLE, ARRAY_SAMPLE, ARRAY_2D, "\"text\"", "[true, 1.5e3, []]"))
+        {
+            TreeNode<?> expected = TreeNodeConverter.fromJacksonRoot(MAPPER.readTree(sample));
+            TreeNode<?> converted = TreeNodeConverter.fromParser(MAPPER.createParser(sample));
+
+            assertEquals(expected, converted);
+            assertEquals(expected.numChildren(), converted.numChildren());
+        }
+        assertNull(TreeNodeConverter.fromParser(MAPPER.createParser(" ")));
+    }
+
+    @Test
+    void testConversionOfUtf8Text() throws Exception
+    {
+        String sample = "{\"a\": \"plain\", \"b\": [\"caf\u00e9 \\ud83d\\ude00\", \"\\\"quoted\\\"\"]}";
+        byte[] bytes = sample.getBytes(StandardCharsets.UTF_8);
+
+        TreeNode<?> expected = TreeNodeConverter.fromJacksonRoot(MAPPER.readTree(sample));
+        TreeNode<?> converted = TreeNodeConverter.fromParser(MAPPER.createParser(bytes), bytes);
+
+        assertEquals(expected, converted);
+        TreeNode<?> text = converted.getChild(1).getChild(0);
+        assertInstanceOf(Utf8Text.class, text.getValue());
+        assertEquals("caf\u00e9 \ud83d\ude00", text.getValue().toString());
+        assertEquals("\"quoted\"", converted.getChild(1).getChild(1).getValue().toString());
+    }
+}
@@ -85,6 +85,35 @@ class TreeNodeTest
         assertEquals(root1.hashCode(), root2.hashCode());
     }
 
+    @Test
+    void testHashesAfterEdits()
+    {
+        TreeNode<Void> root = new TreeNode<>("", NodeType.ARRAY);
+        TreeNode<Double> child1 = new TreeNode<>("", NodeType.NUMBER, root, 1.0, 0);
+        TreeNode<Double> child3 = new TreeNode<>("", NodeType.NUMBER, root, 3.0, 1);
+        root.addChild(child1).addChild(child3);
+
+        TreeNode<Void> expected = new TreeNode<>("", NodeType.ARRAY);
+        expected.addChild(new TreeNode<>("", NodeType.NUMBER, expected, 1.0, 0))
+                .addChild(new TreeNode<>("", NodeType.NUMBER, expected, 2.0, 1))
+                .addChild(new TreeNode<>("", NodeType.NUMBER, expected, 3.0, 2));
+
+        root.insertChild(1, new TreeNode<>("", NodeType.NUMBER, root, 2.0, 1));
+        assertEquals(expected, root);
+        assertEquals(2, child3.getIndex());
+
+        root.replaceChild(0, new TreeNode<>("", NodeType.NUMBER, root, 5.0, 0));
+        assertNotEquals(expected, root);
+
+        root.replaceChild(0, child1);
+        assertSame(child1, root.getChild(0));
+        assertEquals(expected, root);
+
+        root.removeChild(1);
+        assertEquals(1, child3.getIndex());
+        assertEquals(new TreeNode<>("", NodeType.NUMBER, root, 3.0, 1), child3);
+    }
+
     @Test
     void testPathSerialization()
     {
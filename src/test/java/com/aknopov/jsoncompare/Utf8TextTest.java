@@ -0,0 +1,84 @@
+package com.aknopov.jsoncompare;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Utf8TextTest
+{
+    @Test
+    void testDecoding()
+    {
+        assertEquals("plain", literal("\"plain\"").toString());
+        assertEquals("", literal("\"\"").toString());
+        assertEquals("café € 😀", literal("\"café € 😀\"").toString());
+        assertEquals("\"a\"\\/\b\f\n\r\té", literal("\"\\\"a\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00E9\"").toString());
+        assertEquals("😀", literal("\"\\ud83d\\ude00\"").toString());
+    }
+
+    @Test
+    void testHashing()
+    {
+        for (String text : new String[] {"", "plain", "café", "😀 €"})
+        {
+            assertEquals(text.hashCode(), literal("\"" + text + "\"").hashCode());
+        }
+        assertEquals("é\n".hashCode(), literal("\"\\u00e9\\n\"").hashCode());
+    }
+
+    @Test
+    void testEquality()
+    {
+        Utf8Text plain = literal("\"café\"");
+        Utf8Text escaped = literal("\"caf\\u00e9\"");
+
+        assertEquals(plain, escaped);
+        assertEquals(escaped, plain);
+        assertEquals(plain, literal("\"café\""));
+        assertTrue(plain.equals("café"));
+        assertTrue(Utf8Text.valuesEqual("café", escaped));
+        assertTrue(Utf8Text.valuesEqual(escaped, "café"));
+        assertFalse(Utf8Text.valuesEqual("cafe", plain));
+        assertFalse(plain.equals(literal("\"caf\"")));
+        assertFalse(escaped.equals(literal("\"caf\\u00e9s\"")));
+        assertFalse(plain.equals(1.0));
+        assertEquals("café", Utf8Text.decode(plain));
+        assertEquals(1.0, Utf8Text.decode(1.0));
+    }
+
+    @Test
+    void testLength()
+    {
+        assertFalse(literal("\"abc\"").longerThan(3));
+        assertTrue(literal("\"abcd\"").longerThan(3));
+        // 3 characters in 11 bytes
+        assertFalse(literal("\"\\n\\u00e9€\"").longerThan(3));
+        assertTrue(literal("\"\\n\\u00e9€\"").longerThan(2));
+        // Surrogate pair is 2 units
+        assertTrue(literal("\"😀\"").longerThan(1));
+        assertFalse(literal("\"😀\"").longerThan(2));
+    }
+
+    @Test
+    void testIncompleteLiterals()
+    {
+        byte[] bytes = "[\"abc\\\"".getBytes(StandardCharsets.UTF_8);
+
+        assertNull(Utf8Text.ofLiteral(bytes, 1));
+        assertNull(Utf8Text.ofLiteral(bytes, 0));
+        assertNull(Utf8Text.ofLiteral(bytes, -1));
+    }
+
+    private static Utf8Text literal(String json)
+    {
+        Utf8Text text = Utf8Text.ofLiteral(json.getBytes(StandardCharsets.UTF_8), 0);
+        assertNotNull(text);
+        return text;
+    }
+}
@@ -0,0 +1,49 @@
+package com.aknopov.jsoncompare.diff;
+
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HashArraysTest
+{
+    @Test
+    void testCommonPrefix()
+    {
+        long[] a = {1, 2, 3, 4};
+        long[] b = {1, 2, 5, 4, 6};
+
+        assertEquals(2, HashArrays.commonPrefix(a, 0, a.length, b, 0, b.length));
+        assertEquals(0, HashArrays.commonPrefix(a, 2, a.length, b, 2, b.length));
+        assertEquals(1, HashArrays.commonPrefix(a, 3, a.length, b, 3, b.length));
+        assertEquals(0, HashArrays.commonPrefix(a, 4, a.length, b, 0, b.length));
+    }
+
+    @Test
+    void testCommonSuffix()
+    {
+        long[] a = {1, 2, 3, 4};
+        long[] b = {7, 2, 5, 3, 4};
+
+        assertEquals(2, HashArrays.commonSuffix(a, 0, a.length, b, 0, b.length));
+        assertEquals(0, HashArrays.commonSuffix(a, 0, 3, b, 0, 3));
+        assertEquals(1, HashArrays.commonSuffix(a, 0, 2, b, 0, 2));
+        assertEquals(0, HashArrays.commonSuffix(a, 0, 0, b, 0, b.length));
+    }
+
+    @Test
+    void testLongRanges()
+    {
+        long[] a = LongStream.range(0, 1000).toArray();
+        long[] b = LongStream.range(0, 1001).toArray();
+        b[500] = -1;
+
+        assertEquals(500, HashArrays.commonPrefix(a, 0, a.length, b, 0, b.length));
+        assertEquals(1000, HashArrays.commonPrefix(a, 0, a.length, a, 0, a.length));
+        assertEquals(499, HashArrays.commonSuffix(a, 0, a.length, b, 0, 1000));
+        assertEquals(435, HashArrays.commonSuffix(a, 0, 936, b, 0, 936));
+        assertEquals(0, HashArrays.commonSuffix(a, 0, a.length, b, 0, b.length));
+        assertEquals(1000, HashArrays.commonSuffix(a, 0, a.length, a, 0, a.length));
+    }
+}
@@ -120,4 +120,20 @@ class MeyerAlgorithmTest
         List<Diff<Character>> diffs2 = MeyerAlgorithm.compareSequences(a, b, 1);
         assertEquals(2, diffs2.size());
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @MethodSource("stringDiffsSupplier")
+    void testHashedDiffs(String a, String b, List<Diff<Character>> expectedDiffs)
+    {
+        List<Character> listA = a.chars().mapToObj(c -> (char)c).toList();
+        List<Character> listB = b.chars().mapToObj(c -> (char)c).toList();
+        long[] hashesA = a.chars().asLongStream().toArray();
+        long[] hashesB = b.chars().asLongStream().toArray();
+
+        DiffResult<Character> result = MeyerAlgorithm.compute(listA, hashesA, listB, hashesB, Integer.MAX_VALUE,
+                () -> false);
+
+        assertEquals(expectedDiffs, result.diffs());
+        assertEquals(MeyerAlgorithm.compute(listA, listB, Integer.MAX_VALUE, () -> false), result);
+    }
+}